@@ -298,6 +298,22 @@ class GameState(
         gameElements.add(robot)
     }
 
+    /**
+     * Move a robot of a newly generated map to another start position (used by the retrograde
+     * placement of the map generation); updates the initial positions and the unique map ID
+     * @return false if there is no robot of this color
+     */
+    fun placeRobot(color: Int, x: Int, y: Int): Boolean {
+        val robot = gameElements.firstOrNull { it.type == GameElement.TYPE_ROBOT && it.color == color }
+            ?: return false
+        robot.x = x
+        robot.y = y
+        storeInitialRobotPositions()
+        uniqueMapId = MapIdGenerator.generateUniqueId(gridElements)
+        levelName = uniqueMapId
+        return true
+    }
+
     /**
      * Get the robot at the specified coordinates
      */
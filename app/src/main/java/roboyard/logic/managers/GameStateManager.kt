@@ -43,10 +43,21 @@ import roboyard.logic.managers.GameHistoryManager.getNextHistoryIndex
 import roboyard.logic.managers.GameHistoryManager.initialize
 import roboyard.logic.managers.GameHistoryManager.saveHistoryIndex
 import roboyard.logic.managers.SyncManager.HistoryUploadCallback
+import driftingdroids.model.MemoryArbiter
+import driftingdroids.model.SearchProgress
+import driftingdroids.model.SearchBudget
 import roboyard.logic.solver.ERRGameMove
+import roboyard.logic.solver.GameLevelSolver
+import roboyard.logic.solver.MoveCountCache
+import roboyard.logic.solver.ParallelMapGenerator
+import roboyard.logic.solver.PuzzlePool
 import roboyard.logic.solver.RRGameMove
+import roboyard.logic.solver.RRGetMap
 import roboyard.logic.solver.RRPiece
+import roboyard.logic.solver.RetrogradePlacer
 import roboyard.logic.solver.SolverDD
+import roboyard.logic.solver.SolverScheduler
+import roboyard.logic.solver.SuccessorSolver
 import roboyard.logic.storage.FileReadWrite.Companion.writePrivateData
 import roboyard.ui.RoboyardApplication
 import roboyard.ui.animation.RobotAnimationManager
@@ -67,14 +78,11 @@ import java.io.IOException
 import java.io.InputStreamReader
 import java.lang.ref.WeakReference
 import java.nio.charset.StandardCharsets
-import java.util.concurrent.ConcurrentHashMap
-import java.util.concurrent.ExecutionException
-import java.util.concurrent.ExecutorService
-import java.util.concurrent.Executors
-import java.util.concurrent.Future
-import java.util.concurrent.ThreadFactory
+import java.util.Random
 import java.util.concurrent.TimeUnit
-import java.util.concurrent.TimeoutException
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.function.Consumer
 import kotlin.concurrent.Volatile
 import kotlin.math.abs
 import kotlin.math.max
@@ -125,14 +133,48 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
     // Game settings
     private val soundEnabled = MutableLiveData<Boolean?>(true)
     private val isSolverRunning = MutableLiveData<Boolean?>(false)
+    private val solverMinimumMoves = MutableLiveData<Int?>(0) // progress of the running solver: a solution needs at least this many moves
 
     // Solver
     private val solver: SolverManager? = null
-    private val solverExecutor: ExecutorService =
-        Executors.newSingleThreadExecutor() // Single persistent executor
+
+    // all solver work runs as prioritized jobs: hint > live counter > pre-computation > map generation > puzzle pool
+    private val solverScheduler = SolverScheduler.shared
 
     @Volatile
-    private var solverFuture: Future<*>? = null // Track current solver task for cancellation
+    private var solverJob: SolverScheduler.SolverJob? = null // Track current solver task for cancellation
+
+    // Random maps with validated difficulty: candidates are solved in parallel, see generateValidGame()
+    private val mapGenerator = ParallelMapGenerator(RandomGameCandidates(), MAP_GENERATOR_WORKERS).apply {
+        // the workers share the heap, and a candidate that takes too long is replaced by a new one
+        searchBudget = SearchBudget(
+            maxBytes = Runtime.getRuntime().maxMemory() * 6 / 10 / MAP_GENERATOR_WORKERS,
+            maxMillis = MAP_CANDIDATE_MAX_MILLIS
+        )
+        memoryPriority = SolverScheduler.Priority.GENERATION.memoryPriority
+    }
+    private var mapGenerationRequest = 0 // results of older requests are ignored
+
+    // Maps are created one at a time, also when the puzzle pool is refilled during a map generation
+    private val candidateLock = Any()
+
+    // Validated random maps for the current settings, generated while the player is idle, see refillPuzzlePool()
+    private val puzzlePool = PuzzlePool(PUZZLE_POOL_SIZE).apply {
+        setStorageFile(File(application.filesDir, PuzzlePool.FILE_NAME))
+    }
+    private val poolGenerator = ParallelMapGenerator(RandomGameCandidates(), 1, Thread.MIN_PRIORITY).apply {
+        // leave most of the heap to the game's own solvers
+        searchBudget = SearchBudget(
+            maxBytes = Runtime.getRuntime().maxMemory() / 5,
+            maxMillis = MAP_CANDIDATE_MAX_MILLIS
+        )
+        // its reservations are revoked when a game solver needs the memory
+        memoryPriority = SolverScheduler.Priority.PREFETCH.memoryPriority
+    }
+    @Volatile
+    private var poolRefillRequest = 0 // a refill stops when this changes
+    private var poolRefillSolverJob: SolverScheduler.SolverJob? = null
+    private var poolRefillJob: Job? = null
     private val context: Context?
 
     /**
@@ -313,15 +355,21 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
     private val liveSolverCalculating = MutableLiveData<Boolean?>(false)
     private val liveMoveCounterDeviation = MutableLiveData<Int?>(0)
 
-    // Pre-computation cache for next possible moves (sequential, one solver at a time)
-    private val nextMovesCache = ConcurrentHashMap<String?, Int?>()
-    private var preComputeExecutor: ExecutorService? = null
+    // Pre-computation cache for next possible moves (all of them in one search), by computeStateKey()
+    private val nextMovesCache = MoveCountCache(NEXT_MOVES_CACHE_MAX_ENTRIES)
+    private val preComputeJobs = ArrayList<SolverScheduler.SolverJob>()
+
+    // one solver per scheduler thread, a thread runs one job at a time
+    private val preComputeSolver = object : ThreadLocal<SuccessorSolver>() {
+        override fun initialValue() = SuccessorSolver()
+    }
 
     @Volatile
     private var preComputeRunning = false
 
+    // incremented by each cancellation; a pre-computation of an older generation was cancelled
     @Volatile
-    private var preComputeCancelled = false
+    private var preComputeGeneration = 0
 
     // Hint button reset timer to avoid race condition when loading games from history
     private var hintButtonResetJob: Job? = null
@@ -376,6 +424,7 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
         val solverManager = this.solverManager
         solverManager.resetInitialization()
         solverManager.cancelSolver() // Cancel any running solver process
+        cancelMapGeneration()
         isSolverRunning.setValue(false) // Reset immediately to avoid race condition with calculateSolutionAsync guard
 
         // Clear any existing solution to prevent it from being reused
@@ -424,6 +473,7 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
         val solverManager = this.solverManager
         solverManager.resetInitialization()
         solverManager.cancelSolver() // Cancel any running solver process
+        cancelMapGeneration()
         isSolverRunning.setValue(false) // Reset immediately to avoid race condition with calculateSolutionAsync guard
 
         // Clear any existing solution to prevent it from being reused
@@ -2142,6 +2192,13 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
         return isSolverRunning
     }
 
+    /**
+     * Progress of the running solver: every solution has at least this number of moves (0 = unknown yet)
+     */
+    fun getSolverMinimumMoves(): LiveData<Int?> {
+        return solverMinimumMoves
+    }
+
     fun getNewGameLoadedEvent(): LiveData<Boolean?> {
         return newGameLoadedEvent
     }
@@ -3377,12 +3434,12 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
         onSolutionCalculationStarted()
 
         try {
-            // Cancel any previous solver task - the single-thread executor ensures
+            // Cancel any previous solver task - the game solver group ensures
             // the new task won't start until the old one finishes/is interrupted
-            if (solverFuture != null && !solverFuture!!.isDone()) {
+            if (solverJob != null && !solverJob!!.isDone) {
                 d("[SOLUTION_SOLVER] Cancelling previous solver task before starting new one")
                 this.solverManager.cancelSolver()
-                solverFuture!!.cancel(true)
+                solverJob!!.cancel()
             }
 
 
@@ -3390,23 +3447,12 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
             val capturedElements = ArrayList<GridElement?>(elements)
 
 
-            // Submit new solver task to the persistent single-thread executor
+            // Submit new solver task to the scheduler, at the highest priority
             // Both initialization and solving run on background thread to avoid Main-Thread OOM
-            solverFuture = solverExecutor.submit(Runnable {
+            solverJob = solverScheduler.submit(SolverScheduler.Priority.HINT, "hint-solver", SolverScheduler.Task {
                 try {
-                    // Memory gate: wait for GC to reclaim previous solver's memory
-                    val rt = Runtime.getRuntime()
-                    val minFreeBytes = rt.maxMemory() / 10 // 10% of heap must be free
-                    for (attempt in 0..4) {
-                        val freeBytes = rt.maxMemory() - rt.totalMemory() + rt.freeMemory()
-                        if (freeBytes >= minFreeBytes) break
-                        d(
-                            "[SOLUTION_SOLVER] Memory gate: waiting for GC, free=%dMB need=%dMB attempt=%d",
-                            freeBytes shr 20, minFreeBytes shr 20, attempt
-                        )
-                        System.gc()
-                        Thread.sleep(200)
-                    }
+                    // no memory gate: the hint's search reserves its memory at the highest priority
+                    // (MemoryArbiter), background searches give theirs up when it is needed
                     d("[SOLUTION_SOLVER][calculateSolutionAsync] Initializing and running solver on background thread")
                     val manager = this.solverManager
                     manager.initialize(capturedElements)
@@ -3422,7 +3468,7 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
                         onSolutionCalculationFailed("Error: " + e.message)
                     }
                 }
-            })
+            }, SolverScheduler.GROUP_GAME_SOLVER)
         } catch (e: Exception) {
             e(e, "[SOLUTION_SOLVER] Error initializing solver")
             onSolutionCalculationFailed("Error: " + e.message)
@@ -3434,6 +3480,7 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
      */
     private fun onSolutionCalculationStarted() {
         d("[SOLUTION_SOLVER] onSolutionCalculationStarted")
+        solverMinimumMoves.setValue(0)
         currentSolution = null
         currentSolutionStep = 0
         loadedSolutions = null
@@ -3652,10 +3699,11 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
     fun cancelSolver() {
         d("[SOLUTION_SOLVER] cancelSolver called")
         this.solverManager.cancelSolver()
+        cancelMapGeneration()
         // Cancel the current solver task (interrupts the thread)
-        if (solverFuture != null && !solverFuture!!.isDone()) {
-            d("[SOLUTION_SOLVER] Cancelling solver future")
-            solverFuture!!.cancel(true)
+        if (solverJob != null && !solverJob!!.isDone) {
+            d("[SOLUTION_SOLVER] Cancelling solver job")
+            solverJob!!.cancel()
         }
         isSolverRunning.setValue(false)
         // Call the failure handler for normal cancellation
@@ -3684,6 +3732,8 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
      */
     fun keepCurrentMapDespiteDifficulty() {
         keepCurrentMapDespiteDifficulty = true
+        // while maps are generated in the background the next solvable one is taken
+        mapGenerator.acceptNext()
         d("[DIFFICULTY_ENFORCER] Current map will be kept despite difficulty limits")
     }
 
@@ -3825,13 +3875,190 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
         val wallStorage = getInstance()
         wallStorage.updateCurrentBoardSize()
 
+        if (validateDifficulty) {
+            generateValidGame(width, height)
+            return
+        }
+
         // Create a new random game state using static Preferences
-        val newState = createRandom()
+        val newState = synchronized(candidateLock) { createRandom() }
         d(
             "GameStateManager: Created new random GameState with robotCount=%d, targetColors=%d",
             Preferences.robotCount,
             Preferences.targetColors
         )
+        setNewRandomGame(newState)
+        startTime = System.currentTimeMillis()
+
+        // only debug
+        d("[calculateSolutionAsync] GameStateManager: Not validating puzzle difficulty")
+        // Regular game initialization, don't validate difficulty
+        validateDifficulty = true // Reset for next time
+        calculateSolutionAsync(null)
+    }
+
+    /**
+     * Generate random maps in the background until one has the required number of moves
+     * (minimumRequiredMoves..maximumRequiredMoves), then start it as the new game.
+     * The candidates are solved in parallel by mapGenerator; the game's own solver run
+     * for the accepted map is usually answered by the SolutionCache.
+     */
+    private fun generateValidGame(width: Int, height: Int) {
+        val request = ++mapGenerationRequest
+        mapGenerator.cancel() // a running generation for an older request is not needed anymore
+        stopPuzzlePoolRefill() // the background generation would slow down this one
+        isSolverRunning.setValue(true)
+
+        val minMoves = minimumRequiredMoves
+        val maxMoves = maximumRequiredMoves
+        val poolKey = puzzlePoolKey
+        d("[MAP_GENERATOR] Generating a map with %d-%d moves (request %d)", minMoves, maxMoves, request)
+        // the candidates are solved on the worker threads of mapGenerator, so the job takes one slot per worker
+        solverScheduler.submit(SolverScheduler.Priority.GENERATION, "map-generation", SolverScheduler.Task {
+            val result = try {
+                takePooledGame(poolKey) ?: mapGenerator.generate(minMoves, maxMoves, MAX_ATTEMPTS)
+            } catch (e: Exception) {
+                e(e, "[MAP_GENERATOR] Map generation failed")
+                null
+            }
+            coroutineScope.launch {
+                onValidGameGenerated(request, result, width, height)
+            }
+        }, SolverScheduler.GROUP_MAP_GENERATION, slots = MAP_GENERATOR_WORKERS)
+    }
+
+    private fun onValidGameGenerated(
+        request: Int,
+        result: ParallelMapGenerator.Result<GameState>?,
+        width: Int,
+        height: Int
+    ) {
+        if (request != mapGenerationRequest) {
+            d("[MAP_GENERATOR] Ignoring the result of outdated request %d", request)
+            return
+        }
+        isSolverRunning.setValue(false)
+        if (result == null) {
+            d("[MAP_GENERATOR] Map generation cancelled")
+            return
+        }
+        d(
+            "[MAP_GENERATOR] %s map with %d moves after %d candidates in %dms",
+            if (result.accepted) "Accepted" else "No valid map found, using", result.moves, result.attempts, result.milliSeconds
+        )
+        setNewRandomGame(result.candidate)
+        startTime = System.currentTimeMillis()
+
+        // the validation callback accepts the map (and stores the solution like for a serially generated map);
+        // after the attempts were used up it accepts it regardless of the moves
+        d("[calculateSolutionAsync] GameStateManager: Validating puzzle difficulty...")
+        calculateSolutionAsync(DifficultyValidationCallback(width, height, result.attempts))
+        schedulePuzzlePoolRefill()
+    }
+
+    /**
+     * Settings of the maps in the puzzle pool; null if maps must not be generated in advance
+     * (the walls are kept between games when generateNewMapEachTime is off)
+     */
+    private val puzzlePoolKey: String?
+        get() {
+            if (!Preferences.generateNewMapEachTime) return null
+            return "${Preferences.boardSizeWidth}x${Preferences.boardSizeHeight}" +
+                    ";robots=${Preferences.robotCount};targets=${Preferences.targetColors}" +
+                    ";difficulty=${Preferences.difficulty};moves=${Preferences.minSolutionMoves}-${Preferences.maxSolutionMoves}" +
+                    ";multicolor=${Preferences.allowMulticolorTarget}"
+        }
+
+    /**
+     * Take the next map of the puzzle pool (on the solver thread, the pool may have to be read from its file)
+     * @return the map as an accepted result, or null if the pool has no map for these settings
+     */
+    private fun takePooledGame(poolKey: String?): ParallelMapGenerator.Result<GameState>? {
+        if (poolKey == null) return null
+        val entry = puzzlePool.poll(poolKey) ?: return null
+        val state = try {
+            parseFromSaveData(entry.data, context)
+        } catch (e: Exception) {
+            e(e, "[PUZZLE_POOL] Error parsing a pooled map")
+            null
+        }
+        if (state == null) {
+            w("[PUZZLE_POOL] Could not parse a pooled map, generating a new one")
+            return null
+        }
+        state.setRobotCount(Preferences.robotCount) // like createRandom(), the pool key guarantees that it matches
+        d("[PUZZLE_POOL] Using a pooled map with %d moves, %d left", entry.moves, puzzlePool.size(poolKey))
+        return ParallelMapGenerator.Result(state, entry.moves, true, 0, 0)
+    }
+
+    /**
+     * Refill the puzzle pool once the new game has been set up and the player is idle
+     */
+    private fun schedulePuzzlePoolRefill() {
+        poolRefillJob?.cancel()
+        poolRefillJob = coroutineScope.launch {
+            delay(PUZZLE_POOL_IDLE_DELAY_MS)
+            // wait until the game's solver has finished
+            while (java.lang.Boolean.TRUE == isSolverRunning.getValue()) {
+                delay(PUZZLE_POOL_IDLE_DELAY_MS)
+            }
+            refillPuzzlePool()
+        }
+    }
+
+    /**
+     * Generate validated maps for the current settings at low priority until the pool is full.
+     * Each map is solved by poolGenerator, so its solutions are in the SolutionCache when it is used.
+     */
+    private fun refillPuzzlePool() {
+        val key = puzzlePoolKey ?: return
+        if (puzzlePool.isFull(key)) return
+        val request = ++poolRefillRequest
+        val minMoves = minimumRequiredMoves
+        val maxMoves = maximumRequiredMoves
+        // a higher priority job that needs the slot cancels the refill, it is scheduled again when idle
+        poolRefillSolverJob = solverScheduler.submit(SolverScheduler.Priority.PREFETCH, "puzzle-pool", SolverScheduler.Task { job ->
+            while (request == poolRefillRequest && !job.isStopping && !puzzlePool.isFull(key)) {
+                val result = try {
+                    poolGenerator.generate(minMoves, maxMoves, MAX_ATTEMPTS)
+                } catch (e: Exception) {
+                    e(e, "[PUZZLE_POOL] Map generation failed")
+                    null
+                }
+                if (result == null || !result.accepted || request != poolRefillRequest || key != puzzlePoolKey) break
+                if (!puzzlePool.offer(key, PuzzlePool.Entry(result.moves, result.candidate.serialize()))) break
+                d("[PUZZLE_POOL] Added a map with %d moves after %dms, %d in the pool", result.moves, result.milliSeconds, puzzlePool.size(key))
+            }
+        }, SolverScheduler.GROUP_PUZZLE_POOL, Runnable { poolGenerator.cancel() })
+    }
+
+    private fun stopPuzzlePoolRefill() {
+        poolRefillJob?.cancel()
+        poolRefillRequest++
+        poolRefillSolverJob?.cancel()
+        poolGenerator.cancel()
+    }
+
+    /**
+     * Stop the parallel map generation; its result will be ignored
+     */
+    private fun cancelMapGeneration() {
+        mapGenerationRequest++
+        mapGenerator.cancel()
+        stopPuzzlePoolRefill()
+    }
+
+    /**
+     * Statistics of the parallel map generation (candidates, rejects by reason, time to accept)
+     */
+    val mapGenerationStats: ParallelMapGenerator.Stats
+        get() = mapGenerator.stats
+
+    /**
+     * Make a newly generated random map the current game
+     */
+    private fun setNewRandomGame(newState: GameState) {
+        val wallStorage = getInstance()
 
         // DEBUG: Analyze all game elements in the newly created state
         d("[DEBUG_ROBOTS] Starting debug of newly created GameState (createValidGame)")
@@ -3871,114 +4098,39 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
         val gridElements = newState.gridElements
         this.solverManager.resetInitialization()
         this.solverManager.initialize(gridElements)
-
-        // Quick check for trivial puzzles (1 move or already solved) before starting expensive solver
-        if (validateDifficulty && isTrivialPuzzle(newState)) {
-            d("[TRIVIAL_CHECK] Detected trivial puzzle, regenerating without running solver")
-            createValidGame(width, height)
-            return
-        }
-
-        startTime = System.currentTimeMillis()
-
-        // Start calculating the solution, but use our internal validation callback
-        if (validateDifficulty) {
-            // Temporarily set validateDifficulty to false to prevent infinite recursion
-
-            // Calculate solution with our own callback to validate difficulty
-
-            d("[calculateSolutionAsync] GameStateManager: Validating puzzle difficulty...")
-            calculateSolutionAsync(DifficultyValidationCallback(width, height))
-        } else {
-            // only debug
-            d("[calculateSolutionAsync] GameStateManager: Not validating puzzle difficulty")
-            // Regular game initialization, don't validate difficulty
-            validateDifficulty = true // Reset for next time
-            calculateSolutionAsync(null)
-        }
     }
 
     /**
-     * Quick check if puzzle is trivial (already solved or only 1 move needed)
-     * This prevents occasionally OutOfMemoryError in solver for very simple puzzles
-     * this is a duplicate of isSolution01() but that function did not always work
+     * Random maps from the current Preferences as candidates for the parallel map generation
      */
-    private fun isTrivialPuzzle(state: GameState): Boolean {
-        // Check if puzzle is already solved
-        if (state.isComplete) {
-            d("[TRIVIAL_CHECK] Puzzle is already solved")
-            return true
-        }
-
+    private inner class RandomGameCandidates : ParallelMapGenerator.CandidateSource<GameState> {
+        private val random = Random()
 
-        // Check if any robot can reach its target in one move
-        // This is a quick heuristic check - not perfect but catches most trivial cases
-        for (robot in state.gameElements) {
-            if (robot.type != GameElement.TYPE_ROBOT) continue
-
-            val robotX = robot.x
-            val robotY = robot.y
-            val robotColor = robot.color
-
-
-            // Find matching target
-            for (target in state.gameElements) {
-                if (target.type != GameElement.TYPE_TARGET) continue
-                if (target.color != robotColor) continue
-
-                val targetX = target.x
-                val targetY = target.y
-
-
-                // Check if robot can reach target in one move (same row or column)
-                if (robotX == targetX || robotY == targetY) {
-                    // Check if path is clear (no walls blocking)
-                    var pathClear = true
-
-                    if (robotX == targetX) {
-                        // Vertical movement
-                        val startY = min(robotY, targetY)
-                        val endY = max(robotY, targetY)
-                        for (y in startY..endY) {
-                            // Check for horizontal walls blocking vertical movement
-                            if (y > startY && state.getCellType(
-                                    robotX,
-                                    y
-                                ) == Constants.TYPE_HORIZONTAL_WALL
-                            ) {
-                                pathClear = false
-                                break
-                            }
-                        }
-                    } else {
-                        // Horizontal movement
-                        val startX = min(robotX, targetX)
-                        val endX = max(robotX, targetX)
-                        for (x in startX..endX) {
-                            // Check for vertical walls blocking horizontal movement
-                            if (x > startX && state.getCellType(
-                                    x,
-                                    robotY
-                                ) == Constants.TYPE_VERTICAL_WALL
-                            ) {
-                                pathClear = false
-                                break
-                            }
-                        }
-                    }
+        override fun create(): GameState {
+            val state = synchronized(candidateLock) { createRandom() }
+            val minMoves = Preferences.minSolutionMoves
+            if (minMoves >= RETROGRADE_MIN_MOVES) placeGoalRobot(state, minMoves, Preferences.maxSolutionMoves)
+            return state
+        }
 
-                    if (pathClear) {
-                        d(
-                            "[TRIVIAL_CHECK] Robot color %d can reach target in 1 move from (%d,%d) to (%d,%d)",
-                            robotColor, robotX, robotY, targetX, targetY
-                        )
-                        return true
-                    }
-                }
+        /**
+         * Long solutions are rare among random start positions: put the goal robot where it
+         * needs the most moves alone (RetrogradePlacer); the solver of the generator confirms it
+         */
+        private fun placeGoalRobot(state: GameState, minMoves: Int, maxMoves: Int) {
+            val board = RRGetMap.createDDWorld(ArrayList(state.gridElements), arrayOfNulls(Constants.NUM_ROBOTS)) ?: return
+            val placement = RetrogradePlacer.place(board, minMoves, maxMoves, random) ?: return
+            val x = placement.position % board.width
+            val y = placement.position / board.width
+            if (state.placeRobot(placement.robot, x, y)) {
+                d("[MAP_GENERATOR] Retrograde placement: robot %d to (%d,%d), %d moves alone", placement.robot, x, y, placement.moves)
             }
         }
 
-        return false
+        override fun gridElements(candidate: GameState): ArrayList<GridElement> = ArrayList(candidate.gridElements)
+
+        // 0- and 1-move maps are found exactly by the CandidateFilter of the generator, on its worker threads
+        override fun isTrivial(candidate: GameState): Boolean = false
     }
 
     /**
@@ -3986,9 +4138,9 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
      */
     private inner class DifficultyValidationCallback(
         private val width: Int,
-        private val height: Int
+        private val height: Int,
+        private var attemptCount: Int = 0 // maps generated before this one
     ) : SolutionCallback {
-        private var attemptCount = 0
 
         override fun onSolutionCalculationStarted() {
             d("DifficultyValidationCallback: Calculation started, attempt %d", attemptCount + 1)
@@ -4129,6 +4281,11 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
         }
     }
 
+    override fun onSolverProgress(minimumMoves: Int, progress: SearchProgress) {
+        // called on the solver thread
+        solverMinimumMoves.postValue(minimumMoves)
+    }
+
     override fun onSolverCancelled() {
         d("[SOLUTION_SOLVER][DIAGNOSTIC] GameStateManager.onSolverCancelled called")
 
@@ -4334,6 +4491,7 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
         val solverManager = this.solverManager
         solverManager.resetInitialization()
         solverManager.cancelSolver()
+        cancelMapGeneration()
         isSolverRunning.setValue(false) // Reset immediately to avoid race condition with calculateSolutionAsync guard
         d("[DEEPLINK] Reset SolverManager for new deeplink map")
 
@@ -4442,10 +4600,10 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
         }
 
         // Check pre-computation cache first
-        val stateHash = computeStateHash(state)
-        val cachedResult = nextMovesCache.get(stateHash)
-        if (cachedResult != null) {
-            d("[PRECOMP_SOLUTION] Cache HIT for state %s → %d moves", stateHash, cachedResult)
+        val stateKey = computeStateKey(state)
+        val cachedResult = nextMovesCache.get(stateKey)
+        if (cachedResult >= 0) {
+            d("[PRECOMP_SOLUTION] Cache HIT for state %x → %d moves", stateKey, cachedResult)
             val currentMoves: Int =
                 (if (moveCount.getValue() != null) moveCount.getValue() else 0)!!
             val optimal = lastSolutionMinMoves
@@ -4468,12 +4626,12 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
                 deviation
             )
             // Pre-compute next moves from this new position
-            preComputeNextMoves(state, null)
+            preComputeNextMoves(state, null, cachedResult)
             return
         }
         d(
-            "[PRECOMP_SOLUTION] Cache MISS — no pre-computation available for state %s (cache size: %d)",
-            stateHash,
+            "[PRECOMP_SOLUTION] Cache MISS — no pre-computation available for state %x (cache size: %d)",
+            stateKey,
             nextMovesCache.size
         )
 
@@ -4507,8 +4665,8 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
                         deviation
                     )
                     // Cache this result and pre-compute next moves
-                    nextMovesCache.put(stateHash, remainingMoves)
-                    preComputeNextMoves(state, liveSolution)
+                    nextMovesCache.put(stateKey, remainingMoves)
+                    preComputeNextMoves(state, liveSolution, remainingMoves)
                 }
             }
 
@@ -4555,20 +4713,31 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
     }
 
     /**
-     * Compute a hash string from robot positions in the given state.
-     * Used as cache key for pre-computation.
-     * Format: r:4,5;g:3,2;b:12,17;y:10,1;
+     * Cache key of the robot positions in the given state, for the pre-computation.
+     * The robots are packed in gameElements order (MoveCountCache.key); does not allocate.
      */
-    private fun computeStateHash(state: GameState): String {
-        val sb = StringBuilder()
-        for (element in state.gameElements) {
-            if (element.type == GameElement.TYPE_ROBOT) {
-                sb.append(robotColorShort(element.color)).append(':')
-                    .append(element.x).append(',')
-                    .append(element.y).append(';')
+    private fun computeStateKey(state: GameState): Long = computeStateKey(state, null, 0)
+
+    /**
+     * Cache key of the given state with the robots at the given board positions (by color,
+     * y * boardWidth + x), or at their positions in the state if positions is null.
+     */
+    private fun computeStateKey(state: GameState, positions: IntArray?, boardWidth: Int): Long {
+        val bits = MoveCountCache.bitsPerPosition(state.width * state.height)
+        val elements = state.gameElements
+        var key = 0L
+        for (i in elements.indices) {
+            val element = elements[i]
+            if (element.type != GameElement.TYPE_ROBOT) continue
+            var x = element.x
+            var y = element.y
+            if (positions != null && element.color >= 0 && element.color < positions.size) {
+                x = positions[element.color] % boardWidth
+                y = positions[element.color] / boardWidth
             }
+            key = (key shl bits) or (y * state.width + x).toLong()
         }
-        return sb.toString()
+        return key
     }
 
     /**
@@ -4617,26 +4786,22 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
 
     /**
      * Pre-compute optimal moves for all possible next states (4 robots × 4 directions).
-     * Runs SEQUENTIALLY — one solver at a time on a single background thread.
-     * Checks preComputeCancelled before each solve so a robot move can abort the batch.
-     * Results are cached in nextMovesCache for instant lookup.
+     * The next states are solved by PRECOMPUTE jobs of the SolverScheduler (PRECOMP_WORKERS of them):
+     * each worker solves every PRECOMP_WORKERS-th state in robot priority order, all of its states in
+     * one shared depth iteration of a SuccessorSolver. The solver's own deadline limits it.
+     * A robot move cancels the jobs; live and hint solves preempt them.
+     * Results are cached in nextMovesCache (bounded LRU by packed robot positions) for instant lookup.
+     *
+     * @param remainingMoves optimal moves from the current state (0 if unknown); the next states
+     * need at least one move less, so the search starts there
      */
-    private fun preComputeNextMoves(state: GameState, liveSolution: GameSolution?) {
+    private fun preComputeNextMoves(state: GameState, liveSolution: GameSolution?, remainingMoves: Int) {
         if (!liveMoveCounterEnabled) return
         if (preComputeRunning) {
             d("[PRECOMP_SOLUTION] Skipping — previous pre-computation still running")
             return
         }
 
-        if (preComputeExecutor == null || preComputeExecutor!!.isShutdown()) {
-            preComputeExecutor = Executors.newSingleThreadExecutor(ThreadFactory { r: Runnable? ->
-                val t = Thread(r, "precompute-solver")
-                t.setDaemon(true)
-                t.setPriority(Thread.MIN_PRIORITY)
-                t
-            })
-        }
-
         // Collect robots and non-robot elements (walls, targets) from current state
         val robots: MutableList<GameElement> = ArrayList<GameElement>()
         val nonRobots: MutableList<GameElement> = ArrayList<GameElement>()
@@ -4680,241 +4845,89 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
             d("[PRECOMP_SOLUTION] Robot order (solution-prioritized): %s", orderLog)
         }
 
-        val width = state.width
-        val height = state.height
-        val directions = arrayOf<IntArray?>(
-            intArrayOf(1, 0),
-            intArrayOf(-1, 0),
-            intArrayOf(0, 1),
-            intArrayOf(0, -1)
-        )
-        val dirNames = arrayOf<String?>("E", "W", "S", "N")
-
+        val board = RRGetMap.createDDWorld(ArrayList(buildGridElements(state).filterNotNull()), arrayOfNulls(Constants.NUM_ROBOTS))
+        if (board == null) {
+            w("[PRECOMP_SOLUTION] Could not create the board for the pre-computation")
+            return
+        }
+        // the robot numbers of the board are the colors; placeholder robots are never moved
+        val robotNumbers = robots.map { it.color }.filter { it >= 0 && it < Constants.NUM_ROBOTS }.toIntArray()
+
+        // in robot priority order, so the next states of the solution robots are ready first
+        val successors = SuccessorSolver.successors(board, robotNumbers)
+        val workers = min(PRECOMP_WORKERS, successors.size)
+        val pending = AtomicInteger(workers)
+        val solved = AtomicInteger()
+        val nodes = AtomicLong()
+        val minimumMoves = max(0, remainingMoves - 1)
+        val solveStart = System.currentTimeMillis()
+        if (workers == 0) return
+        val generation = preComputeGeneration
         preComputeRunning = true
-        preComputeCancelled = false
         d(
-            "[PRECOMP_SOLUTION] Starting sequential pre-computation for %d robots × 4 directions",
-            robots.size
+            "[PRECOMP_SOLUTION] Starting pre-computation of %d next states on %d workers, at least %d moves",
+            successors.size, workers, minimumMoves
         )
 
-        preComputeExecutor!!.submit(Runnable {
-            try {
-                var computed = 0
-                var skipped = 0
-                for (robot in robots) {
-                    for (d in 0..3) {
-                        // Check cancellation / thread interruption before each solve
-                        if (preComputeCancelled || Thread.currentThread().isInterrupted()) {
-                            d(
-                                "[PRECOMP_SOLUTION] Cancelled after %d computed, %d skipped",
-                                computed,
-                                skipped
-                            )
-                            return@Runnable
-                        }
-
-                        val dx = directions[d]!![0]
-                        val dy = directions[d]!![1]
-
-                        // Simulate the slide: move robot until it hits wall/robot/boundary
-                        var newX = robot.x
-                        var newY = robot.y
-                        if (dx != 0) {
-                            val step = if (dx > 0) 1 else -1
-                            var i = newX + step
-                            while (i >= 0 && i < width) {
-                                if (state.canRobotMoveTo(robot, i, newY)) {
-                                    newX = i
-                                } else {
-                                    break
-                                }
-                                i += step
-                            }
-                        }
-                        if (dy != 0) {
-                            val step = if (dy > 0) 1 else -1
-                            var i = newY + step
-                            while (i >= 0 && i < height) {
-                                if (state.canRobotMoveTo(robot, newX, i)) {
-                                    newY = i
-                                } else {
-                                    break
-                                }
-                                i += step
-                            }
-                        }
-
-                        // Skip if robot didn't move
-                        if (newX == robot.x && newY == robot.y) {
-                            skipped++
-                            continue
-                        }
-
-                        // Compute hash for the hypothetical state
-                        val sb = StringBuilder()
-                        for (r in robots) {
-                            sb.append(robotColorShort(r.color)).append(':')
-                            if (r == robot) {
-                                sb.append(newX).append(',').append(newY)
-                            } else {
-                                sb.append(r.x).append(',').append(r.y)
-                            }
-                            sb.append(';')
-                        }
-                        val hypotheticalHash = sb.toString()
-
-                        // Skip if already cached
-                        if (nextMovesCache.containsKey(hypotheticalHash)) {
-                            skipped++
-                            continue
-                        }
-
-                        // Build grid elements for the hypothetical state
-                        val gridElements = ArrayList<GridElement?>()
-                        for (r in robots) {
-                            val rType = "robot_" + getColorName(r.color, false)
-                            if (r == robot) {
-                                gridElements.add(GridElement(newX, newY, rType))
-                            } else {
-                                gridElements.add(GridElement(r.x, r.y, rType))
-                            }
-                        }
-                        for (nr in nonRobots) {
-                            var ge: GridElement? = null
-                            when (nr.type) {
-                                GameElement.TYPE_TARGET -> ge = GridElement(
-                                    nr.x,
-                                    nr.y,
-                                    "target_" + getColorName(nr.color, false)
-                                )
-
-                                GameElement.TYPE_HORIZONTAL_WALL -> ge =
-                                    GridElement(nr.x, nr.y, "mh")
-
-                                GameElement.TYPE_VERTICAL_WALL -> ge = GridElement(nr.x, nr.y, "mv")
+        // live and hint solves preempt the workers; a preempted worker starts again with its unsolved states
+        preComputeJobs.clear()
+        repeat(workers) { w ->
+            val part = successors.filterIndexed { i, _ -> i % workers == w }
+            // the interrupt of a cancelled or preempted job stops the search
+            preComputeJobs.add(solverScheduler.submit(SolverScheduler.Priority.PRECOMPUTE, "precompute-solver", SolverScheduler.Task { job ->
+                val successorSolver = preComputeSolver.get()!!
+                // the table of the solver; revoked (and the search stopped) when a game solver needs the memory
+                val reservation = MemoryArbiter.shared.reserve(
+                    PRECOMP_TABLE_BYTES, SolverScheduler.Priority.PRECOMPUTE.memoryPriority, Runnable { successorSolver.stop() }
+                )
+                try {
+                    if (reservation == null) {
+                        d("[PRECOMP_SOLUTION] No memory reservation granted, worker not started")
+                        return@Task
+                    }
+                    successorSolver.solve(
+                        board, part, minimumMoves, PRECOMP_MAX_MOVES,
+                        TimeUnit.SECONDS.toMillis(Constants.PRECOMP_SOLVER_TIMEOUT_SECONDS.toLong()),
+                        Consumer { successor ->
+                            // each next state is cached as soon as it is solved
+                            if (generation == preComputeGeneration) {
+                                nextMovesCache.put(computeStateKey(state, successor.positions, board.width), successor.moves)
+                                solved.incrementAndGet()
                             }
-                            if (ge != null) gridElements.add(ge)
                         }
-
-                        val colorLetter: String = robotColorShort(robot.color)
+                    )
+                } catch (e: Exception) {
+                    e(e, "[PRECOMP_SOLUTION] Error during pre-computation")
+                } finally {
+                    reservation?.release()
+                    nodes.addAndGet(successorSolver.nodes)
+                    // a cancelled run is not counted, a preempted run is started again
+                    if (generation == preComputeGeneration && !job.isStopping && pending.decrementAndGet() == 0) {
                         d(
-                            "[PRECOMP_SOLUTION] [%d/%d] Solving: %s%s (%d,%d)→(%d,%d)...",
-                            computed + skipped + 1, robots.size * 4,
-                            colorLetter, dirNames[d], robot.x, robot.y, newX, newY
+                            "[PRECOMP_SOLUTION] Finished in %dms: %d of %d next states solved, %d positions searched, cache size: %d",
+                            System.currentTimeMillis() - solveStart,
+                            solved.get(),
+                            successors.size,
+                            nodes.get(),
+                            nextMovesCache.size
                         )
-                        val solveStart = System.currentTimeMillis()
-
-                        // Solve with some minutes timeout using a sub-executor
-                        val solver = SolverDD()
-                        solver.init(ArrayList<GridElement>(gridElements.filterNotNull()))
-                        val solverThread = Executors.newSingleThreadExecutor()
-                        val solverFuture = solverThread.submit(Runnable { solver.run() })
-                        var solverCompleted = false
-                        try {
-                            solverFuture.get(
-                                Constants.PRECOMP_SOLVER_TIMEOUT_SECONDS.toLong(),
-                                TimeUnit.SECONDS
-                            )
-                            solverCompleted = true
-                        } catch (te: TimeoutException) {
-                            solverFuture.cancel(true)
-                            val elapsed = System.currentTimeMillis() - solveStart
-                            w(
-                                "[PRECOMP_SOLUTION] [%d/%d] TIMEOUT after %dms: %s%s (%d,%d)→(%d,%d)",
-                                computed + skipped + 1, robots.size * 4,
-                                elapsed, colorLetter, dirNames[d], robot.x, robot.y, newX, newY
-                            )
-                        } catch (ie: InterruptedException) {
-                            Thread.currentThread().interrupt()
-                        } catch (ee: ExecutionException) {
-                            e(ee, "[PRECOMP_SOLUTION] Solver execution error")
-                        } finally {
-                            solverThread.shutdownNow()
-                        }
-
-                        val solveElapsed = System.currentTimeMillis() - solveStart
-
-                        // Check cancellation / thread interruption after solve completes
-                        if (preComputeCancelled || Thread.currentThread().isInterrupted()) {
-                            d(
-                                "[PRECOMP_SOLUTION] Cancelled after solve (%s%s, %dms), %d computed so far",
-                                colorLetter, dirNames[d], solveElapsed, computed
-                            )
-                            return@Runnable
-                        }
-
-                        if (solverCompleted && solver.getSolverStatus()!!.isFinished) {
-                            val numSolutions =
-                                if (solver.getSolutionList() != null) solver.getSolutionList()!!.size else 0
-                            if (numSolutions > 0) {
-                                val solution = solver.getSolution(0)
-                                var moves =
-                                    if (solution != null && solution.moves != null) solution.moves.size else 0
-                                if (solver.isSolution01()) moves = 1
-                                nextMovesCache.put(hypotheticalHash, moves)
-                                computed++
-                                d(
-                                    "[PRECOMP_SOLUTION] [%d/%d] Solved in %dms: %s%s (%d,%d)→(%d,%d) = %d moves",
-                                    computed + skipped,
-                                    robots.size * 4,
-                                    solveElapsed,
-                                    colorLetter,
-                                    dirNames[d],
-                                    robot.x,
-                                    robot.y,
-                                    newX,
-                                    newY,
-                                    moves
-                                )
-                            } else {
-                                d(
-                                    "[PRECOMP_SOLUTION] [%d/%d] No solution in %dms: %s%s (%d,%d)→(%d,%d)",
-                                    computed + skipped + 1,
-                                    robots.size * 4,
-                                    solveElapsed,
-                                    colorLetter,
-                                    dirNames[d],
-                                    robot.x,
-                                    robot.y,
-                                    newX,
-                                    newY
-                                )
-                            }
-                        } else if (solverCompleted) {
-                            d(
-                                "[PRECOMP_SOLUTION] [%d/%d] Solver not finished in %dms: %s%s (%d,%d)→(%d,%d)",
-                                computed + skipped + 1, robots.size * 4,
-                                solveElapsed, colorLetter, dirNames[d], robot.x, robot.y, newX, newY
-                            )
-                        }
+                        preComputeRunning = false
                     }
                 }
-                d(
-                    "[PRECOMP_SOLUTION] Finished: %d computed, %d skipped, cache size: %d",
-                    computed,
-                    skipped,
-                    nextMovesCache.size
-                )
-            } catch (e: Exception) {
-                e(e, "[PRECOMP_SOLUTION] Error during pre-computation")
-            } finally {
-                preComputeRunning = false
-            }
-        })
+            }))
+        }
     }
 
     /**
-     * Cancel any running pre-computation. Called when a robot move starts
-     * so the solver is not running in parallel with the live solver.
+     * Cancel any running pre-computation. Called when a robot move starts,
+     * the next states of the old position are not needed anymore.
      */
     private fun cancelPreComputation() {
         if (preComputeRunning) {
-            preComputeCancelled = true
-            d("[PRECOMP_SOLUTION] Cancellation requested — shutting down executor")
-            if (preComputeExecutor != null) {
-                preComputeExecutor!!.shutdownNow()
-                preComputeExecutor = null
-            }
+            preComputeGeneration++
+            d("[PRECOMP_SOLUTION] Cancellation requested — cancelling %d jobs", preComputeJobs.size)
+            for (job in preComputeJobs) job.cancel()
+            preComputeJobs.clear()
             preComputeRunning = false
         }
     }
@@ -5034,16 +5047,43 @@ open class GameStateManager(application: Application) : AndroidViewModel(applica
         if (liveSolverManager != null) {
             liveSolverManager!!.shutdown()
         }
-        if (preComputeExecutor != null) {
-            preComputeCancelled = true
-            preComputeExecutor!!.shutdownNow()
-        }
+        cancelPreComputation()
+        solverJob?.cancel()
+        mapGenerator.shutdown()
+        stopPuzzlePoolRefill()
+        poolGenerator.shutdown()
+        // the hint solver is a singleton: release the search buffers it keeps for the next hint
+        GameLevelSolver.solverInstance?.releaseRecycled()
     }
 
     companion object {
         private const val MAX_ATTEMPTS = 999
+
+        // candidates solved at the same time by the map generation, one core is left for the UI
+        private val MAP_GENERATOR_WORKERS = max(1, min(3, Runtime.getRuntime().availableProcessors() - 1))
+        private const val MAP_CANDIDATE_MAX_MILLIS: Long = 60000
+
+        // validated maps kept for the next games, refilled after the player was idle for a while
+        private const val PUZZLE_POOL_SIZE = 5
+        private const val PUZZLE_POOL_IDLE_DELAY_MS: Long = 3000
+
+        // from this minimum number of moves (Insane) the goal robot of a candidate is placed backward from the goal
+        private const val RETROGRADE_MIN_MOVES = 10
+
         private const val MAX_AUTO_REGENERATIONS = 999
 
+        // longest solution the pre-computation of the next moves searches for
+        private const val PRECOMP_MAX_MOVES = 99
+
+        // jobs of the pre-computation, one core is left for the UI; their memory is limited by MemoryArbiter.shared
+        private val PRECOMP_WORKERS = max(1, min(4, Runtime.getRuntime().availableProcessors() - 1))
+
+        // memory reservation of one pre-computation job: the largest table of a SuccessorSolver
+        private const val PRECOMP_TABLE_BYTES = 10L shl 20
+
+        // positions kept in the pre-computation cache, the least recently used are evicted
+        private const val NEXT_MOVES_CACHE_MAX_ENTRIES = 4096
+
         // Move cooldown to prevent multiple moves within
         private const val MOVE_COOLDOWN_MS: Long = 400 // milliseconds
         private const val HISTORY_SAVE_THRESHOLD = 30 // seconds threshold for saving to history
@@ -0,0 +1,65 @@
+package roboyard.logic.solver
+
+import driftingdroids.model.Board
+import roboyard.logic.solver.ParallelMapGenerator.RejectReason
+
+/**
+ * Cheap checks of a random map before the full solver run, in stages of increasing cost.
+ * A map is only rejected if it certainly needs fewer than minMoves or more than maxMoves moves.
+ *
+ * 1. Reachability and lower bound (one pass over the board per goal): the minimum number of
+ *    moves of a robot to the goal if it could stop anywhere on its way (the robot-free distance
+ *    of SolverIDDFS.precomputeMinimumMovesToGoal). A goal that cannot be reached at all, or a
+ *    lower bound above maxMoves, rejects the map.
+ * 2. Upper bound (one backward pass, single goal of a specific robot only): the number of
+ *    moves of the goal robot alone, while the other robots stay (RetrogradePlacer). Below
+ *    minMoves the map is too easy.
+ * 3. Bounded search with all robots up to maxPlies moves (at most minMoves - 1, at least 1),
+ *    pruned by the lower bound (GoalSearch): a solution found there is the optimal one, and
+ *    rejects the map as trivial (0 or 1 moves) or too easy.
+ *
+ * @param maxPlies depth of the bounded search
+ */
+class CandidateFilter @JvmOverloads constructor(private val maxPlies: Int = DEFAULT_MAX_PLIES) {
+
+    /**
+     * Result of check(): the reason for rejecting the map (null: the map has to be solved),
+     * and the optimal number of moves if the bounded search found a solution (-1 otherwise).
+     */
+    class Verdict(@JvmField val reason: RejectReason?, @JvmField val moves: Int)
+
+    fun check(board: Board, minMoves: Int, maxMoves: Int): Verdict {
+        val search = GoalSearch(board)
+        val goals = search.goals
+        if (goals.isEmpty()) return Verdict(RejectReason.INVALID, -1)
+
+        // stage 1: robot-free distances to each goal
+        val lowerBound = search.lowerBound(board.robotPositions)
+        if (lowerBound == GoalSearch.UNREACHABLE) return Verdict(RejectReason.UNREACHABLE, -1)
+        if (lowerBound > maxMoves) return Verdict(RejectReason.TOO_HARD, -1)
+
+        // stage 2: the goal robot alone
+        val goal = goals[0]
+        if (goals.size == 1 && goal.robotNumber >= 0 && goal.robotNumber < board.numRobots) {
+            val upperBound = RetrogradePlacer.distancesToGoal(board, goal.robotNumber, goal.position)[board.robotPositions[goal.robotNumber]]
+            if (upperBound < minMoves) {
+                return Verdict(if (upperBound <= 1) RejectReason.TRIVIAL else RejectReason.TOO_EASY, if (upperBound == lowerBound) upperBound else -1)
+            }
+        }
+
+        // stage 3: every solution with up to depthLimit moves
+        val depthLimit = maxOf(1, minOf(maxPlies, minMoves - 1))
+        if (lowerBound > depthLimit) return Verdict(null, -1)
+        val robots = board.robotPositions.clone()
+        for (depth in lowerBound..depthLimit) {
+            if (search.search(robots, depth)) {
+                return Verdict(if (depth <= 1) RejectReason.TRIVIAL else RejectReason.TOO_EASY, depth)
+            }
+        }
+        return Verdict(null, -1)
+    }
+
+    companion object {
+        const val DEFAULT_MAX_PLIES = 3
+    }
+}
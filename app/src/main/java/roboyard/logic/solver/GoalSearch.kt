@@ -0,0 +1,109 @@
+package roboyard.logic.solver
+
+import driftingdroids.model.Board
+
+/**
+ * Depth-first search for the goals of a board with all robots, pruned by a robot-free lower
+ * bound: the minimum number of moves of a robot to a goal if it could stop anywhere on its way
+ * (the distance of SolverIDDFS.precomputeMinimumMovesToGoal). Used by the bounded search of
+ * CandidateFilter and by SuccessorSolver, which also remembers the positions without a solution
+ * and stops on a deadline (isPruned and onNoSolution).
+ *
+ * The board is only read, so several searches can share it.
+ */
+internal open class GoalSearch(val board: Board) {
+
+    val goals: List<Board.Goal> = board.getActiveGoals().filterNotNull()
+    private val distances = Array(goals.size) { i -> distancesToGoal(board, goals[i].position) }
+    private val wallStops = board.computeWallStops()
+
+    /**
+     * All goals have to be reached, so the largest distance of a goal to its nearest robot is
+     * a lower bound of the moves; 0 if all goals are reached, UNREACHABLE if a goal can't be reached
+     */
+    fun lowerBound(robots: IntArray): Int {
+        var bound = 0
+        for (i in goals.indices) {
+            val robotNumber = goals[i].robotNumber
+            var nearest = UNREACHABLE
+            if (robotNumber < 0) {
+                for (position in robots) nearest = minOf(nearest, distances[i][position])
+            } else if (robotNumber < robots.size) {
+                nearest = distances[i][robots[robotNumber]]
+            }
+            bound = maxOf(bound, nearest)
+        }
+        return bound
+    }
+
+    /**
+     * True if the goals can be reached within movesLeft moves from the robot positions
+     * (changed during the search, restored at the end)
+     */
+    fun search(robots: IntArray, movesLeft: Int): Boolean {
+        val bound = lowerBound(robots)
+        if (bound == 0) return true
+        if (bound > movesLeft) return false
+        if (isPruned(robots, movesLeft)) return false
+        for (robot in robots.indices) {
+            val start = robots[robot]
+            for (direction in 0..3) {
+                val end = board.slide(wallStops, robots, start, direction)
+                if (end == start) continue
+                robots[robot] = end
+                val found = search(robots, movesLeft - 1)
+                robots[robot] = start
+                if (found) return true
+            }
+        }
+        onNoSolution(robots, movesLeft)
+        return false
+    }
+
+    /**
+     * Called before the moves of a position are searched: true skips them (e.g. the position is
+     * known to have no solution within movesLeft moves, or the search is stopped)
+     */
+    protected open fun isPruned(robots: IntArray, movesLeft: Int): Boolean = false
+
+    /**
+     * Called after all moves of a position (not pruned) were searched without a solution
+     */
+    protected open fun onNoSolution(robots: IntArray, movesLeft: Int) {}
+
+    companion object {
+        const val UNREACHABLE = Int.MAX_VALUE
+
+        /**
+         * For each position the minimum number of moves of a robot from there to the goal,
+         * if it could stop anywhere on its way (blocked by other robots); UNREACHABLE if never.
+         */
+        fun distancesToGoal(board: Board, goalPosition: Int): IntArray {
+            val distances = IntArray(board.size) { UNREACHABLE }
+            val wallStops = board.computeWallStops()
+            val queue = IntArray(board.size)
+            var head = 0
+            var tail = 0
+            distances[goalPosition] = 0
+            queue[tail++] = goalPosition
+            while (head < tail) {
+                val position = queue[head++]
+                val distance = distances[position] + 1
+                for (direction in 0..3) {
+                    // every position between here and the wall can reach this one by moving back
+                    val increment = board.directionIncrement[direction]
+                    val wallStop = wallStops[direction][position]
+                    var next = position
+                    while (next != wallStop) {
+                        next += increment
+                        if (distances[next] == UNREACHABLE) {
+                            distances[next] = distance
+                            queue[tail++] = next
+                        }
+                    }
+                }
+            }
+            return distances
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package roboyard.logic.solver
+
+/**
+ * Optimal move counts of positions, by a long key of the robot positions (see key()).
+ *
+ * A primitive map from long to byte with open addressing, that keeps at most maxEntries
+ * entries and evicts the least recently used one. get() and put() do not allocate, so the
+ * cache can be queried on every move, and its memory does not grow in long sessions.
+ */
+class MoveCountCache(private val maxEntries: Int) {
+
+    // table slots hold entry numbers (-1: empty), the entries are a doubly linked list from eldest to newest
+    private val slots: IntArray
+    private val keys = LongArray(maxEntries)
+    private val values = ByteArray(maxEntries)
+    private val older = IntArray(maxEntries)
+    private val newer = IntArray(maxEntries)
+    private var eldest = -1
+    private var newest = -1
+
+    init {
+        require(maxEntries > 0) { "maxEntries must be positive" }
+        var capacity = 2
+        while (capacity < maxEntries * 2) capacity = capacity shl 1
+        slots = IntArray(capacity) { -1 }
+    }
+
+    /**
+     * number of cached positions
+     */
+    @get:Synchronized
+    var size = 0
+        private set
+
+    /**
+     * @return the cached move count of the position, or -1 if it is not cached
+     */
+    @Synchronized
+    fun get(key: Long): Int {
+        val slot = find(key)
+        if (slot < 0) return -1
+        val entry = slots[slot]
+        touch(entry)
+        return values[entry].toInt()
+    }
+
+    /**
+     * Cache the move count of the position; evicts the least recently used position when the
+     * cache is full. Move counts outside 0..Byte.MAX_VALUE are not cached.
+     */
+    @Synchronized
+    fun put(key: Long, moves: Int) {
+        if (moves < 0 || moves > Byte.MAX_VALUE) return
+        val slot = find(key)
+        if (slot >= 0) {
+            val entry = slots[slot]
+            values[entry] = moves.toByte()
+            touch(entry)
+            return
+        }
+        val entry: Int
+        if (size < maxEntries) {
+            entry = size++
+        } else {
+            entry = eldest
+            removeSlot(find(keys[entry]))
+            unlink(entry)
+        }
+        keys[entry] = key
+        values[entry] = moves.toByte()
+        var free = home(key)
+        while (slots[free] >= 0) free = (free + 1) and (slots.size - 1)
+        slots[free] = entry
+        linkNewest(entry)
+    }
+
+    @Synchronized
+    fun clear() {
+        slots.fill(-1)
+        size = 0
+        eldest = -1
+        newest = -1
+    }
+
+    private fun find(key: Long): Int {
+        var slot = home(key)
+        while (true) {
+            val entry = slots[slot]
+            if (entry < 0) return -1
+            if (keys[entry] == key) return slot
+            slot = (slot + 1) and (slots.size - 1)
+        }
+    }
+
+    // empty the slot and move later entries of the same probe sequence back into the gap
+    private fun removeSlot(slot: Int) {
+        val mask = slots.size - 1
+        var gap = slot
+        var next = slot
+        while (true) {
+            next = (next + 1) and mask
+            val entry = slots[next]
+            if (entry < 0) break
+            val home = home(keys[entry])
+            // the entry may move to the gap if its home is not between the gap and its slot
+            val movable = if (gap <= next) home <= gap || home > next else home <= gap && home > next
+            if (movable) {
+                slots[gap] = entry
+                gap = next
+            }
+        }
+        slots[gap] = -1
+    }
+
+    private fun touch(entry: Int) {
+        if (entry == newest) return
+        unlink(entry)
+        linkNewest(entry)
+    }
+
+    private fun unlink(entry: Int) {
+        val o = older[entry]
+        val n = newer[entry]
+        if (o >= 0) newer[o] = n else eldest = n
+        if (n >= 0) older[n] = o else newest = o
+    }
+
+    private fun linkNewest(entry: Int) {
+        older[entry] = newest
+        newer[entry] = -1
+        if (newest >= 0) newer[newest] = entry else eldest = entry
+        newest = entry
+    }
+
+    private fun home(key: Long): Int {
+        val hash = key * -0x61c8864680b583ebL // golden ratio multiplier
+        return (hash ushr 32).toInt() and (slots.size - 1)
+    }
+
+    companion object {
+        /**
+         * Key of the robot positions (y * width + x, in the order of the robots), packed like
+         * the keys of KeyMakerLong with the bits of one board position per robot.
+         * The robot order has to be the same for all keys of a cache.
+         */
+        @JvmStatic
+        fun key(positions: IntArray, boardSize: Int): Long {
+            val bits = bitsPerPosition(boardSize)
+            var key = 0L
+            for (position in positions) key = (key shl bits) or position.toLong()
+            return key
+        }
+
+        /**
+         * Number of bits of one position in key(); 64 / bits robots fit into a key
+         */
+        @JvmStatic
+        fun bitsPerPosition(boardSize: Int): Int = 32 - Integer.numberOfLeadingZeros(maxOf(1, boardSize - 1))
+    }
+}
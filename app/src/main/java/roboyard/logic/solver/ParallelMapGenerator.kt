@@ -0,0 +1,418 @@
+package roboyard.logic.solver
+
+import driftingdroids.model.MemoryArbiter
+import driftingdroids.model.SearchBudget
+import driftingdroids.model.Solution
+import driftingdroids.model.Solver
+import roboyard.logic.core.Constants
+import roboyard.logic.core.GridElement
+import timber.log.Timber
+import java.util.EnumMap
+import java.util.concurrent.Callable
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutorCompletionService
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Generates random maps until one needs between minMoves and maxMoves moves.
+ *
+ * Instead of solving one candidate after the other, up to numWorkers candidates are solved at
+ * the same time, each by its own SolverDD with the given SearchBudget. The first candidate
+ * inside the range is accepted and the solvers of the others are stopped.
+ * Before a worker solves a candidate, the CandidateFilter rejects candidates that certainly
+ * are outside the range, without the full solver run.
+ * Candidates are created one by one on the calling thread, because map generation uses shared
+ * state (WallStorage, MapGenerator.forceGenerateNewMapOnce); only the solving runs in parallel.
+ *
+ * The solutions of the returned map go into the solutionCache, so solving it again for the
+ * game is usually a cache hit; the rejected candidates are not stored.
+ *
+ * @param source creates the candidates and converts them for the solver
+ * @param numWorkers number of candidates solved at the same time
+ * @param threadPriority priority of the worker threads (lower for generating in the background)
+ */
+class ParallelMapGenerator<T : Any> @JvmOverloads constructor(
+    private val source: CandidateSource<T>,
+    private val numWorkers: Int,
+    private val threadPriority: Int = Thread.NORM_PRIORITY
+) {
+    interface CandidateSource<T> {
+        /**
+         * Create the next random candidate (null if the generation failed)
+         */
+        fun create(): T?
+
+        fun gridElements(candidate: T): ArrayList<GridElement>
+
+        /**
+         * Cheap check before solving: a trivial candidate is rejected without running the solver
+         */
+        fun isTrivial(candidate: T): Boolean
+    }
+
+    enum class RejectReason {
+        INVALID, // the candidate could not be created or solved
+        TRIVIAL, // already solved or solvable in one move
+        TOO_EASY,
+        TOO_HARD,
+        UNSOLVED, // the solver stopped at its budget without a solution
+        UNREACHABLE // no robot can ever reach the goal (found by the CandidateFilter)
+    }
+
+    /**
+     * The accepted candidate; accepted is false if maxAttempts was reached and this is the last candidate
+     */
+    class Result<T>(
+        @JvmField val candidate: T,
+        @JvmField val moves: Int,
+        @JvmField val accepted: Boolean,
+        @JvmField val attempts: Int,
+        @JvmField val milliSeconds: Long
+    )
+
+    /**
+     * Counters over all generate() calls, for tuning the number of workers and the budget
+     */
+    class Stats {
+        private val rejects = EnumMap<RejectReason, Int>(RejectReason::class.java)
+        private val filtered = EnumMap<RejectReason, Int>(RejectReason::class.java)
+        private var solves = 0
+        private var runs = 0
+        private var candidates = 0
+        private var accepted = 0
+        private var stopped = 0
+        private var lastAcceptMilliSeconds = 0L
+        private var totalAcceptMilliSeconds = 0L
+
+        @Synchronized
+        internal fun reject(reason: RejectReason) {
+            rejects[reason] = (rejects[reason] ?: 0) + 1
+        }
+
+        @Synchronized
+        internal fun filter(reason: RejectReason) {
+            reject(reason)
+            filtered[reason] = (filtered[reason] ?: 0) + 1
+        }
+
+        @Synchronized
+        internal fun solve() {
+            solves++
+        }
+
+        @Synchronized
+        internal fun finish(result: Result<*>?, attempts: Int, stoppedCandidates: Int) {
+            runs++
+            candidates += attempts
+            stopped += stoppedCandidates
+            if (result != null && result.accepted) {
+                accepted++
+                lastAcceptMilliSeconds = result.milliSeconds
+                totalAcceptMilliSeconds += result.milliSeconds
+            }
+        }
+
+        @Synchronized
+        fun getRejects(reason: RejectReason): Int = rejects[reason] ?: 0
+
+        /**
+         * candidates rejected by the CandidateFilter for this reason (included in getRejects)
+         */
+        @Synchronized
+        fun getFiltered(reason: RejectReason): Int = filtered[reason] ?: 0
+
+        /**
+         * full solver runs that the CandidateFilter made unnecessary
+         */
+        @get:Synchronized
+        val solvesAvoided: Int
+            get() = filtered.values.sum()
+
+        /**
+         * candidates that were given to the solver
+         */
+        @get:Synchronized
+        val solveCount: Int
+            get() = solves
+
+        /**
+         * number of candidates created (solved, rejected or stopped)
+         */
+        @get:Synchronized
+        val attempts: Int
+            get() = candidates
+
+        @get:Synchronized
+        val acceptedCount: Int
+            get() = accepted
+
+        /**
+         * candidates whose solver was stopped because another candidate was accepted first
+         */
+        @get:Synchronized
+        val stoppedCount: Int
+            get() = stopped
+
+        /**
+         * time from the start of the last successful generate() to the acceptance
+         */
+        @get:Synchronized
+        val lastAcceptMillis: Long
+            get() = lastAcceptMilliSeconds
+
+        @get:Synchronized
+        val averageAcceptMillis: Long
+            get() = if (accepted == 0) 0 else totalAcceptMilliSeconds / accepted
+
+        @Synchronized
+        override fun toString(): String {
+            return "runs=$runs attempts=$candidates accepted=$accepted stopped=$stopped rejects=$rejects" +
+                    " solves=$solves filtered=$filtered" +
+                    " lastAcceptMs=$lastAcceptMilliSeconds avgAcceptMs=" + (if (accepted == 0) 0 else totalAcceptMilliSeconds / accepted)
+        }
+    }
+
+    /**
+     * Limits for the solver of each candidate; with several workers the heap has to be shared,
+     * so this should at least limit the bytes (null: heap-based limits of a single solver)
+     */
+    @Volatile
+    var searchBudget: SearchBudget? = null
+
+    /**
+     * Priority of the memory reservations of the candidates' solvers
+     */
+    @Volatile
+    var memoryPriority: MemoryArbiter.Priority = MemoryArbiter.Priority.NORMAL
+
+    /**
+     * Checks before solving a candidate (null: solve every candidate)
+     */
+    @Volatile
+    var candidateFilter: CandidateFilter? = CandidateFilter()
+
+    /**
+     * Cache for the solutions of the returned map (null: none)
+     */
+    @Volatile
+    var solutionCache: SolutionCache? = SolutionCache.getInstance()
+
+    val stats = Stats()
+
+    private val threadCount = AtomicInteger()
+    private val pool: ExecutorService = Executors.newFixedThreadPool(numWorkers) { runnable ->
+        Thread(runnable, "MapGenerator-" + threadCount.incrementAndGet()).apply {
+            isDaemon = true
+            priority = threadPriority
+        }
+    }
+
+    // each worker thread keeps its SolverDD, so the search buffers are recycled between candidates;
+    // all of them are listed to release those buffers in shutdown()
+    private val workerSolvers = CopyOnWriteArrayList<SolverDD>()
+    private val workerSolver = ThreadLocal.withInitial { SolverDD().also { workerSolvers.add(it) } }
+
+    @Volatile
+    private var currentRun: Run? = null
+
+    private inner class Run {
+        @Volatile
+        var cancelled = false
+        @Volatile
+        var acceptAny = false
+        val tasks = ArrayList<CandidateTask>()
+
+        @Synchronized
+        fun stopAll(): Int {
+            var stoppedTasks = 0
+            for (task in tasks) {
+                if (task.stop()) stoppedTasks++
+            }
+            tasks.clear()
+            return stoppedTasks
+        }
+    }
+
+    private inner class CandidateTask(
+        val candidate: T,
+        val index: Int, // the candidate's attempt number
+        val elements: ArrayList<GridElement>,
+        private val run: Run,
+        private val minMoves: Int,
+        private val maxMoves: Int
+    ) : Callable<CandidateTask> {
+        lateinit var future: Future<CandidateTask>
+        @Volatile
+        private var solver: SolverDD? = null
+        var moves = 0
+        var solutions: List<Solution>? = null // all optimal solutions, if the solver found them
+        var reason: RejectReason? = null
+        var filtered = false // rejected by the CandidateFilter, not by the solver
+
+        override fun call(): CandidateTask {
+            try {
+                val filter = candidateFilter
+                if (filter != null && !run.acceptAny) {
+                    val board = RRGetMap.createDDWorld(elements, arrayOfNulls(Constants.NUM_ROBOTS))
+                    val verdict = if (board == null) null else filter.check(board, minMoves, maxMoves)
+                    if (verdict?.reason != null) {
+                        reason = verdict.reason
+                        moves = maxOf(verdict.moves, 0) // known if the bounded search found the solution
+                        filtered = true
+                        return this
+                    }
+                }
+                stats.solve()
+                val solverDD = workerSolver.get()
+                solverDD.searchBudget = searchBudget
+                solverDD.memoryPriority = memoryPriority
+                solverDD.solutionCount = Solver.SOLUTION_COUNT_ALL // like the game's solver, so its run hits the cache
+                solverDD.init(elements)
+                if (solverDD.isSolution01()) {
+                    moves = 1
+                    return this
+                }
+                solver = solverDD
+                solverDD.run()
+                val solutions = solverDD.getSolutionList()
+                if (solverDD.searchStatus == Solver.SEARCH_STATUS.SOLVED && !solutions.isNullOrEmpty()) {
+                    moves = solutions[0].size()
+                    this.solutions = ArrayList(solutions)
+                } else {
+                    reason = RejectReason.UNSOLVED
+                }
+            } catch (e: Exception) {
+                Timber.e(e, "[MAP_GENERATOR] Solving candidate failed")
+                reason = RejectReason.INVALID
+            } finally {
+                solver = null
+            }
+            return this
+        }
+
+        /**
+         * @return true if the task was still waiting or solving
+         */
+        fun stop(): Boolean {
+            if (future.isDone) return false
+            solver?.requestStop()
+            future.cancel(true)
+            return true
+        }
+    }
+
+    /**
+     * Generate candidates until one needs minMoves..maxMoves moves. Blocks until then.
+     * @param maxAttempts maximum number of candidates; then the last solved candidate is returned (not accepted)
+     * @return the result, or null if cancelled or no candidate could be created
+     */
+    fun generate(minMoves: Int, maxMoves: Int, maxAttempts: Int): Result<T>? {
+        val run = Run()
+        currentRun = run
+        val start = System.nanoTime()
+        val completion = ExecutorCompletionService<CandidateTask>(pool)
+        var inFlight = 0
+        var attempts = 0
+        var last: CandidateTask? = null
+        var resultTask: CandidateTask? = null
+        var result: Result<T>? = null
+        var stoppedTasks = 0
+        try {
+            while (!run.cancelled) {
+                while (inFlight < numWorkers && attempts < maxAttempts && !run.cancelled) {
+                    attempts++
+                    val candidate = source.create()
+                    if (candidate == null) {
+                        stats.reject(RejectReason.INVALID)
+                        continue
+                    }
+                    if (source.isTrivial(candidate)) {
+                        stats.reject(RejectReason.TRIVIAL)
+                        continue
+                    }
+                    val task = CandidateTask(candidate, attempts, source.gridElements(candidate), run, minMoves, maxMoves)
+                    synchronized(run) {
+                        task.future = completion.submit(task)
+                        run.tasks.add(task)
+                    }
+                    inFlight++
+                }
+                if (inFlight == 0) break
+
+                val task = completion.take()
+                inFlight--
+                if (task.isCancelled) continue
+                val done = task.get()
+                synchronized(run) { run.tasks.remove(done) }
+                val reason = done.reason ?: when {
+                    done.moves <= 1 -> RejectReason.TRIVIAL
+                    run.acceptAny -> null
+                    done.moves < minMoves -> RejectReason.TOO_EASY
+                    done.moves > maxMoves -> RejectReason.TOO_HARD
+                    else -> null
+                }
+                if (reason == null) {
+                    result = Result(done.candidate, done.moves, true, attempts, (System.nanoTime() - start) / 1000000L)
+                    resultTask = done
+                    break
+                }
+                Timber.d("[MAP_GENERATOR] Candidate %d rejected%s: %s (%d moves)", attempts, if (done.filtered) " before solving" else "", reason, done.moves)
+                if (done.filtered) stats.filter(reason) else stats.reject(reason)
+                if (done.moves > 0 && (last == null || done.index > last.index)) last = done
+            }
+            if (result == null && !run.cancelled && last != null) {
+                // out of attempts: the last created candidate that was solved, like the serial generation accepted its last map
+                result = Result(last.candidate, last.moves, false, attempts, (System.nanoTime() - start) / 1000000L)
+                resultTask = last
+            }
+        } finally {
+            stoppedTasks = run.stopAll()
+            if (currentRun === run) currentRun = null
+        }
+        if (run.cancelled) result = null
+        if (result != null && resultTask != null) putSolutions(resultTask)
+        stats.finish(result, attempts, stoppedTasks)
+        Timber.d(
+            "[MAP_GENERATOR] %s after %d candidates (%d workers, %d stopped): %s",
+            if (result == null) "Cancelled" else if (result.accepted) "Accepted ${result.moves} moves" else "Gave up",
+            attempts, numWorkers, stoppedTasks, stats
+        )
+        return result
+    }
+
+    // the game solves the returned map again, so its solutions are stored for that run
+    private fun putSolutions(task: CandidateTask) {
+        val cache = solutionCache ?: return
+        val solutions = task.solutions ?: return
+        val board = RRGetMap.createDDWorld(task.elements, arrayOfNulls(Constants.NUM_ROBOTS)) ?: return
+        cache.put(board, solutions, true)
+    }
+
+    /**
+     * Cancel the running generate() call; it returns null as soon as possible
+     */
+    fun cancel() {
+        val run = currentRun ?: return
+        run.cancelled = true
+        run.stopAll()
+    }
+
+    /**
+     * Let the running generate() accept the next solved candidate, whatever its number of moves
+     */
+    fun acceptNext() {
+        currentRun?.acceptAny = true
+    }
+
+    fun shutdown() {
+        cancel()
+        pool.shutdownNow()
+        // the pool threads end, but their SolverDDs would keep the recycled search buffers
+        for (solverDD in workerSolvers) {
+            solverDD.releaseRecycled()
+        }
+    }
+}
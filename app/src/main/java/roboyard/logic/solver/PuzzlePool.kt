@@ -0,0 +1,186 @@
+package roboyard.logic.solver
+
+import timber.log.Timber
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.util.ArrayDeque
+
+/**
+ * Queue of random puzzles that were already generated and validated in the background,
+ * so starting a new random game only has to take the next one.
+ *
+ * All puzzles in the pool were generated for the same settings, given as a key string
+ * (board size, robots, targets, difficulty, ...). Every call passes the key of the current
+ * settings; when it differs from the key of the pool, the pool is emptied first, so puzzles
+ * of old settings are never returned.
+ *
+ * The pool is written to a small file (see setStorageFile) after every change and read on
+ * first use, so it survives a restart of the app. A puzzle is stored as its save data and its
+ * optimal number of moves; its solutions are in the SolutionCache, which was filled when the
+ * puzzle was validated.
+ */
+class PuzzlePool(private val capacity: Int) {
+
+    class Entry(
+        @JvmField val moves: Int,
+        @JvmField val data: String // the puzzle as GameState save data
+    )
+
+    private val entries = ArrayDeque<Entry>()
+    private var key: String? = null
+    private var storageFile: File? = null
+    private var loaded = false
+
+    var hits = 0
+        private set
+    var misses = 0
+        private set
+
+    /**
+     * Set the file of the on-disk store (null: memory only). The file is read on first use.
+     */
+    @Synchronized
+    fun setStorageFile(file: File?) {
+        storageFile = file
+        loaded = false
+    }
+
+    /**
+     * Take the next puzzle for the settings key
+     * @return the puzzle, or null if the pool has none for these settings
+     */
+    @Synchronized
+    fun poll(settingsKey: String): Entry? {
+        selectKey(settingsKey)
+        val entry = entries.pollFirst()
+        if (entry == null) {
+            misses++
+            return null
+        }
+        hits++
+        save()
+        return entry
+    }
+
+    /**
+     * Add a validated puzzle that was generated for the settings key
+     * @return false if the pool is full or the settings have changed in the meantime
+     */
+    @Synchronized
+    fun offer(settingsKey: String, entry: Entry): Boolean {
+        ensureLoaded()
+        if (key != null && key != settingsKey) {
+            return false
+        }
+        selectKey(settingsKey)
+        if (entries.size >= capacity) {
+            return false
+        }
+        entries.addLast(entry)
+        save()
+        return true
+    }
+
+    /**
+     * Number of puzzles for the settings key (0 if the pool holds puzzles of other settings)
+     */
+    @Synchronized
+    fun size(settingsKey: String): Int {
+        ensureLoaded()
+        return if (key == settingsKey) entries.size else 0
+    }
+
+    @Synchronized
+    fun isFull(settingsKey: String): Boolean = size(settingsKey) >= capacity
+
+    @Synchronized
+    fun clear() {
+        ensureLoaded()
+        entries.clear()
+        key = null
+        save()
+    }
+
+    private fun selectKey(settingsKey: String) {
+        ensureLoaded()
+        if (settingsKey == key) return
+        if (entries.isNotEmpty()) {
+            Timber.d("[PUZZLE_POOL] Settings changed, dropping %d puzzles of %s", entries.size, key)
+        }
+        entries.clear()
+        key = settingsKey
+        save()
+    }
+
+    private fun ensureLoaded() {
+        if (loaded) return
+        loaded = true
+        val file = storageFile ?: return
+        if (!file.exists()) return
+        try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                if (input.readInt() != FILE_MAGIC || input.readInt() != FORMAT_VERSION) {
+                    Timber.d("[PUZZLE_POOL] Ignoring pool file with an old format: %s", file)
+                    file.delete()
+                    return
+                }
+                val fileKey = input.readUTF()
+                val count = input.readInt()
+                val fileEntries = ArrayList<Entry>(count)
+                for (i in 0 until count) {
+                    val moves = input.readInt()
+                    val data = ByteArray(input.readInt())
+                    input.readFully(data)
+                    fileEntries.add(Entry(moves, String(data, Charsets.UTF_8)))
+                }
+                key = fileKey
+                entries.clear()
+                entries.addAll(fileEntries.take(capacity))
+            }
+        } catch (e: IOException) {
+            // also a file that was cut off when the app was killed: start with an empty pool
+            Timber.e(e, "[PUZZLE_POOL] Error reading %s", file)
+            entries.clear()
+            key = null
+        }
+        Timber.d("[PUZZLE_POOL] Loaded %d puzzles for %s from %s", entries.size, key, file)
+    }
+
+    private fun save() {
+        val file = storageFile ?: return
+        val tmp = File(file.path + ".tmp")
+        try {
+            DataOutputStream(BufferedOutputStream(FileOutputStream(tmp))).use { output ->
+                output.writeInt(FILE_MAGIC)
+                output.writeInt(FORMAT_VERSION)
+                output.writeUTF(key ?: "")
+                output.writeInt(entries.size)
+                for (entry in entries) {
+                    val data = entry.data.toByteArray(Charsets.UTF_8)
+                    output.writeInt(entry.moves)
+                    output.writeInt(data.size)
+                    output.write(data)
+                }
+            }
+            // replace the old file only when the new one is complete
+            if (!tmp.renameTo(file)) {
+                file.delete()
+                tmp.renameTo(file)
+            }
+        } catch (e: IOException) {
+            Timber.e(e, "[PUZZLE_POOL] Error writing %s", file)
+        }
+    }
+
+    companion object {
+        const val FILE_NAME = "puzzle_pool.bin"
+        private const val FILE_MAGIC = 0x52595050 // "RYPP"
+        private const val FORMAT_VERSION = 1
+    }
+}
@@ -1,7 +1,6 @@
 package roboyard.logic.solver
 
 import driftingdroids.model.Board
-import driftingdroids.model.Board.Goal
 import roboyard.logic.core.Constants
 import roboyard.logic.core.GameLogic.Companion.getColor
 import roboyard.logic.core.GameLogic.Companion.getColorName
@@ -59,18 +58,7 @@ object RRGetMap {
         // IMPORTANT: Use boardWidth/boardHeight calculated from GridElements, not MainActivity dimensions
         // The GridElements may have coordinates up to boardWidth-1, so we need a board of that size
         // Using MainActivity dimensions caused walls at x=12 to wrap around to x=0 of the next row
-        val board = Board.createBoardFreestyle(null, boardWidth, boardHeight, Constants.NUM_ROBOTS)
-        if (board == null) {
-            Timber.e("[SOLUTION_SOLVER] Failed to create board with dimensions %dx%d", boardWidth, boardHeight)
-            return null
-        }
-        board!!.removeGoals()
-
-        Timber.d(
-            "[SOLUTION_SOLVER] Board created with width=%d, height=%d",
-            board!!.width,
-            board!!.height
-        )
+        val builder = DDWorldBuilder(boardWidth, boardHeight, Constants.NUM_ROBOTS)
 
         // Color mappings for robots and targets
         val colors: MutableMap<String?, Int?> = HashMap<String?, Int?>()
@@ -93,18 +81,13 @@ object RRGetMap {
         colors.put("target_multi", Constants.COLOR_MULTI)
 
         var robotCounter = 0
-        var targetFound = false
-        val targetInfoList: MutableList<IntArray> = ArrayList<IntArray>() // [position, colorIndex]
 
-
-        // CRITICAL CHANGE: First process all non-wall elements (targets, robots) before walls
-        // This ensures targets get priority over walls at the same position
+        // Targets and robots; the builder gives targets priority over walls at the same position
         for (element in gridElements) {
             val gridElement = element
             val type = gridElement.type
             val x = gridElement.x
             val y = gridElement.y
-            val position = y * board!!.width + x
 
 
             // Skip walls - we'll handle them separately after targets
@@ -121,16 +104,10 @@ object RRGetMap {
             ) { // Added target_pink here
 
                 val targetColor: Int = colors.getOrDefault(type, Constants.COLOR_PINK)!!
-                board!!.addGoal(position, targetColor, 1)
-                targetFound = true
-                targetInfoList.add(intArrayOf(position, targetColor))
-
-
-                // Set this as the active target
-                board!!.setGoal(position)
+                builder.addTarget(x, y, targetColor)
                 Timber.d(
                     "[SOLUTION_SOLVER_TARGET] Setting goal at position %d (%d,%d) for robot color %d",
-                    position, x, y, targetColor
+                    y * boardWidth + x, x, y, targetColor
                 )
             } else if (type!!.startsWith("target_")) {
                 Timber.w("[SOLUTION_SOLVER_TARGET] Unknown target type: %s", type)
@@ -176,113 +153,11 @@ object RRGetMap {
             }
         }
 
-        // Now process walls - AFTER we've identified target positions
-        // Create a wall model from the grid elements
+        // Now process walls - a wall model removes duplicates
+        // driftingdroids solver uses "N" and "W" to represent horizontal and vertical walls
         val wallModel = fromGridElements(gridElements, boardWidth, boardHeight)
-
-
-        // Process each wall in the model and set it on the board
-        // to understand setWall: driftingdroids solver uses "N" and "W" to represent horizontal and vertical walls
-        // e.g. walls[direction][x + y * this.width] = true;
-        // direction is "N" for horizontal and "W" for vertical
-        // the y position is stored in the same key as multiple of the width of the board
         for (wall in wallModel.getWalls()) {
-            val x = wall!!.x
-            val y = wall.y
-            val position = y * board!!.width + x
-
-            if (wall.type == WallType.HORIZONTAL) {
-                board!!.setWall(
-                    position,
-                    "N",
-                    true
-                ) // treated as "N" of the current field in driftingdroids solver
-
-                Timber.d(
-                    "[SOLUTION_SOLVER] Setting horizontal wall at position %d (x=%d, y=%d)",
-                    position,
-                    x,
-                    y
-                )
-            } else if (wall.type == WallType.VERTICAL) {
-                board!!.setWall(
-                    position,
-                    "W",
-                    true
-                ) // treated as "W" of the current field in driftingdroids solver
-
-                Timber.d(
-                    "[SOLUTION_SOLVER] Setting vertical wall at position %d (x=%d, y=%d)",
-                    position,
-                    x,
-                    y
-                )
-            }
-        }
-
-
-        // Force outer walls to be present - essential for the solver
-        var missingWallCountHorizontal = 0
-        var missingWallCountVertical = 0
-
-        for (x in 0..<board!!.width) {
-            // Top border
-            val topPosition = 0 + x
-            if (!board!!.isWall(topPosition, Constants.NORTH)) {
-                board!!.setWall(topPosition, "N", true)
-                Timber.w(
-                    "[SOLUTION_SOLVER][WALLS] Adding missing top horizontal border wall at position (%d,0)",
-                    x
-                )
-                missingWallCountHorizontal++
-            }
-            // Bottom border
-            val bottomWallY = (board!!.height - 1) * board!!.width
-            val bottomPosition = bottomWallY + x
-            if (!board!!.isWall(bottomPosition, Constants.SOUTH)) {
-                board!!.setWall(bottomPosition, "N", true)
-                Timber.w(
-                    "[SOLUTION_SOLVER][WALLS] Adding missing bottom horizontal border wall at position (%d,%d)",
-                    x,
-                    board!!.height - 1
-                )
-                missingWallCountHorizontal++
-            }
-        }
-
-        for (y in 0..<board!!.height) {
-            // Left vertical border
-            val verticalWallY = y * board!!.width
-            val leftPosition = 0 + verticalWallY
-            if (!board!!.isWall(leftPosition, Constants.WEST)) {
-                board!!.setWall(leftPosition, "W", true)
-                Timber.w(
-                    "[SOLUTION_SOLVER][WALLS] Adding missing left vertical border wall at position (0,%d)",
-                    y
-                )
-                missingWallCountVertical++
-            }
-            // Right border
-            val rightWallX = board!!.width - 1
-            val rightPosition = rightWallX + verticalWallY
-            if (!board!!.isWall(rightPosition, Constants.EAST)) {
-                board!!.setWall(rightPosition, "W", true)
-                Timber.w(
-                    "[SOLUTION_SOLVER][WALLS] Adding missing right vertical border wall at position (%d,%d)",
-                    board!!.width - 1,
-                    y
-                )
-                missingWallCountVertical++
-            }
-        }
-
-        if (missingWallCountHorizontal > 0 || missingWallCountVertical > 0) {
-            Timber.w(
-                "[SOLUTION_SOLVER][WALLS] Added %d missing outer walls to ensure solver stability, horizontal:%d, vertical:%d",
-                missingWallCountHorizontal + missingWallCountVertical,
-                missingWallCountHorizontal,
-                missingWallCountVertical
-            )
+            builder.addWall(wall!!.x, wall.y, wall.type == WallType.HORIZONTAL)
         }
 
         // Set robot positions on the board
@@ -298,69 +173,20 @@ object RRGetMap {
                 // This ensures the solver can proceed but may not produce correct solutions
                 pieces[i] = RRPiece(0, 0, i, i)
             }
-
-            val position = pieces[i]!!.y * board!!.width + pieces[i]!!.x
-            Timber.d(
-                "[ROBOT_MAPPING] Setting robot %d at board position %d (x=%d, y=%d)",
-                i, position, pieces[i]!!.x, pieces[i]!!.y
-            )
-            board!!.setRobot(i, position, false)
-
-            // Verify that setRobot succeeded
-            if (!board!!.setRobot(i, position, false)) {
-                Timber.e(
-                    "[ROBOT_MAPPING][ERRROR] FATAL: Could not set robot %d at position %d (%d,%d). Position may be occupied or invalid.",
-                    i, position, pieces[i]!!.x, pieces[i]!!.y
-                )
-            }
-        }
-
-
-        // If no target was found, throw an exception
-        // This prevents the NullPointerException in Board.isSolution01()
-        if (!targetFound) {
-            throw RuntimeException("[SOLUTION_SOLVER] No target found in level")
+            builder.setRobot(i, pieces[i]!!.x, pieces[i]!!.y)
         }
 
-        // Multi-goal support: if more than 1 target found, set activeGoals
-        if (targetInfoList.size > 1) {
-            // Validate: multi-colored targets not allowed in multi-goal mode
-            for (info in targetInfoList) {
-                val color = info[1]
-                if (color == Constants.COLOR_MULTI) {
-                    Timber.e(
-                        "[SOLUTION_SOLVER] Multi-colored target not allowed in multi-goal mode. " +
-                                "Each robot must have a specific colored target. It was added target with ID " + color
-                    )
-                }
-            }
-
-            val activeGoals: MutableList<Goal> = ArrayList<Goal>()
-            for (info in targetInfoList) {
-                val pos = info[0]
-                val color = info[1]
-                for (g in board!!.goals) {
-                    if (g.position == pos && g.robotNumber == color) {
-                        activeGoals.add(g)
-                        break
-                    }
-                }
-            }
-            if (activeGoals.size > 1) {
-                board!!.setActiveGoals(activeGoals)
-                Timber.d("[SOLUTION_SOLVER] Multi-goal mode: set %d active goals", activeGoals.size)
-                for (g in activeGoals) {
-                    Timber.d(
-                        "[SOLUTION_SOLVER]   Goal: robot=%d position=%d (%d,%d)",
-                        g.robotNumber,
-                        g.position,
-                        g.position % board!!.width,
-                        g.position / board!!.width
-                    )
-                }
-            }
+        // throws if no target was found; outer walls and multi-goal mode are set up by the builder
+        val board = builder.build()
+        if (board == null) {
+            Timber.e("[SOLUTION_SOLVER] Failed to create board with dimensions %dx%d", boardWidth, boardHeight)
+            return null
         }
-
+        Timber.d(
+            "[SOLUTION_SOLVER] Board created with width=%d, height=%d",
+            board.width,
+            board.height
+        )
         return board
     }
 
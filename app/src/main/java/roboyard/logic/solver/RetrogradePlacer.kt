@@ -0,0 +1,105 @@
+package roboyard.logic.solver
+
+import driftingdroids.model.Board
+import java.util.Random
+
+/**
+ * Backward (retrograde) placement of the goal robot, for maps that need many moves.
+ *
+ * Random maps with a long optimal solution are rare, so generating them by rejection takes
+ * very long. Instead, this works backward from the goal: a breadth-first search over reverse
+ * slides of the goal robot (the other robots stay where they are) gives for every position
+ * the number of moves the goal robot needs from there on its own. The goal robot is put on a
+ * position with the largest such distance inside the move window.
+ *
+ * That distance is an upper bound of the optimal solution, because the other robots may help
+ * with shorter ways; the robot-free lower bound of GoalSearch is used to pick the position
+ * among those with the same distance. The map still has to be confirmed by the solver.
+ */
+object RetrogradePlacer {
+
+    /**
+     * The new start position of the goal robot and the number of moves it needs alone from there
+     */
+    class Placement(@JvmField val robot: Int, @JvmField val position: Int, @JvmField val moves: Int)
+
+    private const val UNREACHABLE = Int.MAX_VALUE
+
+    /**
+     * Find the start of the goal robot with the most moves in minMoves..maxMoves.
+     * @return the placement, or null if the board has no single goal for a specific robot,
+     * or no position needs at least minMoves moves
+     */
+    @JvmStatic
+    fun place(board: Board, minMoves: Int, maxMoves: Int, random: Random): Placement? {
+        val goals = board.getActiveGoals()
+        if (goals.size != 1) return null
+        val goal = goals[0] ?: return null
+        val robot = goal.robotNumber
+        if (robot < 0 || robot >= board.numRobots) return null // any robot may reach a wildcard goal
+
+        val distances = distancesToGoal(board, robot, goal.position)
+        val lowerBounds = GoalSearch.distancesToGoal(board, goal.position)
+        val robots = board.robotPositions
+        var bestMoves = -1
+        var bestBound = -1
+        var bestPosition = -1
+        var ties = 0
+        for (position in 0 until board.size) {
+            val moves = distances[position]
+            if (moves == UNREACHABLE || moves < minMoves || moves > maxMoves || moves < bestMoves) continue
+            if (robots.indices.any { it != robot && robots[it] == position }) continue
+            val bound = lowerBounds[position]
+            if (moves > bestMoves || bound > bestBound) {
+                bestMoves = moves
+                bestBound = bound
+                bestPosition = position
+                ties = 1
+            } else if (bound == bestBound && random.nextInt(++ties) == 0) {
+                bestPosition = position // reservoir sampling among the equal positions
+            }
+        }
+        return if (bestPosition < 0) null else Placement(robot, bestPosition, bestMoves)
+    }
+
+    /**
+     * For each position the number of moves the robot needs from there to the goal position,
+     * while the other robots do not move (UNREACHABLE if it cannot reach the goal alone).
+     */
+    @JvmStatic
+    fun distancesToGoal(board: Board, robot: Int, goalPosition: Int): IntArray {
+        val distances = IntArray(board.size) { UNREACHABLE }
+        val robots = board.robotPositions
+        val occupied = BooleanArray(board.size)
+        for (i in robots.indices) {
+            if (i != robot) occupied[robots[i]] = true
+        }
+        if (occupied[goalPosition]) return distances
+
+        val queue = IntArray(board.size)
+        var head = 0
+        var tail = 0
+        distances[goalPosition] = 0
+        queue[tail++] = goalPosition
+        while (head < tail) {
+            val position = queue[head++]
+            val distance = distances[position] + 1
+            for (direction in 0..3) {
+                val increment = board.directionIncrement[direction]
+                // a robot moving in this direction stops here only at a wall or in front of a robot
+                if (!board.isWall(position, direction) && !occupied[position + increment]) continue
+                // reverse slide: every free position behind this one, up to a wall or a robot
+                val back = (direction + 2) and 3
+                var previous = position
+                while (!board.isWall(previous, back) && !occupied[previous - increment]) {
+                    previous -= increment
+                    if (distances[previous] == UNREACHABLE) {
+                        distances[previous] = distance
+                        queue[tail++] = previous
+                    }
+                }
+            }
+        }
+        return distances
+    }
+}
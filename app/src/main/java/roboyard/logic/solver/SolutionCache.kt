@@ -0,0 +1,359 @@
+package roboyard.logic.solver
+
+import driftingdroids.model.Board
+import driftingdroids.model.Move
+import driftingdroids.model.Solution
+import timber.log.Timber
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.security.MessageDigest
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Cache of optimal solutions in front of SolverDD.
+ *
+ * The same positions are solved again and again (main solve, live move counter after each move,
+ * next-move precomputation, history replay, level reload). Each solved position is stored under
+ * a canonical key of the board: size, walls, active goals and robot positions. Robots that are
+ * not goal robots can be substituted for each other, so they are sorted by position, the same
+ * way KeyMakerInt sorts the non-goal robots of a solver state. The moves are stored for these
+ * canonical robot slots and are mapped back to the robots of the board on a hit.
+ *
+ * Entries are kept in an in-memory LRU and appended to a compact binary file
+ * (see setStorageFile), which is loaded lazily on first use and rewritten when it has grown
+ * to twice the number of entries. The new entries are written in batches by a background
+ * thread, WRITE_DELAY_MILLIS after the first one, so a solver thread never waits for the disk.
+ *
+ * A cached solution is replayed on the board before it is returned, so a stale or colliding
+ * entry is never used.
+ */
+class SolutionCache(private val maxEntries: Int) {
+
+    /**
+     * One cached position: up to MAX_SOLUTIONS optimal solutions as canonical moves
+     * (slot shl 2 or direction); complete is true if these are all solutions of the position.
+     */
+    private class Entry(val solutions: List<ByteArray>, val complete: Boolean)
+
+    private data class Key(val hi: Long, val lo: Long)
+
+    private val entries = object : LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Key, Entry>?): Boolean {
+            return size > maxEntries
+        }
+    }
+
+    private var storageFile: File? = null
+    private var loaded = false
+    private var fileRecords = 0
+    private val pending = ArrayList<Pair<Key, Entry>>() // put but not written yet
+    private var writeScheduled = false
+    private val writeLock = Any() // held while writing the file, taken before this
+
+    var hits = 0
+        private set
+    var misses = 0
+        private set
+
+    /**
+     * Set the file of the on-disk store (null: memory only). The file is read on first use.
+     */
+    @Synchronized
+    fun setStorageFile(file: File?) {
+        storageFile = file
+        loaded = false
+        pending.clear()
+    }
+
+    /**
+     * Get cached optimal solutions for the board.
+     * @param solutionCount number of solutions that are needed (Solver.SOLUTION_COUNT_ALL: all of them)
+     * @return the solutions for the robots of this board, or null if the position is not cached
+     */
+    @Synchronized
+    fun get(board: Board, solutionCount: Int): MutableList<Solution>? {
+        ensureLoaded()
+        val canonical = CanonicalBoard(board)
+        val entry = entries[canonical.key]
+        if (entry == null || (!entry.complete && entry.solutions.size < solutionCount)) {
+            misses++
+            return null
+        }
+        val result = ArrayList<Solution>()
+        for (moves in entry.solutions.take(solutionCount)) {
+            val solution = replay(board, canonical, moves)
+            if (solution == null) {
+                Timber.w("[SOLUTION_CACHE] Cached solution does not solve the board, dropping entry")
+                entries.remove(canonical.key)
+                misses++
+                return null
+            }
+            result.add(solution)
+        }
+        hits++
+        return result
+    }
+
+    /**
+     * Store the optimal solutions that the solver found for the board.
+     * @param complete true if the solver searched for all solutions (not stopped at a solution count)
+     */
+    @Synchronized
+    fun put(board: Board, solutions: List<Solution>, complete: Boolean) {
+        if (solutions.isEmpty() || solutions[0].size() == 0 || solutions[0].size() > MAX_MOVES) {
+            return
+        }
+        ensureLoaded()
+        val canonical = CanonicalBoard(board)
+        val canonicalSolutions = ArrayList<ByteArray>()
+        for (solution in solutions.take(MAX_SOLUTIONS)) {
+            val moves = ByteArray(solution.size())
+            solution.resetMoves()
+            var i = 0
+            var move = solution.getNextMove()
+            while (move != null) {
+                moves[i++] = ((canonical.slotOfRobot[move.robotNumber] shl 2) or move.direction).toByte()
+                move = solution.getNextMove()
+            }
+            canonicalSolutions.add(moves)
+        }
+        val entry = Entry(canonicalSolutions, complete && solutions.size <= MAX_SOLUTIONS)
+        entries[canonical.key] = entry
+        if (storageFile != null) {
+            pending.add(Pair(canonical.key, entry))
+            if (!writeScheduled) {
+                writeScheduled = true
+                writer.schedule({ flush() }, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+            }
+        }
+    }
+
+    /**
+     * Write the entries that were put since the last write to the storage file now
+     * (otherwise the background thread writes them shortly after they were put).
+     */
+    fun flush() {
+        synchronized(writeLock) {
+            val file: File
+            val records: List<Pair<Key, Entry>>
+            val rewrite: Boolean
+            synchronized(this) {
+                writeScheduled = false
+                file = storageFile ?: return
+                if (pending.isEmpty()) return
+                // rewrite the file with the entries that are still in memory
+                rewrite = fileRecords >= 2 * maxEntries || !file.exists()
+                records = if (rewrite) entries.map { Pair(it.key, it.value) } else ArrayList(pending)
+                pending.clear()
+                fileRecords = if (rewrite) records.size else fileRecords + records.size
+            }
+            write(file, records, rewrite)
+        }
+    }
+
+    fun clear() {
+        synchronized(writeLock) {
+            synchronized(this) {
+                entries.clear()
+                pending.clear()
+                hits = 0
+                misses = 0
+                storageFile?.delete()
+                fileRecords = 0
+            }
+        }
+    }
+
+    @Synchronized
+    fun size(): Int {
+        return entries.size
+    }
+
+    /**
+     * The canonical key of a board and the mapping between robots and canonical slots.
+     * Slots: goal robots in robot order, then all other robots sorted by position.
+     */
+    private class CanonicalBoard(board: Board) {
+        val key: Key
+        val slotOfRobot: IntArray
+        val robotOfSlot: IntArray
+
+        init {
+            val numRobots = board.numRobots
+            val goals = board.getActiveGoals()
+            val isGoalRobot = BooleanArray(numRobots)
+            for (goal in goals) {
+                if (goal != null && goal.robotNumber >= 0 && goal.robotNumber < numRobots) {
+                    isGoalRobot[goal.robotNumber] = true
+                }
+            }
+            val others = (0 until numRobots).filter { !isGoalRobot[it] }.sortedBy { board.robotPositions[it] }
+            robotOfSlot = ((0 until numRobots).filter { isGoalRobot[it] } + others).toIntArray()
+            slotOfRobot = IntArray(numRobots)
+            for (slot in robotOfSlot.indices) {
+                slotOfRobot[robotOfSlot[slot]] = slot
+            }
+
+            val data = ArrayList<Byte>()
+            fun putInt(value: Int) {
+                data.add((value shr 8).toByte())
+                data.add(value.toByte())
+            }
+            putInt(FORMAT_VERSION)
+            putInt(board.width)
+            putInt(board.height)
+            // walls: 4 bits per position
+            for (pos in 0 until board.size) {
+                var bits = 0
+                for (dir in 0..3) {
+                    if (board.isWall(pos, dir)) bits = bits or (1 shl dir)
+                }
+                data.add(bits.toByte())
+            }
+            putInt(goals.size)
+            for (goal in goals) {
+                putInt(goal?.position ?: -1)
+                putInt(goal?.robotNumber ?: -1)
+            }
+            putInt(numRobots)
+            for (slot in robotOfSlot.indices) {
+                val robot = robotOfSlot[slot]
+                putInt(if (isGoalRobot[robot]) robot else -1)
+                putInt(board.robotPositions[robot])
+            }
+            val digest = MessageDigest.getInstance("SHA-256").digest(data.toByteArray())
+            key = Key(toLong(digest, 0), toLong(digest, 8))
+        }
+    }
+
+    // replay the canonical moves on the board; null if they don't lead to the goal(s)
+    private fun replay(board: Board, canonical: CanonicalBoard, moves: ByteArray): Solution? {
+        var solution = Solution(board)
+        var state0 = board.robotPositions.clone()
+        val wallStops = board.computeWallStops()
+        for (i in moves.indices) {
+            val slot = (moves[i].toInt() and 0xff) shr 2
+            val direction = moves[i].toInt() and 3
+            if (slot >= canonical.robotOfSlot.size) return null
+            val robot = canonical.robotOfSlot[slot]
+            val newPosition = board.slide(wallStops, state0, state0[robot], direction)
+            if (newPosition == state0[robot]) return null
+            val state1 = state0.clone()
+            state1[robot] = newPosition
+            solution.add(Move(board, state0, state1, i))
+            state0 = state1
+        }
+        for (goal in board.getActiveGoals()) {
+            if (goal == null) continue
+            val reached = if (goal.robotNumber < 0) state0.contains(goal.position) else state0[goal.robotNumber] == goal.position
+            if (!reached) return null
+        }
+        solution = solution.finish()
+        return solution
+    }
+
+    private fun ensureLoaded() {
+        if (loaded) return
+        loaded = true
+        val file = storageFile ?: return
+        if (!file.exists()) return
+        var records = 0
+        try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                if (input.readInt() != FILE_MAGIC || input.readInt() != FORMAT_VERSION) {
+                    Timber.d("[SOLUTION_CACHE] Ignoring cache file with an old format: %s", file)
+                    file.delete()
+                    return
+                }
+                while (true) {
+                    val key = Key(input.readLong(), input.readLong())
+                    val complete = input.readBoolean()
+                    val numSolutions = input.readUnsignedByte()
+                    val solutions = ArrayList<ByteArray>(numSolutions)
+                    for (i in 0 until numSolutions) {
+                        val moves = ByteArray(input.readUnsignedByte())
+                        input.readFully(moves)
+                        solutions.add(moves)
+                    }
+                    entries[key] = Entry(solutions, complete)
+                    records++
+                }
+            }
+        } catch (e: EOFException) {
+            // end of file (or a record that was cut off when the app was killed)
+        } catch (e: IOException) {
+            Timber.e(e, "[SOLUTION_CACHE] Error reading %s", file)
+        }
+        fileRecords = records
+        Timber.d("[SOLUTION_CACHE] Loaded %d records (%d entries) from %s", records, entries.size, file)
+    }
+
+    // append the records, or write a new file with only these records
+    private fun write(file: File, records: List<Pair<Key, Entry>>, rewrite: Boolean) {
+        try {
+            DataOutputStream(BufferedOutputStream(FileOutputStream(file, !rewrite))).use { output ->
+                if (rewrite) {
+                    output.writeInt(FILE_MAGIC)
+                    output.writeInt(FORMAT_VERSION)
+                }
+                for ((key, entry) in records) {
+                    writeRecord(output, key, entry)
+                }
+            }
+        } catch (e: IOException) {
+            Timber.e(e, "[SOLUTION_CACHE] Error writing %s", file)
+        }
+    }
+
+    private fun writeRecord(output: DataOutputStream, key: Key, entry: Entry) {
+        output.writeLong(key.hi)
+        output.writeLong(key.lo)
+        output.writeBoolean(entry.complete)
+        output.writeByte(entry.solutions.size)
+        for (moves in entry.solutions) {
+            output.writeByte(moves.size)
+            output.write(moves)
+        }
+    }
+
+    companion object {
+        const val FILE_NAME = "solution_cache.bin"
+        const val MAX_SOLUTIONS = 16 // solutions stored per position
+        private const val MAX_MOVES = 255 // one byte for the number of moves
+        private const val MAX_ENTRIES = 2000
+        private const val FILE_MAGIC = 0x52594353 // "RYCS"
+        private const val FORMAT_VERSION = 1
+        private const val WRITE_DELAY_MILLIS = 2000L // the puts of this time are written together
+
+        // writes the batches of all caches, one after the other
+        private val writer = Executors.newSingleThreadScheduledExecutor { runnable ->
+            Thread(runnable, "SolutionCache-writer").apply { isDaemon = true }
+        }
+
+        private fun toLong(bytes: ByteArray, offset: Int): Long {
+            var result = 0L
+            for (i in offset until offset + 8) {
+                result = (result shl 8) or (bytes[i].toLong() and 0xff)
+            }
+            return result
+        }
+
+        private val instance = SolutionCache(MAX_ENTRIES)
+
+        /**
+         * The cache shared by all SolverDD instances
+         */
+        @JvmStatic
+        fun getInstance(): SolutionCache {
+            return instance
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package roboyard.logic.solver
 
 import driftingdroids.model.Board
+import driftingdroids.model.MemoryArbiter
+import driftingdroids.model.SearchBudget
+import driftingdroids.model.SearchProgressListener
 import driftingdroids.model.Solution
 import driftingdroids.model.Solver
 import roboyard.logic.core.Constants
@@ -23,10 +26,59 @@ import kotlin.math.min
 class SolverDD : ISolver {
     private var solverStatus: SolverStatus?
     private var solver: Solver? = null
+    private val runLock = Any() // guards the solver thread and the recycled solver of the runs
+    private var recycledSolver: Solver? = null // finished solver whose search buffers are reused by the next init() (guarded by runLock)
+    private var recycledReservation: MemoryArbiter.Reservation? = null // heap bytes of the recycled solver's buffers (guarded by runLock)
+    private var recycleReleased = false // releaseRecycled() was called, a running solve doesn't keep its buffers (guarded by runLock)
     private var solutions: MutableList<Solution>? = null
     private val pieces: Array<RRPiece?>
     private var board: Board? = null
-    private var solverThread: Thread? = null // Track the solver thread for cancellation
+    private var solverThread: Thread? = null // the thread of the running run(), null while idle (guarded by runLock)
+    @Volatile
+    private var stopRequested = false // the solutions of a stopped run are not the complete set
+
+    /**
+     * Explicit limits for the next solver run (null: limits depend on the available heap).
+     * Use a small budget for hint requests and a larger one for background validation.
+     */
+    var searchBudget: SearchBudget? = null
+
+    /**
+     * Priority of the memory reservations of the next solver runs: a run of a higher priority
+     * may take the memory of a running search of a lower one (see MemoryArbiter)
+     */
+    var memoryPriority: MemoryArbiter.Priority = MemoryArbiter.Priority.NORMAL
+
+    /**
+     * Why the last solver run stopped (solved, or which limit was reached); null before the first run
+     */
+    var searchStatus: Solver.SEARCH_STATUS? = null
+        private set
+
+    /**
+     * Receives the progress (completed depths and found solutions) of the next solver run,
+     * on the solver thread.
+     */
+    var progressListener: SearchProgressListener? = null
+
+    /**
+     * Number of optimal solutions to collect in the next solver run; 1 is enough when only
+     * the optimal move count (or one hint) is needed, and ends the last search depth early.
+     */
+    var solutionCount: Int = Solver.SOLUTION_COUNT_ALL
+
+    /**
+     * Known lower bound of the number of moves for the next solver run (0: none); the search
+     * starts at this depth. Must not be larger than the optimal solution.
+     */
+    var minimumMoves: Int = 0
+
+    /**
+     * Cache of solved positions that is checked before the solver runs, and gets the solutions
+     * of the runs (null: always run the solver). Off by default: the game, hint and live solvers
+     * use SolutionCache.getInstance(), background solvers (e.g. of map candidates) don't.
+     */
+    var solutionCache: SolutionCache? = null
 
     init {
         solverStatus = SolverStatus.idle
@@ -94,19 +146,41 @@ class SolverDD : ISolver {
             }
         }
 
-        solver = Solver.createInstance(board!!)
-        Timber.d("[SOLUTION_SOLVER] SolverDD.init(): Solver created successfully")
+        // Reuse the buffers of the last finished solver (same board size and robot count)
+        // instead of allocating a new known-states trie for every solve
+        val previous = synchronized(runLock) {
+            recycleReleased = false
+            takeRecycled()
+        }
+        solver = previous?.recycle(board!!) ?: Solver.createInstance(board!!)
+        solver!!.setSearchBudget(searchBudget)
+        solver!!.setOptionMemoryPriority(memoryPriority)
+        Timber.d("[SOLUTION_SOLVER] SolverDD.init(): Solver created successfully (recycled: %s)", previous != null)
     }
 
     override fun run() {
-        // Store reference to current thread for cancellation
-        solverThread = Thread.currentThread()
+        // Store reference to current thread for cancellation; the pool thread outlives this run,
+        // so it is only interrupted by cancel() until run() returns
+        synchronized(runLock) {
+            solverThread = Thread.currentThread()
+        }
+        try {
+            runSolver()
+        } finally {
+            synchronized(runLock) {
+                solverThread = null
+            }
+        }
+    }
+
+    private fun runSolver() {
         Timber.d(
             "[SOLUTION_SOLVER] SolverDD.run(): Solver thread started: %s",
-            solverThread!!.getName()
+            Thread.currentThread().getName()
         )
 
-        if (solver == null) {
+        val currentSolver = solver
+        if (currentSolver == null) {
             Timber.d("[SOLUTION_SOLVER] SolverDD.run(): solver is null, aborting")
             return
         }
@@ -121,10 +195,30 @@ class SolverDD : ISolver {
         solverStatus = SolverStatus.solving
         Timber.d("[SOLUTION_SOLVER] SolverDD.run(): Starting solver with status %s", solverStatus)
 
+        stopRequested = false
         try {
+            val cached = solutionCache?.get(board!!, solutionCount)
+            if (cached != null) {
+                Timber.d("[SOLUTION_SOLVER] SolverDD.run(): %d cached solution(s) with %d moves", cached.size, cached[0].size())
+                solutions = cached
+                searchStatus = Solver.SEARCH_STATUS.SOLVED
+                for (solution in cached) {
+                    progressListener?.onSolutionFound(solution)
+                }
+                solverStatus = SolverStatus.solved
+                return
+            }
+
             Timber.d("[SOLUTION_SOLVER] SolverDD.run(): Executing solver")
-            solutions = solver!!.execute().toMutableList()
-            Timber.d("[SOLUTION_SOLVER] SolverDD.run(): Solver execution complete")
+            currentSolver.setProgressListener(progressListener)
+            currentSolver.setOptionSolutionCount(solutionCount)
+            currentSolver.setOptionMinimumDepth(minimumMoves)
+            solutions = currentSolver.execute().toMutableList()
+            searchStatus = currentSolver.getSearchStatus()
+            if (searchStatus == Solver.SEARCH_STATUS.SOLVED) {
+                solutionCache?.put(board!!, solutions!!, solutionCount == Solver.SOLUTION_COUNT_ALL && !stopRequested)
+            }
+            Timber.d("[SOLUTION_SOLVER] SolverDD.run(): Solver execution complete, search status: %s", searchStatus!!.getName())
 
             if (solutions!!.size != 0) {
                 val solution = solutions!!.get(0)
@@ -143,12 +237,18 @@ class SolverDD : ISolver {
             Timber.e(e, "[SOLUTION_SOLVER] SolverDD.run(): Solver interrupted")
             solverStatus = SolverStatus.noSolution
         } finally {
-            // Release solver reference to allow GC to reclaim SolverIDDFS instance
-            // (includes states[][], obstacles[][], directions[][] and knownStates)
-            solver = null
-            // Explicit GC: Android ART doesn't shrink the heap automatically.
-            // Without this, consecutive solver runs accumulate heap pressure until OOM.
-            System.gc()
+            // Keep the finished solver for the next init(): its known-states trie is cleared and
+            // reused instead of reallocated, so consecutive small solves (live solver) leave no garbage.
+            if (solver === currentSolver) {
+                solver = null
+            }
+            keepRecycled(currentSolver)
+            // Only a large search drops its trie (and its memory reservation). Android ART doesn't
+            // shrink the heap automatically, so the garbage is collected here.
+            if (currentSolver.getReleasedMemoryMegabytes() > 0) {
+                Timber.d("[SOLUTION_SOLVER] SolverDD.run(): %d MB released, running GC", currentSolver.getReleasedMemoryMegabytes())
+                System.gc()
+            }
         }
     }
 
@@ -225,16 +325,84 @@ class SolverDD : ISolver {
         this.solverStatus = SolverStatus.noSolution
 
 
-        // Interrupt the solver thread to allow graceful termination
-        if (solverThread != null && solverThread!!.isAlive()) {
-            Timber.d(
-                "[SOLUTION_SOLVER] SolverDD.cancel(): Interrupting solver thread: %s",
-                solverThread!!.getName()
-            )
-            solverThread!!.interrupt()
-        } else {
-            Timber.d("[SOLUTION_SOLVER] SolverDD.cancel(): Solver thread is not running")
+        // Interrupt the solver thread to allow graceful termination, but only while run() is active:
+        // afterwards the pool thread runs other jobs that must not see this interrupt
+        synchronized(runLock) {
+            val thread = solverThread
+            if (thread != null) {
+                Timber.d(
+                    "[SOLUTION_SOLVER] SolverDD.cancel(): Interrupting solver thread: %s",
+                    thread.getName()
+                )
+                thread.interrupt()
+            } else {
+                Timber.d("[SOLUTION_SOLVER] SolverDD.cancel(): Solver thread is not running")
+            }
+        }
+    }
+
+    /**
+     * Drop the search buffers that are kept for the next init(), also those of a solve that is
+     * still running. Call when no more solves follow, e.g. when the owner shuts down.
+     */
+    fun releaseRecycled() {
+        val previous = synchronized(runLock) {
+            recycleReleased = true
+            takeRecycled()
         }
+        if (previous != null) {
+            Timber.d("[SOLUTION_SOLVER] SolverDD.releaseRecycled(): Releasing the recycled search buffers")
+            previous.releaseRecycledBuffers()
+        }
+    }
+
+    // The finished solver keeps only a small trie (see Solver.recycle()). Its bytes stay reserved
+    // in the MemoryArbiter with IDLE priority: a search that needs them revokes the reservation,
+    // and the buffers are dropped unless the next init() has taken them already.
+    private fun keepRecycled(finished: Solver) {
+        val reservation = MemoryArbiter.shared.reserve(finished.getRecycledBytes(), MemoryArbiter.Priority.IDLE) {
+            dropRecycled(finished)
+        }
+        val kept = synchronized(runLock) {
+            val keep = reservation != null && !reservation.isRevoked && !recycleReleased
+            if (keep) {
+                recycledSolver = finished
+                recycledReservation = reservation
+            }
+            keep
+        }
+        if (!kept) {
+            reservation?.release()
+            finished.releaseRecycledBuffers()
+        }
+    }
+
+    // called when the reservation of the recycled solver is revoked
+    private fun dropRecycled(finished: Solver) {
+        val dropped = synchronized(runLock) {
+            (recycledSolver === finished).also { if (it) takeRecycled() }
+        }
+        if (dropped) {
+            Timber.d("[SOLUTION_SOLVER] SolverDD: Recycled search buffers dropped for another search")
+            finished.releaseRecycledBuffers()
+        }
+    }
+
+    // the recycled solver, its reservation is released (a new search reserves its own bytes); holds runLock
+    private fun takeRecycled(): Solver? {
+        recycledReservation?.release()
+        recycledReservation = null
+        return recycledSolver.also { recycledSolver = null }
+    }
+
+    /**
+     * Stop the running solver but keep the solutions found so far
+     * (e.g. from a progress listener as soon as the first optimal solution is known)
+     */
+    fun requestStop() {
+        Timber.d("[SOLUTION_SOLVER] SolverDD.requestStop(): Stopping solver")
+        stopRequested = true
+        solver?.requestStop()
     }
 
     /**
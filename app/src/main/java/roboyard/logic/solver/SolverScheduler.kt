@@ -0,0 +1,275 @@
+package roboyard.logic.solver
+
+import driftingdroids.model.MemoryArbiter
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runInterruptible
+import timber.log.Timber
+import java.util.PriorityQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * One scheduler for all solver work of the app: hint solves, the live move counter,
+ * the pre-computation of the next moves, map generation and the puzzle pool refill.
+ *
+ * At most `slots` jobs run at the same time, on coroutines of a fixed pool of daemon threads,
+ * so the solvers do not compete for CPU and heap blindly. A job that runs its own worker
+ * threads (e.g. the ParallelMapGenerator) takes one slot per worker. Waiting jobs start in the order of
+ * their Priority, then in the order they were submitted. A job that finds no free slot preempts
+ * the lowest running job of a lower priority that allows it (Priority.preemption): the job is
+ * cancelled (onCancel, then the thread is interrupted) and, depending on its priority,
+ * started again later or dropped.
+ *
+ * Jobs of the same group run one at a time, in priority order (e.g. all jobs that use the same
+ * SolverDD instance). Every job can be cancelled with SolverJob.cancel().
+ *
+ * @param slots number of jobs that run at the same time
+ */
+class SolverScheduler(private val slots: Int) {
+
+    /**
+     * What happens to a running job when a job of a higher priority needs its slot
+     */
+    enum class Preemption {
+        NONE, // it keeps running
+        RESTART, // it is cancelled and started again from the beginning
+        CANCEL // it is cancelled and dropped
+    }
+
+    /**
+     * Priorities of the solver work, highest first; memoryPriority is the priority of the
+     * memory reservations of its searches (MemoryArbiter.shared)
+     */
+    enum class Priority(val threadPriority: Int, val preemption: Preemption, val memoryPriority: MemoryArbiter.Priority) {
+        HINT(Thread.NORM_PRIORITY, Preemption.NONE, MemoryArbiter.Priority.HIGH), // the player waits for the solution
+        LIVE(Thread.NORM_PRIORITY, Preemption.RESTART, MemoryArbiter.Priority.NORMAL), // live move counter
+        PRECOMPUTE(Thread.MIN_PRIORITY, Preemption.RESTART, MemoryArbiter.Priority.LOW), // next moves of the live move counter
+        GENERATION(Thread.NORM_PRIORITY, Preemption.NONE, MemoryArbiter.Priority.NORMAL), // the player waits for a new map
+        PREFETCH(Thread.MIN_PRIORITY, Preemption.CANCEL, MemoryArbiter.Priority.LOW) // maps for the puzzle pool, refilled again when idle
+    }
+
+    /**
+     * The work of a job; job.isStopping tells it to stop and not to deliver a result
+     */
+    fun interface Task {
+        @Throws(Exception::class)
+        fun run(job: SolverJob)
+    }
+
+    /**
+     * A submitted job
+     */
+    inner class SolverJob internal constructor(
+        @JvmField val priority: Priority,
+        @JvmField val name: String,
+        @JvmField val group: String?,
+        @JvmField val slots: Int,
+        private val task: Task,
+        private val onCancel: Runnable?
+    ) {
+        internal val sequence = sequenceCounter.incrementAndGet()
+        internal var coroutine: Job? = null
+        private val done = CountDownLatch(1)
+
+        @Volatile
+        internal var cancelled = false
+
+        @Volatile
+        internal var preempted = false // in the current run
+
+        /**
+         * true if the job was cancelled or its current run is preempted: the task has to stop
+         * and must not deliver a result
+         */
+        val isStopping: Boolean
+            get() = cancelled || preempted
+
+        /**
+         * true if the job ran to its end, was cancelled, or was dropped after a preemption
+         */
+        val isDone: Boolean
+            get() = done.count == 0L
+
+        fun cancel() = cancel(this)
+
+        /**
+         * Wait until the job is done; false if the time ran out before
+         */
+        @Throws(InterruptedException::class)
+        fun await(timeout: Long, unit: TimeUnit): Boolean = done.await(timeout, unit)
+
+        internal fun runTask() {
+            val thread = Thread.currentThread()
+            val threadPriority = thread.priority
+            thread.priority = priority.threadPriority
+            try {
+                // an interrupt for a job that ran on this thread before (e.g. by SolverDD.cancel) is not for this one
+                Thread.interrupted()
+                if (isStopping) return
+                task.run(this)
+            } catch (e: InterruptedException) {
+                Timber.d("[SOLVER_SCHEDULER] %s interrupted", name)
+            } catch (e: Exception) {
+                Timber.e(e, "[SOLVER_SCHEDULER] %s failed", name)
+            } finally {
+                thread.priority = threadPriority
+            }
+        }
+
+        internal fun stop() {
+            onCancel?.run()
+            coroutine?.cancel() // interrupts the thread of runInterruptible
+        }
+
+        internal fun finish() = done.countDown()
+    }
+
+    private val sequenceCounter = AtomicInteger()
+    private val threadCounter = AtomicInteger()
+    private val dispatcher = Executors.newFixedThreadPool(slots) { runnable ->
+        Thread(runnable, "solver-" + threadCounter.incrementAndGet()).apply { isDaemon = true }
+    }.asCoroutineDispatcher()
+    private val scope = CoroutineScope(SupervisorJob() + dispatcher)
+
+    // guarded by lock
+    private val lock = Any()
+    private val order = compareBy<SolverJob>({ it.priority.ordinal }, { it.sequence })
+    private val queue = PriorityQueue(order)
+    private val running = ArrayList<SolverJob>()
+    private var dispatching = false
+    private var dispatchAgain = false
+
+    /**
+     * Submit a job.
+     *
+     * @param group jobs of the same group run one at a time (null: no group)
+     * @param onCancel called when the job is cancelled or preempted while it runs, e.g. to
+     *                 cancel its solver; the thread is interrupted as well
+     * @param slots number of slots the job takes, for a job that runs its own worker threads
+     *              (at most the slots of the scheduler)
+     */
+    @JvmOverloads
+    fun submit(
+        priority: Priority, name: String, task: Task, group: String? = null, onCancel: Runnable? = null, slots: Int = 1
+    ): SolverJob {
+        val job = SolverJob(priority, name, group, slots.coerceIn(1, this.slots), task, onCancel)
+        synchronized(lock) {
+            queue.add(job)
+            dispatch()
+        }
+        return job
+    }
+
+    /**
+     * Number of jobs that are running or waiting
+     */
+    val jobCount: Int
+        get() = synchronized(lock) { queue.size + running.size }
+
+    private fun cancel(job: SolverJob) {
+        synchronized(lock) {
+            job.cancelled = true
+            if (queue.remove(job)) {
+                job.finish()
+                dispatch()
+            } else if (running.contains(job)) {
+                job.stop()
+            }
+        }
+    }
+
+    // start waiting jobs in free slots, preempt lower jobs for waiting jobs without one
+    private fun dispatch() {
+        // cancelling a job that has not started yet completes it at once, which dispatches again
+        if (dispatching) {
+            dispatchAgain = true
+            return
+        }
+        dispatching = true
+        try {
+            do {
+                dispatchAgain = false
+                dispatchOnce()
+            } while (dispatchAgain)
+        } finally {
+            dispatching = false
+        }
+    }
+
+    private fun dispatchOnce() {
+        var free = slots - running.sumOf { it.slots }
+        var freeing = running.filter { it.preempted }.sumOf { it.slots } // slots of preempted jobs that are still stopping
+        val busyGroups = running.mapNotNullTo(HashSet()) { it.group }
+        val waiting = queue.sortedWith(order)
+        for (job in waiting) {
+            if (job.group != null && !busyGroups.add(job.group)) continue
+            if (free >= job.slots) {
+                free -= job.slots
+                start(job)
+                continue
+            }
+            if (free + freeing >= job.slots) {
+                freeing -= job.slots - free // it gets the slots of preempted jobs
+                free = 0
+                continue
+            }
+            val victim = running
+                .filter { !it.preempted && it.priority.preemption != Preemption.NONE && it.priority > job.priority }
+                .maxWithOrNull(order)
+                ?: return // the next waiting jobs have no higher priority than this one
+            Timber.d("[SOLVER_SCHEDULER] %s preempts %s", job.name, victim.name)
+            victim.preempted = true
+            victim.stop()
+            dispatchAgain = true // count the slots again
+            return
+        }
+    }
+
+    private fun start(job: SolverJob) {
+        queue.remove(job)
+        running.add(job)
+        job.preempted = false
+        val coroutine = scope.launch { runInterruptible { job.runTask() } }
+        job.coroutine = coroutine
+        coroutine.invokeOnCompletion { finished(job) }
+    }
+
+    private fun finished(job: SolverJob) {
+        synchronized(lock) {
+            running.remove(job)
+            if (job.preempted && !job.cancelled && job.priority.preemption == Preemption.RESTART) {
+                queue.add(job) // keeps its place by priority and submission order
+            } else {
+                job.finish()
+            }
+            dispatch()
+        }
+    }
+
+    companion object {
+        /**
+         * The scheduler of the app; one slot per core, at least two, so a hint is never blocked by
+         * a single job that cannot be preempted
+         */
+        @JvmStatic
+        val shared: SolverScheduler by lazy { SolverScheduler(maxOf(2, Runtime.getRuntime().availableProcessors())) }
+
+        /** jobs of the game's SolverManager (hint solves) */
+        const val GROUP_GAME_SOLVER = "game-solver"
+
+        /** jobs of the LiveSolverManager */
+        const val GROUP_LIVE_SOLVER = "live-solver"
+
+        /** map generation for a new game */
+        const val GROUP_MAP_GENERATION = "map-generation"
+
+        /** puzzle pool refill */
+        const val GROUP_PUZZLE_POOL = "puzzle-pool"
+    }
+}
@@ -0,0 +1,267 @@
+package roboyard.logic.solver
+
+import driftingdroids.model.Board
+import java.util.function.Consumer
+
+/**
+ * Optimal number of moves for every position one move away from the board's position,
+ * in one search.
+ *
+ * Solving the (up to robots x 4) successors one by one searches the same subtrees again for
+ * each of them. Here all successors share one depth iteration and one table of positions that
+ * were searched without a solution: an entry says that the position has no solution within
+ * its number of remaining moves, which does not depend on where the search started, so a
+ * position proven unsolvable from one successor is not searched again from another one.
+ * Each depth iteration only searches the successors that are not solved yet, with the search
+ * and the robot-free lower bound of GoalSearch (like the CandidateFilter).
+ *
+ * A successor that is a solution of 0 or 1 move by Board.isSolution01 counts as 1 move, like
+ * in the live solver (the one-move rule also lets a robot go on past another robot).
+ *
+ * @param maxTableEntries size limit of the table; when it is full, no more positions are added
+ */
+class SuccessorSolver @JvmOverloads constructor(private val maxTableEntries: Int = DEFAULT_MAX_TABLE_ENTRIES) {
+
+    /**
+     * The position after moving robot in direction (Board.NORTH ..), and its optimal number
+     * of moves, or -1 if the search stopped before it was known
+     */
+    class Successor(
+        @JvmField val robot: Int,
+        @JvmField val direction: Int,
+        @JvmField val positions: IntArray,
+        @JvmField var moves: Int
+    )
+
+    @Volatile
+    private var stopRequested = false
+
+    // search state of the current solve()
+    private lateinit var interchangeable: BooleanArray // robots without a goal, sorted in the key
+    private var others = IntArray(0) // positions of the interchangeable robots while making a key
+    private var keys = LongArray(0) // key of the position being searched, by its remaining moves
+    private var bitsPerRobot = 0
+    private var deadlineNanos = 0L
+    private var nodeCount = 0L
+    private val table = FailTable(FailTable.INITIAL_CAPACITY)
+
+    /**
+     * number of positions searched by the last solve()
+     */
+    val nodes: Long
+        get() = nodeCount
+
+    /**
+     * Solve all successors of the board's position that are moves of the given robots.
+     * Blocks until all are solved, maxMoves is reached, the time is up or stop() is called.
+     *
+     * @param robots the robots that may be moved first (e.g. not the placeholder robots)
+     * @param minimumMoves known lower bound of all successors (e.g. the optimal moves of the
+     *                     board's position minus one), 0 if unknown
+     * @param maxMillis time limit of the search
+     */
+    fun solve(board: Board, robots: IntArray, minimumMoves: Int, maxMoves: Int, maxMillis: Long): List<Successor> {
+        val successors = successors(board, robots)
+        solve(board, successors, minimumMoves, maxMoves, maxMillis)
+        return successors
+    }
+
+    /**
+     * Solve the given successors of the board's position in one depth iteration; sets their moves
+     * and calls onSolved for each one that is solved. Successors that are solved already are
+     * skipped, so a stopped solve (e.g. a preempted job) continues where it was when it is called
+     * again with the same list. The board is only read, so several solvers (each with its own
+     * list) can share it.
+     */
+    @JvmOverloads
+    fun solve(
+        board: Board, successors: List<Successor>, minimumMoves: Int, maxMoves: Int, maxMillis: Long,
+        onSolved: Consumer<Successor>? = null
+    ) {
+        val search = start(board, maxMoves, maxMillis)
+        if (search.goals.isEmpty()) return
+
+        val bounds = IntArray(successors.size) { i -> search.lowerBound(successors[i].positions) }
+        for (i in successors.indices) {
+            val successor = successors[i]
+            if (successor.moves >= 0 || bounds[i] == GoalSearch.UNREACHABLE) continue
+            if (bounds[i] == 0 || board.isSolution01(successor.positions)) {
+                successor.moves = minOf(1, bounds[i])
+                onSolved?.accept(successor)
+            }
+        }
+        var open = successors.indices.count { successors[it].moves < 0 && bounds[it] != GoalSearch.UNREACHABLE }
+        var depth = maxOf(0, minimumMoves)
+        while (open > 0 && depth <= maxMoves && !isStopped()) {
+            for (i in successors.indices) {
+                val successor = successors[i]
+                if (successor.moves >= 0 || bounds[i] > depth) continue
+                if (search.search(successor.positions, depth)) {
+                    successor.moves = depth
+                    onSolved?.accept(successor)
+                    open--
+                } else if (isStopped()) {
+                    break
+                }
+            }
+            depth++
+        }
+    }
+
+    private fun start(board: Board, maxMoves: Int, maxMillis: Long): GoalSearch {
+        stopRequested = false
+        val search = TableSearch(board)
+        interchangeable = BooleanArray(board.numRobots) { robot ->
+            search.goals.none { it.robotNumber < 0 || it.robotNumber == robot }
+        }
+        others = IntArray(board.numRobots)
+        keys = LongArray(maxOf(0, maxMoves) + 1)
+        bitsPerRobot = board.sizeNumBits
+        deadlineNanos = System.nanoTime() + maxMillis * 1000000L
+        nodeCount = 0
+        table.clear()
+        return search
+    }
+
+    /**
+     * Stop the running solve(); the successors solved so far are returned
+     */
+    fun stop() {
+        stopRequested = true
+    }
+
+    private fun isStopped(): Boolean =
+        stopRequested || Thread.currentThread().isInterrupted || System.nanoTime() > deadlineNanos
+
+    // the search of GoalSearch with the table of positions without a solution
+    private inner class TableSearch(board: Board) : GoalSearch(board) {
+        override fun isPruned(robots: IntArray, movesLeft: Int): Boolean {
+            val key = key(robots)
+            keys[movesLeft] = key
+            if (table.get(key) >= movesLeft) return true
+            return (++nodeCount and 0x3ff) == 0L && isStopped()
+        }
+
+        override fun onNoSolution(robots: IntArray, movesLeft: Int) {
+            // a stopped search did not try everything, so its result is not stored
+            if (!isStopped() && table.size < maxTableEntries) table.put(keys[movesLeft], movesLeft)
+        }
+    }
+
+    // robot positions packed into a long; robots without a goal are sorted, they can replace each other
+    private fun key(robots: IntArray): Long {
+        var key = 0L
+        var count = 0
+        for (robot in robots.indices) {
+            val position = robots[robot]
+            if (!interchangeable[robot]) {
+                key = (key shl bitsPerRobot) or position.toLong()
+                continue
+            }
+            var i = count++
+            while (i > 0 && others[i - 1] > position) {
+                others[i] = others[i - 1]
+                i--
+            }
+            others[i] = position
+        }
+        for (i in 0 until count) key = (key shl bitsPerRobot) or others[i].toLong()
+        return key
+    }
+
+    /**
+     * Open addressing map from a position key to the largest number of remaining moves
+     * it was searched with, without a solution (-1: not searched)
+     */
+    private class FailTable(capacity: Int) {
+        private var keys = LongArray(capacity)
+        private var values = ByteArray(capacity)
+        private var used = BooleanArray(capacity)
+        var size = 0
+            private set
+
+        fun clear() {
+            if (keys.size > INITIAL_CAPACITY) {
+                keys = LongArray(INITIAL_CAPACITY)
+                values = ByteArray(INITIAL_CAPACITY)
+                used = BooleanArray(INITIAL_CAPACITY)
+            } else {
+                used.fill(false)
+            }
+            size = 0
+        }
+
+        fun get(key: Long): Int {
+            var slot = slot(key, keys.size)
+            while (used[slot]) {
+                if (keys[slot] == key) return values[slot].toInt()
+                slot = (slot + 1) and (keys.size - 1)
+            }
+            return -1
+        }
+
+        fun put(key: Long, movesLeft: Int) {
+            if ((size + 1) * 2 > keys.size) grow()
+            var slot = slot(key, keys.size)
+            while (used[slot]) {
+                if (keys[slot] == key) {
+                    if (movesLeft > values[slot]) values[slot] = movesLeft.toByte()
+                    return
+                }
+                slot = (slot + 1) and (keys.size - 1)
+            }
+            used[slot] = true
+            keys[slot] = key
+            values[slot] = movesLeft.toByte()
+            size++
+        }
+
+        private fun grow() {
+            val oldKeys = keys
+            val oldValues = values
+            val oldUsed = used
+            keys = LongArray(oldKeys.size * 2)
+            values = ByteArray(oldKeys.size * 2)
+            used = BooleanArray(oldKeys.size * 2)
+            size = 0
+            for (i in oldKeys.indices) {
+                if (oldUsed[i]) put(oldKeys[i], oldValues[i].toInt())
+            }
+        }
+
+        private fun slot(key: Long, capacity: Int): Int {
+            val hash = key * -0x61c8864680b583ebL // golden ratio multiplier
+            return (hash ushr 32).toInt() and (capacity - 1)
+        }
+
+        companion object {
+            const val INITIAL_CAPACITY = 1 shl 16
+        }
+    }
+
+    companion object {
+        const val DEFAULT_MAX_TABLE_ENTRIES = 1 shl 19 // about 10 MB at the largest table
+
+        /**
+         * The positions after each move of the given robots, in the order of robots, then
+         * directions; moves is -1 (not solved yet)
+         */
+        @JvmStatic
+        fun successors(board: Board, robots: IntArray): List<Successor> {
+            val start = board.robotPositions
+            val wallStops = board.computeWallStops()
+            val successors = ArrayList<Successor>()
+            for (robot in robots) {
+                if (robot < 0 || robot >= start.size) continue
+                for (direction in 0..3) {
+                    val end = board.slide(wallStops, start, start[robot], direction)
+                    if (end == start[robot]) continue
+                    val positions = start.clone()
+                    positions[robot] = end
+                    successors.add(Successor(robot, direction, positions, -1))
+                }
+            }
+            return successors
+        }
+    }
+}
@@ -8,9 +8,13 @@ import android.content.res.Resources;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 
+import java.io.File;
 import java.util.Locale;
 
+import driftingdroids.model.KeyDepthMapFactory;
+import driftingdroids.model.Logger;
 import roboyard.logic.core.Preferences;
+import roboyard.logic.solver.SolutionCache;
 import roboyard.platform.AndroidStorage;
 import roboyard.ui.components.AccessibilityUtil;
 import roboyard.logic.storage.PlatformStorage;
@@ -102,6 +106,9 @@ public class RoboyardApplication extends Application implements Application.Acti
         // Initialize Timber for logging - always enable it for debugging
         Timber.plant(new FilteredDebugTree());
 
+        // The solver library has no Android dependency, send its log messages to Timber
+        Logger.setSink((level, tag, message) -> Timber.tag(tag == null ? "DriftingDroid" : tag).log(level, message));
+
         // Set up storage provider for Preferences
         PlatformStorage storage = AndroidStorage.getInstance(appContext);
         Preferences.storageProvider = () -> storage;
@@ -112,7 +119,13 @@ public class RoboyardApplication extends Application implements Application.Acti
         // Initialize the Preferences system at app startup
         Preferences.initialize(storage, isAccessibilityActive);
         Timber.d("Preferences initialized");
-        
+
+        // Solved positions are kept on disk, so reopening a level doesn't run the solver again
+        SolutionCache.getInstance().setStorageFile(new File(getFilesDir(), SolutionCache.FILE_NAME));
+
+        // A solver map of the class KeyDepthMapOffHeap keeps its states in a scratch file of the cache
+        KeyDepthMapFactory.INSTANCE.setOffHeapOptions(getCacheDir());
+
         // Set app language to match device locale on first launch
         if (isFirstLaunch()) {
             setAppLanguageToDeviceLocale();
@@ -930,6 +930,13 @@ public class GameFragment extends BaseGameFragment implements GameStateManager.S
             }
         });
         
+        // Observe solver progress to show "at least N moves" while the solver is running
+        gameStateManager.getSolverMinimumMoves().observe(getViewLifecycleOwner(), minimumMoves -> {
+            if (minimumMoves != null && minimumMoves > 0 && Boolean.TRUE.equals(gameStateManager.isSolverRunning().getValue())) {
+                showSolverCalculatingMessage();
+            }
+        });
+
         // Observe solver running state to update hint button text and save map button state
         gameStateManager.isSolverRunning().observe(getViewLifecycleOwner(), isRunning -> {
             if (isRunning) {
@@ -3509,7 +3516,10 @@ public class GameFragment extends BaseGameFragment implements GameStateManager.S
         Timber.d("[SOLVER_STATUS][DIAG] Building status message: restartCount=%d, lastMoves=%d", 
                 solverRestartCount, lastMoves);
         
-        String messageBase = getString(R.string.ai_calculating);
+        Integer minimumMoves = gameStateManager.getSolverMinimumMoves().getValue();
+        String messageBase = (minimumMoves != null && minimumMoves > 0)
+                ? getString(R.string.ai_calculating_at_least, minimumMoves)
+                : getString(R.string.ai_calculating);
         String counterInfo = "";
         
         // Add restart counter and last solution info if applicable
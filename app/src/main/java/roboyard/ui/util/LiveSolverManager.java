@@ -1,11 +1,18 @@
 package roboyard.ui.util;
 
 import java.util.ArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.Arrays;
+import java.util.List;
 
+import driftingdroids.model.Board;
+import driftingdroids.model.Move;
+import driftingdroids.model.Solution;
+import roboyard.logic.core.Constants;
+import roboyard.logic.solver.RRGetMap;
+import roboyard.logic.solver.RRPiece;
+import roboyard.logic.solver.SolutionCache;
 import roboyard.logic.solver.SolverDD;
+import roboyard.logic.solver.SolverScheduler;
 import roboyard.logic.core.GridElement;
 import roboyard.logic.core.GameSolution;
 import timber.log.Timber;
@@ -13,6 +20,14 @@ import timber.log.Timber;
 /**
  * A non-singleton solver manager dedicated to the live move counter feature.
  * Runs a separate SolverDD instance so it does not interfere with the main solver.
+ * The solves are LIVE jobs of the SolverScheduler: a hint solve preempts them, and they
+ * preempt the pre-computation of the next moves.
+ *
+ * The result of the last solve is kept, so most moves of the player need no new search:
+ * a move along the known optimal solution is answered at once on the calling thread
+ * (one move less), and after any other single move the search starts at one move less
+ * than the previous position needed, because one move can shorten a solution by at most one.
+ * Positions that were solved before are answered by the SolutionCache of the SolverDD.
  */
 public class LiveSolverManager {
 
@@ -22,35 +37,85 @@ public class LiveSolverManager {
     }
 
     private final SolverDD solver;
-    private final ExecutorService executor;
-    private Future<?> currentTask;
+    private final SolverScheduler scheduler;
+    private volatile SolverScheduler.SolverJob currentJob;
     private volatile boolean cancelled = false;
 
+    // the last position with a known optimal move count, and its optimal solution (guarded by this)
+    private int request; // number of the latest solveAsync() call, older results are not stored
+    private String knownBoard; // walls and targets of the known position
+    private int[] knownPositions;
+    private int knownMoves;
+    private int[][] knownLine; // robot positions after each move of the known solution, [0] is the known position
+    private GameSolution knownSolution;
+
     public LiveSolverManager() {
+        this(SolverScheduler.getShared());
+    }
+
+    public LiveSolverManager(SolverScheduler scheduler) {
         this.solver = new SolverDD();
-        this.executor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "live-solver");
-            t.setDaemon(true);
-            return t;
-        });
+        this.solver.setSolutionCount(1); // only the optimal move count is needed
+        this.solver.setMemoryPriority(SolverScheduler.Priority.LIVE.getMemoryPriority());
+        this.solver.setSolutionCache(SolutionCache.getInstance());
+        this.scheduler = scheduler;
     }
 
     /**
      * Solve the current board state asynchronously.
-     * Cancels any previously running live solve.
+     * Cancels any previously running live solve. If the position follows the last known
+     * optimal solution, the listener is called before this method returns.
      */
     public void solveAsync(ArrayList<GridElement> gridElements, LiveSolverListener listener) {
         cancel();
         cancelled = false;
 
-        Timber.d("[LIVE_SOLVER] Starting live solve with %d elements", gridElements.size());
+        Board board = RRGetMap.INSTANCE.createDDWorld(gridElements, new RRPiece[Constants.NUM_ROBOTS]);
+        int[] positions = board != null ? board.getRobotPositions().clone() : null;
+        String boardKey = boardKey(gridElements);
+        final int thisRequest;
+        int minimumMoves = 0;
+        GameSolution rest = null;
+        synchronized (this) {
+            thisRequest = ++request;
+            if (positions != null && boardKey.equals(knownBoard) && knownPositions != null) {
+                int step = knownLine != null ? indexOf(knownLine, positions) : -1;
+                if (step > 0) {
+                    // further along the known solution (also after moves answered by the pre-computation): the rest of it is optimal
+                    knownLine = Arrays.copyOfRange(knownLine, step, knownLine.length);
+                    knownSolution = rest = withoutFirstMoves(knownSolution, step);
+                    knownPositions = positions;
+                    knownMoves -= step;
+                } else if (isOneMove(board, knownPositions, positions)) {
+                    minimumMoves = Math.max(0, knownMoves - 1);
+                }
+            }
+            if (rest == null) {
+                knownBoard = null;
+                knownPositions = null;
+                knownLine = null;
+                knownSolution = null;
+            }
+        }
+        if (rest != null) {
+            Timber.d("[LIVE_SOLVER] Move along the known solution, %d moves remaining", rest.moves.size());
+            if (listener != null) {
+                listener.onLiveSolverFinished(rest.moves.size(), rest);
+            }
+            return;
+        }
+
+        Timber.d("[LIVE_SOLVER] Starting live solve with %d elements, at least %d moves", gridElements.size(), minimumMoves);
 
-        currentTask = executor.submit(() -> {
+        final int searchFrom = minimumMoves;
+        // a preempted solve is started again after the higher priority job
+        currentJob = scheduler.submit(SolverScheduler.Priority.LIVE, "live-solver", job -> {
             try {
+                solver.setMinimumMoves(searchFrom);
                 solver.init(gridElements);
                 solver.run();
 
-                if (cancelled) {
+                if (cancelled || job.isStopping()) {
                     Timber.d("[LIVE_SOLVER] Cancelled before result delivery");
                     return;
                 }
@@ -60,9 +125,12 @@ public class LiveSolverManager {
                     if (numSolutions > 0) {
                         GameSolution solution = solver.getSolution(0);
                         int moves = (solution != null && solution.moves != null) ? solution.moves.size() : 0;
+                        int[][] line = moves > 0 ? solutionLine(positions, solver.getSolutionList().get(0)) : null;
                         if (solver.isSolution01()) {
                             moves = 1;
+                            line = null;
                         }
+                        remember(thisRequest, boardKey, positions, moves, line, solution);
                         Timber.d("[LIVE_SOLVER] Found solution with %d moves", moves);
                         if (!cancelled && listener != null) {
                             listener.onLiveSolverFinished(moves, solution);
@@ -81,11 +149,96 @@ public class LiveSolverManager {
                 }
             } catch (Exception e) {
                 Timber.e(e, "[LIVE_SOLVER] Error during live solve: %s", e.getMessage());
-                if (!cancelled && listener != null) {
+                if (!cancelled && !job.isStopping() && listener != null) {
                     listener.onLiveSolverFailed();
                 }
             }
-        });
+        }, SolverScheduler.GROUP_LIVE_SOLVER, solver::cancel);
+    }
+
+    private synchronized void remember(int fromRequest, String boardKey, int[] positions, int moves, int[][] line, GameSolution solution) {
+        if (fromRequest != request || positions == null) {
+            return; // a newer position was requested in the meantime
+        }
+        knownBoard = boardKey;
+        knownPositions = positions;
+        knownMoves = moves;
+        knownLine = line;
+        knownSolution = solution;
+    }
+
+    // everything but the robots
+    private static String boardKey(List<GridElement> gridElements) {
+        StringBuilder sb = new StringBuilder();
+        for (GridElement element : gridElements) {
+            if (element.type != null && !element.type.startsWith("robot_")) {
+                sb.append(element.type).append(element.x).append(',').append(element.y).append(';');
+            }
+        }
+        return sb.toString();
+    }
+
+    // robot positions before the first and after each move of the solution
+    private static int[][] solutionLine(int[] start, Solution solution) {
+        if (start == null) {
+            return null;
+        }
+        int[][] line = new int[solution.size() + 1][];
+        line[0] = start;
+        solution.resetMoves();
+        Move move = solution.getNextMove();
+        for (int i = 1; move != null && i < line.length; i++) {
+            line[i] = line[i - 1].clone();
+            line[i][move.robotNumber] = move.newPosition;
+            move = solution.getNextMove();
+        }
+        solution.resetMoves();
+        return line;
+    }
+
+    private static int indexOf(int[][] line, int[] positions) {
+        for (int i = 0; i < line.length; i++) {
+            if (Arrays.equals(line[i], positions)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static GameSolution withoutFirstMoves(GameSolution solution, int count) {
+        GameSolution rest = new GameSolution();
+        if (solution != null && solution.moves != null) {
+            for (int i = count; i < solution.moves.size(); i++) {
+                rest.addMove(solution.moves.get(i));
+            }
+        }
+        return rest;
+    }
+
+    // true if one robot slid from its position in from to its position in to
+    private static boolean isOneMove(Board board, int[] from, int[] to) {
+        if (from.length != to.length) {
+            return false;
+        }
+        int robot = -1;
+        for (int i = 0; i < from.length; i++) {
+            if (from[i] != to[i]) {
+                if (robot >= 0) {
+                    return false;
+                }
+                robot = i;
+            }
+        }
+        if (robot < 0) {
+            return false;
+        }
+        int[][] wallStops = board.computeWallStops();
+        for (int direction = 0; direction < 4; direction++) {
+            if (board.slide(wallStops, from, from[robot], direction) == to[robot]) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -93,21 +246,20 @@ public class LiveSolverManager {
      */
     public void cancel() {
         cancelled = true;
-        if (currentTask != null && !currentTask.isDone()) {
-            currentTask.cancel(true);
+        SolverScheduler.SolverJob job = currentJob;
+        if (job != null && !job.isDone()) {
+            job.cancel(); // also cancels the solver
             Timber.d("[LIVE_SOLVER] Cancelled running live solve");
         }
-        if (solver != null) {
-            solver.cancel();
-        }
     }
 
     /**
-     * Shut down the executor. Call when the feature is no longer needed.
+     * Cancel the live solve. Call when the feature is no longer needed.
      */
     public void shutdown() {
         cancel();
-        executor.shutdownNow();
+        // no more solves follow: don't keep the search buffers for the next one
+        solver.releaseRecycled();
         Timber.d("[LIVE_SOLVER] Shut down");
     }
 }
@@ -3,6 +3,8 @@ package roboyard.ui.util;
 import java.util.ArrayList;
 import java.util.List;
 
+import driftingdroids.model.SearchProgress;
+import driftingdroids.model.SearchProgressListener;
 import driftingdroids.model.Solution;
 
 import roboyard.logic.solver.ERRGameMove;
@@ -10,7 +12,9 @@ import roboyard.logic.solver.GameLevelSolver;
 import roboyard.logic.solver.ISolver;
 import roboyard.logic.solver.RRGameMove;
 import roboyard.logic.solver.RRPiece;
+import roboyard.logic.solver.SolutionCache;
 import roboyard.logic.solver.SolverDD;
+import roboyard.logic.solver.SolverScheduler;
 import roboyard.logic.core.GridElement;
 import roboyard.logic.core.GameSolution;
 import timber.log.Timber;
@@ -26,7 +30,7 @@ public class SolverManager implements Runnable {
     private static SolverManager instance = null;
     
     private final ISolver solver;
-    private Thread solverThread;
+    private SolverScheduler.SolverJob solverJob;
     private boolean isSolved = false;
     private int solutionMoves = 0;
     private GameSolution currentSolution;
@@ -52,18 +56,12 @@ public class SolverManager implements Runnable {
     }
     
     public static long getCurrentSolverInvocationId() {
-        return Thread.currentThread() instanceof SolverThread ? ((SolverThread)Thread.currentThread()).solverInvocationId : -1;
+        Long id = jobInvocationId.get();
+        return id != null ? id : -1;
     }
     
-    // Custom thread to hold the ID
-    private static class SolverThread extends Thread {
-        final long solverInvocationId;
-        SolverThread(Runnable target, long solverInvocationId) {
-            super(target, "solver-" + solverInvocationId);
-            this.solverInvocationId = solverInvocationId;
-            Timber.d("[SOLUTION_SOLVER][THREAD_DEBUG] Created SolverThread with ID: %d", solverInvocationId);
-        }
-    }
+    // The ID of the solver job running on this thread (startSolver), null on other threads
+    private static final ThreadLocal<Long> jobInvocationId = new ThreadLocal<>();
 
     /**
      * Interface for receiving solver events
@@ -81,6 +79,14 @@ public class SolverManager implements Runnable {
          * Called when the solver is cancelled
          */
         void onSolverCancelled();
+
+        /**
+         * Called on the solver thread after each completed search depth
+         * @param minimumMoves Every solution has at least this number of moves
+         * @param progress Details of the search so far (depth, nodes, states, time, bytes)
+         */
+        default void onSolverProgress(int minimumMoves, SearchProgress progress) {
+        }
     }
     
     /**
@@ -104,7 +110,12 @@ public class SolverManager implements Runnable {
     private SolverManager() {
         Timber.d("[SOLUTION_SOLVER] SolverManager(): Getting solver from GameLevelSolver");
         // Use the solver instance from GameLevelSolver to avoid creating duplicate instances
-        this.solver = GameLevelSolver.getSolverInstance();
+        SolverDD solverDD = GameLevelSolver.getSolverInstance();
+        // the player waits for the hint: its search may take the memory of background searches
+        solverDD.setMemoryPriority(SolverScheduler.Priority.HINT.getMemoryPriority());
+        // the game and hint positions are solved again on level reload and history replay
+        solverDD.setSolutionCache(SolutionCache.getInstance());
+        this.solver = solverDD;
     }
     
     /**
@@ -181,7 +192,7 @@ public class SolverManager implements Runnable {
     }
     
     /**
-     * Starts the solver in a background thread
+     * Starts the solver in the background, as a hint job of the SolverScheduler
      */
     public void startSolver() {
         // FATAL CHECK: Abort if solver was never initialized with map data
@@ -191,8 +202,8 @@ public class SolverManager implements Runnable {
             throw new IllegalStateException("[SOLUTION_SOLVER] Cannot start solver: no map data was provided. Call initialize() first.");
         }
         
-        if (solverThread != null && solverThread.isAlive()) {
-            Timber.d("[SOLUTION_SOLVER][ID:%d] SolverManager.startSolver() - Solver thread is already running", solverInvocationId);
+        if (solverJob != null && !solverJob.isDone()) {
+            Timber.d("[SOLUTION_SOLVER][ID:%d] SolverManager.startSolver() - Solver job is already running", solverInvocationId);
             return;
         }
         // Assign a unique ID for this solver run, per-thread, always increments
@@ -201,16 +212,23 @@ public class SolverManager implements Runnable {
             Timber.d("[SOLUTION_SOLVER][START_DEBUG] Assigning invocation ID: %d from counter: %d", 
                     solverInvocationId, solverInvocationCounter);
         }
-        solverThread = new SolverThread(this, solverInvocationId);
-        Timber.d("[SOLUTION_SOLVER][ID:%d] SolverManager.startSolver() - Starting solver thread with name: %s", 
-                solverInvocationId, solverThread.getName());
-        solverThread.start();
+        final long id = solverInvocationId;
+        Timber.d("[SOLUTION_SOLVER][ID:%d] SolverManager.startSolver() - Submitting solver job", id);
+        solverJob = SolverScheduler.getShared().submit(SolverScheduler.Priority.HINT, "solver-" + id, job -> {
+            jobInvocationId.set(id);
+            try {
+                run();
+            } finally {
+                jobInvocationId.remove();
+            }
+        }, SolverScheduler.GROUP_GAME_SOLVER);
     }
     
     /**
      * Cancels the solver execution
      */
     public void cancelSolver() {
+        cancelSolverJob();
         if (solver != null) {
             if (solver instanceof SolverDD) {
                 ((SolverDD)solver).cancel();
@@ -263,10 +281,22 @@ public class SolverManager implements Runnable {
      * Cancels the solver
      */
     public void cancel() {
+        cancelSolverJob();
         if (solver instanceof SolverDD) {
             ((SolverDD)solver).cancel();
         }
     }
+
+    /**
+     * Cancels the hint job of startSolver(), so that a job still waiting in the queue never runs
+     */
+    private void cancelSolverJob() {
+        SolverScheduler.SolverJob job = solverJob;
+        if (job != null && !job.isDone()) {
+            Timber.d("[SOLUTION_SOLVER][ID:%d] SolverManager: Cancelling solver job", solverInvocationId);
+            job.cancel();
+        }
+    }
     
     /**
      * Runnable implementation for executing solver in a thread
@@ -275,12 +305,12 @@ public class SolverManager implements Runnable {
     public void run() {
         // Determine the current invocation ID based on thread type
         long idForLog;
-        if (Thread.currentThread() instanceof SolverThread) {
-            idForLog = ((SolverThread)Thread.currentThread()).solverInvocationId;
-            Timber.d("[SOLUTION_SOLVER][RUN_DEBUG] Running in SolverThread with ID: %d", idForLog);
+        if (jobInvocationId.get() != null) {
+            idForLog = jobInvocationId.get();
+            Timber.d("[SOLUTION_SOLVER][RUN_DEBUG] Running in solver job with ID: %d", idForLog);
         } else {
-            // We're running on a thread that's not one of our SolverThreads
-            // This happens when GameStateManager calls run() directly on an executor
+            // We're not running in a job of startSolver()
+            // This happens when GameStateManager calls run() directly in its own hint job
             synchronized (solverIdLock) {
                 solverInvocationId = solverInvocationCounter;
                 idForLog = solverInvocationId;
@@ -327,6 +357,9 @@ public class SolverManager implements Runnable {
             }
             
             Timber.d("[SOLUTION_SOLVER][ID:%d][DIAGNOSTIC][SOLUTIONS_SAVE_LOAD] Starting solver with status: %s", idForLog, solver.getSolverStatus());
+            if (solver instanceof SolverDD) {
+                ((SolverDD) solver).setProgressListener(createProgressForwarder(idForLog));
+            }
             solver.run();
             Timber.d("[SOLUTION_SOLVER][ID:%d][DIAGNOSTIC][SOLUTIONS_SAVE_LOAD] Solver.run() completed, checking status...", idForLog);
             // Check if the solver found a solution
@@ -390,6 +423,27 @@ public class SolverManager implements Runnable {
     
     
     
+    /**
+     * Forward the progress of the solver to the current listener
+     */
+    private SearchProgressListener createProgressForwarder(final long idForLog) {
+        return new SearchProgressListener() {
+            @Override
+            public void onDepthCompleted(SearchProgress progress) {
+                Timber.d("[SOLUTION_SOLVER][ID:%d] Solver progress: %s", idForLog, progress);
+                SolverListener currentListener = listener;
+                if (currentListener != null) {
+                    currentListener.onSolverProgress(progress.getMinimumMoves(), progress);
+                }
+            }
+
+            @Override
+            public void onSolutionFound(Solution solution) {
+                Timber.d("[SOLUTION_SOLVER][ID:%d] Solver found a solution with %d moves", idForLog, solution.size());
+            }
+        };
+    }
+
     /**
      * Parse a predefined solution string into a GameSolution
      * Format: "gE gN gE gS gW gN yN rS rE rS rW rS rW rN gW yW yN yE yN bW bN bE rN gE gN bN"
@@ -0,0 +1,164 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.Move;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+import roboyard.logic.core.Constants;
+import roboyard.logic.core.GameSolution;
+import roboyard.logic.core.GridElement;
+import roboyard.logic.solver.RRGetMap;
+import roboyard.logic.solver.RRPiece;
+import roboyard.ui.util.LiveSolverManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the incremental live move counter: moves along the known optimal solution are
+ * answered without a search, other moves start the search at a lower bound (minimum depth)
+ * and must still give the optimal move count.
+ *
+ * Tags: live-solver, solver, minimum-depth
+ */
+public class LiveSolverManagerTest {
+
+    private static final String[] COLORS = {"red", "green", "blue", "yellow"};
+
+    private static class Result implements LiveSolverManager.LiveSolverListener {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger moves = new AtomicInteger(-1);
+
+        @Override
+        public void onLiveSolverFinished(int optimalMoves, GameSolution solution) {
+            assertEquals(optimalMoves, solution.moves.size());
+            moves.set(optimalMoves);
+            done.countDown();
+        }
+
+        @Override
+        public void onLiveSolverFailed() {
+            done.countDown();
+        }
+
+        int await() throws InterruptedException {
+            assertTrue("live solver timed out", done.await(30, TimeUnit.SECONDS));
+            return moves.get();
+        }
+    }
+
+    private static Board toBoard(ArrayList<GridElement> elements) {
+        return RRGetMap.INSTANCE.createDDWorld(elements, new RRPiece[Constants.NUM_ROBOTS]);
+    }
+
+    private static List<Solution> solve(Board board, int minimumDepth) throws InterruptedException {
+        Solver solver = Solver.createInstance(board);
+        solver.setOptionMinimumDepth(minimumDepth);
+        return solver.execute();
+    }
+
+    // the elements with the robot moved to the position
+    private static ArrayList<GridElement> moveRobot(ArrayList<GridElement> elements, int width, int robot, int position) {
+        ArrayList<GridElement> moved = new ArrayList<>();
+        for (GridElement element : elements) {
+            if (("robot_" + COLORS[robot]).equals(element.type)) {
+                moved.add(new GridElement(position % width, position / width, element.type));
+            } else {
+                moved.add(element);
+            }
+        }
+        return moved;
+    }
+
+    @Test
+    public void testMinimumDepth_SameSolutionLength() throws Exception {
+        for (int level = 1; level <= 17; level++) {
+            Board board = toBoard(ParallelMapGeneratorTest.LevelCandidates.read(level));
+            int moves = solve(board, 0).get(0).size();
+            assertEquals("level " + level, moves, solve(board, moves - 1).get(0).size());
+            assertEquals("level " + level, moves, solve(board, moves).get(0).size());
+        }
+    }
+
+    @Test
+    public void testMoveAlongSolution_AnsweredWithoutSearch() throws Exception {
+        ArrayList<GridElement> elements = ParallelMapGeneratorTest.LevelCandidates.read(14);
+        LiveSolverManager manager = new LiveSolverManager();
+        try {
+            Result first = new Result();
+            manager.solveAsync(elements, first);
+            int moves = first.await();
+            assertEquals(8, moves);
+
+            Board board = toBoard(elements);
+            Solution solution = solve(board, 0).get(0);
+            solution.resetMoves();
+            for (int step = 1; step <= 2; step++) {
+                Move move = solution.getNextMove();
+                elements = moveRobot(elements, board.width, move.robotNumber, move.newPosition);
+                Result next = new Result();
+                manager.solveAsync(elements, next);
+                assertEquals("answered before solveAsync returned", 0, next.done.getCount());
+                assertEquals(moves - step, next.await());
+                assertEquals(moves - step, solve(toBoard(elements), 0).get(0).size());
+            }
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    public void testMoveOffSolution_StillOptimal() throws Exception {
+        for (int level = 11; level <= 17; level++) {
+            ArrayList<GridElement> elements = ParallelMapGeneratorTest.LevelCandidates.read(level);
+            Board board = toBoard(elements);
+            LiveSolverManager manager = new LiveSolverManager();
+            try {
+                Result first = new Result();
+                manager.solveAsync(elements, first);
+                first.await();
+
+                // every single move of every robot from the start position
+                int[] robots = board.getRobotPositions();
+                for (int robot = 0; robot < robots.length; robot++) {
+                    for (int direction = 0; direction < 4; direction++) {
+                        int position = robots[robot];
+                        while (!board.isWall(position, direction) && !contains(robots, position + board.directionIncrement[direction])) {
+                            position += board.directionIncrement[direction];
+                        }
+                        if (position == robots[robot]) {
+                            continue;
+                        }
+                        ArrayList<GridElement> moved = moveRobot(elements, board.width, robot, position);
+                        Result result = new Result();
+                        manager.solveAsync(moved, result);
+                        assertEquals("level " + level + " robot " + robot + " direction " + direction,
+                                solve(toBoard(moved), 0).get(0).size(), result.await());
+                        // back to the start, so the next move is again one move away from a known position
+                        Result back = new Result();
+                        manager.solveAsync(elements, back);
+                        back.await();
+                    }
+                }
+            } finally {
+                manager.shutdown();
+            }
+        }
+    }
+
+    private static boolean contains(int[] positions, int position) {
+        for (int p : positions) {
+            if (p == position) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
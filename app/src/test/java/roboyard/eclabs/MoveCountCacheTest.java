@@ -0,0 +1,82 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import roboyard.logic.solver.MoveCountCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the cache of the next-move pre-computation: packed robot position keys and
+ * the bounded LRU eviction of the primitive long to byte map.
+ *
+ * Tags: live-solver, cache, pre-computation
+ */
+public class MoveCountCacheTest {
+
+    @Test
+    public void testKey_DistinctForDistinctPositions() {
+        // 16x16: 8 bits per robot
+        assertEquals(8, MoveCountCache.bitsPerPosition(256));
+        assertEquals(0x0102030405L, MoveCountCache.key(new int[]{1, 2, 3, 4, 5}, 256));
+        assertNotEquals(MoveCountCache.key(new int[]{1, 2, 3, 4}, 256), MoveCountCache.key(new int[]{2, 1, 3, 4}, 256));
+        // 22x22 needs 9 bits
+        assertEquals(9, MoveCountCache.bitsPerPosition(22 * 22));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        MoveCountCache cache = new MoveCountCache(3);
+        cache.put(1, 5);
+        cache.put(2, 6);
+        cache.put(3, 7);
+        assertEquals(5, cache.get(1)); // 2 is now the least recently used
+        cache.put(4, 8);
+        assertEquals(3, cache.getSize());
+        assertEquals(-1, cache.get(2));
+        assertEquals(5, cache.get(1));
+        assertEquals(7, cache.get(3));
+        assertEquals(8, cache.get(4));
+
+        cache.put(4, 9); // update, no eviction
+        assertEquals(9, cache.get(4));
+        assertEquals(3, cache.getSize());
+
+        cache.put(5, 200); // not a byte, not cached
+        assertEquals(-1, cache.get(5));
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(-1, cache.get(1));
+    }
+
+    @Test
+    public void testRandomOperations_SameAsLinkedHashMap() {
+        final int maxEntries = 100;
+        Map<Long, Integer> expected = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        MoveCountCache cache = new MoveCountCache(maxEntries);
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            // few distinct keys, so that probe sequences collide and entries are evicted from them
+            long key = random.nextInt(300) * 0x100000001L;
+            if (random.nextBoolean()) {
+                int moves = random.nextInt(30);
+                cache.put(key, moves);
+                expected.put(key, moves);
+            } else {
+                Integer moves = expected.get(key);
+                assertEquals("operation " + i, moves == null ? -1 : moves, cache.get(key));
+            }
+            assertEquals(expected.size(), cache.getSize());
+        }
+    }
+}
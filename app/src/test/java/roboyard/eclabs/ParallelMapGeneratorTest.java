@@ -0,0 +1,246 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.SearchBudget;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+import roboyard.logic.core.Constants;
+import roboyard.logic.core.GridElement;
+import roboyard.logic.solver.CandidateFilter;
+import roboyard.logic.solver.ParallelMapGenerator;
+import roboyard.logic.solver.RRGetMap;
+import roboyard.logic.solver.RRPiece;
+import roboyard.logic.solver.RetrogradePlacer;
+import roboyard.logic.solver.SolutionCache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the parallel map generation of random games and its CandidateFilter: the bundled
+ * levels 1, 2, 3, ... are the "random" candidates, so the move count of every candidate is known.
+ *
+ * Tags: map-generation, difficulty, solver, parallel
+ */
+public class ParallelMapGeneratorTest {
+
+    /**
+     * Candidates are the level numbers, starting at the given level and repeating after level 139.
+     * Level 1 needs 2 moves, levels 2-10 need 3, level 11 needs 4, levels 12 and 13 need 6,
+     * level 14 needs 8, levels 15 and 16 need 6 and level 17 needs 5 moves.
+     */
+    static class LevelCandidates implements ParallelMapGenerator.CandidateSource<Integer> {
+        final AtomicInteger created = new AtomicInteger();
+        private final int first;
+
+        LevelCandidates(int first) {
+            this.first = first;
+        }
+
+        static ArrayList<GridElement> read(int level) {
+            try {
+                return toGridElements(new String(Files.readAllBytes(Paths.get("src/main/assets/Maps/level_" + level + ".txt")), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Integer create() {
+            return (first - 1 + created.getAndIncrement()) % 139 + 1;
+        }
+
+        @Override
+        public ArrayList<GridElement> gridElements(Integer level) {
+            return read(level);
+        }
+
+        @Override
+        public boolean isTrivial(Integer level) {
+            return false;
+        }
+    }
+
+    private static ArrayList<GridElement> toGridElements(String level) {
+        String[] colors = {"red", "green", "blue", "yellow"};
+        ArrayList<GridElement> elements = new ArrayList<>();
+        for (String line : level.split("\n")) {
+            line = line.replace(";", "").trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("board") || line.startsWith("solution") || line.startsWith("num_moves")) {
+                continue;
+            }
+            boolean wall = line.charAt(0) == 'h' || line.charAt(0) == 'v';
+            String[] xy = line.substring(wall ? 1 : 2).split(",");
+            String type = wall ? "m" + line.charAt(0)
+                    : (line.charAt(0) == 'r' ? "robot_" : "target_") + colors["rgby".indexOf(line.charAt(1))];
+            elements.add(new GridElement(Integer.parseInt(xy[0]), Integer.parseInt(xy[1]), type));
+        }
+        return elements;
+    }
+
+    private static ParallelMapGenerator<Integer> createGenerator(LevelCandidates candidates) {
+        ParallelMapGenerator<Integer> generator = new ParallelMapGenerator<>(candidates, 2);
+        generator.setSearchBudget(new SearchBudget(SearchBudget.UNLIMITED_STATES, 256L << 20));
+        return generator;
+    }
+
+    @Test
+    public void testGenerate_AcceptsFirstCandidateInRange() {
+        ParallelMapGenerator<Integer> generator = createGenerator(new LevelCandidates(1));
+        try {
+            ParallelMapGenerator.Result<Integer> result = generator.generate(5, 6, 100);
+            assertNotNull(result);
+            assertTrue(result.accepted);
+            assertEquals(6, result.moves);
+            assertTrue("level 12 or the candidate solved next to it", result.candidate >= 12 && result.candidate <= 13);
+
+            ParallelMapGenerator.Stats stats = generator.getStats();
+            assertEquals(1, stats.getAcceptedCount());
+            assertTrue(stats.getRejects(ParallelMapGenerator.RejectReason.TOO_EASY) >= 10);
+            assertEquals(0, stats.getRejects(ParallelMapGenerator.RejectReason.TOO_HARD));
+            assertTrue(stats.getAttempts() >= 12);
+            // levels 1-10 need at most 3 moves: found by the bounded search, without solving them
+            assertTrue(stats.getFiltered(ParallelMapGenerator.RejectReason.TOO_EASY) >= 10);
+            // a candidate that was stopped when another one was accepted may not have reached the solver
+            assertTrue(stats.getSolveCount() <= stats.getAttempts() - stats.getSolvesAvoided());
+            assertTrue(stats.getSolveCount() >= stats.getAttempts() - stats.getSolvesAvoided() - stats.getStoppedCount());
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testGenerate_CachesOnlyTheReturnedMap() {
+        ParallelMapGenerator<Integer> generator = createGenerator(new LevelCandidates(14));
+        SolutionCache cache = new SolutionCache(100);
+        generator.setSolutionCache(cache);
+        try {
+            ParallelMapGenerator.Result<Integer> result = generator.generate(5, 6, 100);
+            assertTrue(result.accepted);
+            assertEquals(1, cache.size());
+            Board board = RRGetMap.INSTANCE.createDDWorld(LevelCandidates.read(result.candidate), new RRPiece[Constants.NUM_ROBOTS]);
+            List<Solution> cached = cache.get(board, Solver.SOLUTION_COUNT_ALL);
+            assertNotNull(cached);
+            assertEquals(result.moves, cached.get(0).size());
+            // level 14 (8 moves) was rejected
+            assertNull(cache.get(RRGetMap.INSTANCE.createDDWorld(LevelCandidates.read(14), new RRPiece[Constants.NUM_ROBOTS]), 1));
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testGenerate_RejectsTooHard() {
+        ParallelMapGenerator<Integer> generator = createGenerator(new LevelCandidates(12));
+        try {
+            ParallelMapGenerator.Result<Integer> result = generator.generate(4, 5, 100);
+            assertTrue(result.accepted);
+            // level 17 (5 moves) or level 18 (4 moves), which is solved next to it
+            assertTrue("level 17 or the candidate solved next to it", result.candidate >= 17 && result.candidate <= 18);
+            assertEquals(result.candidate == 17 ? 5 : 4, result.moves);
+            assertTrue(generator.getStats().getRejects(ParallelMapGenerator.RejectReason.TOO_HARD) >= 4);
+            assertEquals(0, generator.getStats().getRejects(ParallelMapGenerator.RejectReason.TOO_EASY));
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testGenerate_GivesUpAfterMaxAttempts() {
+        ParallelMapGenerator<Integer> generator = createGenerator(new LevelCandidates(1));
+        try {
+            ParallelMapGenerator.Result<Integer> result = generator.generate(20, 30, 4);
+            assertNotNull(result);
+            assertFalse(result.accepted);
+            assertEquals(4, result.attempts);
+            assertEquals(3, result.moves);
+            assertEquals(4, generator.getStats().getRejects(ParallelMapGenerator.RejectReason.TOO_EASY));
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancel_ReturnsNull() throws Exception {
+        LevelCandidates candidates = new LevelCandidates(1);
+        ParallelMapGenerator<Integer> generator = createGenerator(candidates);
+        try {
+            final ParallelMapGenerator.Result<?>[] result = new ParallelMapGenerator.Result<?>[1];
+            // no level needs 100 moves: the generation runs until it is cancelled
+            Thread thread = new Thread(() -> result[0] = generator.generate(100, 100, 100000));
+            thread.start();
+            while (candidates.created.get() < 5) {
+                Thread.sleep(1);
+            }
+            generator.cancel();
+            thread.join(10000);
+            assertFalse(thread.isAlive());
+            assertNull(result[0]);
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testCandidateFilter_RejectsOnlyMapsOutsideTheRange() {
+        // optimal moves of levels 1-17
+        int[] moves = {0, 2, 3, 3, 3, 3, 3, 3, 3, 3, 3, 4, 6, 6, 8, 6, 6, 5};
+        CandidateFilter filter = new CandidateFilter();
+        for (int level = 1; level < moves.length; level++) {
+            Board board = RRGetMap.INSTANCE.createDDWorld(LevelCandidates.read(level), new RRPiece[Constants.NUM_ROBOTS]);
+            for (int[] range : new int[][]{{4, 6}, {2, 3}, {5, 5}, {1, 1}}) {
+                CandidateFilter.Verdict verdict = filter.check(board, range[0], range[1]);
+                String message = "level " + level + ", range " + range[0] + "-" + range[1];
+                if (verdict.reason == null) {
+                    assertTrue(message, moves[level] >= range[0] - 1);
+                } else if (verdict.reason == ParallelMapGenerator.RejectReason.TOO_HARD) {
+                    assertTrue(message, moves[level] > range[1]);
+                } else if (verdict.reason == ParallelMapGenerator.RejectReason.TRIVIAL) {
+                    assertTrue(message, moves[level] <= 1);
+                } else {
+                    assertTrue(message, verdict.reason == ParallelMapGenerator.RejectReason.TOO_EASY);
+                    if (verdict.moves >= 0) {
+                        assertEquals(message, moves[level], verdict.moves); // found by the bounded search
+                    }
+                    assertTrue(message, moves[level] < range[0]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRetrogradePlacer_PlacesGoalRobotWithinRange() throws Exception {
+        int placed = 0;
+        for (int level = 1; level <= 17; level++) {
+            Board board = RRGetMap.INSTANCE.createDDWorld(LevelCandidates.read(level), new RRPiece[Constants.NUM_ROBOTS]);
+            RetrogradePlacer.Placement placement = RetrogradePlacer.place(board, 6, 12, new Random(level));
+            if (placement == null) {
+                continue;
+            }
+            placed++;
+            String message = "level " + level;
+            assertTrue(message, placement.moves >= 6 && placement.moves <= 12);
+            int[] robots = board.getRobotPositions().clone();
+            robots[placement.robot] = placement.position;
+            board.setRobots(robots);
+
+            // the moves of the goal robot alone are a solution, so the optimal one is not longer
+            Solver solver = Solver.createInstance(board);
+            List<Solution> solutions = solver.execute();
+            assertFalse(message, solutions.isEmpty());
+            assertTrue(message, solutions.get(0).size() <= placement.moves);
+            assertTrue(message, new CandidateFilter().check(board, 6, 12).reason == null || solutions.get(0).size() < 6);
+        }
+        assertTrue("no level got a placement", placed > 0);
+    }
+}
@@ -0,0 +1,87 @@
+package roboyard.eclabs;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import roboyard.logic.solver.PuzzlePool;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the pool of pre-generated random puzzles: queue order, capacity,
+ * invalidation when the settings change and the on-disk store.
+ *
+ * Tags: map-generation, puzzle-pool, persistence
+ */
+public class PuzzlePoolTest {
+
+    private static final String KEY = "16x16;robots=1;targets=1;difficulty=0;moves=4-6;multicolor=true";
+    private static final String OTHER_KEY = "12x14;robots=1;targets=1;difficulty=0;moves=4-6;multicolor=true";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPoll_FirstInFirstOut() {
+        PuzzlePool pool = new PuzzlePool(2);
+        assertTrue(pool.offer(KEY, new PuzzlePool.Entry(5, "map 1")));
+        assertTrue(pool.offer(KEY, new PuzzlePool.Entry(6, "map 2")));
+        assertFalse("pool is full", pool.offer(KEY, new PuzzlePool.Entry(4, "map 3")));
+        assertTrue(pool.isFull(KEY));
+
+        PuzzlePool.Entry entry = pool.poll(KEY);
+        assertEquals("map 1", entry.data);
+        assertEquals(5, entry.moves);
+        assertEquals("map 2", pool.poll(KEY).data);
+        assertNull(pool.poll(KEY));
+        assertEquals(2, pool.getHits());
+        assertEquals(1, pool.getMisses());
+    }
+
+    @Test
+    public void testSettingsChange_DropsPuzzles() {
+        PuzzlePool pool = new PuzzlePool(5);
+        pool.offer(KEY, new PuzzlePool.Entry(5, "map 1"));
+        assertEquals(0, pool.size(OTHER_KEY));
+        assertNull(pool.poll(OTHER_KEY));
+        assertEquals("puzzles of the old settings are gone", 0, pool.size(KEY));
+
+        assertTrue(pool.offer(OTHER_KEY, new PuzzlePool.Entry(6, "map 2")));
+        assertFalse("generated for settings that are not current anymore", pool.offer(KEY, new PuzzlePool.Entry(5, "map 3")));
+        assertEquals(1, pool.size(OTHER_KEY));
+    }
+
+    @Test
+    public void testStorageFile_SurvivesRestart() throws Exception {
+        File file = new File(folder.getRoot(), PuzzlePool.FILE_NAME);
+        String saveData = "#MAPNAME:;TIME:0;MOVES:0\nWIDTH:16;\nHEIGHT:16;\ntr7,4;\nrr0,0;";
+
+        PuzzlePool pool = new PuzzlePool(5);
+        pool.setStorageFile(file);
+        pool.offer(KEY, new PuzzlePool.Entry(5, saveData));
+        pool.offer(KEY, new PuzzlePool.Entry(6, "map 2"));
+        pool.poll(KEY);
+        pool.offer(KEY, new PuzzlePool.Entry(4, "map 3"));
+
+        PuzzlePool restarted = new PuzzlePool(5);
+        restarted.setStorageFile(file);
+        assertEquals(2, restarted.size(KEY));
+        PuzzlePool.Entry entry = restarted.poll(KEY);
+        assertEquals("map 2", entry.data);
+        assertEquals(6, entry.moves);
+
+        restarted.offer(KEY, new PuzzlePool.Entry(5, saveData));
+        PuzzlePool again = new PuzzlePool(5);
+        again.setStorageFile(file);
+        again.poll(KEY);
+        assertEquals(saveData, again.poll(KEY).data);
+
+        again.poll(OTHER_KEY);
+        PuzzlePool changed = new PuzzlePool(5);
+        changed.setStorageFile(file);
+        assertEquals(0, changed.size(KEY));
+    }
+}
@@ -0,0 +1,91 @@
+package roboyard.eclabs;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+import roboyard.logic.solver.SolutionCache;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the SolutionCache in front of SolverDD: canonical keys (interchangeable
+ * non-goal robots), replay of cached moves on the board, and the on-disk store (written
+ * in batches).
+ *
+ * Tags: solver, cache, solution-cache, driftingdroids
+ */
+public class SolutionCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPutGet_SameSolutions() throws Exception {
+        SolutionCache cache = new SolutionCache(100);
+        Board board = TestBoards.withCornerRobots(1);
+        assertNull(cache.get(board, Solver.SOLUTION_COUNT_ALL));
+
+        List<Solution> solved = Solver.createInstance(board).execute();
+        cache.put(board, solved, true);
+
+        List<Solution> cached = cache.get(TestBoards.withCornerRobots(1), Solver.SOLUTION_COUNT_ALL);
+        assertNotNull(cached);
+        assertEquals(solved.size(), cached.size());
+        for (int i = 0; i < solved.size(); i++) {
+            assertEquals(solved.get(i).toMovelistString(), cached.get(i).toMovelistString());
+        }
+        assertEquals(1, cache.get(TestBoards.withCornerRobots(1), 1).size());
+        assertNull("other walls", cache.get(TestBoards.withCornerRobots(2), 1));
+    }
+
+    @Test
+    public void testInterchangeableRobots_SameEntry() throws Exception {
+        SolutionCache cache = new SolutionCache(100);
+        Board board = TestBoards.withRobots(3, new int[]{0, 15, 240, 255});
+        List<Solution> solved = Solver.createInstance(board).execute();
+        cache.put(board, solved, false);
+
+        // non-goal robots 1 and 3 swapped: same position for the solver
+        Board swapped = TestBoards.withRobots(3, new int[]{0, 255, 240, 15});
+        List<Solution> cached = cache.get(swapped, 1);
+        assertNotNull(cached);
+        assertEquals(solved.get(0).size(), cached.get(0).size());
+        assertEquals(Solver.createInstance(swapped).execute().get(0).size(), cached.get(0).size());
+
+        // the goal robot is not interchangeable
+        assertNull(cache.get(TestBoards.withRobots(3, new int[]{15, 0, 240, 255}), 1));
+        // only one solution was requested, so the entry can't answer a request for all solutions
+        assertNull(cache.get(board, Solver.SOLUTION_COUNT_ALL));
+    }
+
+    @Test
+    public void testStorageFile_Reload() throws Exception {
+        File file = new File(folder.getRoot(), SolutionCache.FILE_NAME);
+        SolutionCache cache = new SolutionCache(100);
+        cache.setStorageFile(file);
+        for (long seed = 1; seed <= 3; seed++) {
+            Board board = TestBoards.withCornerRobots(seed);
+            cache.put(board, Solver.createInstance(board).execute(), true);
+        }
+        // the puts are written in one batch by a background thread, flush writes them now
+        cache.flush();
+        assertTrue(file.length() > 0);
+
+        SolutionCache reloaded = new SolutionCache(100);
+        reloaded.setStorageFile(file);
+        for (long seed = 1; seed <= 3; seed++) {
+            List<Solution> cached = reloaded.get(TestBoards.withCornerRobots(seed), 1);
+            assertNotNull("seed " + seed, cached);
+            assertEquals("seed " + seed, cache.get(TestBoards.withCornerRobots(seed), 1).get(0).toMovelistString(),
+                    cached.get(0).toMovelistString());
+        }
+        assertEquals(3, reloaded.size());
+    }
+}
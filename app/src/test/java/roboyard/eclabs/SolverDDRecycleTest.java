@@ -0,0 +1,57 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.MemoryArbiter;
+import driftingdroids.model.MemoryArbiter.Priority;
+import driftingdroids.model.MemoryArbiter.Reservation;
+import roboyard.logic.solver.SolverDD;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the search buffers that a SolverDD keeps for its next solve: their bytes are
+ * reserved in the shared MemoryArbiter, and they are released by releaseRecycled() or when
+ * another search needs the bytes.
+ *
+ * Tags: solver, recycle, memory
+ */
+public class SolverDDRecycleTest {
+
+    private static SolverDD solve(SolverDD solver, int level) {
+        solver.setSolutionCache(null);
+        solver.init(ParallelMapGeneratorTest.LevelCandidates.read(level));
+        solver.run();
+        assertFalse("level " + level, solver.getSolutionList().isEmpty());
+        return solver;
+    }
+
+    @Test
+    public void testReleaseRecycled_ReleasesTheReservation() {
+        MemoryArbiter arbiter = MemoryArbiter.getShared();
+        long reserved = arbiter.getReservedBytes();
+        SolverDD solver = solve(new SolverDD(), 5);
+        assertTrue("the kept buffers are reserved", arbiter.getReservedBytes() > reserved);
+
+        solver.releaseRecycled();
+        assertEquals(reserved, arbiter.getReservedBytes());
+    }
+
+    @Test
+    public void testRevokedReservation_DropsTheBuffers() {
+        MemoryArbiter arbiter = MemoryArbiter.getShared();
+        SolverDD solver = solve(new SolverDD(), 5);
+        long reserved = arbiter.getReservedBytes();
+
+        // a search that needs more than the free bytes takes those of the kept buffers (newest first)
+        Reservation high = arbiter.reserve(arbiter.capacity - reserved + 1, Priority.HIGH);
+        assertNotNull(high);
+        high.release();
+        assertTrue(arbiter.getReservedBytes() < reserved);
+
+        // the next solve allocates new buffers
+        int moves = solver.getSolutionList().get(0).size();
+        assertEquals(moves, solve(solver, 5).getSolutionList().get(0).size());
+        solver.releaseRecycled();
+    }
+}
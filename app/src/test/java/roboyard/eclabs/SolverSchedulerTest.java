@@ -0,0 +1,176 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import roboyard.logic.solver.SolverScheduler;
+import roboyard.logic.solver.SolverScheduler.Priority;
+import roboyard.logic.solver.SolverScheduler.SolverJob;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the SolverScheduler: priority order of waiting jobs, preemption of lower
+ * priority jobs (restarted or dropped), jobs that take several slots, one job at a time
+ * per group, and cancellation.
+ *
+ * Tags: solver, scheduler, live-solver, pre-computation
+ */
+public class SolverSchedulerTest {
+
+    // a job that runs until it is stopped or released
+    private static SolverScheduler.Task blocking(CountDownLatch started, CountDownLatch release, AtomicInteger runs) {
+        return job -> {
+            runs.incrementAndGet();
+            started.countDown();
+            while (!job.isStopping() && !release.await(10, TimeUnit.MILLISECONDS)) {
+                // like a solver that checks its stop flag
+            }
+        };
+    }
+
+    @Test
+    public void testWaitingJobs_StartInPriorityOrder() throws Exception {
+        SolverScheduler scheduler = new SolverScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SolverJob first = scheduler.submit(Priority.HINT, "first", blocking(started, release, new AtomicInteger()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        SolverJob generation = scheduler.submit(Priority.GENERATION, "generation", job -> order.add("generation"));
+        SolverJob live = scheduler.submit(Priority.LIVE, "live", job -> order.add("live"));
+        SolverJob hint = scheduler.submit(Priority.HINT, "hint", job -> order.add("hint"));
+        release.countDown();
+
+        for (SolverJob job : new SolverJob[]{first, generation, live, hint}) {
+            assertTrue(job.name, job.await(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of("hint", "live", "generation"), order);
+    }
+
+    @Test
+    public void testHigherPriority_PreemptsAndRestartsLowerJob() throws Exception {
+        SolverScheduler scheduler = new SolverScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        AtomicInteger cancels = new AtomicInteger();
+        SolverJob precompute = scheduler.submit(Priority.PRECOMPUTE, "precompute", blocking(started, release, runs),
+                null, cancels::incrementAndGet);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch hintDone = new CountDownLatch(1);
+        SolverJob hint = scheduler.submit(Priority.HINT, "hint", job -> hintDone.countDown());
+        assertTrue("the hint got the slot of the pre-computation", hintDone.await(5, TimeUnit.SECONDS));
+        assertTrue(hint.await(5, TimeUnit.SECONDS));
+        assertEquals(1, cancels.get());
+
+        // the pre-computation runs again from the start
+        long deadline = System.currentTimeMillis() + 5000;
+        while (runs.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, runs.get());
+        assertFalse(precompute.isDone());
+        release.countDown();
+        assertTrue(precompute.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPreemptedPrefetch_IsDropped() throws Exception {
+        SolverScheduler scheduler = new SolverScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        SolverJob prefetch = scheduler.submit(Priority.PREFETCH, "prefetch", blocking(started, new CountDownLatch(1), runs));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        SolverJob live = scheduler.submit(Priority.LIVE, "live", job -> { });
+        assertTrue(live.await(5, TimeUnit.SECONDS));
+        assertTrue(prefetch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void testGeneration_IsNotPreempted() throws Exception {
+        SolverScheduler scheduler = new SolverScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SolverJob generation = scheduler.submit(Priority.GENERATION, "generation", blocking(started, release, new AtomicInteger()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        SolverJob hint = scheduler.submit(Priority.HINT, "hint", job -> { });
+        assertFalse("the hint waits for a free slot", hint.await(200, TimeUnit.MILLISECONDS));
+        assertFalse(generation.isStopping());
+        release.countDown();
+        assertTrue(hint.await(5, TimeUnit.SECONDS));
+        assertTrue(generation.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testJobWithWorkers_TakesOneSlotPerWorker() throws Exception {
+        SolverScheduler scheduler = new SolverScheduler(3);
+        CountDownLatch generationStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SolverJob generation = scheduler.submit(Priority.GENERATION, "generation",
+                blocking(generationStarted, release, new AtomicInteger()), null, null, 2);
+        assertTrue(generationStarted.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch hintStarted = new CountDownLatch(1);
+        SolverJob hint = scheduler.submit(Priority.HINT, "hint", blocking(hintStarted, release, new AtomicInteger()));
+        assertTrue("the third slot is free", hintStarted.await(5, TimeUnit.SECONDS));
+        SolverJob live = scheduler.submit(Priority.LIVE, "live", job -> { });
+        assertFalse("the live solve waits for a free slot", live.await(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        for (SolverJob job : new SolverJob[]{generation, hint, live}) {
+            assertTrue(job.name, job.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testGroup_RunsOneJobAtATime() throws Exception {
+        SolverScheduler scheduler = new SolverScheduler(4);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        List<SolverJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            jobs.add(scheduler.submit(Priority.LIVE, "live-" + i, job -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                active.decrementAndGet();
+            }, "group"));
+        }
+        for (SolverJob job : jobs) {
+            assertTrue(job.await(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, maxActive.get());
+        assertEquals(0, scheduler.getJobCount());
+    }
+
+    @Test
+    public void testCancel_StopsRunningAndRemovesWaitingJobs() throws Exception {
+        SolverScheduler scheduler = new SolverScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger cancels = new AtomicInteger();
+        SolverJob running = scheduler.submit(Priority.HINT, "running", blocking(started, new CountDownLatch(1), new AtomicInteger()),
+                null, cancels::incrementAndGet);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        AtomicInteger waitingRuns = new AtomicInteger();
+        SolverJob waiting = scheduler.submit(Priority.HINT, "waiting", job -> waitingRuns.incrementAndGet());
+
+        waiting.cancel();
+        assertTrue(waiting.isDone());
+        running.cancel();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        assertEquals(1, cancels.get());
+        assertEquals(0, waitingRuns.get());
+        assertEquals(0, scheduler.getJobCount());
+    }
+}
@@ -0,0 +1,150 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+import roboyard.logic.core.Constants;
+import roboyard.logic.solver.RRGetMap;
+import roboyard.logic.solver.RRPiece;
+import roboyard.logic.solver.SuccessorSolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the pre-computation of the live move counter: one search for all positions one
+ * move away, or several workers each with a part of these positions, must give the same
+ * optimal move counts as solving each of them separately; a stopped search continues with
+ * the unsolved positions. Positions that Board.isSolution01 accepts count as 1 move, like in
+ * the live solver.
+ *
+ * Tags: live-solver, solver, pre-computation
+ */
+public class SuccessorSolverTest {
+
+    private static int solve(Board board) throws InterruptedException {
+        Solver solver = Solver.createInstance(board);
+        solver.setOptionSolutionCount(1);
+        List<Solution> solutions = solver.execute();
+        return solutions.isEmpty() ? -1 : solutions.get(0).size();
+    }
+
+    @Test
+    public void testAllSuccessors_SameMovesAsSeparateSolves() throws Exception {
+        SuccessorSolver successorSolver = new SuccessorSolver();
+        for (int level = 1; level <= 10; level++) {
+            Board board = RRGetMap.INSTANCE.createDDWorld(ParallelMapGeneratorTest.LevelCandidates.read(level), new RRPiece[Constants.NUM_ROBOTS]);
+            int moves = solve(board);
+            int[] start = board.getRobotPositions().clone();
+            List<SuccessorSolver.Successor> successors = successorSolver.solve(board, new int[]{0, 1, 2, 3}, Math.max(0, moves - 1), 40, 60000);
+            assertFalse("level " + level, successors.isEmpty());
+            for (SuccessorSolver.Successor successor : successors) {
+                board.setRobots(successor.positions);
+                String msg = "level " + level + " robot " + successor.robot + " direction " + successor.direction;
+                assertEquals(msg + ": the one-move rule agrees with the search", successor.moves <= 1, board.isSolution01());
+                // the one-move rule goes on past robots, the solver looks for a longer solution
+                if (!board.isSolution01()) {
+                    assertEquals(msg, solve(board), successor.moves);
+                    assertTrue("one move shortens the solution by at most one", successor.moves >= moves - 1);
+                }
+            }
+            board.setRobots(start);
+        }
+    }
+
+    @Test
+    public void testPartitionedWorkers_SameMovesAsOneSearch() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int level = 11; level <= 14; level++) {
+                Board board = RRGetMap.INSTANCE.createDDWorld(ParallelMapGeneratorTest.LevelCandidates.read(level), new RRPiece[Constants.NUM_ROBOTS]);
+                int[] robots = {2, 0, 1, 3};
+                List<SuccessorSolver.Successor> expected = new SuccessorSolver().solve(board, robots, 0, 40, 60000);
+
+                List<SuccessorSolver.Successor> successors = SuccessorSolver.successors(board, robots);
+                AtomicInteger reported = new AtomicInteger();
+                List<Future<?>> workers = new ArrayList<>();
+                for (int w = 0; w < 3; w++) {
+                    List<SuccessorSolver.Successor> part = new ArrayList<>();
+                    for (int i = w; i < successors.size(); i += 3) {
+                        part.add(successors.get(i));
+                    }
+                    workers.add(executor.submit(() -> {
+                        new SuccessorSolver().solve(board, part, 0, 40, 60000, successor -> reported.incrementAndGet());
+                        return null;
+                    }));
+                }
+                for (Future<?> worker : workers) {
+                    worker.get();
+                }
+                assertEquals(expected.size(), successors.size());
+                assertEquals(expected.size(), reported.get());
+                assertEquals("first robot first", robots[0], successors.get(0).robot);
+                for (int i = 0; i < successors.size(); i++) {
+                    assertEquals("level " + level + " successor " + i, expected.get(i).moves, successors.get(i).moves);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStoppedSolve_ContinuesWithTheUnsolvedSuccessors() throws Exception {
+        Board board = RRGetMap.INSTANCE.createDDWorld(ParallelMapGeneratorTest.LevelCandidates.read(14), new RRPiece[Constants.NUM_ROBOTS]);
+        int[] robots = {0, 1, 2, 3};
+        List<SuccessorSolver.Successor> expected = new SuccessorSolver().solve(board, robots, 0, 40, 60000);
+
+        List<SuccessorSolver.Successor> successors = SuccessorSolver.successors(board, robots);
+        // stopped by its deadline, like a preempted job (most likely in the middle of a search)
+        new SuccessorSolver().solve(board, successors, 0, 40, 1);
+        int unsolved = 0;
+        for (SuccessorSolver.Successor successor : successors) {
+            if (successor.moves < 0) {
+                unsolved++;
+            }
+        }
+        AtomicInteger reported = new AtomicInteger();
+        new SuccessorSolver().solve(board, successors, 0, 40, 60000, successor -> reported.incrementAndGet());
+        assertEquals("only the unsolved successors are solved again", unsolved, reported.get());
+        for (int i = 0; i < successors.size(); i++) {
+            assertEquals("successor " + i, expected.get(i).moves, successors.get(i).moves);
+        }
+    }
+
+    @Test
+    public void testOneMoveRule_GoesOnPastRobots() throws Exception {
+        // robot 0 stops in front of robot 1, but the goal is at the wall behind it
+        Board board = Board.createBoardFreestyle(null, 16, 16, 4);
+        board.removeGoals();
+        board.setRobot(0, 0, false);
+        board.setRobot(1, 8, false);
+        board.setRobot(2, 255, false);
+        board.setRobot(3, 240, false);
+        board.addGoal(15, 0, Board.GOAL_CIRCLE);
+        board.setGoal(15);
+        assertTrue(board.isSolution01());
+        List<SuccessorSolver.Successor> successors = new SuccessorSolver().solve(board, new int[]{2, 3}, 0, 40, 60000);
+        assertFalse(successors.isEmpty());
+        for (SuccessorSolver.Successor successor : successors) {
+            assertEquals("robot " + successor.robot + " direction " + successor.direction, 1, successor.moves);
+        }
+    }
+
+    @Test
+    public void testStoppedSearch_ReturnsUnknownMoves() throws Exception {
+        Board board = RRGetMap.INSTANCE.createDDWorld(ParallelMapGeneratorTest.LevelCandidates.read(14), new RRPiece[Constants.NUM_ROBOTS]);
+        List<SuccessorSolver.Successor> successors = new SuccessorSolver().solve(board, new int[]{0, 1, 2, 3}, 0, 40, 0);
+        for (SuccessorSolver.Successor successor : successors) {
+            assertEquals(-1, successor.moves);
+        }
+    }
+}
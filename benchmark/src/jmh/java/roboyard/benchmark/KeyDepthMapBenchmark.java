@@ -0,0 +1,118 @@
+package roboyard.benchmark;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.KeyDepthMap;
+import driftingdroids.model.KeyDepthMapFactory;
+import driftingdroids.model.KeyDepthMapOffHeap;
+import driftingdroids.model.KeyDepthMapOpenHash;
+import driftingdroids.model.KeyDepthMapTrieGeneric;
+import driftingdroids.model.KeyDepthMapTrieSpecial;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KeyDepthMap.putIfGreater() operations per second of the KeyDepthMap implementations:
+ * TrieSpecial, TrieGeneric, OpenHash and OffHeap (with direct buffers, no scratch file).
+ *
+ * The keys are made by the KeyMaker of the solver from random robot positions on a 16x16 board:
+ * 4 robots give int keys, 5 robots long keys. Every key is put twice, like the solver does
+ * when it reaches a known state again: first with a new depth (insert), then with a lower one.
+ * The map is emptied before each invocation (with KeyDepthMap.reset() if it is supported).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KeyDepthMapBenchmark {
+
+    private static final int NUM_KEYS = 1 << 18;
+
+    @Param({"TrieSpecial", "TrieGeneric", "OpenHash", "OffHeap"})
+    public String implementation;
+
+    @Param({"4", "5"})
+    public int numRobots;
+
+    private Board board;
+    private Class<? extends KeyDepthMap> mapClass;
+    private int[] intKeys;
+    private long[] longKeys;
+    private KeyDepthMap map;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        board = RobotStates.board(numRobots);
+        switch (implementation) {
+            case "TrieSpecial":
+                mapClass = KeyDepthMapTrieSpecial.class;
+                break;
+            case "TrieGeneric":
+                mapClass = KeyDepthMapTrieGeneric.class;
+                break;
+            case "OpenHash":
+                mapClass = KeyDepthMapOpenHash.class;
+                break;
+            case "OffHeap":
+                mapClass = KeyDepthMapOffHeap.class;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown implementation: " + implementation);
+        }
+        int[][] states = RobotStates.random(board, NUM_KEYS, 42);
+        if (numRobots * board.sizeNumBits <= 32) {
+            intKeys = RobotStates.intKeys(board, states, false);
+        } else {
+            longKeys = RobotStates.longKeys(board, states, false);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyMap() {
+        if (map == null || !map.reset(board)) {
+            if (map != null) {
+                map.release();
+            }
+            map = KeyDepthMapFactory.INSTANCE.newInstance(board, mapClass);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void releaseMap() {
+        if (map != null) {
+            map.release();
+            map = null;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * NUM_KEYS)
+    public void putIfGreater(Blackhole blackhole) {
+        if (intKeys != null) {
+            for (int i = 0; i < intKeys.length; i++) {
+                blackhole.consume(map.putIfGreater(intKeys[i], 20 - (i & 15)));
+            }
+            for (int i = 0; i < intKeys.length; i++) {
+                blackhole.consume(map.putIfGreater(intKeys[i], 4));
+            }
+        } else {
+            for (int i = 0; i < longKeys.length; i++) {
+                blackhole.consume(map.putIfGreater(longKeys[i], 20 - (i & 15)));
+            }
+            for (int i = 0; i < longKeys.length; i++) {
+                blackhole.consume(map.putIfGreater(longKeys[i], 4));
+            }
+        }
+    }
+}
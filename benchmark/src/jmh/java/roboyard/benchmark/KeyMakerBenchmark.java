@@ -0,0 +1,75 @@
+package roboyard.benchmark;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.KeyMakerInt;
+import driftingdroids.model.KeyMakerLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key generation of KeyMakerInt and KeyMakerLong (keys per microsecond) on a 16x16 board.
+ * KeyMakerInt is measured with 4 robots (32-bit keys), KeyMakerLong with 4 and 5 robots.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KeyMakerBenchmark {
+
+    private static final int NUM_STATES = 1024;
+
+    @Param({"false", "true"})
+    public boolean goalWildcard;
+
+    private int[][] states4;
+    private int[][] states5;
+    private KeyMakerInt keyMakerInt4;
+    private KeyMakerLong keyMakerLong4;
+    private KeyMakerLong keyMakerLong5;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Board board4 = RobotStates.board(4);
+        Board board5 = RobotStates.board(5);
+        states4 = RobotStates.random(board4, NUM_STATES, 42);
+        states5 = RobotStates.random(board5, NUM_STATES, 42);
+        keyMakerInt4 = KeyMakerInt.Companion.createInstance(4, board4.sizeNumBits, goalWildcard);
+        keyMakerLong4 = KeyMakerLong.Companion.createInstance(4, board4.sizeNumBits, goalWildcard);
+        keyMakerLong5 = KeyMakerLong.Companion.createInstance(5, board5.sizeNumBits, goalWildcard);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_STATES)
+    public void keyMakerInt4Robots(Blackhole blackhole) {
+        for (int[] state : states4) {
+            blackhole.consume(keyMakerInt4.run(state));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_STATES)
+    public void keyMakerLong4Robots(Blackhole blackhole) {
+        for (int[] state : states4) {
+            blackhole.consume(keyMakerLong4.run(state));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_STATES)
+    public void keyMakerLong5Robots(Blackhole blackhole) {
+        for (int[] state : states5) {
+            blackhole.consume(keyMakerLong5.run(state));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package roboyard.benchmark;
+
+import driftingdroids.model.Board;
+import roboyard.logic.solver.LevelReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the levels from assets/Maps (level_1.txt ... level_140.txt) into DriftingDroids boards.
+ *
+ * The level files are packed into the benchmark jar as resources and parsed by LevelReader,
+ * the reader of the batch solver.
+ */
+public final class LevelBoards {
+
+    public static final int NUM_LEVELS = 140;
+
+    private LevelBoards() {
+    }
+
+    /**
+     * Loads the levels first...last (inclusive).
+     */
+    public static List<Board> load(int first, int last) throws IOException {
+        List<Board> boards = new ArrayList<>();
+        for (int level = first; level <= last; level++) {
+            boards.add(load(level));
+        }
+        return boards;
+    }
+
+    /**
+     * Loads a range of levels given as "first-last" or as a single level number.
+     */
+    public static List<Board> load(String range) throws IOException {
+        String[] parts = range.split("-");
+        int first = Integer.parseInt(parts[0].trim());
+        int last = (parts.length > 1) ? Integer.parseInt(parts[1].trim()) : first;
+        return load(first, last);
+    }
+
+    public static Board load(int level) throws IOException {
+        String name = "/Maps/level_" + level + ".txt";
+        try (InputStream in = LevelBoards.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("level not found: " + name);
+            }
+            return parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Parses a level in the Roboyard level format (e.g. "board:16,16;", "h3,0;", "rr1,3;", "tb9,0;").
+     */
+    public static Board parse(String content) {
+        return LevelReader.parse(content);
+    }
+}
@@ -0,0 +1,74 @@
+package roboyard.benchmark;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.KeyMakerInt;
+import driftingdroids.model.KeyMakerLong;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Reproducible robot states (positions of all robots) and their solver keys for the benchmarks.
+ */
+final class RobotStates {
+
+    private RobotStates() {
+    }
+
+    /**
+     * An empty 16x16 board with the robots in the corners (and the center) and a goal for robot 0.
+     */
+    static Board board(int numRobots) {
+        Board board = Board.createBoardFreestyle(null, 16, 16, numRobots);
+        board.removeGoals();
+        int[] positions = {0, 15, 240, 255, 136};
+        for (int robot = 0; robot < numRobots; robot++) {
+            board.setRobot(robot, positions[robot], false);
+        }
+        board.addGoal(7 + 16 * 9, 0, Board.GOAL_CIRCLE);
+        board.setGoal(7 + 16 * 9);
+        return board;
+    }
+
+    /**
+     * Random states with distinct robot positions; robot 0 is the goal robot.
+     */
+    static int[][] random(Board board, int count, long seed) {
+        Random random = new Random(seed);
+        int[][] states = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int[] state = new int[board.getNumRobots()];
+            for (int robot = 0; robot < state.length; robot++) {
+                int position;
+                do {
+                    position = random.nextInt(board.size);
+                } while (contains(state, robot, position));
+                state[robot] = position;
+            }
+            states[i] = state;
+        }
+        return states;
+    }
+
+    static int[] intKeys(Board board, int[][] states, boolean isGoalWildcard) {
+        KeyMakerInt keyMaker = KeyMakerInt.Companion.createInstance(board.getNumRobots(), board.sizeNumBits, isGoalWildcard);
+        int[] keys = new int[states.length];
+        for (int i = 0; i < states.length; i++) {
+            keys[i] = keyMaker.run(states[i]);
+        }
+        return keys;
+    }
+
+    static long[] longKeys(Board board, int[][] states, boolean isGoalWildcard) {
+        KeyMakerLong keyMaker = KeyMakerLong.Companion.createInstance(board.getNumRobots(), board.sizeNumBits, isGoalWildcard);
+        long[] keys = new long[states.length];
+        for (int i = 0; i < states.length; i++) {
+            keys[i] = keyMaker.run(states[i]);
+        }
+        return keys;
+    }
+
+    private static boolean contains(int[] state, int length, int position) {
+        return Arrays.stream(state, 0, length).anyMatch(p -> p == position);
+    }
+}
@@ -0,0 +1,66 @@
+package roboyard.benchmark;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.Logger;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solver.execute() on the bundled levels.
+ *
+ * One operation is one solve; the levels of the range are solved round-robin.
+ * Throughput gives solves per second, SampleTime the latency distribution (percentiles).
+ * Level 140 needs more than a minute and is not in the default ranges
+ * (run it with -Pjmh.levels=140 or through the jmh "levels" parameter).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SolverBenchmark {
+
+    @Param({"1-60", "61-120", "121-139"})
+    public String levels;
+
+    @Param({"1"})
+    public int parallelism;
+
+    private List<Board> boards;
+    private int next;
+    private Logger.Sink sink;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        boards = LevelBoards.load(levels);
+        next = 0;
+        // the solver logs its progress for every solve
+        sink = Logger.getSink();
+        Logger.setSink(Logger.NONE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Logger.setSink(sink);
+    }
+
+    @Benchmark
+    public List<Solution> execute() throws InterruptedException {
+        Board board = boards.get(next);
+        next = (next + 1) % boards.size();
+        return Solver.createInstance(board, parallelism).execute();
+    }
+}
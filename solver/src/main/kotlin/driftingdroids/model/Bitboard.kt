@@ -0,0 +1,155 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2025 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package driftingdroids.model
+
+
+/**
+ * Bitboard representation of walls and robot positions for boards up to 16x16.
+ *
+ *
+ * Every mask is a long[4] of 256 bits, i.e. 16 lines of 16 bits each.
+ * EAST/WEST moves use row-major masks (bit = x + 16 * y) and NORTH/SOUTH
+ * moves use column-major masks (bit = y + 16 * x), so a robot always slides
+ * along the bits of one 16-bit line and its destination is found by a bit-scan
+ * of the walls and robots in front of it.
+ * Moving a robot is an xor of two bits in the robot masks.
+ */
+internal class Bitboard(board: Board) {
+    private val width: Int
+    private val posX: IntArray
+    private val posY: IntArray
+
+    private val wallsEast = LongArray(4) //row-major
+    private val wallsWest = LongArray(4) //row-major
+    private val wallsSouth = LongArray(4) //column-major
+    private val wallsNorth = LongArray(4) //column-major
+    private val robotsRows = LongArray(4) //row-major
+    private val robotsCols = LongArray(4) //column-major
+
+    init {
+        require(isSupported(board)) { "board too large for Bitboard: " + board.width + "x" + board.height }
+        this.width = board.width
+        this.posX = IntArray(board.size) { it % board.width }
+        this.posY = IntArray(board.size) { it / board.width }
+        for (pos in 0..<board.size) {
+            val rowBit = this.posX[pos] + (this.posY[pos] shl 4)
+            val colBit = this.posY[pos] + (this.posX[pos] shl 4)
+            if (true == board.walls[Board.EAST][pos]) {
+                setBit(this.wallsEast, rowBit)
+            }
+            if (true == board.walls[Board.WEST][pos]) {
+                setBit(this.wallsWest, rowBit)
+            }
+            if (true == board.walls[Board.SOUTH][pos]) {
+                setBit(this.wallsSouth, colBit)
+            }
+            if (true == board.walls[Board.NORTH][pos]) {
+                setBit(this.wallsNorth, colBit)
+            }
+        }
+    }
+
+
+    /**
+     * Sets the robot masks to the given state.
+     */
+    fun setRobots(state: IntArray) {
+        this.robotsRows.fill(0L)
+        this.robotsCols.fill(0L)
+        for (pos in state) {
+            this.flipRobot(pos)
+        }
+    }
+
+
+    /**
+     * Moves a robot (push a move); call it again with swapped positions to undo the move (pop).
+     */
+    fun moveRobot(oldPos: Int, newPos: Int) {
+        this.flipRobot(oldPos)
+        this.flipRobot(newPos)
+    }
+
+
+    private fun flipRobot(pos: Int) {
+        val x = this.posX[pos]
+        val y = this.posY[pos]
+        val rowBit = x + (y shl 4)
+        val colBit = y + (x shl 4)
+        this.robotsRows[rowBit ushr 6] = this.robotsRows[rowBit ushr 6] xor (1L shl rowBit)
+        this.robotsCols[colBit ushr 6] = this.robotsCols[colBit ushr 6] xor (1L shl colBit)
+    }
+
+
+    /**
+     * Moves the robot at oldPos in the given direction until it reaches a wall or another robot.
+     * The robot at oldPos must be part of the current robot masks.
+     * @return the new position of the robot
+     */
+    fun slide(oldPos: Int, dir: Int): Int {
+        val x = this.posX[oldPos]
+        val y = this.posY[oldPos]
+        when (dir) {
+            Board.EAST -> {
+                //blocked by an east wall or by a robot at x+1
+                val shift = (y and 3) shl 4
+                val blockers = (line(this.wallsEast, y, shift) or (line(this.robotsRows, y, shift) ushr 1)) and (-1 shl x)
+                return oldPos + Integer.numberOfTrailingZeros(blockers) - x
+            }
+
+            Board.WEST -> {
+                //blocked by a west wall or by a robot at x-1
+                val shift = (y and 3) shl 4
+                val blockers = (line(this.wallsWest, y, shift) or (line(this.robotsRows, y, shift) shl 1)) and ((2 shl x) - 1)
+                return oldPos - x + (31 - Integer.numberOfLeadingZeros(blockers))
+            }
+
+            Board.SOUTH -> {
+                //blocked by a south wall or by a robot at y+1
+                val shift = (x and 3) shl 4
+                val blockers = (line(this.wallsSouth, x, shift) or (line(this.robotsCols, x, shift) ushr 1)) and (-1 shl y)
+                return oldPos + (Integer.numberOfTrailingZeros(blockers) - y) * this.width
+            }
+
+            else -> {
+                //NORTH: blocked by a north wall or by a robot at y-1
+                val shift = (x and 3) shl 4
+                val blockers = (line(this.wallsNorth, x, shift) or (line(this.robotsCols, x, shift) shl 1)) and ((2 shl y) - 1)
+                return oldPos - (y - (31 - Integer.numberOfLeadingZeros(blockers))) * this.width
+            }
+        }
+    }
+
+    companion object {
+        /**
+         * @return true if the board fits into the 16x16 masks
+         */
+        @JvmStatic
+        fun isSupported(board: Board): Boolean {
+            return (board.width <= 16) && (board.height <= 16)
+        }
+
+        private fun setBit(mask: LongArray, bit: Int) {
+            mask[bit ushr 6] = mask[bit ushr 6] or (1L shl bit)
+        }
+
+        // the 16 bits of a row (row-major mask) or column (column-major mask) as an int
+        private fun line(mask: LongArray, index: Int, shift: Int): Int {
+            return (mask[index ushr 2] ushr shift).toInt() and 0xffff
+        }
+    }
+}
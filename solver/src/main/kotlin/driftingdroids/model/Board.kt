@@ -16,18 +16,15 @@
 */
 package driftingdroids.model
 
-import android.os.Build
-import roboyard.logic.core.Constants
-import roboyard.ui.activities.MainActivity
 import java.nio.charset.StandardCharsets
 import java.util.Arrays
-import java.util.Base64
 import java.util.Collections
 import java.util.Formatter
 import java.util.Random
 import java.util.zip.CRC32
 import java.util.zip.Deflater
 import java.util.zip.Inflater
+import kotlin.io.encoding.Base64
 import kotlin.math.min
 
 /**
@@ -375,52 +372,95 @@ class Board private constructor(@JvmField val width: Int, val height: Int, numRo
          * Checks if current board configuration is a solution of 0 or 1 move.
          * @return true if solution, false otherwise
          */
-        get() {
-            for (robo in this.robotPositions.indices) {
-                if ((this.goal!!.robotNumber != robo) && (this.goal!!.robotNumber != -1)) {
-                    continue  // skip because it's not the goal robot
-                }
-                val oldRoboPos = this.robotPositions[robo]
-                if (this.goal!!.position == oldRoboPos) {
-                    return true // already on goal
+        get() = this.isSolution01(this.robotPositions)
+
+    /**
+     * Checks if the given robot positions are a solution of 0 or 1 move:
+     * the goal robot is on the goal, or the goal is at the end of its slide to the wall,
+     * or in front of any robot on the way (the move may go on in this direction).
+     * @param robots positions of all robots
+     * @return true if solution, false otherwise
+     */
+    fun isSolution01(robots: IntArray): Boolean {
+        val wallStops = this.computeWallStops()
+        for (robo in robots.indices) {
+            if ((this.goal!!.robotNumber != robo) && (this.goal!!.robotNumber != -1)) {
+                continue  // skip because it's not the goal robot
+            }
+            val oldRoboPos = robots[robo]
+            if (this.goal!!.position == oldRoboPos) {
+                return true // already on goal
+            }
+            for (dir in 0..3) {
+                val dirIncr = this.directionIncrement[dir]
+                val wallStop = wallStops[dir][oldRoboPos]
+                if (this.goal!!.position == wallStop) {
+                    return true // one move to goal (stopped by wall)
                 }
-                var dir = -1
-                for (dirIncr in this.directionIncrement) {
-                    ++dir
-                    var newRoboPos = oldRoboPos
-                    var prevRoboPos = oldRoboPos
-                    // move the robot until it reaches a wall or another robot.
-                    // NOTE: we rely on the fact that all boards are surrounded
-                    // by outer walls. without the outer walls we would need
-                    // some additional boundary checking here.
-                    while (true) {
-                        if (true == this.walls[dir][newRoboPos]) { // stopped by wall
-                            if (this.goal!!.position == newRoboPos) {
-                                return true // one move to goal
-                            }
-                            break // can't go on
-                        }
-                        if (true == this.isRobotPos(newRoboPos)) { // stopped by robot
-                            if (this.goal!!.position == prevRoboPos) {
-                                return true // one move to goal
-                            }
-                            // go on in this direction
-                        }
-                        prevRoboPos = newRoboPos
-                        newRoboPos += dirIncr
+                // stopped by a robot between start and wall-stop: one move to goal if the goal is in front of it
+                // (every robot on the way is checked, not only the first one)
+                for (roboPos in robots) {
+                    if ((roboPos != wallStop) && (this.goal!!.position == roboPos - dirIncr)
+                        && this.isOnSlide(oldRoboPos, wallStop, roboPos, dir)
+                    ) {
+                        return true // one move to goal
                     }
                 }
             }
-            return false
         }
+        return false
+    }
+
 
-    private fun isRobotPos(position: Int): Boolean {
-        for (roboPos in this.robotPositions) {
-            if (position == roboPos) {
-                return true
+    /**
+     * Computes for every position and direction the position where a robot
+     * stops if it is stopped by walls only (i.e. there are no other robots).
+     * The result is a snapshot of the current walls: compute it again after modifying walls.
+     * @return wall-stop positions [4 directions][width*height]
+     */
+    fun computeWallStops(): Array<IntArray> {
+        val wallStops = Array(4) { IntArray(this.size) }
+        for (dir in 0..3) {
+            val dirIncr = this.directionIncrement[dir]
+            val walls = this.walls[dir]
+            val stops = wallStops[dir]
+            // the stop of a position depends on the stop of its neighbor in this direction,
+            // so go through the positions in the opposite direction.
+            // NOTE: we rely on the fact that all boards are surrounded by outer walls.
+            if (0 < dirIncr) {
+                for (pos in this.size - 1 downTo 0) {
+                    stops[pos] = if (true == walls[pos]) pos else stops[pos + dirIncr]
+                }
+            } else {
+                for (pos in 0..<this.size) {
+                    stops[pos] = if (true == walls[pos]) pos else stops[pos + dirIncr]
+                }
             }
         }
-        return false
+        return wallStops
+    }
+
+    /**
+     * Computes where a robot stops if it moves from position in direction dir:
+     * at the wall, or in front of the first of the robots in the way.
+     * @param wallStops result of computeWallStops()
+     * @param robots positions of all robots (the moving robot may be included)
+     * @return the stop position (equal to position if the robot can't move)
+     */
+    fun slide(wallStops: Array<IntArray>, robots: IntArray, position: Int, dir: Int): Int {
+        var stop = wallStops[dir][position]
+        for (roboPos in robots) {
+            if (this.isOnSlide(position, stop, roboPos, dir)) {
+                stop = roboPos - this.directionIncrement[dir]
+            }
+        }
+        return stop
+    }
+
+    // is position on the straight line from start (excluded) to end (included) in direction dir?
+    private fun isOnSlide(start: Int, end: Int, position: Int, dir: Int): Boolean {
+        val isInRange = if (0 < this.directionIncrement[dir]) ((position > start) && (position <= end)) else ((position < start) && (position >= end))
+        return isInRange && ((0 != (dir and 1)) || (position % this.width == start % this.width))
     }
 
     /**
@@ -861,10 +901,12 @@ class Board private constructor(@JvmField val width: Int, val height: Int, numRo
     }
 
     companion object {
-        val WIDTH_STANDARD: Int = MainActivity.boardSizeX
+        // size of the classic board that is made of four quadrants (createBoardQuadrants),
+        // all other sizes are given explicitly to createBoardFreestyle
+        const val WIDTH_STANDARD: Int = 16
         const val WIDTH_MIN: Int = 3
         const val WIDTH_MAX: Int = 100
-        val HEIGHT_STANDARD: Int = MainActivity.boardSizeY
+        const val HEIGHT_STANDARD: Int = 16
         const val HEIGHT_MIN: Int = 3
         const val HEIGHT_MAX: Int = 100
         const val SIZE_MAX: Int = 4096 // 12 bits
@@ -1033,14 +1075,10 @@ class Board private constructor(@JvmField val width: Int, val height: Int, numRo
                 .addWall(7, 7, "NESW")
         }
 
-        @JvmField
-        val NORTH: Int = Constants.NORTH // up
-        @JvmField
-        val EAST: Int = Constants.EAST // right
-        @JvmField
-        val SOUTH: Int = Constants.SOUTH // down
-        @JvmField
-        val WEST: Int = Constants.WEST // left
+        const val NORTH: Int = 0 // up
+        const val EAST: Int = 1 // right
+        const val SOUTH: Int = 2 // down
+        const val WEST: Int = 3 // left
 
         private val RANDOM = Random()
 
@@ -1381,13 +1419,7 @@ class Board private constructor(@JvmField val width: Int, val height: Int, numRo
                 4 + zip.deflate(zipOutput, 4, zipOutput.size - 4) //skip uncompressed length
             //encode base64
             val b64Input = zipOutput.copyOf(zipOutLen)
-            val b64Output: String
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                b64Output = Base64.getEncoder().encodeToString(b64Input)
-            } else {
-                b64Output =
-                    android.util.Base64.encodeToString(b64Input, android.util.Base64.DEFAULT)
-            }
+            val b64Output = Base64.Default.encode(b64Input)
             //compute CRC of encoded data
             val crc32 = CRC32()
             crc32.update(b64Output.toByteArray(StandardCharsets.UTF_8))
@@ -1415,14 +1447,8 @@ class Board private constructor(@JvmField val width: Int, val height: Int, numRo
                 crc32.update(inputSplit[3]!!.toByteArray(StandardCharsets.UTF_8))
                 require(crc32.getValue() == b64crc) { "data CRC mismatch" }
                 //parse base64 string
-                val b64Output: ByteArray
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                    b64Output =
-                        Base64.getDecoder().decode(inputSplit[3]) //throws IllegalArgumentException
-                } else {
-                    b64Output =
-                        android.util.Base64.decode(inputSplit[3], android.util.Base64.DEFAULT)
-                }
+                //MIME: line breaks are ignored, like android.util.Base64.DEFAULT did before
+                val b64Output = Base64.Mime.decode(inputSplit[3]!!) //throws IllegalArgumentException
                 //unzip/inflate data
                 var unzipLen = 0
                 for (i in 0..3) {
@@ -71,4 +71,35 @@ interface KeyDepthMap {
      * @return number of bytes allocated by this map (approximate)
      */
     fun allocatedBytes(): Long
+
+    /**
+     * Returns the number of bytes of allocatedBytes() that are on the Java heap.
+     * The default implementation keeps all its data structures on the heap.
+     * 
+     * @return number of bytes allocated by this map on the Java heap (approximate)
+     */
+    fun heapBytes(): Long {
+        return this.allocatedBytes()
+    }
+
+    /**
+     * Removes all elements from this map so that it can be used for a new search,
+     * keeping the allocated internal data structures.
+     * The default implementation does not support this and returns false.
+     * 
+     * @param board the board that is to be solved next
+     * @return true if this map is empty now and can be used for the board.
+     * false if the map was not changed and a new instance is needed (e.g. different board size or number of robots).
+     */
+    fun reset(board: Board): Boolean {
+        return false
+    }
+
+    /**
+     * Gives the memory that is allocated outside of the Java heap back to the system
+     * (if the implementation has any); the map must not be used afterwards.
+     * The default implementation does nothing, its memory is freed by the garbage collector.
+     */
+    fun release() {
+    }
 }
@@ -16,6 +16,7 @@
 */
 package driftingdroids.model
 
+import java.io.File
 import kotlin.math.max
 
 /**
@@ -23,6 +24,8 @@ import kotlin.math.max
  */
 object KeyDepthMapFactory {
     private var defaultClazz: Class<out KeyDepthMap?>? = KeyDepthMapTrieSpecial::class.java
+    private var offHeapScratchDirectory: File? = null
+    private var offHeapMaxBytes = KeyDepthMapOffHeap.DEFAULT_MAX_BYTES
 
 
     /**
@@ -35,6 +38,37 @@ object KeyDepthMapFactory {
     }
 
 
+    /**
+     * Returns this factory's default implementation class of KeyDepthMap.
+     */
+    fun getDefaultClass(): Class<out KeyDepthMap?>? {
+        return defaultClazz
+    }
+
+
+    /**
+     * Set where KeyDepthMapOffHeap keeps its nodes and leaves.
+     * 
+     * @param scratchDirectory directory of a memory-mapped scratch file (e.g. the cache directory of the app),
+     * or null for direct ByteBuffers
+     * @param maxBytes limit of the bytes of one map
+     */
+    @JvmOverloads
+    fun setOffHeapOptions(scratchDirectory: File?, maxBytes: Long = KeyDepthMapOffHeap.DEFAULT_MAX_BYTES) {
+        offHeapScratchDirectory = scratchDirectory
+        offHeapMaxBytes = maxBytes
+    }
+
+
+    /**
+     * Returns true if this factory's default implementation class of KeyDepthMap
+     * can be shared by several threads (e.g. the workers of SolverIDDFSParallel).
+     */
+    fun isDefaultClassConcurrent(): Boolean {
+        return KeyDepthMapTrieConcurrent::class.java == defaultClazz
+    }
+
+
     /**
      * Creates a new instance of KeyDepthMap.
      * 
@@ -53,8 +87,14 @@ object KeyDepthMapFactory {
     fun newInstance(board: Board, clazz: Class<out KeyDepthMap?>? = defaultClazz): KeyDepthMap {
         if (KeyDepthMapTrieGeneric::class.java == clazz) {
             return KeyDepthMapTrieGeneric(max(12, board.numRobots * board.sizeNumBits))
+        } else if (KeyDepthMapTrieConcurrent::class.java == clazz) {
+            return KeyDepthMapTrieConcurrent(max(12, board.numRobots * board.sizeNumBits))
         } else if (KeyDepthMapTrieSpecial::class.java == clazz) {
             return KeyDepthMapTrieSpecial.Companion.createInstance(board, true)
+        } else if (KeyDepthMapOpenHash::class.java == clazz) {
+            return KeyDepthMapOpenHash()
+        } else if (KeyDepthMapOffHeap::class.java == clazz) {
+            return KeyDepthMapOffHeap(max(12, board.numRobots * board.sizeNumBits), offHeapMaxBytes, offHeapScratchDirectory)
         } else {
             throw IllegalArgumentException("unknown KeyDepthMap class: " + clazz)
         }
@@ -0,0 +1,411 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2025 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package driftingdroids.model
+
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.IntBuffer
+import java.nio.channels.FileChannel
+import kotlin.math.max
+
+/**
+ * This class is a variant of `KeyDepthMapTrieGeneric` that keeps its
+ * nodes and leaves outside of the Java heap.
+ *
+ *
+ * It uses the same trie layout (including the "compressed branches"), but the
+ * node and leaf arrays are chunks of direct ByteBuffers, or chunks of a memory-mapped
+ * scratch file if a directory is given. The garbage collector neither scans nor moves
+ * them, and they don't count against the heap limit, so a search can store more states
+ * than the heap would hold. Only maxBytes limits the chunks: when it is reached (or the
+ * system has no memory or disk space left), putIfGreater() throws an OutOfMemoryError
+ * like a full heap.
+ *
+ *
+ * The scratch file is deleted right after it is opened, so nothing is left behind if
+ * the process dies; its space is given back by release() (or when the map is collected).
+ * Direct buffers are given back to the system when the map is collected.
+ *
+ * @param keyBits the maximum number of bits used by any key that will be put into the map
+ * @param maxBytes limit of the bytes of all chunks
+ * @param scratchDirectory directory of the memory-mapped scratch file (null: direct ByteBuffers)
+ */
+class KeyDepthMapOffHeap @JvmOverloads constructor(
+    private val keyBits: Int,
+    private val maxBytes: Long = DEFAULT_MAX_BYTES,
+    scratchDirectory: File? = null
+) : KeyDepthMap {
+    private val scratchFile: RandomAccessFile?
+    private val channel: FileChannel?
+    private var mappedBytes = 0L
+
+    private var nodeChunks = arrayOfNulls<IntBuffer>(16)
+    private var numNodeChunks = 0 //allocated
+    private var usedNodeChunks = 0 //in use by this search, the others are reused by the next ones
+    private var nextNode = 0
+    private var nextNodeChunk = 0
+
+    private var leafChunks = arrayOfNulls<ByteBuffer>(16)
+    private var numLeafChunks = 0
+    private var usedLeafChunks = 0
+    private var nextLeaf = 0
+    private var nextLeafChunk = 0
+
+    private val nodeBits = 4
+    private val nodeNumber: Int
+    private val nodeNumberUnCompr: Int
+    private val nodeSize: Int
+    private val nodeMask: Int
+    private val leafBits = 4
+    private val leafSize: Int
+    private val leafMask: Int
+    private var isReleased = false
+
+    init {
+        this.nodeNumber = (keyBits - this.leafBits + (this.nodeBits - 1)) / this.nodeBits
+        this.nodeNumberUnCompr = (keyBits + 8 - 31 + (this.nodeBits - 1)) / this.nodeBits
+        this.nodeSize = 1 shl this.nodeBits
+        this.nodeMask = this.nodeSize - 1
+        this.leafSize = 1 shl this.leafBits
+        this.leafMask = this.leafSize - 1
+
+        if (null == scratchDirectory) {
+            this.scratchFile = null
+            this.channel = null
+        } else {
+            val file = File.createTempFile("keydepthmap", ".tmp", scratchDirectory)
+            this.scratchFile = RandomAccessFile(file, "rw")
+            this.channel = this.scratchFile.channel
+            if (false == file.delete()) {
+                file.deleteOnExit()
+            }
+        }
+        this.clear()
+    }
+
+
+    // empty trie: the root node exists, no leaves yet ("0" is the special value)
+    private fun clear() {
+        this.usedNodeChunks = 0
+        this.nextNode = 0
+        this.nextNodeChunk = 0
+        this.newNode() //root node
+        this.usedLeafChunks = 0
+        this.nextLeaf = this.leafSize //skip leaf "0" because this is the special value
+        this.nextLeafChunk = this.leafSize
+        this.useLeafChunk()
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(int, int)
+     */
+    override fun putIfGreater(key: Int, byteValue: Int): Boolean {
+        return this.putIfGreater(key.toLong() and 0xffffffffL, byteValue) //unsigned, like ushr in the int version of KeyDepthMapTrieGeneric
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, int)
+     */
+    override fun putIfGreater(key: Long, byteValue: Int): Boolean {
+        //root node
+        var key = key
+        var node = this.nodeChunks[0]!!
+        var nidx = key.toInt() and this.nodeMask
+        var nodeIndex: Int
+        var i: Int //used by both for() loops
+        //go through nodes (without compression because (key<<8)+value is greater than "int")
+        i = 1
+        while (i < this.nodeNumberUnCompr) {
+            nodeIndex = node.get(nidx)
+            key = key ushr this.nodeBits
+            if (0 == nodeIndex) {
+                nodeIndex = this.newNode()
+                node.put(nidx, nodeIndex)
+            }
+            node = this.nodeChunks[nodeIndex ushr NODE_CHUNK_SHIFT]!!
+            nidx = (nodeIndex and NODE_CHUNK_MASK) + (key.toInt() and this.nodeMask)
+            ++i
+        }
+        //go through nodes (with compression because (key<<8)+value is inside "int" range now)
+        while (i < this.nodeNumber) {
+            nodeIndex = node.get(nidx)
+            key = key ushr this.nodeBits
+            if (0 == nodeIndex) {
+                // -> node index is null = unused
+                //write current key+value as a "compressed branch" (negative node index)
+                node.put(nidx, ((key.toInt().inv()) shl 8) or byteValue) //negative
+                return true
+            } else if (0 > nodeIndex) {
+                // -> node index is negative = used by a single "compressed branch"
+                val prevKey = (nodeIndex.inv()) shr 8
+                val prevVal = 0xff and nodeIndex
+                //previous and current keys are equal (duplicate key)
+                if (prevKey == key.toInt()) {
+                    if (byteValue > prevVal) {  //putIfGreater
+                        node.put(nidx, (nodeIndex xor prevVal) or byteValue) //negative
+                        return true
+                    }
+                    return false
+                }
+                //previous and current keys are not equal
+                nodeIndex = this.newNode()
+                node.put(nidx, nodeIndex)
+                //push previous "compressed branch" one node further
+                node = this.nodeChunks[nodeIndex ushr NODE_CHUNK_SHIFT]!!
+                nidx = (nodeIndex and NODE_CHUNK_MASK) + (prevKey and this.nodeMask)
+                node.put(nidx, ((prevKey ushr this.nodeBits).inv() shl 8) or prevVal) //negative
+            } else {
+                // -> node index is positive = go to next node
+                node = this.nodeChunks[nodeIndex ushr NODE_CHUNK_SHIFT]!!
+            }
+            nidx = (nodeIndex and NODE_CHUNK_MASK) + (key.toInt() and this.nodeMask)
+            ++i
+        }
+        //get leaf (with compression)
+        var leafIndex = node.get(nidx)
+        key = key ushr this.nodeBits
+        if (0 == leafIndex) {
+            // -> leaf index is null = unused
+            //write current value as a "compressed branch" (negative leaf index)
+            node.put(nidx, ((key.toInt().inv()) shl 8) or byteValue) //negative
+            return true
+        } else if (0 > leafIndex) {
+            // -> leaf index is negative = used by a single "compressed branch"
+            val prevKey = (leafIndex.inv()) shr 8
+            val prevVal = 0xff and leafIndex
+            //previous and current keys are equal (duplicate key)
+            if (prevKey == key.toInt()) {
+                if (byteValue > prevVal) {  //putIfGreater
+                    node.put(nidx, (leafIndex xor prevVal) or byteValue) //negative
+                    return true
+                }
+                return false
+            }
+            //previous and current keys are not equal
+            leafIndex = this.newLeaf()
+            node.put(nidx, leafIndex)
+            //push the previous "compressed branch" further to the leaf
+            val lidx = (leafIndex and LEAF_CHUNK_MASK) + (prevKey and this.leafMask)
+            this.leafChunks[leafIndex ushr LEAF_CHUNK_SHIFT]!!.put(lidx, prevVal.toByte())
+        }
+        val leaf = this.leafChunks[leafIndex ushr LEAF_CHUNK_SHIFT]!!
+        val lidx = (leafIndex and LEAF_CHUNK_MASK) + (key.toInt() and this.leafMask)
+        val prevVal = leaf.get(lidx)
+        if (byteValue > prevVal) {  //putIfGreater
+            leaf.put(lidx, byteValue.toByte())
+            return true
+        }
+        return false
+    }
+
+
+    private fun newNode(): Int {
+        if (this.nextNode >= this.nextNodeChunk) {
+            if (this.usedNodeChunks == this.numNodeChunks) {
+                if (this.nodeChunks.size <= this.numNodeChunks) {
+                    this.nodeChunks = this.nodeChunks.copyOf(this.nodeChunks.size shl 1)
+                }
+                this.nodeChunks[this.numNodeChunks++] = this.allocate(NODE_CHUNK_SIZE * 4).asIntBuffer()
+            } else {
+                //reused chunk of an earlier search
+                val chunk = this.nodeChunks[this.usedNodeChunks]!!
+                var pos = 0
+                while (pos < NODE_CHUNK_SIZE) {
+                    chunk.position(pos)
+                    chunk.put(ZERO_INTS)
+                    pos += ZERO_INTS.size
+                }
+                chunk.clear()
+            }
+            ++this.usedNodeChunks
+            this.nextNodeChunk += NODE_CHUNK_SIZE
+        }
+        val nodeIndex = this.nextNode
+        this.nextNode += this.nodeSize
+        return nodeIndex
+    }
+
+
+    private fun newLeaf(): Int {
+        if (this.nextLeaf >= this.nextLeafChunk) {
+            this.useLeafChunk()
+            this.nextLeafChunk += LEAF_CHUNK_SIZE
+        }
+        val leafIndex = this.nextLeaf
+        this.nextLeaf += this.leafSize
+        return leafIndex
+    }
+
+
+    // the next leaf chunk, filled with DEFAULT_VALUE
+    private fun useLeafChunk() {
+        val chunk: ByteBuffer
+        if (this.usedLeafChunks == this.numLeafChunks) {
+            if (this.leafChunks.size <= this.numLeafChunks) {
+                this.leafChunks = this.leafChunks.copyOf(this.leafChunks.size shl 1)
+            }
+            chunk = this.allocate(LEAF_CHUNK_SIZE)
+            this.leafChunks[this.numLeafChunks++] = chunk
+        } else {
+            chunk = this.leafChunks[this.usedLeafChunks]!!
+        }
+        var pos = 0
+        while (pos < LEAF_CHUNK_SIZE) {
+            chunk.position(pos)
+            chunk.put(DEFAULT_VALUES)
+            pos += DEFAULT_VALUES.size
+        }
+        chunk.clear()
+        ++this.usedLeafChunks
+    }
+
+
+    private fun allocate(bytes: Int): ByteBuffer {
+        check(false == this.isReleased) { "KeyDepthMapOffHeap is released" }
+        if (this.allocatedBytes() + bytes > this.maxBytes) {
+            throw OutOfMemoryError("KeyDepthMapOffHeap: limit of " + (this.maxBytes shr 20) + "MB reached")
+        }
+        val buffer: ByteBuffer
+        if (null == this.channel) {
+            buffer = ByteBuffer.allocateDirect(bytes)
+        } else {
+            try {
+                buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, this.mappedBytes, bytes.toLong())
+            } catch (e: IOException) {
+                val oom = OutOfMemoryError("KeyDepthMapOffHeap: scratch file: " + e.message)
+                oom.initCause(e)
+                throw oom
+            }
+            this.mappedBytes += bytes
+        }
+        return buffer.order(ByteOrder.nativeOrder())
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#size()
+     */
+    override fun size(): Int {
+        var size = 0
+        for (i in 0..<this.nodeSize) {
+            val nextNodeIndex = this.nodeChunks[0]!!.get(i)
+            if (0 > nextNodeIndex) {
+                ++size
+            } else if (0 < nextNodeIndex) {
+                size += this.sizeRecursion(2, nextNodeIndex)
+            }
+        }
+        return size
+    }
+
+    private fun sizeRecursion(thisNodeDepth: Int, thisNodeIndex: Int): Int {
+        var size = 0
+        val node = this.nodeChunks[thisNodeIndex ushr NODE_CHUNK_SHIFT]!!
+        var nidx = thisNodeIndex and NODE_CHUNK_MASK
+        for (i in 0..<this.nodeSize) {
+            val nextNodeIndex = node.get(nidx++)
+            if (0 > nextNodeIndex) {
+                // -> node index is negative = used by a single "compressed branch"
+                ++size
+            } else if (0 < nextNodeIndex) {
+                if (thisNodeDepth < this.nodeNumber) {
+                    // -> node index is positive = go to next node
+                    size += this.sizeRecursion(thisNodeDepth + 1, nextNodeIndex)
+                } else {
+                    // -> node index is positive = go to leaf node
+                    val leaf = this.leafChunks[nextNodeIndex ushr LEAF_CHUNK_SHIFT]!!
+                    var lidx = nextNodeIndex and LEAF_CHUNK_MASK
+                    for (j in 0..<this.leafSize) {
+                        if (DEFAULT_VALUE != leaf.get(lidx++)) {
+                            ++size
+                        }
+                    }
+                }
+            }
+        }
+        return size
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedBytes()
+     */
+    override fun allocatedBytes(): Long {
+        return this.numNodeChunks * NODE_CHUNK_SIZE * 4L + this.numLeafChunks.toLong() * LEAF_CHUNK_SIZE
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#heapBytes()
+     */
+    override fun heapBytes(): Long {
+        //only the arrays of chunk references
+        return (this.nodeChunks.size + this.leafChunks.size) * 8L
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#reset(Board)
+     */
+    override fun reset(board: Board): Boolean {
+        if (this.isReleased || (max(12, board.numRobots * board.sizeNumBits) != this.keyBits)) {
+            return false
+        }
+        //the chunks are cleared again when they are used
+        this.clear()
+        return true
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#release()
+     */
+    override fun release() {
+        this.isReleased = true
+        this.nodeChunks = arrayOfNulls(1)
+        this.leafChunks = arrayOfNulls(1)
+        this.numNodeChunks = 0
+        this.numLeafChunks = 0
+        try {
+            this.scratchFile?.close() //the mapped chunks stay valid until they are collected
+        } catch (ignored: IOException) {
+        }
+    }
+
+
+    companion object {
+        val DEFAULT_VALUE: Byte = -1 //unsigned byte: 255, like KeyDepthMapTrieGeneric
+
+        /** default limit of the bytes of all chunks */
+        const val DEFAULT_MAX_BYTES: Long = 1L shl 30
+
+        private const val NODE_CHUNK_SHIFT = 18 //1MB of ints
+        private const val NODE_CHUNK_SIZE = 1 shl NODE_CHUNK_SHIFT
+        private const val NODE_CHUNK_MASK = NODE_CHUNK_SIZE - 1
+        private const val LEAF_CHUNK_SHIFT = 20 //1MB
+        private const val LEAF_CHUNK_SIZE = 1 shl LEAF_CHUNK_SHIFT
+        private const val LEAF_CHUNK_MASK = LEAF_CHUNK_SIZE - 1
+
+        private val ZERO_INTS = IntArray(1 shl 12)
+        private val DEFAULT_VALUES = ByteArray(1 shl 14) { DEFAULT_VALUE }
+    }
+}
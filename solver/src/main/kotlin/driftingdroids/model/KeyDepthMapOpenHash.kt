@@ -0,0 +1,246 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2025 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package driftingdroids.model
+
+import java.util.Arrays
+
+/**
+ * This class is a `KeyDepthMap` based on a hash table with open addressing
+ * (linear probing) in a `long[]` of keys and a `byte[]` of values.
+ *
+ *
+ * A key and its value are found in one or a few neighbouring slots, instead of
+ * one node array per level of a trie, so the map has a good cache locality also for
+ * the 64-bit keys of 5 robots. The capacity is a power of two and doubles when the
+ * table is 70% full. The resize is incremental: the entries of the old table are
+ * moved into the new one a few slots at a time by the following putIfGreater() calls,
+ * so no single call has to copy the whole table. While a resize runs, both tables are
+ * allocated and a key that is not in the new table is looked up in the old one.
+ *
+ *
+ * The value 0 marks an empty slot, so it is never stored: putIfGreater(key, 0)
+ * returns false (the solver stores depths of at least 1).
+ */
+class KeyDepthMapOpenHash @JvmOverloads constructor(initialCapacity: Int = INITIAL_CAPACITY) : KeyDepthMap {
+    private var keys: LongArray
+    private var values: ByteArray
+    private var mask: Int
+    private var shift: Int
+    private var threshold: Int
+    private var size = 0
+
+    // the table of a running resize, its slots below "moved" are in the new table already
+    private var oldKeys: LongArray? = null
+    private var oldValues: ByteArray? = null
+    private var moved = 0
+
+    init {
+        require((initialCapacity >= 2) && (0 == (initialCapacity and (initialCapacity - 1)))) { "capacity must be a power of two: $initialCapacity" }
+        this.keys = LongArray(initialCapacity)
+        this.values = ByteArray(initialCapacity)
+        this.mask = initialCapacity - 1
+        this.shift = 64 - Integer.numberOfTrailingZeros(initialCapacity)
+        this.threshold = thresholdOf(initialCapacity)
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(int, int)
+     */
+    override fun putIfGreater(key: Int, byteValue: Int): Boolean {
+        return this.putIfGreater(key.toLong() and 0xffffffffL, byteValue)
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, int)
+     */
+    override fun putIfGreater(key: Long, byteValue: Int): Boolean {
+        if (0 == byteValue) {
+            return false
+        }
+        val keys = this.keys
+        val values = this.values
+        var slot = this.slotOf(key)
+        while (true) {
+            val value = values[slot].toInt() and 0xff
+            if (0 == value) {
+                break
+            }
+            if (keys[slot] == key) {
+                if (byteValue <= value) {
+                    return false
+                }
+                values[slot] = byteValue.toByte()
+                return true
+            }
+            slot = (slot + 1) and this.mask
+        }
+        //not in the table: a running resize may not have moved it yet
+        var isNewKey = true
+        if (null != this.oldKeys) {
+            val oldValue = this.getOld(key)
+            if (byteValue <= oldValue) {
+                return false
+            }
+            //the old entry is moved later, and keeps the greater value of this one
+            isNewKey = (0 == oldValue)
+        }
+        keys[slot] = key
+        values[slot] = byteValue.toByte()
+        if (isNewKey) {
+            ++this.size
+        }
+        if (null != this.oldKeys) {
+            this.moveOldSlots(MOVE_SLOTS)
+        } else if (this.size > this.threshold) {
+            this.startResize()
+        }
+        return true
+    }
+
+
+    // value of the key in the old table (0: not found)
+    private fun getOld(key: Long): Int {
+        val oldKeys = this.oldKeys!!
+        val oldValues = this.oldValues!!
+        val oldMask = oldKeys.size - 1
+        var slot = (hash(key) ushr (64 - Integer.numberOfTrailingZeros(oldKeys.size))).toInt()
+        while (true) {
+            val value = oldValues[slot].toInt() and 0xff
+            if (0 == value) {
+                return 0
+            }
+            if (oldKeys[slot] == key) {
+                return value
+            }
+            slot = (slot + 1) and oldMask
+        }
+    }
+
+
+    private fun startResize() {
+        val capacity = this.keys.size * 2
+        require(capacity > 0) { "KeyDepthMapOpenHash is full" }
+        //allocate first: an OutOfMemoryError leaves the map unchanged
+        val newKeys = LongArray(capacity)
+        val newValues = ByteArray(capacity)
+        this.oldKeys = this.keys
+        this.oldValues = this.values
+        this.moved = 0
+        this.keys = newKeys
+        this.values = newValues
+        this.mask = capacity - 1
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity)
+        this.threshold = thresholdOf(capacity)
+    }
+
+
+    // move the entries of the next slots of the old table into the new table
+    private fun moveOldSlots(numSlots: Int) {
+        val oldKeys = this.oldKeys!!
+        val oldValues = this.oldValues!!
+        val end = minOf(oldKeys.size, this.moved + numSlots)
+        for (oldSlot in this.moved until end) {
+            val value = oldValues[oldSlot].toInt() and 0xff
+            if (0 != value) {
+                this.putMoved(oldKeys[oldSlot], value)
+            }
+        }
+        this.moved = end
+        if (end == oldKeys.size) {
+            this.oldKeys = null
+            this.oldValues = null
+        }
+    }
+
+
+    // insert an entry of the old table; the key may be in the new table with a greater value
+    private fun putMoved(key: Long, byteValue: Int) {
+        var slot = this.slotOf(key)
+        while (true) {
+            val value = this.values[slot].toInt() and 0xff
+            if (0 == value) {
+                this.keys[slot] = key
+                this.values[slot] = byteValue.toByte()
+                return
+            }
+            if (this.keys[slot] == key) {
+                if (byteValue > value) {
+                    this.values[slot] = byteValue.toByte()
+                }
+                return
+            }
+            slot = (slot + 1) and this.mask
+        }
+    }
+
+
+    private fun slotOf(key: Long): Int {
+        return (hash(key) ushr this.shift).toInt()
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#size()
+     */
+    override fun size(): Int {
+        return this.size
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedBytes()
+     */
+    override fun allocatedBytes(): Long {
+        val oldSlots = this.oldKeys?.size ?: 0
+        return (this.keys.size.toLong() + oldSlots) * (8 + 1)
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#reset(Board)
+     */
+    override fun reset(board: Board): Boolean {
+        //the keys don't depend on the board; only the values mark used slots
+        this.oldKeys = null
+        this.oldValues = null
+        this.moved = 0
+        Arrays.fill(this.values, 0.toByte())
+        this.size = 0
+        return true
+    }
+
+
+    companion object {
+        const val INITIAL_CAPACITY: Int = 1 shl 16
+        private const val LOAD_PERCENT = 70
+
+        // old slots moved per insert: the old table is moved within capacity / 8 inserts,
+        // long before these inserts can fill the new (twice as large) table up to its threshold
+        private const val MOVE_SLOTS = 8
+
+        private fun thresholdOf(capacity: Int): Int {
+            return (capacity.toLong() * LOAD_PERCENT / 100).toInt()
+        }
+
+        // Fibonacci hashing: the high bits of the product are well mixed
+        private fun hash(key: Long): Long {
+            return key * -0x61c8864680b583ebL // golden ratio multiplier
+        }
+    }
+}
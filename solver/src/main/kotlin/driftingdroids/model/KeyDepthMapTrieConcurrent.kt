@@ -0,0 +1,314 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2025 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package driftingdroids.model
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicIntegerArray
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+/**
+ * This class is a thread-safe variant of `KeyDepthMapTrieGeneric`
+ * that can be shared by the worker threads of a multi-threaded solver.
+ *
+ *
+ * It uses the same trie layout (including the "compressed branches"),
+ * but all updates are lock-free: new nodes and leaves are allocated
+ * by atomically incrementing the next free index, they are linked into
+ * the trie by a compare-and-set of the parent's node index, and the
+ * depth byte of a key is updated by a compare-and-set loop (atomic max).
+ * A node or leaf that loses a compare-and-set race is simply left unused.
+ */
+class KeyDepthMapTrieConcurrent(keyBits: Int) : KeyDepthMap {
+    private val rootNode: AtomicIntegerArray
+    private val nodeArrays: AtomicReferenceArray<AtomicIntegerArray?>
+    private val nextNode: AtomicInteger
+
+    private val leafArrays: AtomicReferenceArray<AtomicIntegerArray?>
+    private val nextLeaf: AtomicInteger
+
+    private val nodeBits = 4
+    private val nodeNumber: Int
+    private val nodeNumberUnCompr: Int
+    private val nodeSize: Int
+    private val nodeMask: Int
+    private val leafBits = 4
+    private val leafSize: Int
+    private val leafMask: Int
+
+
+    /**
+     * Constructs an empty map that is tuned to the expected bit-size of keys.
+     *
+     * @param keyBits the maximum number of bits used by any key that will be put into the map.
+     * (e.g. specify 32 if your keys are of type <tt>int</tt>, or specify a lower number
+     * if you are sure that your application uses only a subset of all <tt>int</tt> keys)
+     */
+    init {
+        this.nodeNumber = (keyBits - this.leafBits + (this.nodeBits - 1)) / this.nodeBits
+        this.nodeNumberUnCompr = (keyBits + 8 - 31 + (this.nodeBits - 1)) / this.nodeBits
+        this.nodeSize = 1 shl this.nodeBits
+        this.nodeMask = this.nodeSize - 1
+        this.leafSize = 1 shl this.leafBits
+        this.leafMask = this.leafSize - 1
+
+        this.nodeArrays = AtomicReferenceArray<AtomicIntegerArray?>(MAX_ARRAYS)
+        this.rootNode = AtomicIntegerArray(NODE_ARRAY_SIZE)
+        this.nodeArrays.set(0, this.rootNode)
+        this.nextNode = AtomicInteger(this.nodeSize) //root node already exists
+
+        this.leafArrays = AtomicReferenceArray<AtomicIntegerArray?>(MAX_ARRAYS)
+        this.nextLeaf = AtomicInteger(this.leafSize) //skip leaf "0" because this is the special value
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(int, int)
+     */
+    override fun putIfGreater(key: Int, byteValue: Int): Boolean {
+        return this.putIfGreater(key.toLong() and 0xffffffffL, byteValue) //unsigned, like ushr in the int version of KeyDepthMapTrieGeneric
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, int)
+     */
+    override fun putIfGreater(key: Long, byteValue: Int): Boolean {
+        //root node
+        var key = key
+        var nodeArray = this.rootNode
+        var nidx = key.toInt() and this.nodeMask
+        var i: Int //used by both for() loops
+        //go through nodes (without compression because (key<<8)+value is greater than "int")
+        i = 1
+        while (i < this.nodeNumberUnCompr) {
+            var nodeIndex = nodeArray.get(nidx)
+            key = key ushr this.nodeBits
+            if (0 == nodeIndex) {
+                //create a new node and link it, unless another thread was faster
+                val newNodeIndex = this.newNode()
+                nodeIndex = if (nodeArray.compareAndSet(nidx, 0, newNodeIndex)) newNodeIndex else nodeArray.get(nidx)
+            }
+            nodeArray = this.nodeArrays.get(nodeIndex ushr NODE_ARRAY_SHIFT)!!
+            nidx = (nodeIndex and NODE_ARRAY_MASK) + (key.toInt() and this.nodeMask)
+            ++i
+        }
+        //go through nodes (with compression because (key<<8)+value is inside "int" range now)
+        while (i < this.nodeNumber) {
+            key = key ushr this.nodeBits
+            val intKey = key.toInt()
+            while (true) {
+                val nodeIndex = nodeArray.get(nidx)
+                if (0 == nodeIndex) {
+                    // -> node index is null = unused
+                    //write current key+value as a "compressed branch" (negative node index)
+                    if (nodeArray.compareAndSet(nidx, 0, ((intKey.inv()) shl 8) or byteValue)) {
+                        return true
+                    }
+                } else if (0 > nodeIndex) {
+                    // -> node index is negative = used by a single "compressed branch"
+                    val prevKey = (nodeIndex.inv()) shr 8
+                    val prevVal = 0xff and nodeIndex
+                    //previous and current keys are equal (duplicate key)
+                    if (prevKey == intKey) {
+                        if (byteValue <= prevVal) {
+                            return false
+                        }
+                        if (nodeArray.compareAndSet(nidx, nodeIndex, (nodeIndex xor prevVal) or byteValue)) {
+                            return true
+                        }
+                    } else {
+                        //previous and current keys are not equal
+                        //create a new node, push previous "compressed branch" into it and then link it
+                        val newNodeIndex = this.newNode()
+                        val newNodeArray = this.nodeArrays.get(newNodeIndex ushr NODE_ARRAY_SHIFT)!!
+                        newNodeArray.set(
+                            (newNodeIndex and NODE_ARRAY_MASK) + (prevKey and this.nodeMask),
+                            ((prevKey ushr this.nodeBits).inv() shl 8) or prevVal //negative
+                        )
+                        if (nodeArray.compareAndSet(nidx, nodeIndex, newNodeIndex)) {
+                            nodeArray = newNodeArray
+                            nidx = (newNodeIndex and NODE_ARRAY_MASK) + (intKey and this.nodeMask)
+                            break
+                        }
+                    }
+                } else {
+                    // -> node index is positive = go to next node
+                    nodeArray = this.nodeArrays.get(nodeIndex ushr NODE_ARRAY_SHIFT)!!
+                    nidx = (nodeIndex and NODE_ARRAY_MASK) + (intKey and this.nodeMask)
+                    break
+                }
+            }
+            ++i
+        }
+        //get leaf (with compression)
+        key = key ushr this.nodeBits
+        val intKey = key.toInt()
+        var leafIndex: Int
+        while (true) {
+            leafIndex = nodeArray.get(nidx)
+            if (0 == leafIndex) {
+                // -> leaf index is null = unused
+                //write current value as a "compressed branch" (negative leaf index)
+                if (nodeArray.compareAndSet(nidx, 0, ((intKey.inv()) shl 8) or byteValue)) {
+                    return true
+                }
+            } else if (0 > leafIndex) {
+                // -> leaf index is negative = used by a single "compressed branch"
+                val prevKey = (leafIndex.inv()) shr 8
+                val prevVal = 0xff and leafIndex
+                //previous and current keys are equal (duplicate key)
+                if (prevKey == intKey) {
+                    if (byteValue <= prevVal) {
+                        return false
+                    }
+                    if (nodeArray.compareAndSet(nidx, leafIndex, (leafIndex xor prevVal) or byteValue)) {
+                        return true
+                    }
+                } else {
+                    //previous and current keys are not equal
+                    //create a new leaf, push the previous "compressed branch" into it and then link it
+                    val newLeafIndex = this.newLeaf()
+                    this.setLeafValue(newLeafIndex + (prevKey and this.leafMask), prevVal)
+                    if (nodeArray.compareAndSet(nidx, leafIndex, newLeafIndex)) {
+                        leafIndex = newLeafIndex
+                        break
+                    }
+                }
+            } else {
+                break
+            }
+        }
+        //atomic max-update of the value byte
+        val leafArray = this.leafArrays.get(leafIndex ushr LEAF_ARRAY_SHIFT)!!
+        val lidx = (leafIndex and LEAF_ARRAY_MASK) + (intKey and this.leafMask)
+        val widx = lidx ushr 2
+        val shift = (lidx and 3) shl 3
+        while (true) {
+            val word = leafArray.get(widx)
+            val prevVal = (word ushr shift) and 0xff
+            if ((DEFAULT_VALUE != prevVal) && (byteValue <= prevVal)) {
+                return false
+            }
+            if (leafArray.compareAndSet(widx, word, (word and (0xff shl shift).inv()) or (byteValue shl shift))) {
+                return true
+            }
+        }
+    }
+
+
+    private fun newNode(): Int {
+        val nodeIndex = this.nextNode.getAndAdd(this.nodeSize)
+        if (0 > nodeIndex) {
+            throw OutOfMemoryError("KeyDepthMapTrieConcurrent: no more node indexes")
+        }
+        val arrayIndex = nodeIndex ushr NODE_ARRAY_SHIFT
+        if (null == this.nodeArrays.get(arrayIndex)) {
+            this.nodeArrays.compareAndSet(arrayIndex, null, AtomicIntegerArray(NODE_ARRAY_SIZE))
+        }
+        return nodeIndex
+    }
+
+
+    private fun newLeaf(): Int {
+        val leafIndex = this.nextLeaf.getAndAdd(this.leafSize)
+        if (0 > leafIndex) {
+            throw OutOfMemoryError("KeyDepthMapTrieConcurrent: no more leaf indexes")
+        }
+        val arrayIndex = leafIndex ushr LEAF_ARRAY_SHIFT
+        if (null == this.leafArrays.get(arrayIndex)) {
+            val values = IntArray(LEAF_ARRAY_SIZE ushr 2)
+            values.fill(-1) //all bytes are DEFAULT_VALUE
+            this.leafArrays.compareAndSet(arrayIndex, null, AtomicIntegerArray(values))
+        }
+        return leafIndex
+    }
+
+
+    // only used for a new leaf that is not yet visible to other threads
+    private fun setLeafValue(lidx: Int, byteValue: Int) {
+        val leafArray = this.leafArrays.get(lidx ushr LEAF_ARRAY_SHIFT)!!
+        val widx = (lidx and LEAF_ARRAY_MASK) ushr 2
+        val shift = (lidx and 3) shl 3
+        leafArray.set(widx, (leafArray.get(widx) and (0xff shl shift).inv()) or (byteValue shl shift))
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#size()
+     */
+    override fun size(): Int {
+        return this.sizeRecursion(1, 0)
+    }
+
+    private fun sizeRecursion(thisNodeDepth: Int, thisNodeIndex: Int): Int {
+        var size = 0
+        val nodeArray = this.nodeArrays.get(thisNodeIndex ushr NODE_ARRAY_SHIFT)!!
+        var nidx = thisNodeIndex and NODE_ARRAY_MASK
+        var i = 0
+        while (this.nodeSize > i) {
+            val nextNodeIndex = nodeArray.get(nidx)
+            if (0 > nextNodeIndex) {
+                // -> node index is negative = used by a single "compressed branch"
+                ++size
+            } else if (0 < nextNodeIndex) {
+                if (thisNodeDepth < this.nodeNumber) {
+                    // -> node index is positive = go to next node
+                    size += this.sizeRecursion(thisNodeDepth + 1, nextNodeIndex)
+                } else {
+                    // -> node index is positive = go to leaf node
+                    for (j in 0..<this.leafSize) {
+                        if (DEFAULT_VALUE != this.getLeafValue(nextNodeIndex + j)) {
+                            ++size
+                        }
+                    }
+                }
+            }
+            ++i
+            ++nidx
+        }
+        return size
+    }
+
+    private fun getLeafValue(lidx: Int): Int {
+        val leafArray = this.leafArrays.get(lidx ushr LEAF_ARRAY_SHIFT)!!
+        return (leafArray.get((lidx and LEAF_ARRAY_MASK) ushr 2) ushr ((lidx and 3) shl 3)) and 0xff
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedBytes()
+     */
+    override fun allocatedBytes(): Long {
+        //all arrays up to the next free index are allocated (approximately: ignore allocations in progress)
+        val numNodeArrays = (this.nextNode.get().toLong() and 0xffffffffL).shr(NODE_ARRAY_SHIFT) + 1
+        val nextLeaf = this.nextLeaf.get().toLong() and 0xffffffffL
+        val numLeafArrays = if (this.leafSize >= nextLeaf) 0L else (nextLeaf - 1).shr(LEAF_ARRAY_SHIFT) + 1
+        return (numNodeArrays * NODE_ARRAY_SIZE * 4L) + (numLeafArrays * LEAF_ARRAY_SIZE)
+    }
+
+    companion object {
+        const val DEFAULT_VALUE: Int = 0xff //unsigned byte: 255
+
+        private const val NODE_ARRAY_SHIFT = 16
+        private const val NODE_ARRAY_SIZE = 1 shl NODE_ARRAY_SHIFT
+        private const val NODE_ARRAY_MASK: Int = NODE_ARRAY_SIZE - 1
+        private const val LEAF_ARRAY_SHIFT = 16 //leaf index is counted in bytes
+        private const val LEAF_ARRAY_SIZE = 1 shl LEAF_ARRAY_SHIFT
+        private const val LEAF_ARRAY_MASK: Int = LEAF_ARRAY_SIZE - 1
+        private const val MAX_ARRAYS = 1 shl (31 - 16) //node and leaf indexes are positive ints
+    }
+}
@@ -16,6 +16,7 @@
 */
 package driftingdroids.model
 
+import java.util.Arrays
 import kotlin.concurrent.Volatile
 import kotlin.math.max
 
@@ -50,6 +51,11 @@ open class KeyDepthMapTrieSpecial private constructor(board: Board) : KeyDepthMa
     protected var nextLeaf: Int
     protected var nextLeafArray: Int
 
+    // nodeArrays[numNodeArrays until freeNodeArrays] and leafArrays[numLeafArrays until freeLeafArrays]
+    // are allocated already and filled with zeros (preallocated, or kept by reset())
+    protected var freeNodeArrays: Int
+    protected var freeLeafArrays: Int
+
     protected val nodeNumber: Int
     protected val nodeNumberUnCompr: Int
     protected val nodeShift: Int
@@ -74,29 +80,8 @@ open class KeyDepthMapTrieSpecial private constructor(board: Board) : KeyDepthMa
 
     init {
         this.nodeSizeLookup = IntArray(board.size)
-        for (i in this.nodeSizeLookup.indices) {
-            this.nodeSizeLookup[i] = board.size - 1 - i
-        }
         this.elementLookup = IntArray(board.size)
-        for (i in this.elementLookup.indices) {
-            this.elementLookup[i] = i
-        }
-        for (i in 0..<board.size) {
-            if (true == board.isObstacle(i)) {
-                for (j in 0..<i) {
-                    this.nodeSizeLookup[j] -= 1
-                }
-                for (j in i..<this.elementLookup.size) {
-                    this.elementLookup[j] -= 1
-                }
-            }
-        }
-        for (i in 0..<board.size) {
-            if (true == board.isObstacle(i)) {
-                this.nodeSizeLookup[i] = Int.MIN_VALUE
-                this.elementLookup[i] = Int.MIN_VALUE
-            }
-        }
+        this.initLookups(board)
         val numRobots = board.numRobots - (if (board.isSolution01) 1 else 0)
         this.nodeNumber = numRobots - 1
         this.nodeNumberUnCompr =
@@ -109,9 +94,10 @@ open class KeyDepthMapTrieSpecial private constructor(board: Board) : KeyDepthMa
         this.maxNodeArrays = max(16, ((maxHeap / 4) / (NODE_ARRAY_SIZE * 4L)).toInt())
         this.maxLeafArrays = max(16, ((maxHeap / 10) / LEAF_ARRAY_SIZE).toInt())
 
-        this.nodeArrays = Array(64) { IntArray(NODE_ARRAY_SIZE) }
+        this.nodeArrays = Array(INITIAL_ARRAYS) { IntArray(NODE_ARRAY_SIZE) }
         this.rootNode = this.nodeArrays[0]!!
         this.numNodeArrays = 1
+        this.freeNodeArrays = INITIAL_ARRAYS
         this.nextNode = board.size //root node already exists
         this.nextNodeArray = NODE_ARRAY_SIZE //first array already exists
 
@@ -120,20 +106,51 @@ open class KeyDepthMapTrieSpecial private constructor(board: Board) : KeyDepthMa
         this.leafNodeSize = this.leafNodeMask + 1
         this.leafSize = 1 shl (board.sizeNumBits - this.leafNodeShift)
         this.leafMask = this.leafSize - 1
-        this.leafArrays = Array(64) { ByteArray(LEAF_ARRAY_SIZE) }
+        this.leafArrays = Array(INITIAL_ARRAYS) { ByteArray(LEAF_ARRAY_SIZE) }
         this.numLeafArrays = 0
+        this.freeLeafArrays = INITIAL_ARRAYS
         this.nextLeaf =
             this.leafSize //no leaves yet, but skip leaf "0" because this is the special value
         this.nextLeafArray = 0 //no leaf arrays yet
     }
 
 
+    // node sizes and element indexes of the board positions (obstacles are skipped)
+    private fun initLookups(board: Board) {
+        for (i in this.nodeSizeLookup.indices) {
+            this.nodeSizeLookup[i] = board.size - 1 - i
+        }
+        for (i in this.elementLookup.indices) {
+            this.elementLookup[i] = i
+        }
+        for (i in 0..<board.size) {
+            if (true == board.isObstacle(i)) {
+                for (j in 0..<i) {
+                    this.nodeSizeLookup[j] -= 1
+                }
+                for (j in i..<this.elementLookup.size) {
+                    this.elementLookup[j] -= 1
+                }
+            }
+        }
+        for (i in 0..<board.size) {
+            if (true == board.isObstacle(i)) {
+                this.nodeSizeLookup[i] = Int.MIN_VALUE
+                this.elementLookup[i] = Int.MIN_VALUE
+            }
+        }
+    }
+
+
     // Central allocation methods with hard limits to prevent OOM
     protected fun tryAllocateNodeArray(): IntArray? {
         if (this.numNodeArrays >= this.maxNodeArrays) {
             this.allocationLimitReached = true
             return null
         }
+        if (this.numNodeArrays < this.freeNodeArrays) {
+            return this.nodeArrays[this.numNodeArrays]
+        }
         try {
             return IntArray(NODE_ARRAY_SIZE)
         } catch (oom: OutOfMemoryError) {
@@ -147,6 +164,9 @@ open class KeyDepthMapTrieSpecial private constructor(board: Board) : KeyDepthMa
             this.allocationLimitReached = true
             return null
         }
+        if (this.numLeafArrays < this.freeLeafArrays) {
+            return this.leafArrays[this.numLeafArrays]
+        }
         try {
             return ByteArray(LEAF_ARRAY_SIZE)
         } catch (oom: OutOfMemoryError) {
@@ -548,16 +568,47 @@ open class KeyDepthMapTrieSpecial private constructor(board: Board) : KeyDepthMa
      */
     override fun allocatedBytes(): Long {
         var result = (this.nodeArrays.size + this.leafArrays.size) * 8L
-        for (i in 0..<this.numNodeArrays) {
+        //the preallocated arrays and the ones kept by reset() are on the heap as well
+        for (i in 0..<max(this.numNodeArrays, this.freeNodeArrays)) {
             result += this.nodeArrays[i].size * 4L
         }
-        for (i in 0..<this.numLeafArrays) {
+        for (i in 0..<max(this.numLeafArrays, this.freeLeafArrays)) {
             result += this.leafArrays[i].size.toLong()
         }
         return result
     }
 
 
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#reset(Board)
+     */
+    override fun reset(board: Board): Boolean {
+        val numRobots = board.numRobots - (if (board.isSolution01) 1 else 0)
+        if ((board.size != this.elementLookup.size) || (board.sizeNumBits != this.nodeShift) || (numRobots - 1 != this.nodeNumber)) {
+            return false
+        }
+        this.initLookups(board)
+        //clear the used arrays and keep them for the next search
+        for (i in 0..<this.numNodeArrays) {
+            Arrays.fill(this.nodeArrays[i], 0)
+        }
+        for (i in 0..<this.numLeafArrays) {
+            Arrays.fill(this.leafArrays[i], 0.toByte())
+        }
+        this.freeNodeArrays = max(this.freeNodeArrays, this.numNodeArrays)
+        this.freeLeafArrays = max(this.freeLeafArrays, this.numLeafArrays)
+        this.numNodeArrays = 1
+        this.nextNode = board.size //root node already exists
+        this.nextNodeArray = NODE_ARRAY_SIZE //first array already exists
+        this.numLeafArrays = 0
+        this.nextLeaf = this.leafSize //no leaves yet, but skip leaf "0" because this is the special value
+        this.nextLeafArray = 0 //no leaf arrays yet
+        this.size = 0
+        this.allocationLimitReached = false
+        return true
+    }
+
+
     /* (non-Javadoc)
      * @see driftingdroids.model.KeyDepthMap#size()
      */
@@ -1232,6 +1283,14 @@ open class KeyDepthMapTrieSpecial private constructor(board: Board) : KeyDepthMa
             return super.allocatedBytes() + this.lookupArray.size * 4L
         }
 
+        override fun reset(board: Board): Boolean {
+            if (false == super.reset(board)) {
+                return false
+            }
+            Arrays.fill(this.lookupArray, 0)
+            return true
+        }
+
         companion object {
             const val LOOKUP_SHIFT: Int = 3 * 8
             const val LOOKUP_SHIFT_2: Int = 2 * 8
@@ -1515,6 +1574,7 @@ open class KeyDepthMapTrieSpecial private constructor(board: Board) : KeyDepthMa
             16 // 16 == 64KB (was 20==1MB; smaller arrays prevent OOM between memory checks)
         protected val LEAF_ARRAY_SIZE: Int = 1 shl LEAF_ARRAY_SHIFT
         protected val LEAF_ARRAY_MASK: Int = LEAF_ARRAY_SIZE - 1
+        protected const val INITIAL_ARRAYS: Int = 64 // node and leaf arrays that are allocated up front
         fun createInstance(board: Board, useMoreMemoryForSpeedup: Boolean): KeyDepthMapTrieSpecial {
             // The 8Bit variant allocates a 64MB lookup array - only use it if heap is large enough
             val maxHeapMB = Runtime.getRuntime().maxMemory() shr 20
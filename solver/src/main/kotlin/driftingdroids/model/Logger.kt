@@ -16,35 +16,56 @@
 */
 package driftingdroids.model
 
-import android.util.Log
-
-/** a very simple logger class  */
+/**
+ * a very simple logger class.
+ * The messages go to a pluggable Sink, so that the solver doesn't depend on a platform logger:
+ * the default sink prints to standard output, the Android app forwards to its own log.
+ */
 object Logger {
+    // log levels, same values as the priorities of android.util.Log
+    const val VERBOSE: Int = 2
+    const val DEBUG: Int = 3
+    const val INFO: Int = 4
+    const val WARN: Int = 5
+    const val ERROR: Int = 6
+
+    /** receives the log messages of the solver */
+    fun interface Sink {
+        fun log(level: Int, tag: String?, message: String)
+    }
+
+    /** prints all messages to standard output (the default) */
+    @JvmField
+    val STDOUT: Sink = Sink { _, tag, message ->
+        kotlin.io.println(if (null == tag) message else tag + ": " + message)
+    }
+
+    /** drops all messages, e.g. for benchmarks and batch runs */
+    @JvmField
+    val NONE: Sink = Sink { _, _, _ -> }
+
+    @JvmStatic
+    @Volatile
+    var sink: Sink = STDOUT
+
     fun println(msg: String?) {
-        kotlin.io.println(msg)
+        sink.log(INFO, null, msg.toString())
     }
 
     /**
      * Log a formatted message with variable arguments
-     * @param level Log level (from android.util.Log)
+     * @param level Log level (VERBOSE ... ERROR)
      * @param tag Log tag
      * @param format Format string (like in String.format)
      * @param args Variable arguments to insert into the format string
      */
     fun println(level: Int, tag: String?, format: String, vararg args: Any?) {
-        var message: String?
+        var message: String
         try {
             message = String.format(format, *args)
         } catch (e: Exception) {
             message = format + " [Error formatting log message: " + e.message + "]"
         }
-
-
-        // First log to Android system log
-        Log.println(level, tag, message)
-
-
-        // Also output to standard output for debugging purposes
-        kotlin.io.println(tag + ": " + message)
+        sink.log(level, tag, message)
     }
 }
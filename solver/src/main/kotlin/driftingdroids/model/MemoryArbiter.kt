@@ -0,0 +1,164 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2025 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package driftingdroids.model
+
+/**
+ * Byte reservations of all searches of the process that run at the same time.
+ *
+ *
+ * A search reserves a small number of bytes when it starts and grows its reservation
+ * while its known states grow. All reservations together never exceed the capacity,
+ * so searches that overlap (e.g. a hint, the live solver and a background search)
+ * can not plan more memory than the heap has, each as if it were alone.
+ * If not enough bytes are free, the reservations of lower priorities are revoked,
+ * lowest priority and newest reservation first; a search with a revoked reservation
+ * stops at its next memory check. LOW reservations together never get more than
+ * LOW_SHARE_PERCENT of the capacity. IDLE reservations only get free bytes and are revoked
+ * for any search. A reservation that can not be granted is denied.
+ * The decisions only depend on the reservations, not on the garbage collector.
+ *
+ * @param capacity number of bytes of all reservations together
+ */
+class MemoryArbiter(@JvmField val capacity: Long) {
+
+    /**
+     * Priorities of the reservations, highest first
+     */
+    enum class Priority {
+        HIGH, // the player waits for the result
+        NORMAL,
+        LOW, // background work that is started again later
+        IDLE // buffers kept for a later search (e.g. Solver.recycle()), dropped when a search needs the bytes
+    }
+
+    /**
+     * The bytes granted to one search; release() when the search is done
+     */
+    inner class Reservation internal constructor(
+        @JvmField val priority: Priority,
+        private val onRevoke: Runnable?
+    ) {
+        internal val sequence = ++sequenceCounter // guarded by lock
+
+        /**
+         * number of granted bytes (0 after release() or when revoked)
+         */
+        @Volatile
+        var bytes = 0L
+            internal set
+
+        /**
+         * true if the bytes were taken for a reservation of a higher priority
+         */
+        @Volatile
+        var isRevoked = false
+            private set
+
+        /**
+         * grow the reservation to the given number of bytes; false if they can not be granted
+         * (the reservation keeps its bytes then)
+         */
+        fun grow(bytes: Long): Boolean = grow(this, bytes)
+
+        fun release() = release(this)
+
+        internal fun revoke() {
+            this.isRevoked = true
+            this.bytes = 0
+        }
+
+        internal fun notifyRevoked() = onRevoke?.run()
+    }
+
+    // guarded by lock
+    private val lock = Any()
+    private val reservations = ArrayList<Reservation>()
+    private var sequenceCounter = 0
+
+    /**
+     * Reserve bytes.
+     *
+     * @param onRevoke called when the reservation is revoked, e.g. to stop a search that does not
+     *                 check its reservation itself; called on the thread that needed the bytes
+     * @return the reservation, or null if the bytes can not be granted
+     */
+    @JvmOverloads
+    fun reserve(bytes: Long, priority: Priority, onRevoke: Runnable? = null): Reservation? {
+        val reservation = synchronized(lock) { Reservation(priority, onRevoke) }
+        return if (grow(reservation, bytes)) reservation else null
+    }
+
+    /**
+     * number of bytes of all reservations
+     */
+    val reservedBytes: Long
+        get() = synchronized(lock) { reservations.sumOf { it.bytes } }
+
+    private fun grow(reservation: Reservation, bytes: Long): Boolean {
+        val revoked = ArrayList<Reservation>()
+        synchronized(lock) {
+            if (reservation.isRevoked) return false
+            val needed = bytes - reservation.bytes
+            if (needed <= 0) return true
+            if (Priority.LOW == reservation.priority) {
+                val lowBytes = reservations.filter { Priority.LOW == it.priority }.sumOf { it.bytes }
+                if (lowBytes + needed > capacity * LOW_SHARE_PERCENT / 100) return false
+            }
+            var free = capacity - reservations.sumOf { it.bytes }
+            if (free < needed) {
+                val victims = reservations
+                    .filter { it.priority > reservation.priority }
+                    .sortedWith(compareByDescending<Reservation> { it.priority }.thenByDescending { it.sequence })
+                if (free + victims.sumOf { it.bytes } < needed) return false
+                for (victim in victims) {
+                    if (free >= needed) break
+                    free += victim.bytes
+                    reservations.remove(victim)
+                    victim.revoke()
+                    revoked.add(victim)
+                }
+                Logger.println("[MEMORY] MemoryArbiter: " + reservation.priority + " reservation revoked " + revoked.size + " lower reservation(s)")
+            }
+            if (!reservations.contains(reservation)) reservations.add(reservation)
+            reservation.bytes = bytes
+        }
+        for (victim in revoked) victim.notifyRevoked()
+        return true
+    }
+
+    private fun release(reservation: Reservation) {
+        synchronized(lock) {
+            reservations.remove(reservation)
+            reservation.bytes = 0
+        }
+    }
+
+    companion object {
+        /** LOW reservations together get at most this share of the capacity */
+        const val LOW_SHARE_PERCENT = 50
+
+        /** the capacity of the shared arbiter, in percent of the heap */
+        const val HEAP_PERCENT = 70
+
+        /**
+         * The arbiter of all searches of the process: 70% of the heap, which is what one
+         * search used to budget for itself.
+         */
+        @JvmStatic
+        val shared: MemoryArbiter by lazy { MemoryArbiter(Runtime.getRuntime().maxMemory() * HEAP_PERCENT / 100) }
+    }
+}
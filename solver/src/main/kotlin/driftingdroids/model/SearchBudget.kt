@@ -0,0 +1,83 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2025 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package driftingdroids.model
+
+/**
+ * Explicit limits for one run of Solver.execute().
+ *
+ *
+ * Without a SearchBudget the solver stops when the memory reservation of its
+ * known states can not grow anymore (see MemoryArbiter), so the result depends on
+ * the device and on the other searches that run at the same time.
+ * With a SearchBudget the search stops at the first limit that is reached and
+ * Solver.getSearchStatus() tells which one. With the single-threaded solver the
+ * state and byte limits are deterministic: the same board and budget always give
+ * the same result, as long as the MemoryArbiter grants the bytes (otherwise the
+ * status is MEMORY_LOW). The deadline is checked every 1000 nodes of the search tree.
+ *
+ * In parallel mode (SolverIDDFSParallel) the limits are not deterministic: each
+ * worker gets an equal share of the state and byte limits for its own known states
+ * (see split()), or the workers count together in shared known states and may add a
+ * few states more than the limit. Which subtrees are searched before a limit is
+ * reached depends on the thread scheduling.
+ *
+ * @param maxStates maximum number of states added to the known states (a state that is
+ *                  found again with more remaining moves is counted again)
+ * @param maxBytes maximum number of bytes allocated by the known states trie
+ *                 (unlimited: the capacity of MemoryArbiter.shared, 70% of Runtime.maxMemory())
+ * @param maxMillis wall-clock time limit in milliseconds, measured from the start of execute()
+ * @param maxDepth maximum number of moves of a solution (also capped by the solver's own MAX_DEPTH)
+ */
+class SearchBudget @JvmOverloads constructor(
+    @JvmField val maxStates: Int = UNLIMITED_STATES,
+    @JvmField val maxBytes: Long = UNLIMITED_BYTES,
+    @JvmField val maxMillis: Long = UNLIMITED_MILLIS,
+    @JvmField val maxDepth: Int = UNLIMITED_DEPTH
+) {
+    /**
+     * the deadline in System.nanoTime() units for a search that starts now.
+     */
+    fun deadlineNanos(startNanos: Long): Long {
+        return if (UNLIMITED_MILLIS == this.maxMillis) Long.MAX_VALUE else startNanos + this.maxMillis * 1000000L
+    }
+
+    /**
+     * the same budget with state and byte limits divided between a number of workers.
+     */
+    fun split(numWorkers: Int): SearchBudget {
+        return SearchBudget(
+            if (UNLIMITED_STATES == this.maxStates) this.maxStates else this.maxStates / numWorkers,
+            if (UNLIMITED_BYTES == this.maxBytes) this.maxBytes else this.maxBytes / numWorkers,
+            this.maxMillis,
+            this.maxDepth
+        )
+    }
+
+    override fun toString(): String {
+        return "SearchBudget(maxStates=" + (if (UNLIMITED_STATES == this.maxStates) "-" else this.maxStates.toString()) +
+                " maxBytes=" + (if (UNLIMITED_BYTES == this.maxBytes) "-" else this.maxBytes.toString()) +
+                " maxMillis=" + (if (UNLIMITED_MILLIS == this.maxMillis) "-" else this.maxMillis.toString()) +
+                " maxDepth=" + (if (UNLIMITED_DEPTH == this.maxDepth) "-" else this.maxDepth.toString()) + ")"
+    }
+
+    companion object {
+        const val UNLIMITED_STATES = Int.MAX_VALUE
+        const val UNLIMITED_BYTES = Long.MAX_VALUE
+        const val UNLIMITED_MILLIS = Long.MAX_VALUE
+        const val UNLIMITED_DEPTH = Int.MAX_VALUE
+    }
+}
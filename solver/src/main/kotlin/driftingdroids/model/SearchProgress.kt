@@ -0,0 +1,49 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2025 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package driftingdroids.model
+
+/**
+ * Progress of a solver run after a completed depth iteration, see SearchProgressListener.
+ *
+ * @param depth the depth limit (number of moves) of the completed iteration
+ * @param nodesExpanded number of nodes of the search tree visited so far (all iterations)
+ * @param statesStored number of states added to the known states so far
+ * @param elapsedMillis time since the start of the search
+ * @param bytesAllocated number of bytes allocated by the known states
+ * @param solutionsFound number of solutions found so far
+ */
+class SearchProgress(
+    @JvmField val depth: Int,
+    @JvmField val nodesExpanded: Long,
+    @JvmField val statesStored: Int,
+    @JvmField val elapsedMillis: Long,
+    @JvmField val bytesAllocated: Long,
+    @JvmField val solutionsFound: Int
+) {
+    /**
+     * @return every solution has at least this number of moves
+     */
+    fun getMinimumMoves(): Int {
+        return if (this.solutionsFound > 0) this.depth else this.depth + 1
+    }
+
+    override fun toString(): String {
+        return "SearchProgress(depth=" + this.depth + " nodes=" + this.nodesExpanded +
+                " states=" + this.statesStored + " time=" + this.elapsedMillis + "ms" +
+                " bytes=" + this.bytesAllocated + " solutions=" + this.solutionsFound + ")"
+    }
+}
@@ -0,0 +1,36 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2025 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package driftingdroids.model
+
+/**
+ * Receives the progress of Solver.execute() while it is running.
+ * The methods are called on the thread that runs execute(); they should return quickly.
+ * Call Solver.requestStop() from a listener to end the search early, for example as soon as
+ * the first (optimal) solution has been found.
+ */
+interface SearchProgressListener {
+    /**
+     * called after each completed depth iteration of the search.
+     */
+    fun onDepthCompleted(progress: SearchProgress)
+
+    /**
+     * called for each new solution as soon as it has been found.
+     * the solutions of one depth iteration have the same number of moves (the optimum).
+     */
+    fun onSolutionFound(solution: Solution)
+}
@@ -0,0 +1,377 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2025 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package driftingdroids.model
+
+import java.util.Collections
+import java.util.Formatter
+
+abstract class Solver protected constructor(board: Board) {
+    enum class SOLUTION_MODE(private val modeName: String, private val l10nKey: String) {
+        MINIMUM("minimum", "solver.Minimum.text"),
+        MAXIMUM("maximum", "solver.Maximum.text");
+
+        override fun toString(): String {
+            return L10N.getString(this.l10nKey)
+        }
+
+        fun getName(): String {
+            return this.modeName
+        }
+    }
+
+    enum class BACKEND(private val backendName: String) {
+        WALL_STOP_TABLE("wall-stop table"), // precomputed wall-stops, robots are checked one by one
+        BITBOARD("bitboard"); // walls and robots in 16x16 bit masks (falls back to WALL_STOP_TABLE on larger boards)
+
+        fun getName(): String {
+            return this.backendName
+        }
+    }
+
+    enum class SEARCH_STATUS(private val statusName: String) {
+        SOLVED("solved"),
+        NO_GOAL("no goal"),
+        DEPTH_LIMIT("depth limit"), // SearchBudget.maxDepth or MAX_DEPTH reached without a solution
+        STATES_LIMIT("states limit"), // SearchBudget.maxStates reached
+        BYTES_LIMIT("bytes limit"), // SearchBudget.maxBytes reached
+        DEADLINE("deadline"), // SearchBudget.maxMillis reached
+        MEMORY_LOW("memory low"), // no SearchBudget: heap polling or OutOfMemoryError stopped the search
+        STOPPED("stopped"); // requestStop() was called before a solution was found
+
+        fun getName(): String {
+            return this.statusName
+        }
+    }
+
+    companion object {
+        // option solution count: collect all solutions of the optimal depth
+        const val SOLUTION_COUNT_ALL = Int.MAX_VALUE
+
+        @JvmField
+        val USE_SLOW_SEARCH_MORE_SOLUTIONS: Boolean
+
+        init {
+            var useSlowSearchMoreSolutions = false // TODO: test slow solver with more solutions
+            try {
+                useSlowSearchMoreSolutions = null != System.getProperty("UseSlowSearchMoreSolutions")
+            } catch (ignored: Exception) {
+            }
+            USE_SLOW_SEARCH_MORE_SOLUTIONS = useSlowSearchMoreSolutions
+        }
+
+        @JvmStatic
+        fun createInstance(board: Board): Solver {
+            return SolverIDDFS(board)
+        }
+
+        /**
+         * create a solver that searches with the given number of threads.
+         * @param parallelism number of worker threads; 1 (or less) returns the standard single-threaded solver
+         */
+        @JvmStatic
+        fun createInstance(board: Board, parallelism: Int): Solver {
+            return if (parallelism > 1) SolverIDDFSParallel(board, parallelism) else SolverIDDFS(board)
+        }
+    }
+
+    @JvmField
+    protected val board: Board
+    @JvmField
+    protected val boardWalls: Array<BooleanArray>
+    @JvmField
+    protected val boardSizeBitMask: Int
+    @JvmField
+    protected val isBoardStateInt32: Boolean
+    @JvmField
+    protected val isBoardGoalWildcard: Boolean
+
+    @JvmField
+    protected var optSolutionMode: SOLUTION_MODE = SOLUTION_MODE.MINIMUM
+    @JvmField
+    protected var optAllowRebounds: Boolean = true
+    @JvmField
+    protected var optBackend: BACKEND = BACKEND.WALL_STOP_TABLE
+    @JvmField
+    protected var optSolutionCount: Int = SOLUTION_COUNT_ALL
+    @JvmField
+    protected var optMinimumDepth: Int = 0
+    @JvmField
+    protected var searchBudget: SearchBudget? = null // null: limits depend on the available heap
+    @JvmField
+    protected var optMemoryPriority: MemoryArbiter.Priority = MemoryArbiter.Priority.NORMAL
+    @JvmField
+    protected var progressListener: SearchProgressListener? = null
+
+    @JvmField
+    protected var lastResultSolutions: MutableList<Solution>? = null
+    @JvmField
+    protected var solutionMilliSeconds: Long = 0
+    @JvmField
+    protected var solutionStoredStates: Int = 0
+    @JvmField
+    protected var solutionAddedStates: Int = 0
+    @JvmField
+    protected var solutionMemoryMegabytes: Int = 0
+    @JvmField
+    protected var releasedMemoryMegabytes: Int = 0
+    @JvmField
+    protected var searchStatus: SEARCH_STATUS = SEARCH_STATUS.NO_GOAL
+
+    init {
+        this.board = board
+        this.boardWalls = this.board.walls
+        var bitMask = 0
+        for (i in 0 until this.board.sizeNumBits) {
+            bitMask += bitMask + 1
+        }
+        this.boardSizeBitMask = bitMask
+        this.isBoardStateInt32 = this.board.sizeNumBits * this.board.numRobots <= 32
+        this.isBoardGoalWildcard = (null != this.board.getGoal() && this.board.getGoal().robotNumber < 0)
+    }
+
+    @Throws(InterruptedException::class)
+    abstract fun execute(): List<Solution>
+
+    /**
+     * end the running execute() as soon as possible. the solutions found so far are kept,
+     * and the result is sorted like a normal result. can be called from any thread.
+     */
+    abstract fun requestStop()
+
+    protected fun stateString(state: IntArray): String {
+        val formatter = Formatter()
+        this.swapGoalLast(state)
+        for (i in state) {
+            formatter.format("%02x", i)
+        }
+        this.swapGoalLast(state)
+        return "0x" + formatter.out().toString()
+    }
+
+    protected fun swapGoalLast(state: IntArray) {
+        // swap goal robot and last robot (if goal is not wildcard)
+        if (!this.isBoardGoalWildcard) {
+            val tmp = state[state.size - 1]
+            state[state.size - 1] = state[this.board.getGoal().robotNumber]
+            state[this.board.getGoal().robotNumber] = tmp
+        }
+    }
+
+    protected fun sortSolutions() {
+        if (0 == this.lastResultSolutions!!.size) {
+            this.lastResultSolutions!!.add(Solution(this.board))
+        }
+        if (SOLUTION_MODE.MINIMUM == this.optSolutionMode) {
+            Collections.sort(this.lastResultSolutions as List<Solution>)
+        } else if (SOLUTION_MODE.MAXIMUM == this.optSolutionMode) {
+            Collections.sort(this.lastResultSolutions as List<Solution>, Collections.reverseOrder())
+        }
+    }
+
+    fun get(): List<Solution> {
+        return this.lastResultSolutions!!
+    }
+
+    fun setOptionSolutionMode(mode: SOLUTION_MODE) {
+        this.optSolutionMode = mode
+    }
+
+    fun getOptionSolutionMode(): SOLUTION_MODE {
+        return this.optSolutionMode
+    }
+
+    fun setOptionAllowRebounds(allowRebounds: Boolean) {
+        this.optAllowRebounds = allowRebounds
+    }
+
+    fun getOptionAllowRebounds(): Boolean {
+        return this.optAllowRebounds
+    }
+
+    fun setOptionBackend(backend: BACKEND) {
+        this.optBackend = backend
+    }
+
+    fun getOptionBackend(): BACKEND {
+        return this.optBackend
+    }
+
+    /**
+     * stop the search as soon as this number of (optimal) solutions has been found.
+     * the search status stays SOLVED, this is not a limit like the SearchBudget.
+     * with a count below SOLUTION_COUNT_ALL the SOLUTION_MODE is ignored: the solutions are the
+     * first ones found in the last depth iteration, not the ones that move the fewest/most robots.
+     * @param count number of solutions (at least 1), or SOLUTION_COUNT_ALL
+     */
+    fun setOptionSolutionCount(count: Int) {
+        require(count > 0) { "solution count must be positive: $count" }
+        this.optSolutionCount = count
+    }
+
+    fun getOptionSolutionCount(): Int {
+        return this.optSolutionCount
+    }
+
+    /**
+     * start the iterative deepening at this number of moves instead of the smallest depth.
+     * only for a known lower bound of the solution length (e.g. one less than the solution length
+     * of a position one move before): with a wrong bound, the solutions are not the optimal ones.
+     * @param depth lower bound of the number of moves, or 0 for none
+     */
+    fun setOptionMinimumDepth(depth: Int) {
+        require(depth >= 0) { "minimum depth must not be negative: $depth" }
+        this.optMinimumDepth = depth
+    }
+
+    fun getOptionMinimumDepth(): Int {
+        return this.optMinimumDepth
+    }
+
+    /**
+     * priority of the memory reservations of the search, see MemoryArbiter.shared:
+     * a search of a higher priority may take the memory of a running search of a lower one.
+     */
+    fun setOptionMemoryPriority(priority: MemoryArbiter.Priority) {
+        this.optMemoryPriority = priority
+    }
+
+    fun getOptionMemoryPriority(): MemoryArbiter.Priority {
+        return this.optMemoryPriority
+    }
+
+    /**
+     * set explicit limits for the search; null restores the default heap-based limits.
+     */
+    fun setSearchBudget(budget: SearchBudget?) {
+        this.searchBudget = budget
+    }
+
+    fun getSearchBudget(): SearchBudget? {
+        return this.searchBudget
+    }
+
+    /**
+     * set a listener that is notified during execute(); null removes the listener.
+     */
+    fun setProgressListener(listener: SearchProgressListener?) {
+        this.progressListener = listener
+    }
+
+    fun getProgressListener(): SearchProgressListener? {
+        return this.progressListener
+    }
+
+    /**
+     * create a solver for the next board with the same options as this one.
+     * if board size and number of robots are the same, the new solver takes over the search buffers
+     * (known states, state arrays) of this solver instead of allocating new ones.
+     * only a small known states map is kept after execute(), see getRecycledBytes().
+     * this solver must not be used anymore, and must not be running.
+     */
+    open fun recycle(board: Board): Solver {
+        return this.copyOptionsTo(createInstance(board))
+    }
+
+    /**
+     * drop the search buffers that this finished solver keeps for recycle(), when no more
+     * searches follow (a later recycle() allocates new ones).
+     * this solver must not be running.
+     */
+    open fun releaseRecycledBuffers() {
+    }
+
+    /**
+     * @return heap bytes of the search buffers that this finished solver keeps for recycle();
+     * a solver that is kept for long should reserve them in MemoryArbiter.shared (IDLE priority)
+     */
+    open fun getRecycledBytes(): Long {
+        return 0
+    }
+
+    protected fun copyOptionsTo(solver: Solver): Solver {
+        solver.optSolutionMode = this.optSolutionMode
+        solver.optAllowRebounds = this.optAllowRebounds
+        solver.optBackend = this.optBackend
+        solver.optSolutionCount = this.optSolutionCount
+        solver.optMinimumDepth = this.optMinimumDepth
+        solver.optMemoryPriority = this.optMemoryPriority
+        solver.searchBudget = this.searchBudget
+        solver.progressListener = this.progressListener
+        return solver
+    }
+
+    /**
+     * @return milliseconds spent in the last execute()
+     */
+    fun getSolutionMilliSeconds(): Long {
+        return this.solutionMilliSeconds
+    }
+
+    /**
+     * @return number of distinct states in the known states after the last execute()
+     * (0 for known states implementations that do not count their entries)
+     */
+    fun getSolutionStoredStates(): Int {
+        return this.solutionStoredStates
+    }
+
+    /**
+     * @return number of states added to the known states during the last execute()
+     * (the counter of SearchBudget.maxStates)
+     */
+    fun getSolutionAddedStates(): Int {
+        return this.solutionAddedStates
+    }
+
+    /**
+     * @return megabytes allocated by the known states during the last execute()
+     */
+    fun getSolutionMemoryMegabytes(): Int {
+        return this.solutionMemoryMegabytes
+    }
+
+    /**
+     * @return megabytes of search buffers that the last execute() left to the garbage collector
+     * (0 if they are kept for recycle())
+     */
+    fun getReleasedMemoryMegabytes(): Int {
+        return this.releasedMemoryMegabytes
+    }
+
+    /**
+     * @return why the last execute() stopped searching
+     */
+    fun getSearchStatus(): SEARCH_STATUS {
+        return this.searchStatus
+    }
+
+    fun getOptionsAsString(): String {
+        return this.optSolutionMode.getName() + " number of robots moved; " +
+                (if (this.optAllowRebounds) "with" else "no") + " rebound moves; " +
+                this.optBackend.getName() + " backend" +
+                (if (SOLUTION_COUNT_ALL == this.optSolutionCount) "" else "; stop at " + this.optSolutionCount + " solution(s)") +
+                (if (null == this.searchBudget) "" else "; " + this.searchBudget)
+    }
+
+    override fun toString(): String {
+        val s = StringBuilder()
+        s.append("storedStates=").append(this.solutionStoredStates)
+        s.append(", time=").append(this.solutionMilliSeconds / 1000.0).append(" seconds")
+        s.append(", status=").append(this.searchStatus.getName())
+        return s.toString()
+    }
+}
@@ -0,0 +1,1212 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2025 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package driftingdroids.model
+
+import java.util.Arrays
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.Volatile
+import kotlin.math.max
+import kotlin.math.min
+
+class SolverIDDFS internal constructor(board: Board, recycled: SolverIDDFS?) : Solver(board) {
+    constructor(board: Board) : this(board, null)
+
+    private val MAX_DEPTH: Int // maximal depth of search tree to prevent OOM
+
+    private val states: Array<IntArray>
+    private val directions: Array<IntArray>
+    private val wallStops: Array<IntArray> // [direction][position] where a robot is stopped by walls only
+    private val boardColumns: IntArray // [position] x coordinate
+    private var bitboard: Bitboard? = null // set in execute() if the BITBOARD backend is used
+    private var knownStates: KnownStates? = null
+    private var isSharedKnownStates = false // worker mode: other workers use the same known states
+    private var isBorrowedKnownStates = false // worker mode: the known states belong to another worker
+    private val knownStatesBorrowers = ArrayList<SolverIDDFS>() // worker mode: the workers that use the known states of this one
+    private var recycledMap: KeyDepthMap? = null // known states map of the last search, reused by the next one
+    private val goalPosition: Int
+    private val minRobotLast: Int
+    private val goalRobot: Int
+    private val isSolution01: Boolean
+    private val isSolution01NoSpeedup: Boolean
+    private val minimumMovesToGoal: IntArray
+    private val goalHelperPositions: IntArray // a robot here lets the goal robot stop on the goal (empty: there is a wall-stop on the goal)
+    private val directionIncrement: IntArray
+
+    // Multi-goal support
+    private val isMultiGoalMode: Boolean
+    private val activeGoalPositions: IntArray
+    private val activeGoalRobots: IntArray
+
+    // Abort of the current depth iteration, checked on every DFS recursion: set by stopSearch()
+    // (a limit, memory or a stop request, see stopStatus) or when enough solutions were found
+    @Volatile
+    private var searchAborted = false
+    private var solutionCountReached = false
+    private var recursionCounter = 0
+    private val memoryCheckInterval: Int // Check every N recursions (set in constructor)
+
+    // Memory checks: the known states grow their MemoryArbiter reservation (see KnownStates),
+    // isSearchLimitReached() polls the free heap as the last guard
+    private var depthLimit = 0
+
+    // Set by SolverIDDFSParallel to stop a worker that runs on a pool thread (those are never interrupted)
+    @Volatile
+    private var cancelled = false
+
+    // SearchBudget: deadline of the current execute() and the first limit that stopped the search
+    private var deadlineNanos = Long.MAX_VALUE
+    @Volatile
+    private var stopStatus: SEARCH_STATUS? = null
+
+    // number of visited nodes of the search tree, for SearchProgress
+    private var nodeCount = 0L
+
+
+    init {
+        // Multi-goal support: determine mode first to calculate correct MAX_DEPTH
+        val activeGoals = this.board.getActiveGoals()
+        this.isMultiGoalMode = (activeGoals.size > 1)
+        this.activeGoalPositions = IntArray(activeGoals.size)
+        this.activeGoalRobots = IntArray(activeGoals.size)
+        for (i in activeGoals.indices) {
+            this.activeGoalPositions[i] = activeGoals.get(i)!!.position
+            this.activeGoalRobots[i] = activeGoals.get(i)!!.robotNumber
+        }
+
+
+        // Calculate MAX_DEPTH based on robot count and multi-goal mode
+        this.MAX_DEPTH =
+            if (this.isMultiGoalMode) getMaxDepthForMultiGoal(board.numRobots) else getMaxDepthForRobots(
+                board.numRobots
+            )
+
+
+        // Set memory check interval: every recursion for multi-goal (DFS can allocate 100s MB between checks)
+        this.memoryCheckInterval = if (this.isMultiGoalMode) 1 else 1000
+
+        this.wallStops = this.board.computeWallStops()
+        this.boardColumns = IntArray(board.size) { it % board.width }
+        val numRobots = this.board.robotPositions.size
+        if ((null != recycled) && (recycled.MAX_DEPTH == MAX_DEPTH) && (recycled.states[0].size == numRobots)) {
+            this.states = recycled.states
+            this.directions = recycled.directions
+        } else {
+            this.states = Array(MAX_DEPTH) { IntArray(numRobots) }
+            this.directions = Array(MAX_DEPTH) { IntArray(numRobots) }
+        }
+        this.recycledMap = recycled?.recycledMap
+        recycled?.recycledMap = null
+        this.goalPosition = (if (null == this.board.getGoal()) 0 else this.board.getGoal().position)
+        this.minRobotLast =
+            (if (this.isBoardGoalWildcard) 0 else this.states[0].size - 1) //swapGoalLast
+        this.goalRobot =
+            (if (this.isBoardGoalWildcard) (if (null == this.board.getGoal()) 0 else this.board.getGoal().robotNumber) else this.minRobotLast) //swapGoalLast
+        this.isSolution01 = this.board.isSolution01
+        this.isSolution01NoSpeedup =
+            (true == this.isSolution01) && ((true == this.isBoardGoalWildcard) || (4 > this.board.numRobots))
+        this.minimumMovesToGoal = IntArray(board.size)
+        this.directionIncrement = this.board.directionIncrement
+        this.goalHelperPositions = this.computeGoalHelperPositions()
+
+        if (this.isMultiGoalMode) {
+            Logger.println("[MULTI_GOAL] Multi-goal mode active with " + activeGoals.size + " goals, MAX_DEPTH=" + this.MAX_DEPTH)
+            for (i in activeGoals.indices) {
+                Logger.println("[MULTI_GOAL]   Goal " + i + ": robot=" + this.activeGoalRobots[i] + " position=" + this.activeGoalPositions[i])
+            }
+        }
+    }
+
+
+    @Throws(InterruptedException::class)
+    public override fun execute(): List<Solution> {
+        val startExecute = System.nanoTime()
+        this.lastResultSolutions = ArrayList<Solution>()
+        this.searchStatus = SEARCH_STATUS.NO_GOAL
+        this.stopStatus = null
+        this.solutionCountReached = false
+        this.deadlineNanos = this.searchBudget?.deadlineNanos(startExecute) ?: Long.MAX_VALUE
+        this.nodeCount = 0
+        this.releasedMemoryMegabytes = 0
+
+        Logger.println("***** " + this.javaClass.getSimpleName() + " *****")
+        Logger.println("Options: " + this.getOptionsAsString())
+        Logger.println(
+            Logger.DEBUG,
+            "DriftingDroid",
+            "[SOLVER_MEMORY] Number of robots: %d, Using MAX_DEPTH: %d",
+            board.numRobots,
+            this.MAX_DEPTH
+        )
+        val rtMem = Runtime.getRuntime()
+        Logger.println(
+            Logger.DEBUG,
+            "DriftingDroid",
+            "[SOLVER_MEMORY] Available memory: %d MB (free=%d total=%d max=%d)",
+            (rtMem.maxMemory() - rtMem.totalMemory() + rtMem.freeMemory()) / (1024 * 1024),
+            rtMem.freeMemory() / (1024 * 1024),
+            rtMem.totalMemory() / (1024 * 1024),
+            rtMem.maxMemory() / (1024 * 1024)
+        )
+
+        if (null == this.board.getGoal()) {
+            Logger.println("no goal is set - nothing to solve!")
+        } else {
+            this.states[0] = this.board.robotPositions.clone()
+            swapGoalLast(this.states[0]) //goal robot is always the last one.
+            Arrays.fill(this.directions[0], DIRECTION_NOT_MOVED_YET)
+            this.precomputeMinimumMovesToGoal()
+            this.initBackend()
+            this.knownStates = KnownStates()
+
+            Logger.println("startState=" + this.stateString(this.states[0]))
+            Logger.println("solution01=" + this.isSolution01 + "  isSolution01NoSpeedup=" + this.isSolution01NoSpeedup)
+            Logger.println("goalWildcard=" + this.isBoardGoalWildcard)
+            Logger.println(this.knownStates!!.info)
+
+            try {
+                this.iddfs()
+                this.searchStatus = if (false == this.lastResultSolutions!!.isEmpty()) SEARCH_STATUS.SOLVED else (this.stopStatus ?: SEARCH_STATUS.DEPTH_LIMIT)
+                Logger.println("search status: " + this.searchStatus.getName())
+            } finally {
+                if (this.knownStates != null) {
+                    this.solutionStoredStates = this.knownStates!!.size()
+                    this.solutionAddedStates = this.knownStates!!.addedCount
+                    this.solutionMemoryMegabytes = this.knownStates!!.megaBytesAllocated
+                }
+                this.releaseKnownStates(true, true)
+            }
+        }
+        this.sortSolutions()
+
+        this.solutionMilliSeconds = (System.nanoTime() - startExecute) / 1000000L
+        return this.lastResultSolutions!!
+    }
+
+
+    private fun initBackend() {
+        if ((BACKEND.BITBOARD == this.optBackend) && Bitboard.isSupported(this.board)) {
+            this.bitboard = Bitboard(this.board)
+        } else {
+            if (BACKEND.BITBOARD == this.optBackend) {
+                Logger.println("backend: board is too large for bitboard, using " + BACKEND.WALL_STOP_TABLE.getName())
+            }
+            this.bitboard = null
+        }
+    }
+
+
+    // the goal robot can only stop on the goal if it's stopped by a wall or by another ("helper") robot.
+    // returns the positions where a helper robot is required, or nothing if the goal is a wall-stop.
+    private fun computeGoalHelperPositions(): IntArray {
+        if ((this.goalRobot < 0) || (null == this.board.getGoal())) {
+            return IntArray(0) //wildcard goal: any robot can be the goal robot
+        }
+        val helperPositions = IntArray(4)
+        for (dir in 0..3) {
+            if (true == this.boardWalls[dir][this.goalPosition]) {
+                return IntArray(0)
+            }
+            helperPositions[dir] = this.goalPosition + this.directionIncrement[dir]
+        }
+        Logger.println("goal needs a helper robot at " + helperPositions.contentToString())
+        return helperPositions
+    }
+
+
+    // robot-aware lower bound: if the goal needs a helper robot but there is none,
+    // then at least one move of another robot is required in addition to minimumMovesToGoal.
+    private fun isGoalHelperMissing(state: IntArray): Boolean {
+        if (0 == this.goalHelperPositions.size) {
+            return false
+        }
+        for (robo in state.indices) {
+            if (robo != this.goalRobot) {
+                val pos = state[robo]
+                for (helperPos in this.goalHelperPositions) {
+                    if (pos == helperPos) {
+                        return false
+                    }
+                }
+            }
+        }
+        return true
+    }
+
+
+    private fun precomputeMinimumMovesToGoal() {
+        val posToDo = BooleanArray(this.minimumMovesToGoal.size)
+        Arrays.fill(this.minimumMovesToGoal, Int.MAX_VALUE)
+        this.minimumMovesToGoal[this.goalPosition] = 0
+        posToDo[this.goalPosition] = true
+        var done = false
+        while (false == done) {
+            done = true
+            for (pos in posToDo.indices) {
+                if (true == posToDo[pos]) {
+                    posToDo[pos] = false
+                    val depth = this.minimumMovesToGoal[pos] + 1
+                    for (dir in 0..3) {
+                        val dirIncr = this.directionIncrement[dir]
+                        val wallStop = this.wallStops[dir][pos]
+                        var newPos = pos
+                        while (wallStop != newPos) {    //move the robot until it reaches a wall.
+                            newPos += dirIncr
+                            if (depth < this.minimumMovesToGoal[newPos]) {
+                                this.minimumMovesToGoal[newPos] = depth
+                                posToDo[newPos] = true
+                                done = false
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    override fun requestStop() {
+        this.stopSearch(SEARCH_STATUS.STOPPED)
+    }
+
+
+    @Throws(InterruptedException::class)
+    private fun iddfs() {
+        val nanoStart = System.nanoTime()
+        val doDfsFast =
+            (false == this.isBoardGoalWildcard) && (false == this.isSolution01) && (true == this.optAllowRebounds)
+        Logger.println("doDfsFast=" + doDfsFast)
+        if (this.isMultiGoalMode) {
+            Logger.println("[MULTI_GOAL] Multi-goal mode: MAX_DEPTH limited to " + MAX_DEPTH + " to prevent OOM")
+        }
+
+        val depthLimitEnd = this.depthLimitEnd
+        // the depths below a known lower bound have no solution, their iterations are skipped
+        this.depthLimit = max(2, min(this.optMinimumDepth, depthLimitEnd - 1))
+        while (depthLimitEnd > this.depthLimit) {
+            // Check for thread interruption to allow graceful cancellation
+            if (Thread.currentThread().isInterrupted()) {
+                Logger.println("iddfs: Thread interrupted, stopping solver")
+                throw InterruptedException("Solver was cancelled")
+            }
+            if (System.nanoTime() > this.deadlineNanos) {
+                this.stopSearch(SEARCH_STATUS.DEADLINE)
+                Logger.println("iddfs: deadline reached before depthLimit=" + this.depthLimit)
+                break
+            }
+
+
+            // Reset memory monitoring for this depth level (a stop request stays active)
+            this.searchAborted = (null != this.stopStatus)
+            this.recursionCounter = 0
+            this.bitboard?.setRobots(this.states[0])
+
+            val nanoDfs = System.nanoTime()
+            try {
+                if (doDfsFast) {
+                    this.dfsRecursionFast(1, -1, -1, this.states[0])
+                } else {
+                    this.dfsRecursion(1, -1, -1, this.states[0], this.directions[0])
+                }
+            } catch (oom: OutOfMemoryError) {
+                // Emergency: free knownStates immediately to reclaim memory
+                this.releaseKnownStates(false, true)
+                // Do NOT call System.gc() here - it can trigger GcWatcher.finalize() timeout on Android
+                Logger.println("[MEMORY] OOM caught in iddfs at depthLimit=" + this.depthLimit + " - freed knownStates")
+                this.stopSearch(SEARCH_STATUS.MEMORY_LOW)
+            }
+            val nanoEnd = System.nanoTime()
+
+            val rt = Runtime.getRuntime()
+            val memPercent = ((rt.totalMemory() - rt.freeMemory()) * 100.0) / rt.maxMemory()
+            val megaBytes =
+                if (this.knownStates != null) this.knownStates!!.megaBytesAllocated else 0
+            Logger.println(
+                "iddfs:  finished depthLimit=" + this.depthLimit +
+                        " megaBytes=" + megaBytes +
+                        " memory=" + String.format("%.1f", memPercent) + "%" +
+                        " time=" + (nanoEnd - nanoDfs) / 1000000L + "ms" +
+                        " totalTime=" + (nanoEnd - nanoStart) / 1000000L + "ms"
+            )
+
+
+            val listener = this.progressListener
+            if ((null != listener) && ((null == this.stopStatus) || (false == this.lastResultSolutions!!.isEmpty()))) {
+                listener.onDepthCompleted(
+                    SearchProgress(
+                        this.depthLimit, this.nodeCount, this.knownStatesAdded,
+                        (nanoEnd - nanoStart) / 1000000L, this.knownStatesBytes, this.lastResultSolutions!!.size
+                    )
+                )
+            }
+
+            if (false == this.lastResultSolutions!!.isEmpty()) {
+                if (this.solutionCountReached) {
+                    Logger.println("iddfs: stopped at " + this.optSolutionCount + " solution(s) in depth " + this.depthLimit)
+                }
+                break //found solution(s)
+            }
+
+            // If memory was critically low (or a SearchBudget limit was reached) during DFS, stop searching
+            if (null != this.stopStatus) {
+                Logger.println("[MEMORY] Stopping search: " + this.stopStatus!!.getName() + " during depth " + this.depthLimit)
+                break
+            }
+            ++this.depthLimit
+        }
+    }
+
+
+    // standard version: supports wildcard goal, solution01 special case and option noRebounds
+    @Throws(InterruptedException::class)
+    private fun dfsRecursion(
+        depth: Int,
+        prevRobo: Int,
+        prevDirBit0: Int,
+        oldState: IntArray,
+        oldDirs: IntArray
+    ) {
+        // Periodic memory check (shared counter with dfsRecursionFast)
+        if (this.searchAborted) {
+            return
+        }
+        ++this.nodeCount
+        if (++this.recursionCounter >= this.memoryCheckInterval) {
+            this.recursionCounter = 0
+            if (this.isSearchLimitReached()) {
+                return
+            }
+        }
+        val height = this.depthLimit - depth + 1
+        val minMovesToGoal = this.getMinMovesToGoal(oldState)
+        if ((minMovesToGoal > height) || ((minMovesToGoal == height) && this.isGoalHelperMissing(oldState))) {
+            return  //useless to move any robot: can't reach goal
+        }
+        val newState = this.states[depth]
+        val depth1 = depth + 1
+        val bitboard = this.bitboard
+
+        System.arraycopy(oldState, 0, newState, 0, oldState.size)
+        val doRecursion = (this.depthLimit > depth1)
+        //move all robots
+        this.forEachMove(oldState, oldDirs, prevRobo, prevDirBit0, (minMovesToGoal == height)) { robo, dir, oldRoboPos, newRoboPos, isGoalRobot ->
+            newState[robo] = newRoboPos
+            //special case (isSolution01): we must be able to visit states more than once, so we don't add them to knownStates
+            //the new state is not already known (i.e. stored in knownStates)
+            if (this.isSolution01NoSpeedup || (this.isSolution01 && isGoalRobot) || (this.knownStates!!.add(
+                    newState,
+                    height
+                ))
+            ) {
+                val newDirs = this.directions[depth]
+                System.arraycopy(oldDirs, 0, newDirs, 0, oldDirs.size)
+                newDirs[robo] = dir
+                bitboard?.moveRobot(oldRoboPos, newRoboPos)
+                if (true == doRecursion) {
+                    this.dfsRecursion(depth1, robo, (dir and 1), newState, newDirs)
+                } else {
+                    this.dfsLast(depth1, robo, (dir and 1), newState, newDirs)
+                }
+                bitboard?.moveRobot(newRoboPos, oldRoboPos)
+            }
+            newState[robo] = oldRoboPos
+        }
+    }
+
+
+    // lower bound of the number of moves until the goal is reached (any robot for a wildcard goal)
+    private fun getMinMovesToGoal(state: IntArray): Int {
+        if (true == this.isBoardGoalWildcard) {
+            var min = Int.MAX_VALUE
+            for (pos in state) {
+                val tmp = this.minimumMovesToGoal[pos]
+                if (min > tmp) {
+                    min = tmp
+                }
+            }
+            return min
+        }
+        return this.minimumMovesToGoal[state[this.goalRobot]]
+    }
+
+
+    // the robot moves of dfsRecursion (and of the subtree roots in worker mode): supports the
+    // wildcard goal, solution01 special case and option noRebounds.
+    // goalRobotOnly: the goal can only be reached if the last moves are the ones of the goal robot
+    private inline fun forEachMove(
+        oldState: IntArray,
+        oldDirs: IntArray,
+        prevRobo: Int,
+        prevDirBit0: Int,
+        goalRobotOnly: Boolean,
+        move: (robo: Int, dir: Int, oldRoboPos: Int, newRoboPos: Int, isGoalRobot: Boolean) -> Unit
+    ) {
+        var robo = 0
+        for (oldRoboPos in oldState) {
+            val isGoalRobot = (this.goalRobot == robo) || (this.goalRobot < 0)
+            if (goalRobotOnly && (false == isGoalRobot)) {
+                ++robo
+                continue  //useless to move this robot: can't reach goal
+            }
+            val oldDir = oldDirs[robo]
+            for (dir in 0..3) {
+                if (((true == this.optAllowRebounds) || ((oldDir != dir) && (oldDir != (dir xor 2)))) // (dir + 2) & 3
+                    && ((prevRobo != robo) || (prevDirBit0 != (dir and 1)))
+                ) {
+                    val newRoboPos = this.slide(oldState, oldRoboPos, dir) //move the robot until it reaches a wall or another robot.
+                    //the robot has actually moved
+                    //special case (isSolution01): the goal robot has _NOT_ arrived at the goal
+                    if ((oldRoboPos != newRoboPos)
+                        && ((false == this.isSolution01) || !((this.goalPosition == newRoboPos) && (true == isGoalRobot)))
+                    ) {
+                        move(robo, dir, oldRoboPos, newRoboPos, isGoalRobot)
+                    }
+                }
+            }
+            ++robo
+        }
+    }
+
+
+    // fast version: (false == this.isBoardGoalWildcard) && (false == this.isSolution01) && (true == this.optAllowRebounds)
+    @Throws(InterruptedException::class)
+    private fun dfsRecursionFast(depth: Int, prevRobo: Int, prevDirBit0: Int, oldState: IntArray) {
+        // Periodic memory check: cheap flag test on every call, expensive Runtime check only every N calls
+        if (this.searchAborted) {
+            return  // Abort this branch - a limit was reached or enough solutions were found
+        }
+        ++this.nodeCount
+        if (++this.recursionCounter >= this.memoryCheckInterval) {
+            this.recursionCounter = 0
+            if (this.isSearchLimitReached()) {
+                return
+            }
+        }
+        val minMovesToGoal = this.minimumMovesToGoal[oldState[this.goalRobot]]
+        val height = this.depthLimit - depth + 1
+        if ((minMovesToGoal > height) || ((minMovesToGoal == height) && this.isGoalHelperMissing(oldState))) {
+            return  //useless to move any robot: can't reach goal
+        }
+        val newState = this.states[depth]
+        val depth1 = depth + 1
+        val bitboard = this.bitboard
+
+        val doRecursion = (this.depthLimit > depth1)
+        System.arraycopy(oldState, 0, newState, 0, oldState.size)
+        //move all robots
+        var robo = 0
+        for (oldRoboPos in oldState) {
+            if ((minMovesToGoal == height) && (this.goalRobot != robo)) {
+                ++robo //useless to move this robot: can't reach goal
+            } else {
+                for (dir in 0..3) {
+                    if ((prevRobo != robo) || (prevDirBit0 != (dir and 1))) {
+                        val newRoboPos = this.slide(oldState, oldRoboPos, dir) //move the robot until it reaches a wall or another robot.
+                        //the robot has actually moved
+                        if (oldRoboPos != newRoboPos) {
+                            newState[robo] = newRoboPos
+                            //the new state is not already known (i.e. stored in knownStates)
+                            if (true == this.knownStates!!.add(newState, height)) {
+                                bitboard?.moveRobot(oldRoboPos, newRoboPos)
+                                if (true == doRecursion) {
+                                    this.dfsRecursionFast(depth1, robo, (dir and 1), newState)
+                                } else {
+                                    this.dfsLastFast(depth1, robo, (dir and 1), newState)
+                                }
+                                bitboard?.moveRobot(newRoboPos, oldRoboPos)
+                            }
+                        }
+                    }
+                }
+                newState[robo++] = oldRoboPos
+            }
+        }
+    }
+
+
+    // standard version: supports wildcard goal, solution01 special case and option noRebounds
+    @Throws(InterruptedException::class)
+    private fun dfsLast(
+        depth: Int,
+        prevRobo: Int,
+        prevDirBit0: Int,
+        oldState: IntArray,
+        oldDirs: IntArray
+    ) {
+        if (Thread.interrupted() || this.cancelled) {
+            throw InterruptedException()
+        }
+        ++this.nodeCount
+
+        //move goal robot(s) only
+        for (robo in this.minRobotLast..<oldState.size) {
+            val oldRoboPos = oldState[robo]
+            val oldDir = oldDirs[robo]
+            for (dir in 0..3) {
+                if (((true == this.optAllowRebounds) || ((oldDir != dir) && (oldDir != (dir xor 2)))) // (dir + 2) & 3
+                    && ((prevRobo != robo) || (prevDirBit0 != (dir and 1)))
+                ) {
+                    val newRoboPos = this.slide(oldState, oldRoboPos, dir) //move the robot until it reaches a wall or another robot.
+                    //the robot has arrived at the goal
+                    if ((this.goalPosition == newRoboPos) && hasPerpendicularMove(
+                            depth,
+                            robo,
+                            dir
+                        )
+                    ) {
+                        System.arraycopy(oldState, 0, this.states[depth], 0, oldState.size)
+                        this.states[depth][robo] = newRoboPos
+                        this.buildSolution(depth)
+                    }
+                }
+            }
+        }
+    }
+
+
+    // fast version: (false == this.isBoardGoalWildcard) && (false == this.isSolution01) && (true == this.optAllowRebounds)
+    @Throws(InterruptedException::class)
+    private fun dfsLastFast(depth: Int, prevRobo: Int, prevDirBit0: Int, oldState: IntArray) {
+        if (Thread.interrupted() || this.cancelled) {
+            throw InterruptedException()
+        }
+        ++this.nodeCount
+        val oldRoboPos = oldState[this.goalRobot]
+
+        //move goal robot only
+        for (dir in 0..3) {
+            if ((prevRobo != this.goalRobot) || (prevDirBit0 != (dir and 1))) {
+                val newRoboPos = this.slide(oldState, oldRoboPos, dir) //move the robot until it reaches a wall or another robot.
+                //the robot has arrived at the goal
+                if (this.goalPosition == newRoboPos) {
+                    System.arraycopy(oldState, 0, this.states[depth], 0, oldState.size)
+                    this.states[depth][this.goalRobot] = newRoboPos
+                    this.buildSolution(depth)
+                }
+            }
+        }
+    }
+
+
+    // periodic check (every memoryCheckInterval recursions): cancellation, deadline and free heap.
+    // the memory of the known states is limited by their MemoryArbiter reservation; the heap is
+    // only polled as the last guard against the allocations outside of the reservations, and
+    // only without a SearchBudget because the readings depend on the GC.
+    @Throws(InterruptedException::class)
+    private fun isSearchLimitReached(): Boolean {
+        if (Thread.currentThread().isInterrupted() || this.cancelled) {
+            throw InterruptedException("Solver was cancelled")
+        }
+        if (System.nanoTime() > this.deadlineNanos) {
+            this.stopSearch(SEARCH_STATUS.DEADLINE)
+            return true
+        }
+        if (null == this.searchBudget) {
+            val rt = Runtime.getRuntime()
+            val freeBytes = rt.maxMemory() - rt.totalMemory() + rt.freeMemory()
+            if (freeBytes < rt.maxMemory() / 100 * HEAP_GUARD_FREE_PERCENT) {
+                Logger.println("[MEMORY] search aborted: only " + (freeBytes shr 20) + "MB of the heap free")
+                this.stopSearch(SEARCH_STATUS.MEMORY_LOW)
+                return true
+            }
+        }
+        return false
+    }
+
+
+    // abort the search; the first reason is kept
+    private fun stopSearch(status: SEARCH_STATUS) {
+        if (null == this.stopStatus) {
+            this.stopStatus = status
+        }
+        this.searchAborted = true
+    }
+
+
+    // move the robot until it reaches a wall or another robot:
+    // the wall-stop is precomputed, so only the robots between start and wall-stop have to be checked.
+    private fun slide(state: IntArray, oldRoboPos: Int, dir: Int): Int {
+        val bitboard = this.bitboard
+        if (null != bitboard) {
+            return bitboard.slide(oldRoboPos, dir) //bitboard robots are kept in sync with the current state
+        }
+        var newRoboPos = this.wallStops[dir][oldRoboPos]
+        if (oldRoboPos != newRoboPos) {
+            val dirIncr = this.directionIncrement[dir]
+            if (0 != (dir and 1)) {
+                //EAST or WEST: all positions between start and wall-stop are in the same row
+                if (0 < dirIncr) {
+                    for (pos in state) {
+                        if ((pos > oldRoboPos) && (pos <= newRoboPos)) {
+                            newRoboPos = pos - dirIncr
+                        }
+                    }
+                } else {
+                    for (pos in state) {
+                        if ((pos < oldRoboPos) && (pos >= newRoboPos)) {
+                            newRoboPos = pos - dirIncr
+                        }
+                    }
+                }
+            } else {
+                //NORTH or SOUTH: only the positions in the same column are between start and wall-stop
+                val column = this.boardColumns[oldRoboPos]
+                if (0 < dirIncr) {
+                    for (pos in state) {
+                        if ((pos > oldRoboPos) && (pos <= newRoboPos) && (column == this.boardColumns[pos])) {
+                            newRoboPos = pos - dirIncr
+                        }
+                    }
+                } else {
+                    for (pos in state) {
+                        if ((pos < oldRoboPos) && (pos >= newRoboPos) && (column == this.boardColumns[pos])) {
+                            newRoboPos = pos - dirIncr
+                        }
+                    }
+                }
+            }
+        }
+        return newRoboPos
+    }
+
+
+    private fun hasPerpendicularMove(depth: Int, robot: Int, lastDir: Int): Boolean {
+        var prevDir = this.directions[0][robot]
+        var i = 1
+        while (depth > i) {
+            val thisDir = this.directions[i][robot]
+            if ((((thisDir + 1) and 3) == prevDir) || (((thisDir + 3) and 3) == prevDir)) {
+                return true
+            }
+            prevDir = thisDir
+            ++i
+        }
+        return (((lastDir + 1) and 3) == prevDir) || (((lastDir + 3) and 3) == prevDir)
+    }
+
+
+    private fun buildSolution(depth: Int) {
+        if (this.lastResultSolutions!!.size >= this.optSolutionCount) {
+            return //enough solutions: the search is already being aborted
+        }
+        // Multi-goal check: verify ALL goals are reached in the final state
+        if (this.isMultiGoalMode) {
+            val finalState = this.states[depth]
+            if (!isAllGoalsReached(finalState)) {
+                return  // not all goals reached yet - skip this solution
+            }
+        }
+
+        var newSolution = Solution(this.board)
+        var state0 = this.states[0].clone()
+        swapGoalLast(state0)
+        for (i in 0..<depth) {
+            val state1 = this.states[i + 1].clone()
+            swapGoalLast(state1)
+            newSolution.add(Move(this.board, state0, state1, i))
+            state0 = state1
+        }
+        newSolution = newSolution.finish()
+        Logger.println(
+            newSolution.toMovelistString() + " " + newSolution.toString() + " finalState=" + this.stateString(
+                states[depth]
+            )
+        )
+        if (false == this.lastResultSolutions!!.contains(newSolution)) {
+            this.lastResultSolutions!!.add(newSolution)
+            this.progressListener?.onSolutionFound(newSolution)
+            if (this.lastResultSolutions!!.size >= this.optSolutionCount) {
+                //enough solutions: abort the rest of this depth iteration (not a limit, the status is SOLVED)
+                this.solutionCountReached = true
+                this.searchAborted = true
+            }
+        }
+    }
+
+    /**
+     * Check if all active goals are reached in the given state.
+     * 
+     * KEY INSIGHT:
+     * The solver's existing single-goal search already finds the PRIMARY goal.
+     * This method only needs to verify that ALL OTHER goals are ALSO reached in that same state.
+     * 
+     * Why this works with minimal code changes:
+     * 1. The IDDFS algorithm searches for ANY state where the primary goal robot reaches its target
+     * 2. When found, buildSolution() is called with that state
+     * 3. We simply check: "Does this state also satisfy all other goals?"
+     * 4. If not, we skip it (return early) and continue searching
+     * 5. The search naturally continues until it finds a state satisfying ALL goals
+     * 
+     * State uses swapGoalLast format: the primary goal robot is at the last index.
+     */
+    private fun isAllGoalsReached(state: IntArray): Boolean {
+        val primaryGoalRobotNumber =
+            if (null == this.board.getGoal()) -1 else this.board.getGoal().robotNumber
+        for (i in this.activeGoalPositions.indices) {
+            var robotIdx = this.activeGoalRobots[i]
+            // Account for swapGoalLast: primary goal robot is swapped to last position
+            if (!this.isBoardGoalWildcard && robotIdx == primaryGoalRobotNumber) {
+                robotIdx = state.size - 1
+            } else if (!this.isBoardGoalWildcard && robotIdx == state.size - 1) {
+                // The robot that was originally at last position is now at primary goal robot's position
+                robotIdx = primaryGoalRobotNumber
+            }
+            if (state[robotIdx] != this.activeGoalPositions[i]) {
+                return false
+            }
+        }
+        return true
+    }
+
+
+    /**
+     * A node of the search tree that is used as the root of a subtree search by SolverIDDFSParallel.
+     * states[0] is the start state and states[i] is the state after i moves (swapGoalLast format).
+     * dirs[i] holds the last direction of each robot after i moves.
+     */
+    internal class SubtreeRoot(
+        @JvmField val states: Array<IntArray>,
+        @JvmField val dirs: Array<IntArray>,
+        @JvmField val prevRobo: Int,
+        @JvmField val prevDirBit0: Int
+    ) {
+        // identifies the subtree independent of the depth iteration
+        val hashKey: Int
+            get() = this.states[this.states.size - 1].contentHashCode()
+    }
+
+
+    // the depth iterations run while depthLimit < depthLimitEnd (MAX_DEPTH, or less if limited by the SearchBudget)
+    internal val depthLimitEnd: Int
+        get() = min(this.MAX_DEPTH.toLong(), (this.searchBudget?.maxDepth ?: SearchBudget.UNLIMITED_DEPTH) + 1L).toInt()
+
+    internal val searchStopStatus: SEARCH_STATUS?
+        get() = this.stopStatus
+
+    internal val isDfsFast: Boolean
+        get() = (false == this.isBoardGoalWildcard) && (false == this.isSolution01) && (true == this.optAllowRebounds)
+
+    // worker mode: a limit, memory or a stop request has stopped this worker (see searchStopStatus)
+    internal val isStopped: Boolean
+        get() = (null != this.stopStatus)
+
+    internal val knownStatesSize: Int
+        get() = if (this.knownStates != null) this.knownStates!!.size() else 0
+
+    internal val knownStatesMegaBytes: Int
+        get() = if (this.knownStates != null) this.knownStates!!.megaBytesAllocated else 0
+
+    // number of states added to the known states (cheap, unlike knownStatesSize)
+    internal val knownStatesAdded: Int
+        get() = if (this.knownStates != null) this.knownStates!!.addedCount else 0
+
+    internal val knownStatesBytes: Long
+        get() = if (this.knownStates != null) this.knownStates!!.bytesAllocated else 0
+
+    internal val nodesExpanded: Long
+        get() = this.nodeCount
+
+
+    override fun recycle(board: Board): Solver {
+        return this.copyOptionsTo(SolverIDDFS(board, this))
+    }
+
+
+    // worker mode: initialize everything that execute() does before the search starts
+    // sharedWith: use the knownStates of another worker (requires a concurrent KeyDepthMap)
+    // startNanos: start of the search, for the SearchBudget deadline
+    internal fun prepareWorker(sharedWith: SolverIDDFS?, startNanos: Long) {
+        this.lastResultSolutions = ArrayList<Solution>()
+        this.cancelled = false
+        this.searchAborted = false
+        this.stopStatus = null
+        this.solutionCountReached = false
+        this.deadlineNanos = this.searchBudget?.deadlineNanos(startNanos) ?: Long.MAX_VALUE
+        this.nodeCount = 0
+        this.releasedMemoryMegabytes = 0
+        this.states[0] = this.board.robotPositions.clone()
+        swapGoalLast(this.states[0]) //goal robot is always the last one.
+        Arrays.fill(this.directions[0], DIRECTION_NOT_MOVED_YET)
+        this.precomputeMinimumMovesToGoal()
+        this.initBackend()
+        this.isSharedKnownStates = (null != sharedWith)
+        this.isBorrowedKnownStates = (null != sharedWith)
+        this.knownStatesBorrowers.clear()
+        if (null != sharedWith) {
+            sharedWith.isSharedKnownStates = true
+            sharedWith.knownStatesBorrowers.add(this)
+            sharedWith.stopStatus?.let { this.stopSearch(it) } //e.g. no memory reservation for the known states
+        }
+        this.knownStates = if (null == sharedWith) KnownStates() else sharedWith.knownStates
+    }
+
+
+    // worker mode: allow garbage collection of the known states after the search
+    // keepForRecycle: false if the search was not completed
+    // isJoined: false if the workers might still be running on a pool thread
+    internal fun releaseWorker(keepForRecycle: Boolean, isJoined: Boolean) {
+        this.releaseKnownStates(keepForRecycle, isJoined)
+    }
+
+
+    // allow garbage collection of the known states; a small map is kept for the next search (see recycle()).
+    // a map that is not kept is released, unless another thread might still use it (isUnused false).
+    // the known states of another worker are only dropped, they are released by that worker.
+    private fun releaseKnownStates(keepForRecycle: Boolean, isUnused: Boolean) {
+        val knownStates = this.knownStates ?: return
+        this.knownStates = null
+        if (this.isBorrowedKnownStates) return
+        knownStates.releaseReservation()
+        this.recycledMap = if (keepForRecycle && isUnused) knownStates.reusableMap else null
+        if (isUnused && (null == this.recycledMap)) {
+            knownStates.releaseMap()
+        }
+        this.releasedMemoryMegabytes = if (null == this.recycledMap) knownStates.megaBytesAllocated else 0
+    }
+
+
+    override fun releaseRecycledBuffers() {
+        this.recycledMap?.release()
+        this.recycledMap = null
+    }
+
+
+    override fun getRecycledBytes(): Long {
+        return this.recycledMap?.heapBytes() ?: 0
+    }
+
+
+    // worker mode: reset memory monitoring before a new depth iteration (a stop request stays active)
+    internal fun resetMemoryMonitor() {
+        this.searchAborted = (null != this.stopStatus)
+        this.recursionCounter = 0
+    }
+
+
+    // worker mode: stop the search as soon as possible (checked like thread interruption)
+    internal fun cancel() {
+        this.cancelled = true
+    }
+
+
+    internal fun newSubtreeRoot(): SubtreeRoot {
+        return SubtreeRoot(
+            arrayOf(this.states[0].clone()),
+            arrayOf(this.directions[0].clone()),
+            -1,
+            -1
+        )
+    }
+
+
+    // worker mode: generate the children of a subtree root with the moves of dfsRecursion
+    internal fun expandSubtreeRoot(root: SubtreeRoot, depthLimit: Int, result: MutableList<SubtreeRoot>) {
+        val depth = root.states.size
+        val oldState = root.states[depth - 1]
+        val oldDirs = root.dirs[depth - 1]
+        val height = depthLimit - depth + 1
+        val minMovesToGoal = this.getMinMovesToGoal(oldState)
+        if ((minMovesToGoal > height) || ((minMovesToGoal == height) && this.isGoalHelperMissing(oldState))) {
+            return  //useless to move any robot: can't reach goal
+        }
+        this.bitboard?.setRobots(oldState)
+        this.forEachMove(oldState, oldDirs, root.prevRobo, root.prevDirBit0, (minMovesToGoal == height)) { robo, dir, _, newRoboPos, _ ->
+            val newState = oldState.clone()
+            newState[robo] = newRoboPos
+            val newDirs = oldDirs.clone()
+            newDirs[robo] = dir
+            result.add(SubtreeRoot(root.states + newState, root.dirs + newDirs, robo, (dir and 1)))
+        }
+    }
+
+
+    // worker mode: run one depth iteration of the search below the given subtree root
+    @Throws(InterruptedException::class)
+    internal fun searchSubtree(root: SubtreeRoot, depthLimit: Int): List<Solution> {
+        this.lastResultSolutions = ArrayList<Solution>()
+        if (this.searchAborted || (null == this.knownStates)) {
+            return this.lastResultSolutions!!
+        }
+        this.depthLimit = depthLimit
+        val last = root.states.size - 1
+        var isNewState = true
+        for (i in 0..last) {
+            System.arraycopy(root.states[i], 0, this.states[i], 0, root.states[i].size)
+            System.arraycopy(root.dirs[i], 0, this.directions[i], 0, root.dirs[i].size)
+            //register the prefix in knownStates, like dfsRecursion does on its way down
+            if ((i > 0) && (false == this.isSolution01NoSpeedup)) {
+                val movedGoalRobot = (this.goalRobot < 0) || (root.states[i - 1][this.goalRobot] != root.states[i][this.goalRobot])
+                if ((false == this.isSolution01) || (false == movedGoalRobot)) {
+                    isNewState = this.knownStates!!.add(this.states[i], depthLimit - i + 1)
+                } else {
+                    isNewState = true
+                }
+            }
+        }
+        if (false == isNewState) {
+            return this.lastResultSolutions!! //already searched by this worker at this (or a greater) height
+        }
+        val depth = last + 1
+        this.bitboard?.setRobots(this.states[last])
+        try {
+            if (this.isDfsFast) {
+                if (depthLimit > depth) {
+                    this.dfsRecursionFast(depth, root.prevRobo, root.prevDirBit0, this.states[last])
+                } else {
+                    this.dfsLastFast(depth, root.prevRobo, root.prevDirBit0, this.states[last])
+                }
+            } else {
+                if (depthLimit > depth) {
+                    this.dfsRecursion(depth, root.prevRobo, root.prevDirBit0, this.states[last], this.directions[last])
+                } else {
+                    this.dfsLast(depth, root.prevRobo, root.prevDirBit0, this.states[last], this.directions[last])
+                }
+            }
+        } catch (oom: OutOfMemoryError) {
+            this.releaseKnownStates(false, false == this.isSharedKnownStates)
+            Logger.println("[MEMORY] OOM caught in searchSubtree at depthLimit=" + depthLimit + " - freed knownStates")
+            this.stopSearch(SEARCH_STATUS.MEMORY_LOW)
+        }
+        return this.lastResultSolutions!!
+    }
+
+
+    private inner class KnownStates {
+        private val allKeys: AllKeys
+
+        //store the unique keys of all known states
+        private abstract inner class AllKeys protected constructor() {
+            val theMap: KeyDepthMap
+
+            init {
+                //reuse the map of the last search if it can be cleared for this board and it is
+                //of the default class (e.g. not a TrieSpecial when the workers share a concurrent map)
+                val map = recycledMap
+                recycledMap = null
+                if ((null != map) && (map.javaClass == KeyDepthMapFactory.getDefaultClass()) && map.reset(board)) {
+                    this.theMap = map
+                } else {
+                    map?.release()
+                    this.theMap = KeyDepthMapFactory.newInstance(board)
+                }
+            }
+
+            abstract fun add(state: IntArray?, depth: Int): Boolean
+
+            val bytesAllocated: Long
+                get() = this.theMap.allocatedBytes()
+
+            val heapBytesAllocated: Long
+                get() = this.theMap.heapBytes()
+
+            abstract val info: String
+        }
+
+        //store the unique keys of all known states in 32-bit ints
+        //supports up to 4 robots with a board size of 256 (16*16)
+        private inner class AllKeysInt : AllKeys() {
+            private val keyMaker: KeyMakerInt? = KeyMakerInt.createInstance(
+                board.numRobots,
+                board.sizeNumBits,
+                isBoardGoalWildcard,
+                isSolution01
+            )
+
+            override fun add(state: IntArray?, depth: Int): Boolean {
+                val key = this.keyMaker!!.run(state!!)
+                return this.theMap.putIfGreater(key, depth)
+            }
+
+            override val info: String
+                get() = this.javaClass.getSimpleName() + "," + this.theMap.javaClass.getSimpleName() + "," + (if (null == this.keyMaker) "n/a" else this.keyMaker.javaClass.getSimpleName())
+        }
+
+        //store the unique keys of all known states in 64-bit longs
+        //supports more than 4 robots and/or board sizes larger than 256
+        private inner class AllKeysLong : AllKeys() {
+            private val keyMaker: KeyMakerLong? = KeyMakerLong.createInstance(
+                board.numRobots,
+                board.sizeNumBits,
+                isBoardGoalWildcard,
+                isSolution01
+            )
+
+            override fun add(state: IntArray?, depth: Int): Boolean {
+                val key = this.keyMaker!!.run(state!!)
+                return this.theMap.putIfGreater(key, depth)
+            }
+
+            override val info: String
+                get() = this.javaClass.getSimpleName() + "," + this.theMap.javaClass.getSimpleName() + "," + (if (null == this.keyMaker) "n/a" else this.keyMaker.javaClass.getSimpleName())
+        }
+
+        // Deterministic memory limit (Runtime.freeMemory is unreliable on Android ART):
+        // - maxBytes: Trie byte limit (SearchBudget.maxBytes, or the capacity of MemoryArbiter.shared for the heap bytes) - checked every 500 states
+        // - reservation: heap bytes granted by MemoryArbiter.shared, grown with the Trie - checked every 500 states
+        //   (an off-heap map like KeyDepthMapOffHeap has only a few heap bytes and its own limit)
+        // - maxStates: SearchBudget.maxStates - checked on every add
+        // This ensures the solver stops BEFORE exhausting physical RAM, also while other searches run.
+        // Workers that share the known states (see prepareWorker) count and stop together.
+        private val maxBytes: Long
+        private val isBudgetMaxBytes: Boolean
+        private val maxStates: Int
+        private val stateCount = AtomicInteger()
+        @Volatile
+        private var nextMemoryCheck = MEMORY_CHECK_STATES
+        private var reservation: MemoryArbiter.Reservation? = null
+
+        init {
+            val arbiter = MemoryArbiter.shared
+            val budget = searchBudget
+            this.isBudgetMaxBytes = (null != budget) && (SearchBudget.UNLIMITED_BYTES != budget.maxBytes)
+            maxBytes = if (this.isBudgetMaxBytes) budget!!.maxBytes else arbiter.capacity
+            maxStates = budget?.maxStates ?: SearchBudget.UNLIMITED_STATES
+            Logger.println("[MEMORY] KnownStates maxBytes=" + (maxBytes shr 20) + "MB (arbiter capacity=" + (arbiter.capacity shr 20) + "MB, reserved=" + (arbiter.reservedBytes shr 20) + "MB)")
+        }
+
+        init {
+            this.allKeys =
+                if (board.sizeNumBits * (board.numRobots - (if (isSolution01) 1 else 0)) <= 32) AllKeysInt() else AllKeysLong()
+            // a recycled map starts with the bytes of the last search
+            this.reservation = MemoryArbiter.shared.reserve(max(this.allKeys.heapBytesAllocated, RESERVATION_STEP_BYTES), optMemoryPriority)
+            if (null == this.reservation) {
+                Logger.println("[MEMORY] knownStates: no memory reservation granted (" + optMemoryPriority + ") - search not started")
+                stop(SEARCH_STATUS.MEMORY_LOW)
+            }
+        }
+
+        // stop the search of this worker and of the workers that share the known states
+        private fun stop(status: SEARCH_STATUS) {
+            stopSearch(status)
+            for (borrower in knownStatesBorrowers) {
+                borrower.stopSearch(status)
+            }
+        }
+
+        fun add(state: IntArray?, depth: Int): Boolean {
+            if (searchAborted) return false
+            val stateCount = this.stateCount.get()
+            // Expensive Trie-internal check every MEMORY_CHECK_STATES states
+            if (stateCount >= this.nextMemoryCheck) {
+                this.nextMemoryCheck = stateCount + MEMORY_CHECK_STATES
+                val allocated = this.allKeys.bytesAllocated
+                val heapBytes = this.allKeys.heapBytesAllocated
+                if ((if (this.isBudgetMaxBytes) allocated else heapBytes) > maxBytes) {
+                    Logger.println("[MEMORY] knownStates aborted: Trie " + (allocated shr 20) + "MB > limit " + (maxBytes shr 20) + "MB at " + stateCount + " states")
+                    stop(if (this.isBudgetMaxBytes) SEARCH_STATUS.BYTES_LIMIT else SEARCH_STATUS.MEMORY_LOW)
+                    return false
+                }
+                val reservation = this.reservation
+                if ((null != reservation) && (heapBytes > reservation.bytes) &&
+                    (false == reservation.grow(min(maxBytes, heapBytes + RESERVATION_STEP_BYTES)))) {
+                    Logger.println("[MEMORY] knownStates aborted: Trie " + (heapBytes shr 20) + "MB on heap, reservation " +
+                            (if (reservation.isRevoked) "revoked" else "not granted") + " at " + stateCount + " states")
+                    stop(SEARCH_STATUS.MEMORY_LOW)
+                    return false
+                }
+            }
+            if (stateCount >= maxStates) {
+                Logger.println("knownStates aborted: SearchBudget maxStates=" + maxStates + " reached")
+                stop(SEARCH_STATUS.STATES_LIMIT)
+                return false
+            }
+            try {
+                val added = this.allKeys.add(state, depth)
+                if (added) this.stateCount.incrementAndGet()
+                return added
+            } catch (oom: OutOfMemoryError) {
+                Logger.println("[MEMORY] OOM in knownStates.add() at " + stateCount + " states - aborting search")
+                stop(SEARCH_STATUS.MEMORY_LOW)
+                return false
+            }
+        }
+
+        fun size(): Int {
+            return this.allKeys.theMap.size()
+        }
+
+        val addedCount: Int
+            get() = this.stateCount.get()
+
+        val bytesAllocated: Long
+            get() = this.allKeys.bytesAllocated
+
+        // the map can be kept for the next search if it is small
+        val reusableMap: KeyDepthMap?
+            get() = if (this.allKeys.bytesAllocated <= REUSE_MAX_BYTES) this.allKeys.theMap else null
+
+        val megaBytesAllocated: Int
+            get() = ((this.allKeys.bytesAllocated + (1 shl 20) - 1) shr 20).toInt()
+        val info: String
+            get() = "KnownStates(" + this.allKeys.info + ")"
+
+        // give the reserved bytes back to MemoryArbiter.shared (a recycled map is small, see REUSE_MAX_BYTES)
+        fun releaseReservation() {
+            this.reservation?.release()
+            this.reservation = null
+        }
+
+        // give the off-heap memory of a map that is not recycled back to the system
+        fun releaseMap() {
+            this.allKeys.theMap.release()
+        }
+    }
+
+    companion object {
+        // keep the known states map after a search only if it has at most this size: a new
+        // KeyDepthMapTrieSpecial preallocates about 20 MB, a larger heap may keep a larger map
+        private val REUSE_MAX_BYTES = max(24L shl 20, Runtime.getRuntime().maxMemory() / 16)
+
+        // the known states check their bytes and memory reservation every this number of added states
+        private const val MEMORY_CHECK_STATES = 500
+
+        // the memory reservation of the known states grows in steps of this size
+        private const val RESERVATION_STEP_BYTES = 8L shl 20
+
+        // without a SearchBudget the search stops when less than this share of the heap is free
+        // (the reservations of MemoryArbiter.shared cover at most HEAP_PERCENT of the heap)
+        private const val HEAP_GUARD_FREE_PERCENT = 10L
+
+        // Lower MAX_DEPTH for 5+ robots to prevent OOM errors
+        // The search space grows exponentially with more robots
+        private fun getMaxDepthForRobots(numRobots: Int): Int {
+            // Scale down max depth based on number of robots to prevent OOM
+            if (numRobots >= 5) {
+                // Much lower depth for 5+ robots since search space is exponentially larger
+                return 24
+            } else if (numRobots >= 4) {
+                return 64
+            } else {
+                return 126 // Original MAX_DEPTH for 1-3 robots
+            }
+        }
+
+        // Calculate max depth for multi-goal mode
+        // Multi-goal search space is exponentially larger, but memory check prevents OOM
+        // These limits allow finding solutions while memory monitoring prevents crashes
+        private fun getMaxDepthForMultiGoal(numRobots: Int): Int {
+            if (numRobots >= 5) {
+                return 18 // 5+ robots: very large branching factor
+            } else if (numRobots >= 4) {
+                return 25 // 4 robots: DFS call-stack explodes at depth 15+ on 512MB heap
+            } else {
+                return 30 // 1-3 robots: smaller branching factor allows deeper search
+            }
+        }
+
+        private const val DIRECTION_NOT_MOVED_YET = 7
+    }
+}
@@ -0,0 +1,391 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2025 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package driftingdroids.model
+
+import java.util.Arrays
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
+import java.util.concurrent.RecursiveAction
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * Parallel version of the IDDFS solver.
+ *
+ *
+ * Each depth iteration is split at the first one or two plies of robot moves.
+ * The resulting subtrees are searched as ForkJoin tasks by a number of
+ * SolverIDDFS workers, each with its own states/obstacles/directions buffers
+ * and its own known states. The subtrees are assigned to the workers by their
+ * size in the previous depth iteration (largest first, each to the worker with
+ * the least work so far), and the solutions of all subtrees are merged in the
+ * order of the subtrees.
+ *
+ *
+ * The optimal number of moves doesn't depend on thread scheduling. The set of
+ * solutions does only with separate known states: with a concurrent KeyDepthMap
+ * the workers share the known states, so a subtree may be cut where another
+ * worker has added the same state first, and with a solution count option the
+ * fastest subtrees win.
+ *
+ *
+ * Expected speedup: only the depth iterations that take long are worth splitting, so the
+ * gain is on hard boards (5 robots, 16x16, 10+ moves) where the last iterations take seconds.
+ * There each worker gets at least MIN_TASKS_PER_WORKER subtrees, and the speedup is below
+ * linear for two reasons: the subtrees differ in size, and with separate known states a worker
+ * searches again the states that another worker has already searched (a concurrent KeyDepthMap
+ * shares them). As a rough estimate, expect a speedup of about half the number of cores with
+ * separate known states and more with a shared map; measure it on the target device with
+ * SolverBenchmark (-p parallelism=1,4,8). Easy boards take longer than with SolverIDDFS
+ * because of the thread pool and the split, so use the parallel mode only for hard boards.
+ */
+class SolverIDDFSParallel internal constructor(board: Board, parallelism: Int, recycled: SolverIDDFSParallel?) : Solver(board) {
+    constructor(board: Board, parallelism: Int) : this(board, parallelism, null)
+
+    private val parallelism: Int
+    private val workers: Array<SolverIDDFS>
+    private var deadlineReached = false // SearchBudget deadline reached between two depth iterations
+    @Volatile
+    private var stopRequested = false
+    private val subtreeNodes = HashMap<Int, Long>() // nodes per subtree (hashKey) in the previous depth iteration
+
+    init {
+        this.parallelism = max(1, parallelism)
+        this.workers = Array(this.parallelism) { SolverIDDFS(board, recycled?.workers?.getOrNull(it)) }
+    }
+
+
+    override fun recycle(board: Board): Solver {
+        return this.copyOptionsTo(SolverIDDFSParallel(board, this.parallelism, this))
+    }
+
+
+    override fun releaseRecycledBuffers() {
+        for (worker in this.workers) {
+            worker.releaseRecycledBuffers()
+        }
+    }
+
+
+    override fun getRecycledBytes(): Long {
+        return this.workers.sumOf { it.getRecycledBytes() }
+    }
+
+
+    @Throws(InterruptedException::class)
+    override fun execute(): List<Solution> {
+        val startExecute = System.nanoTime()
+        this.lastResultSolutions = ArrayList<Solution>()
+        this.searchStatus = SEARCH_STATUS.NO_GOAL
+        this.deadlineReached = false
+        this.stopRequested = false
+        this.subtreeNodes.clear()
+
+        Logger.println("***** " + this.javaClass.getSimpleName() + " *****")
+        Logger.println("Options: " + this.getOptionsAsString() + "; parallelism=" + this.parallelism)
+
+        if (null == this.board.getGoal()) {
+            Logger.println("no goal is set - nothing to solve!")
+        } else {
+            //share the known states between all workers if the KeyDepthMap is thread-safe
+            val isSharedKnownStates = KeyDepthMapFactory.isDefaultClassConcurrent()
+            //the state and byte limits are for all workers together
+            val workerBudget = if (isSharedKnownStates) this.searchBudget else this.searchBudget?.split(this.parallelism)
+            for (worker in this.workers) {
+                worker.setOptionSolutionMode(this.optSolutionMode)
+                worker.setOptionAllowRebounds(this.optAllowRebounds)
+                worker.setOptionBackend(this.optBackend)
+                worker.setOptionSolutionCount(this.optSolutionCount)
+                worker.setSearchBudget(workerBudget)
+                worker.setOptionMemoryPriority(this.optMemoryPriority)
+                worker.prepareWorker(if (isSharedKnownStates && (worker !== this.workers[0])) this.workers[0] else null, startExecute)
+            }
+            val pool = ForkJoinPool(this.parallelism)
+            var completed = false
+            try {
+                this.iddfs(pool, this.searchBudget?.deadlineNanos(startExecute) ?: Long.MAX_VALUE)
+                completed = true
+                var stopStatus: SEARCH_STATUS? = if (this.deadlineReached) SEARCH_STATUS.DEADLINE else (if (this.stopRequested) SEARCH_STATUS.STOPPED else null)
+                for (worker in this.workers) {
+                    stopStatus = stopStatus ?: worker.searchStopStatus
+                }
+                this.searchStatus = if (false == this.lastResultSolutions!!.isEmpty()) SEARCH_STATUS.SOLVED else (stopStatus ?: SEARCH_STATUS.DEPTH_LIMIT)
+                Logger.println("search status: " + this.searchStatus.getName())
+            } finally {
+                pool.shutdownNow()
+                //the maps are released after the workers have stopped
+                if (false == completed) {
+                    for (worker in this.workers) {
+                        worker.cancel()
+                    }
+                }
+                val isJoined = completed || awaitWorkers(pool)
+                var storedStates = 0
+                var addedStates = 0
+                var megaBytes = 0
+                var releasedMegaBytes = 0
+                for (worker in this.workers) {
+                    val isOwnKnownStates = (false == isSharedKnownStates) || (worker === this.workers[0])
+                    if (isOwnKnownStates) {
+                        storedStates += worker.knownStatesSize
+                        addedStates += worker.knownStatesAdded
+                        megaBytes += worker.knownStatesMegaBytes
+                    }
+                    //allow garbage collection (the map of an interrupted search is not recycled)
+                    worker.releaseWorker(completed, isJoined)
+                    if (isOwnKnownStates) {
+                        releasedMegaBytes += worker.getReleasedMemoryMegabytes()
+                    }
+                }
+                this.solutionStoredStates = storedStates
+                this.solutionAddedStates = addedStates
+                this.solutionMemoryMegabytes = megaBytes
+                this.releasedMemoryMegabytes = releasedMegaBytes
+            }
+        }
+        this.sortSolutions()
+
+        this.solutionMilliSeconds = (System.nanoTime() - startExecute) / 1000000L
+        return this.lastResultSolutions!!
+    }
+
+
+    // wait until the cancelled workers have stopped (also when this thread is interrupted)
+    private fun awaitWorkers(pool: ForkJoinPool): Boolean {
+        var interrupted = Thread.interrupted()
+        try {
+            return pool.awaitTermination(WORKER_STOP_MILLIS, TimeUnit.MILLISECONDS)
+        } catch (e: InterruptedException) {
+            interrupted = true
+            return false
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt()
+            }
+        }
+    }
+
+
+    override fun requestStop() {
+        this.stopRequested = true
+        for (worker in this.workers) {
+            worker.requestStop()
+        }
+    }
+
+
+    @Throws(InterruptedException::class)
+    private fun iddfs(pool: ForkJoinPool, deadlineNanos: Long) {
+        val nanoStart = System.nanoTime()
+        val depthLimitEnd = this.workers[0].depthLimitEnd
+        var depthLimit = max(2, min(this.optMinimumDepth, depthLimitEnd - 1))
+        while (depthLimitEnd > depthLimit) {
+            if (Thread.currentThread().isInterrupted()) {
+                Logger.println("iddfs: Thread interrupted, stopping solver")
+                throw InterruptedException("Solver was cancelled")
+            }
+            if (System.nanoTime() > deadlineNanos) {
+                this.deadlineReached = true
+                Logger.println("iddfs: deadline reached before depthLimit=" + depthLimit)
+                break
+            }
+            if (this.stopRequested) {
+                break
+            }
+            val nanoDfs = System.nanoTime()
+            val roots = this.splitIteration(depthLimit)
+            for (worker in this.workers) {
+                worker.resetMemoryMonitor()
+            }
+
+            val assignment = this.assignSubtrees(roots)
+            val results = arrayOfNulls<List<Solution>>(roots.size)
+            val nodes = LongArray(roots.size)
+            val solutionsFound = AtomicInteger()
+            val tasks = ArrayList<WorkerTask>(this.parallelism)
+            for (w in this.workers.indices) {
+                tasks.add(WorkerTask(this.workers[w], roots, assignment[w], depthLimit, results, nodes, solutionsFound, this.optSolutionCount))
+            }
+            val future = pool.submit(object : RecursiveAction() {
+                override fun compute() {
+                    ForkJoinTask.invokeAll(tasks)
+                }
+            })
+            try {
+                future.get()
+            } catch (e: InterruptedException) {
+                for (worker in this.workers) {
+                    worker.cancel()
+                }
+                Logger.println("iddfs: Thread interrupted, stopping solver")
+                throw e
+            } catch (e: ExecutionException) {
+                val cause = e.cause
+                if (cause is InterruptedException) {
+                    throw cause
+                }
+                throw RuntimeException(cause)
+            }
+
+            this.subtreeNodes.clear()
+            for (i in roots.indices) {
+                this.subtreeNodes[roots[i].hashKey] = nodes[i]
+            }
+
+            //merge the solutions in a deterministic order (order of the subtrees)
+            for (subtreeSolutions in results) {
+                if (null != subtreeSolutions) {
+                    for (solution in subtreeSolutions) {
+                        if ((this.lastResultSolutions!!.size < this.optSolutionCount) && (false == this.lastResultSolutions!!.contains(solution))) {
+                            this.lastResultSolutions!!.add(solution)
+                            this.progressListener?.onSolutionFound(solution)
+                        }
+                    }
+                }
+            }
+            val nanoEnd = System.nanoTime()
+            Logger.println(
+                "iddfs:  finished depthLimit=" + depthLimit +
+                        " subtrees=" + roots.size +
+                        " time=" + (nanoEnd - nanoDfs) / 1000000L + "ms" +
+                        " totalTime=" + (nanoEnd - nanoStart) / 1000000L + "ms"
+            )
+
+            var stopped = false
+            for (worker in this.workers) {
+                stopped = stopped || worker.isStopped
+            }
+            val listener = this.progressListener
+            if ((null != listener) && ((false == stopped) || (false == this.lastResultSolutions!!.isEmpty()))) {
+                listener.onDepthCompleted(this.newProgress(depthLimit, (nanoEnd - nanoStart) / 1000000L))
+            }
+            if (false == this.lastResultSolutions!!.isEmpty()) {
+                break //found solution(s)
+            }
+            if (stopped) {
+                Logger.println("[MEMORY] Stopping search: a limit was reached or memory was critically low during depth " + depthLimit)
+                break
+            }
+            ++depthLimit
+        }
+    }
+
+
+    // sum up the progress of all workers (the known states are counted once if they are shared)
+    private fun newProgress(depthLimit: Int, elapsedMillis: Long): SearchProgress {
+        val isSharedKnownStates = KeyDepthMapFactory.isDefaultClassConcurrent()
+        var nodes = 0L
+        var states = 0
+        var bytes = 0L
+        for (worker in this.workers) {
+            nodes += worker.nodesExpanded
+            if ((false == isSharedKnownStates) || (worker === this.workers[0])) {
+                states += worker.knownStatesAdded
+                bytes += worker.knownStatesBytes
+            }
+        }
+        return SearchProgress(depthLimit, nodes, states, elapsedMillis, bytes, this.lastResultSolutions!!.size)
+    }
+
+
+    // longest processing time first: the subtrees sorted by their nodes in the previous
+    // depth iteration (new subtrees count as average), each given to the worker with the
+    // fewest nodes so far. with the same sizes this is deterministic, so a subtree usually
+    // stays with the worker that has its knownStates from the previous depth iteration.
+    private fun assignSubtrees(roots: List<SolverIDDFS.SubtreeRoot>): Array<IntArray> {
+        val average = if (this.subtreeNodes.isEmpty()) 1L else max(1L, this.subtreeNodes.values.sum() / this.subtreeNodes.size)
+        val estimates = LongArray(roots.size) { this.subtreeNodes[roots[it].hashKey] ?: average }
+        val order = roots.indices.sortedWith(compareByDescending<Int> { estimates[it] }.thenBy { it })
+        val loads = LongArray(this.parallelism)
+        val assigned = Array(this.parallelism) { ArrayList<Int>() }
+        for (i in order) {
+            var w = 0
+            for (other in 1 until this.parallelism) {
+                if (loads[other] < loads[w]) {
+                    w = other
+                }
+            }
+            loads[w] += estimates[i]
+            assigned[w].add(i)
+        }
+        return Array(this.parallelism) { assigned[it].toIntArray() }
+    }
+
+
+    // split the search tree of this depth iteration at the first one or two plies
+    private fun splitIteration(depthLimit: Int): List<SolverIDDFS.SubtreeRoot> {
+        val maxPlies = min(MAX_SPLIT_PLIES, depthLimit - 1)
+        var frontier: List<SolverIDDFS.SubtreeRoot> = listOf(this.workers[0].newSubtreeRoot())
+        var ply = 0
+        while ((ply < maxPlies) && (frontier.size < MIN_TASKS_PER_WORKER * this.parallelism)) {
+            val next = ArrayList<SolverIDDFS.SubtreeRoot>()
+            val children = ArrayList<SolverIDDFS.SubtreeRoot>()
+            val seen = HashSet<String>()
+            for (root in frontier) {
+                children.clear()
+                this.workers[0].expandSubtreeRoot(root, depthLimit, children)
+                for (child in children) {
+                    if (seen.add(Arrays.toString(child.states[child.states.size - 1]))) {
+                        next.add(child)
+                    }
+                }
+            }
+            frontier = next
+            ++ply
+        }
+        return frontier
+    }
+
+
+    private class WorkerTask(
+        private val worker: SolverIDDFS,
+        private val roots: List<SolverIDDFS.SubtreeRoot>,
+        private val rootIndices: IntArray,
+        private val depthLimit: Int,
+        private val results: Array<List<Solution>?>,
+        private val nodes: LongArray,
+        private val solutionsFound: AtomicInteger,
+        private val solutionCount: Int
+    ) : RecursiveAction() {
+        override fun compute() {
+            for (i in this.rootIndices) {
+                if (this.solutionsFound.get() >= this.solutionCount) {
+                    break //enough solutions found by all workers together
+                }
+                val nodesBefore = this.worker.nodesExpanded
+                val solutions = ArrayList<Solution>(this.worker.searchSubtree(this.roots[i], this.depthLimit))
+                this.nodes[i] = this.worker.nodesExpanded - nodesBefore
+                this.results[i] = solutions
+                this.solutionsFound.addAndGet(solutions.size)
+            }
+        }
+    }
+
+    companion object {
+        // split at most this number of plies
+        private const val MAX_SPLIT_PLIES = 2
+
+        // split another ply if there are fewer subtrees than this per worker
+        private const val MIN_TASKS_PER_WORKER = 4
+
+        // a cancelled worker checks its flag every few thousand nodes
+        private const val WORKER_STOP_MILLIS = 5000L
+    }
+}
@@ -0,0 +1,265 @@
+package roboyard.logic.solver
+
+import driftingdroids.model.Logger
+import driftingdroids.model.SearchBudget
+import driftingdroids.model.Solver
+import java.io.File
+import java.io.PrintStream
+import java.util.Locale
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import kotlin.system.exitProcess
+
+/**
+ * Solves many levels or save games on a thread pool and writes a report.
+ *
+ * Every map gets its own solver instance and SearchBudget, so the results do not depend on the
+ * order of the maps or on the number of threads (except for the time and the heap-based limits
+ * when no budget is given). The report has one entry per map (status, optimal number of moves,
+ * robots moved, states, milliseconds, memory) and the aggregate throughput.
+ *
+ * Usage: BatchSolver [options] file|directory...
+ * (with Gradle: ./gradlew :solver:run --args="--threads 4 --format csv app/src/main/assets/Maps")
+ */
+object BatchSolver {
+
+    class Options {
+        @JvmField var threads: Int = Runtime.getRuntime().availableProcessors()
+        @JvmField var parallelism: Int = 1
+        @JvmField var csv: Boolean = false
+        @JvmField var output: File? = null
+        @JvmField var budget: SearchBudget? = null
+        @JvmField val inputs = ArrayList<File>()
+    }
+
+    /**
+     * result of one map; moves and robotsMoved are -1 if the map was not solved.
+     */
+    class Result(
+        @JvmField val file: String,
+        @JvmField val width: Int,
+        @JvmField val height: Int,
+        @JvmField val robots: Int,
+        @JvmField val status: String,
+        @JvmField val moves: Int,
+        @JvmField val robotsMoved: Int,
+        @JvmField val statesStored: Int,
+        @JvmField val statesAdded: Int,
+        @JvmField val milliSeconds: Long,
+        @JvmField val memoryMegabytes: Int
+    ) {
+        val isSolved: Boolean
+            get() = moves >= 0
+    }
+
+    private const val USAGE = """usage: BatchSolver [options] file|directory...
+  directories are searched for *.txt files (levels and save games)
+  --threads N       maps solved at the same time (default: number of processors)
+  --parallelism N   solver threads per map (default: 1)
+  --format json|csv report format (default: json)
+  --output FILE     write the report to FILE instead of stdout
+  --max-states N    SearchBudget: states per map
+  --max-bytes N     SearchBudget: bytes of known states per map
+  --max-millis N    SearchBudget: milliseconds per map
+  --max-depth N     SearchBudget: moves per map"""
+
+    @JvmStatic
+    fun main(args: Array<String>) {
+        val options = try {
+            parseArgs(args)
+        } catch (e: IllegalArgumentException) {
+            System.err.println(e.message)
+            System.err.println(USAGE)
+            exitProcess(2)
+        }
+        Logger.sink = Logger.NONE
+
+        val files = collectFiles(options.inputs)
+        val wallStart = System.nanoTime()
+        val results = solveAll(files, options)
+        val wallMillis = (System.nanoTime() - wallStart) / 1000000L
+
+        val out = options.output?.let { PrintStream(it, Charsets.UTF_8) } ?: System.out
+        if (options.csv) writeCsv(out, results, wallMillis) else writeJson(out, results, wallMillis, options)
+        out.flush()
+        if (out !== System.out) {
+            out.close()
+            System.err.println("${results.count { it.isSolved }}/${results.size} maps solved in ${wallMillis}ms, report: ${options.output}")
+        }
+    }
+
+    @JvmStatic
+    fun parseArgs(args: Array<String>): Options {
+        val options = Options()
+        var maxStates = SearchBudget.UNLIMITED_STATES
+        var maxBytes = SearchBudget.UNLIMITED_BYTES
+        var maxMillis = SearchBudget.UNLIMITED_MILLIS
+        var maxDepth = SearchBudget.UNLIMITED_DEPTH
+        var hasBudget = false
+        var i = 0
+        fun value(): String {
+            require(i + 1 < args.size) { "missing value for ${args[i]}" }
+            return args[++i]
+        }
+        while (i < args.size) {
+            when (val arg = args[i]) {
+                "--threads" -> options.threads = value().toInt()
+                "--parallelism" -> options.parallelism = value().toInt()
+                "--format" -> options.csv = when (val format = value()) {
+                    "json" -> false
+                    "csv" -> true
+                    else -> throw IllegalArgumentException("unknown format: $format")
+                }
+                "--output" -> options.output = File(value())
+                "--max-states" -> { maxStates = value().toInt(); hasBudget = true }
+                "--max-bytes" -> { maxBytes = value().toLong(); hasBudget = true }
+                "--max-millis" -> { maxMillis = value().toLong(); hasBudget = true }
+                "--max-depth" -> { maxDepth = value().toInt(); hasBudget = true }
+                else -> {
+                    require(!arg.startsWith("--")) { "unknown option: $arg" }
+                    options.inputs.add(File(arg))
+                }
+            }
+            i++
+        }
+        require(options.inputs.isNotEmpty()) { "no files given" }
+        require(options.threads > 0 && options.parallelism > 0) { "threads and parallelism must be positive" }
+        if (hasBudget) {
+            options.budget = SearchBudget(maxStates, maxBytes, maxMillis, maxDepth)
+        }
+        return options
+    }
+
+    /**
+     * the files to solve: files as given, directories sorted by name with numbers in natural order
+     * (level_2.txt before level_10.txt).
+     */
+    @JvmStatic
+    fun collectFiles(inputs: List<File>): List<File> {
+        val files = ArrayList<File>()
+        for (input in inputs) {
+            if (input.isDirectory) {
+                val children = input.listFiles { f -> f.isFile && f.name.endsWith(".txt") } ?: emptyArray()
+                files.addAll(children.sortedWith(compareBy<File>({ it.name.replace(Regex("\\d+"), "") }, { numberIn(it.name) }, { it.name })))
+            } else {
+                files.add(input)
+            }
+        }
+        return files
+    }
+
+    private fun numberIn(name: String): Long {
+        return Regex("\\d+").find(name)?.value?.toLongOrNull() ?: -1L
+    }
+
+    /**
+     * solve the files on a pool of options.threads threads; the results are in the order of the files.
+     */
+    @JvmStatic
+    fun solveAll(files: List<File>, options: Options): List<Result> {
+        val pool = Executors.newFixedThreadPool(options.threads)
+        try {
+            val futures = files.map { file -> pool.submit(Callable { solve(file, options) }) }
+            return futures.map { it.get() }
+        } finally {
+            pool.shutdownNow()
+        }
+    }
+
+    @JvmStatic
+    fun solve(file: File, options: Options): Result {
+        val board = try {
+            LevelReader.read(file)
+        } catch (e: Exception) {
+            return Result(file.path, 0, 0, 0, "invalid: " + e.message, -1, -1, 0, 0, 0, 0)
+        } ?: return Result(file.path, 0, 0, 0, "invalid: unsupported board size", -1, -1, 0, 0, 0, 0)
+
+        val solver = Solver.createInstance(board, options.parallelism)
+        solver.setSearchBudget(options.budget)
+        val solutions = try {
+            solver.execute()
+        } catch (e: OutOfMemoryError) {
+            return Result(file.path, board.width, board.height, board.numRobots, "out of memory", -1, -1, 0, 0, 0, 0)
+        }
+        // without a solution the list holds an empty placeholder solution
+        val best = if (solver.getSearchStatus() == Solver.SEARCH_STATUS.SOLVED) solutions.firstOrNull() else null
+        return Result(
+            file.path, board.width, board.height, board.numRobots,
+            solver.getSearchStatus().name,
+            best?.size() ?: -1,
+            best?.robotsMoved?.size ?: -1,
+            solver.getSolutionStoredStates(),
+            solver.getSolutionAddedStates(),
+            solver.getSolutionMilliSeconds(),
+            solver.getSolutionMemoryMegabytes()
+        )
+    }
+
+    @JvmStatic
+    fun writeCsv(out: PrintStream, results: List<Result>, wallMillis: Long) {
+        out.println("file,width,height,robots,status,moves,robotsMoved,statesStored,statesAdded,ms,memoryMB")
+        for (r in results) {
+            out.println(
+                listOf(
+                    csvField(r.file), r.width, r.height, r.robots, csvField(r.status), r.moves, r.robotsMoved,
+                    r.statesStored, r.statesAdded, r.milliSeconds, r.memoryMegabytes
+                ).joinToString(",")
+            )
+        }
+        // the aggregate as a comment line, so the rows stay one table
+        out.println("# " + aggregate(results, wallMillis).entries.joinToString(" ") { "${it.key}=${it.value}" })
+    }
+
+    @JvmStatic
+    fun writeJson(out: PrintStream, results: List<Result>, wallMillis: Long, options: Options) {
+        out.println("{")
+        out.println("  \"threads\": ${options.threads},")
+        out.println("  \"parallelism\": ${options.parallelism},")
+        out.println("  \"budget\": ${if (options.budget == null) "null" else jsonString(options.budget.toString())},")
+        out.println("  \"maps\": [")
+        results.forEachIndexed { index, r ->
+            out.print(
+                "    {\"file\": ${jsonString(r.file)}, \"width\": ${r.width}, \"height\": ${r.height}, \"robots\": ${r.robots}, " +
+                        "\"status\": ${jsonString(r.status)}, \"moves\": ${r.moves}, \"robotsMoved\": ${r.robotsMoved}, " +
+                        "\"statesStored\": ${r.statesStored}, \"statesAdded\": ${r.statesAdded}, " +
+                        "\"ms\": ${r.milliSeconds}, \"memoryMB\": ${r.memoryMegabytes}}"
+            )
+            out.println(if (index < results.size - 1) "," else "")
+        }
+        out.println("  ],")
+        out.println("  \"aggregate\": {" + aggregate(results, wallMillis).entries.joinToString(", ") { "\"${it.key}\": ${it.value}" } + "}")
+        out.println("}")
+    }
+
+    /**
+     * maps, solved maps, sum of the solve times, wall-clock time and maps per second of wall-clock time.
+     */
+    @JvmStatic
+    fun aggregate(results: List<Result>, wallMillis: Long): Map<String, String> {
+        val solveMillis = results.sumOf { it.milliSeconds }
+        val mapsPerSecond = if (wallMillis > 0) results.size * 1000.0 / wallMillis else 0.0
+        return linkedMapOf(
+            "maps" to results.size.toString(),
+            "solved" to results.count { it.isSolved }.toString(),
+            "solveMs" to solveMillis.toString(),
+            "wallMs" to wallMillis.toString(),
+            "mapsPerSecond" to String.format(Locale.ROOT, "%.3f", mapsPerSecond)
+        )
+    }
+
+    private fun csvField(text: String): String {
+        return if (text.contains(',') || text.contains('"')) "\"" + text.replace("\"", "\"\"") + "\"" else text
+    }
+
+    private fun jsonString(text: String): String {
+        val sb = StringBuilder("\"")
+        for (c in text) {
+            when {
+                c == '"' || c == '\\' -> sb.append('\\').append(c)
+                c < ' ' -> sb.append(String.format(Locale.ROOT, "\\u%04x", c.code))
+                else -> sb.append(c)
+            }
+        }
+        return sb.append('"').toString()
+    }
+}
@@ -0,0 +1,147 @@
+package roboyard.logic.solver
+
+import driftingdroids.model.Board
+import driftingdroids.model.Board.Goal
+import driftingdroids.model.Logger
+
+/**
+ * Builds the virtual world of the DD solver (a DriftingDroids Board) from Roboyard's game elements.
+ * This is the platform independent part of RRGetMap.createDDWorld: the board size is given
+ * explicitly, and it runs on any JVM (app, batch tools, benchmarks, server-side verification).
+ *
+ * Walls use Roboyard's coordinates: a horizontal wall at (x, y) is the north wall of that field,
+ * a vertical wall the west wall. Robots are given by their index in the solver (0-3),
+ * targets by the color of their robot (-1 for a multi-colored target).
+ *
+ * @param width width of the board
+ * @param height height of the board
+ * @param numRobots number of robots the solver expects
+ */
+class DDWorldBuilder(private val width: Int, private val height: Int, private val numRobots: Int) {
+    private val walls = ArrayList<IntArray>() // {x, y, horizontal ? 1 : 0}
+    private val targets = ArrayList<IntArray>() // {position, color}
+    private val robotPositions = IntArray(numRobots) { -1 }
+
+    /**
+     * Add a wall; horizontal walls are the north wall of field (x, y), vertical walls the west wall.
+     */
+    fun addWall(x: Int, y: Int, horizontal: Boolean): DDWorldBuilder {
+        walls.add(intArrayOf(x, y, if (horizontal) 1 else 0))
+        return this
+    }
+
+    /**
+     * Add a target for the robot with the given color (-1: any robot).
+     * Several targets make the solver search for a position where every robot is on its target.
+     */
+    fun addTarget(x: Int, y: Int, color: Int): DDWorldBuilder {
+        targets.add(intArrayOf(y * width + x, color))
+        return this
+    }
+
+    fun setRobot(robot: Int, x: Int, y: Int): DDWorldBuilder {
+        robotPositions[robot] = y * width + x
+        return this
+    }
+
+    /**
+     * Create the board.
+     * @return the board, or null if the board size is not supported by the solver
+     * @throws RuntimeException if no target was added
+     */
+    fun build(): Board? {
+        val board = Board.createBoardFreestyle(null, width, height, numRobots)
+        if (board == null) {
+            Logger.println(Logger.ERROR, TAG, "Failed to create board with dimensions %dx%d", width, height)
+            return null
+        }
+        board.removeGoals()
+
+        // targets first, they get priority over walls at the same position
+        for (target in targets) {
+            board.addGoal(target[0], target[1], 1)
+            board.setGoal(target[0])
+        }
+
+        // the solver uses "N" for horizontal and "W" for vertical walls of a field
+        for (wall in walls) {
+            board.setWall(wall[1] * width + wall[0], if (wall[2] == 1) "N" else "W", true)
+        }
+        addMissingOuterWalls(board)
+
+        for (robot in 0..<numRobots) {
+            if (robotPositions[robot] < 0) {
+                // the solver can proceed but may not produce correct solutions
+                Logger.println(Logger.ERROR, TAG, "[ROBOT_MAPPING] Missing robot %d, creating a dummy robot at (0,0)", robot)
+                robotPositions[robot] = 0
+            }
+            if (!board.setRobot(robot, robotPositions[robot], false)) {
+                Logger.println(
+                    Logger.ERROR, TAG, "[ROBOT_MAPPING] Could not set robot %d at position %d (%d,%d). Position may be occupied or invalid.",
+                    robot, robotPositions[robot], robotPositions[robot] % width, robotPositions[robot] / width
+                )
+            }
+        }
+
+        // without a target Board.isSolution01() would fail
+        if (targets.isEmpty()) {
+            throw RuntimeException("[SOLUTION_SOLVER] No target found in level")
+        }
+
+        // multi-goal support: if more than 1 target found, set activeGoals
+        if (targets.size > 1) {
+            val activeGoals: MutableList<Goal> = ArrayList<Goal>()
+            for (target in targets) {
+                if (target[1] < 0) {
+                    Logger.println(Logger.ERROR, TAG, "Multi-colored target not allowed in multi-goal mode. Each robot must have a specific colored target.")
+                }
+                for (g in board.goals) {
+                    if (g.position == target[0] && g.robotNumber == target[1]) {
+                        activeGoals.add(g)
+                        break
+                    }
+                }
+            }
+            if (activeGoals.size > 1) {
+                board.setActiveGoals(activeGoals)
+                Logger.println(Logger.DEBUG, TAG, "Multi-goal mode: set %d active goals", activeGoals.size)
+            }
+        }
+        return board
+    }
+
+    // the outer walls are essential for the solver
+    private fun addMissingOuterWalls(board: Board) {
+        var missingWallCount = 0
+        for (x in 0..<width) {
+            if (!board.isWall(x, Board.NORTH)) {
+                board.setWall(x, "N", true)
+                missingWallCount++
+            }
+            val bottomPosition = (height - 1) * width + x
+            if (!board.isWall(bottomPosition, Board.SOUTH)) {
+                board.setWall(bottomPosition, "S", true)
+                missingWallCount++
+            }
+        }
+        for (y in 0..<height) {
+            val leftPosition = y * width
+            if (!board.isWall(leftPosition, Board.WEST)) {
+                board.setWall(leftPosition, "W", true)
+                missingWallCount++
+            }
+            val rightPosition = y * width + width - 1
+            if (!board.isWall(rightPosition, Board.EAST)) {
+                board.setWall(rightPosition, "E", true)
+                missingWallCount++
+            }
+        }
+        if (missingWallCount > 0) {
+            Logger.println(Logger.WARN, TAG, "[WALLS] Added %d missing outer walls to ensure solver stability", missingWallCount)
+        }
+    }
+
+    companion object {
+        private const val TAG = "SOLUTION_SOLVER"
+    }
+}
@@ -0,0 +1,83 @@
+package roboyard.logic.solver
+
+import driftingdroids.model.Board
+import java.io.File
+
+/**
+ * Reads Roboyard levels and save games into DriftingDroids boards, without the app's GameState.
+ *
+ * Both formats use the same compact entries, separated by ";" or line breaks:
+ * "h3,0" / "v5,2" walls, "rr1,3" robots and "tb9,0" targets with the color as second letter
+ * (r=0, g=1, b=2, y=3, s=4, m=multi-colored target).
+ * The board size is given as "board:16,16" (levels) or "WIDTH:16" and "HEIGHT:16" (save games).
+ * Comments ("#..."), solution lines and the grid rows of save games are ignored.
+ */
+object LevelReader {
+    private const val COLORS = "rgbys"
+
+    @JvmStatic
+    fun read(file: File): Board? {
+        return parse(file.readText())
+    }
+
+    /**
+     * @return the board, or null if the board size is not supported by the solver
+     * @throws IllegalArgumentException if the text contains no robot
+     * @throws RuntimeException if the text contains no target
+     */
+    @JvmStatic
+    fun parse(content: String): Board? {
+        var width = Board.WIDTH_STANDARD
+        var height = Board.HEIGHT_STANDARD
+        val walls = ArrayList<IntArray>() // {x, y, horizontal ? 1 : 0}
+        val targets = ArrayList<IntArray>() // {x, y, color}
+        val robots = ArrayList<IntArray>() // {x, y, color}
+
+        for (rawLine in content.split(';', '\n')) {
+            val line = rawLine.trim()
+            when {
+                line.isEmpty() || line.startsWith("#") || line[0].isDigit() -> {}
+                line.startsWith("board:") -> {
+                    val size = coordinates(line.substring("board:".length))
+                    width = size[0]
+                    height = size[1]
+                }
+                line.startsWith("WIDTH:") -> width = line.substring("WIDTH:".length).trim().toInt()
+                line.startsWith("HEIGHT:") -> height = line.substring("HEIGHT:".length).trim().toInt()
+                line[0] == 'h' || line[0] == 'v' -> {
+                    val xy = coordinates(line.substring(1))
+                    walls.add(intArrayOf(xy[0], xy[1], if (line[0] == 'h') 1 else 0))
+                }
+                (line[0] == 'r' || line[0] == 't') && line.length > 2 && line[2].isDigit() -> {
+                    val color = if (line[1] == 'm') -1 else COLORS.indexOf(line[1])
+                    val xy = coordinates(line.substring(2))
+                    (if (line[0] == 'r') robots else targets).add(intArrayOf(xy[0], xy[1], color))
+                }
+                // anything else (solution:, num_moves:, ...) is metadata
+            }
+        }
+        require(robots.isNotEmpty()) { "no robots found" }
+
+        // robots are numbered by color, a silver robot makes it 5
+        val numRobots = robots.maxOf { it[2] } + 1
+        val builder = DDWorldBuilder(width, height, numRobots)
+        for (wall in walls) {
+            // walls on the far border (x == width or y == height) are outer walls
+            if (wall[0] < width && wall[1] < height) {
+                builder.addWall(wall[0], wall[1], wall[2] == 1)
+            }
+        }
+        for (target in targets) {
+            builder.addTarget(target[0], target[1], target[2])
+        }
+        for (robot in robots) {
+            builder.setRobot(robot[2], robot[0], robot[1])
+        }
+        return builder.build()
+    }
+
+    private fun coordinates(text: String): IntArray {
+        val parts = text.split(',')
+        return intArrayOf(parts[0].trim().toInt(), parts[1].trim().toInt())
+    }
+}
@@ -0,0 +1,104 @@
+package roboyard.eclabs;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.Logger;
+import roboyard.logic.solver.BatchSolver;
+import roboyard.logic.solver.LevelReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the batch solver: LevelReader (level files and save games) and the per-map report.
+ *
+ * Tags: solver, batch, level-format, save-format, driftingdroids
+ */
+public class BatchSolverTest {
+
+    /**
+     * 8x8 level, red robot in the top left corner, its target two moves away (east, then south to a wall).
+     */
+    private static final String LEVEL = "# test level\n"
+            + "board:8,8;\n"
+            + "h7,5;\n"
+            + "h0,8;\n"
+            + "rr0,0;\n"
+            + "rg0,7;\n"
+            + "rb7,7;\n"
+            + "ry3,3;\n"
+            + "tr7,4;\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testParse_Level() {
+        Board board = LevelReader.parse(LEVEL);
+        assertEquals(8, board.width);
+        assertEquals(8, board.getHeight());
+        assertEquals(4, board.getNumRobots());
+        assertEquals(3 * 8 + 3, board.getRobotPositions()[3]);
+        assertTrue(board.isWall(5 * 8 + 7, Board.NORTH));
+        assertEquals(4 * 8 + 7, board.getGoal().position);
+    }
+
+    @Test
+    public void testParse_SaveGameWithSilverRobot() {
+        String save = "#MAPNAME:test;TIME:1000;MOVES:0;UNIQUE_MAP_ID:ABC\n"
+                + "WIDTH:8;\n"
+                + "HEIGHT:8;\n"
+                + "0,0,0,0,0,0,0,0\n"
+                + "tr7,4;\n"
+                + "h7,5;v8,0;\n"
+                + "rr0,0;rg0,7;rb7,7;ry3,3;rs5,1;";
+        Board board = LevelReader.parse(save);
+        assertEquals(5, board.getNumRobots());
+        assertEquals(1 * 8 + 5, board.getRobotPositions()[4]);
+        assertTrue(board.isWall(5 * 8 + 7, Board.NORTH));
+    }
+
+    @Test
+    public void testSolveAll_Report() throws Exception {
+        File level = folder.newFile("level_1.txt");
+        Files.write(level.toPath(), LEVEL.getBytes(StandardCharsets.UTF_8));
+        File broken = folder.newFile("level_2.txt");
+        Files.write(broken.toPath(), "board:8,8;\nrr0,0;\n".getBytes(StandardCharsets.UTF_8));
+
+        BatchSolver.Options options = BatchSolver.parseArgs(new String[]{"--threads", "2", "--max-depth", "10", folder.getRoot().getPath()});
+        List<File> files = BatchSolver.collectFiles(options.inputs);
+        assertEquals(Arrays.asList(level, broken), files);
+
+        List<BatchSolver.Result> results;
+        Logger.Sink previous = Logger.getSink();
+        Logger.setSink(Logger.NONE);
+        try {
+            results = BatchSolver.solveAll(files, options);
+        } finally {
+            Logger.setSink(previous);
+        }
+        assertEquals("SOLVED", results.get(0).status);
+        assertEquals(2, results.get(0).moves);
+        assertEquals(1, results.get(0).robotsMoved);
+        assertTrue(results.get(0).statesAdded > 0);
+        assertFalse("no target", results.get(1).isSolved());
+        assertTrue(results.get(1).status.startsWith("invalid"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BatchSolver.writeCsv(new PrintStream(bytes, true, "UTF-8"), results, 100);
+        String[] lines = bytes.toString("UTF-8").split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[1].contains(",SOLVED,2,1,"));
+        assertTrue(lines[3].startsWith("# maps=2 solved=1 "));
+    }
+}
@@ -0,0 +1,61 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the bitboard backend of the DriftingDroids solver.
+ * The bitboard backend must find exactly the same solutions as the default (wall-stop table) backend.
+ *
+ * Tags: solver, bitboard, driftingdroids
+ */
+public class BitboardSolverTest {
+
+    private List<Solution> solve(Board board, Solver.BACKEND backend, boolean allowRebounds) throws Exception {
+        Solver solver = Solver.createInstance(board);
+        solver.setOptionBackend(backend);
+        solver.setOptionAllowRebounds(allowRebounds);
+        return solver.execute();
+    }
+
+    private void assertSameSolutions(int width, int height, boolean allowRebounds) throws Exception {
+        for (long seed = 1; seed <= 10; seed++) {
+            Board board = TestBoards.withRandomRobots(seed, width, height);
+            List<Solution> expected = solve(board, Solver.BACKEND.WALL_STOP_TABLE, allowRebounds);
+            List<Solution> actual = solve(board, Solver.BACKEND.BITBOARD, allowRebounds);
+
+            assertEquals("seed " + seed + ": number of solutions", expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals("seed " + seed + ": solution " + i,
+                        expected.get(i).toMovelistString(), actual.get(i).toMovelistString());
+            }
+        }
+    }
+
+    @Test
+    public void testSmallBoard_SameSolutions() throws Exception {
+        assertSameSolutions(8, 8, true);
+    }
+
+    @Test
+    public void testSmallBoard_NoRebounds_SameSolutions() throws Exception {
+        assertSameSolutions(8, 8, false);
+    }
+
+    @Test
+    public void testNonSquareBoard_SameSolutions() throws Exception {
+        assertSameSolutions(12, 14, true);
+    }
+
+    @Test
+    public void testFullSizeBoard_SameSolutions() throws Exception {
+        assertSameSolutions(16, 16, true);
+    }
+}
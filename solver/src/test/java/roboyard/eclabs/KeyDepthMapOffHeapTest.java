@@ -0,0 +1,97 @@
+package roboyard.eclabs;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.KeyDepthMap;
+import driftingdroids.model.KeyDepthMapFactory;
+import driftingdroids.model.KeyDepthMapOffHeap;
+import driftingdroids.model.KeyDepthMapTrieGeneric;
+import driftingdroids.model.KeyDepthMapTrieSpecial;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the off-heap KeyDepthMap: with direct buffers and with a memory-mapped scratch
+ * file it must behave like the generic trie, stop at its byte limit with an OutOfMemoryError,
+ * and leave no scratch file behind.
+ *
+ * Tags: solver, keydepthmap, memory, driftingdroids
+ */
+public class KeyDepthMapOffHeapTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameResultsAsGenericMap_DirectAndMapped() throws Exception {
+        KeyDepthMap expected = new KeyDepthMapTrieGeneric(48);
+        KeyDepthMap direct = new KeyDepthMapOffHeap(48);
+        KeyDepthMap mapped = new KeyDepthMapOffHeap(48, KeyDepthMapOffHeap.DEFAULT_MAX_BYTES, folder.getRoot());
+        assertEquals("the scratch file is deleted right away", 0, folder.getRoot().list().length);
+        Random random = new Random(48);
+        for (int i = 0; i < 300000; i++) {
+            long key = random.nextInt(100000) * 0x10000001L;
+            int value = 1 + random.nextInt(100);
+            boolean isPut = expected.putIfGreater(key, value);
+            assertEquals("key=" + key + " value=" + value, isPut, direct.putIfGreater(key, value));
+            assertEquals("key=" + key + " value=" + value, isPut, mapped.putIfGreater(key, value));
+        }
+        assertEquals("size", expected.size(), direct.size());
+        assertEquals("size", expected.size(), mapped.size());
+        assertTrue("the chunks are not on the heap", direct.heapBytes() < direct.allocatedBytes() / 100);
+        mapped.release();
+    }
+
+    @Test
+    public void testReset_AndByteLimit() throws Exception {
+        Board board = LevelBoards.read(1);
+        int keyBits = Math.max(12, board.getNumRobots() * board.sizeNumBits);
+        KeyDepthMap map = new KeyDepthMapOffHeap(keyBits, 4L << 20);
+        assertTrue(map.putIfGreater(7, 5));
+        assertFalse(map.putIfGreater(7, 5));
+        assertTrue(map.putIfGreater(0, 1));
+        assertEquals(2, map.size());
+        long bytes = map.allocatedBytes();
+
+        assertTrue(map.reset(board));
+        assertEquals(0, map.size());
+        assertEquals("the chunks are kept", bytes, map.allocatedBytes());
+        assertTrue(map.putIfGreater(7, 5));
+
+        Random random = new Random(4);
+        try {
+            for (int i = 0; i < 10000000; i++) {
+                map.putIfGreater(random.nextInt(1 << keyBits), 1);
+            }
+            fail("the byte limit was not reached");
+        } catch (OutOfMemoryError expected) {
+            assertTrue(map.allocatedBytes() <= (4L << 20));
+        }
+    }
+
+    @Test
+    public void testSolver_SameMovesAsTrie() throws Exception {
+        for (int level = 1; level <= 20; level++) {
+            Board board = LevelBoards.read(level);
+            List<Solution> expected = Solver.createInstance(board).execute();
+            KeyDepthMapFactory.INSTANCE.setDefaultClass(KeyDepthMapOffHeap.class);
+            KeyDepthMapFactory.INSTANCE.setOffHeapOptions(folder.getRoot());
+            try {
+                List<Solution> actual = Solver.createInstance(board).execute();
+                assertEquals("level " + level, expected.size(), actual.size());
+                assertEquals("level " + level, expected.get(0).size(), actual.get(0).size());
+            } finally {
+                KeyDepthMapFactory.INSTANCE.setDefaultClass(KeyDepthMapTrieSpecial.class);
+                KeyDepthMapFactory.INSTANCE.setOffHeapOptions(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.KeyDepthMap;
+import driftingdroids.model.KeyDepthMapFactory;
+import driftingdroids.model.KeyDepthMapOpenHash;
+import driftingdroids.model.KeyDepthMapTrieGeneric;
+import driftingdroids.model.KeyDepthMapTrieSpecial;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the open-addressing KeyDepthMap: it must behave like the tries, also while
+ * its incremental resize moves the entries into a larger table.
+ *
+ * Tags: solver, keydepthmap, driftingdroids
+ */
+public class KeyDepthMapOpenHashTest {
+
+    @Test
+    public void testSameResultsAsGenericMap_DuringResizes() {
+        // a small table is resized many times while the same keys are put again
+        KeyDepthMap expected = new KeyDepthMapTrieGeneric(48);
+        KeyDepthMap actual = new KeyDepthMapOpenHash(16);
+        Random random = new Random(48);
+        for (int i = 0; i < 300000; i++) {
+            long key = random.nextInt(100000) * 0x10000001L;
+            int value = 1 + random.nextInt(100);
+            assertEquals("key=" + key + " value=" + value,
+                    expected.putIfGreater(key, value), actual.putIfGreater(key, value));
+        }
+        assertEquals("size", expected.size(), actual.size());
+        assertTrue(actual.allocatedBytes() >= actual.size() * 9L);
+    }
+
+    @Test
+    public void testIntKeys_AndReset() throws Exception {
+        Board board = LevelBoards.read(1);
+        KeyDepthMap map = new KeyDepthMapOpenHash(16);
+        assertTrue(map.putIfGreater(-1, 5));
+        assertFalse(map.putIfGreater(-1, 5));
+        assertTrue(map.putIfGreater(-1, 255));
+        assertFalse("the int key is unsigned", map.putIfGreater(0xffffffffL, 255));
+        assertTrue(map.putIfGreater(0, 1));
+        assertFalse("0 is not stored", map.putIfGreater(1, 0));
+        assertEquals(2, map.size());
+
+        assertTrue(map.reset(board));
+        assertEquals(0, map.size());
+        assertTrue(map.putIfGreater(-1, 5));
+    }
+
+    @Test
+    public void testSolver_SameMovesAsTrie() throws Exception {
+        for (int level = 1; level <= 20; level++) {
+            Board board = LevelBoards.read(level);
+            List<Solution> expected = Solver.createInstance(board).execute();
+            KeyDepthMapFactory.INSTANCE.setDefaultClass(KeyDepthMapOpenHash.class);
+            try {
+                List<Solution> actual = Solver.createInstance(board).execute();
+                assertEquals("level " + level, expected.size(), actual.size());
+                assertEquals("level " + level, expected.get(0).size(), actual.get(0).size());
+            } finally {
+                KeyDepthMapFactory.INSTANCE.setDefaultClass(KeyDepthMapTrieSpecial.class);
+            }
+        }
+    }
+}
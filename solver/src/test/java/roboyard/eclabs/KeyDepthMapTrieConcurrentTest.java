@@ -0,0 +1,100 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.KeyDepthMap;
+import driftingdroids.model.KeyDepthMapTrieConcurrent;
+import driftingdroids.model.KeyDepthMapTrieGeneric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the thread-safe KeyDepthMap that is shared by the workers of the parallel solver.
+ *
+ * Tags: solver, parallel, keydepthmap, driftingdroids
+ */
+public class KeyDepthMapTrieConcurrentTest {
+
+    /**
+     * Single-threaded: the concurrent map must behave exactly like KeyDepthMapTrieGeneric.
+     */
+    @Test
+    public void testSameResultsAsGenericMap() {
+        for (int keyBits : new int[]{12, 24, 32}) {
+            KeyDepthMap expected = new KeyDepthMapTrieGeneric(keyBits);
+            KeyDepthMap actual = new KeyDepthMapTrieConcurrent(keyBits);
+            Random random = new Random(keyBits);
+            int mask = (keyBits == 32) ? -1 : (1 << keyBits) - 1;
+            for (int i = 0; i < 200000; i++) {
+                int key = random.nextInt() & mask;
+                int value = 1 + random.nextInt(100);
+                assertEquals("keyBits=" + keyBits + " key=" + key + " value=" + value,
+                        expected.putIfGreater(key, value), actual.putIfGreater(key, value));
+            }
+            assertEquals("keyBits=" + keyBits + ": size", expected.size(), actual.size());
+            assertTrue("keyBits=" + keyBits + ": allocatedBytes", actual.allocatedBytes() > 0);
+        }
+    }
+
+    @Test
+    public void testLongKeys() {
+        KeyDepthMap expected = new KeyDepthMapTrieGeneric(40);
+        KeyDepthMap actual = new KeyDepthMapTrieConcurrent(40);
+        Random random = new Random(40);
+        for (int i = 0; i < 200000; i++) {
+            long key = random.nextLong() & ((1L << 40) - 1);
+            int value = 1 + random.nextInt(100);
+            assertEquals("key=" + key + " value=" + value,
+                    expected.putIfGreater(key, value), actual.putIfGreater(key, value));
+        }
+        assertEquals("size", expected.size(), actual.size());
+    }
+
+    /**
+     * Multi-threaded: for every key and value exactly one thread may succeed with putIfGreater,
+     * and the map must contain each key exactly once.
+     */
+    @Test
+    public void testConcurrentPutIfGreater() throws Exception {
+        final KeyDepthMap map = new KeyDepthMapTrieConcurrent(32);
+        final int numKeys = 50000;
+        final int maxValue = 8;
+        final AtomicInteger successCount = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int seed = t;
+            threads.add(new Thread(() -> {
+                // every thread puts the same keys with increasing values, in a different order
+                Random random = new Random(seed);
+                for (int value = 1; value <= maxValue; value++) {
+                    int offset = random.nextInt(numKeys);
+                    for (int i = 0; i < numKeys; i++) {
+                        int key = ((i + offset) % numKeys) * 40503; // spread the keys over the trie
+                        if (map.putIfGreater(key, value)) {
+                            successCount.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals("number of keys", numKeys, map.size());
+        for (int i = 0; i < numKeys; i++) {
+            assertFalse("key " + i + " should have the maximum value", map.putIfGreater(i * 40503, maxValue));
+        }
+        // each (key, value) pair can be placed at most once; values may be skipped if a greater one was faster
+        assertTrue("successful puts: " + successCount.get(), successCount.get() <= numKeys * maxValue);
+        assertTrue("successful puts: " + successCount.get(), successCount.get() >= numKeys);
+    }
+}
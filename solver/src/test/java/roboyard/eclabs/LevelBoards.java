@@ -0,0 +1,29 @@
+package roboyard.eclabs;
+
+import driftingdroids.model.Board;
+import roboyard.logic.solver.LevelReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads the levels from assets/Maps (level_1.txt ... level_140.txt) into DriftingDroids boards
+ * for the solver tests. The level files are test resources of the solver module, parsed by
+ * LevelReader like in the benchmarks.
+ */
+final class LevelBoards {
+
+    private LevelBoards() {
+    }
+
+    static Board read(int level) throws IOException {
+        String name = "/Maps/level_" + level + ".txt";
+        try (InputStream in = LevelBoards.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("level not found: " + name);
+            }
+            return LevelReader.parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
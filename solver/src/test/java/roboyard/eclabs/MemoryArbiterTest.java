@@ -0,0 +1,102 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.MemoryArbiter;
+import driftingdroids.model.MemoryArbiter.Priority;
+import driftingdroids.model.MemoryArbiter.Reservation;
+import driftingdroids.model.Solver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the MemoryArbiter: the reservations never exceed the capacity, LOW reservations
+ * get at most their share, a higher priority revokes lower reservations, and a search
+ * gives its reservation back when it is done.
+ *
+ * Tags: solver, memory, scheduler
+ */
+public class MemoryArbiterTest {
+
+    @Test
+    public void testReservations_NeverExceedCapacity() {
+        MemoryArbiter arbiter = new MemoryArbiter(100);
+        Reservation first = arbiter.reserve(60, Priority.NORMAL);
+        assertNotNull(first);
+        assertNull("only 40 bytes are free", arbiter.reserve(50, Priority.NORMAL));
+        Reservation second = arbiter.reserve(40, Priority.NORMAL);
+        assertNotNull(second);
+        assertFalse(first.grow(70));
+        assertEquals(60, first.getBytes());
+        assertEquals(100, arbiter.getReservedBytes());
+
+        second.release();
+        assertTrue(first.grow(90));
+        assertEquals(90, arbiter.getReservedBytes());
+    }
+
+    @Test
+    public void testLowReservations_GetAtMostTheirShare() {
+        MemoryArbiter arbiter = new MemoryArbiter(100);
+        Reservation low = arbiter.reserve(30, Priority.LOW);
+        assertNotNull(low);
+        assertNull("the rest is kept for the higher priorities", arbiter.reserve(30, Priority.LOW));
+        assertNotNull(arbiter.reserve(20, Priority.LOW));
+        assertNotNull(arbiter.reserve(50, Priority.NORMAL));
+    }
+
+    @Test
+    public void testIdleReservations_OnlyFreeBytesAndRevokedForLow() {
+        MemoryArbiter arbiter = new MemoryArbiter(100);
+        Reservation idle = arbiter.reserve(70, Priority.IDLE);
+        assertNotNull("not limited to the LOW share", idle);
+        assertNull("an IDLE reservation does not revoke another one", arbiter.reserve(40, Priority.IDLE));
+        assertNotNull(arbiter.reserve(40, Priority.LOW));
+        assertTrue(idle.isRevoked());
+    }
+
+    @Test
+    public void testHigherPriority_RevokesLowestAndNewestFirst() {
+        MemoryArbiter arbiter = new MemoryArbiter(100);
+        AtomicInteger revokedNormal = new AtomicInteger();
+        AtomicInteger revokedOldLow = new AtomicInteger();
+        AtomicInteger revokedNewLow = new AtomicInteger();
+        Reservation normal = arbiter.reserve(50, Priority.NORMAL, revokedNormal::incrementAndGet);
+        Reservation oldLow = arbiter.reserve(25, Priority.LOW, revokedOldLow::incrementAndGet);
+        Reservation newLow = arbiter.reserve(25, Priority.LOW, revokedNewLow::incrementAndGet);
+
+        assertNull("a LOW reservation does not revoke another one", arbiter.reserve(10, Priority.LOW));
+        Reservation high = arbiter.reserve(20, Priority.HIGH);
+        assertNotNull(high);
+        assertTrue(newLow.isRevoked());
+        assertEquals(0, newLow.getBytes());
+        assertEquals(1, revokedNewLow.get());
+        assertFalse(oldLow.isRevoked());
+        assertFalse(normal.isRevoked());
+        assertFalse("a revoked reservation can not grow again", newLow.grow(10));
+
+        assertNull("more than all lower reservations together", arbiter.reserve(90, Priority.HIGH));
+        assertFalse(oldLow.isRevoked());
+        assertTrue(high.grow(80));
+        assertTrue(oldLow.isRevoked());
+        assertTrue(normal.isRevoked());
+        assertEquals(1, revokedOldLow.get());
+        assertEquals(1, revokedNormal.get());
+        assertEquals(80, arbiter.getReservedBytes());
+    }
+
+    @Test
+    public void testSolver_ReleasesItsReservation() throws Exception {
+        MemoryArbiter arbiter = MemoryArbiter.getShared();
+        long reserved = arbiter.getReservedBytes();
+        Board board = LevelBoards.read(5);
+        Solver solver = Solver.createInstance(board);
+        solver.setOptionMemoryPriority(Priority.LOW);
+        assertFalse(solver.execute().isEmpty());
+        assertEquals(Solver.SEARCH_STATUS.SOLVED, solver.getSearchStatus());
+        assertEquals(reserved, arbiter.getReservedBytes());
+    }
+}
@@ -0,0 +1,109 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.KeyDepthMapFactory;
+import driftingdroids.model.KeyDepthMapTrieConcurrent;
+import driftingdroids.model.KeyDepthMapTrieSpecial;
+import driftingdroids.model.SearchBudget;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+import driftingdroids.model.SolverIDDFS;
+import driftingdroids.model.SolverIDDFSParallel;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the parallel (fork/join) mode of the DriftingDroids IDDFS solver.
+ * The parallel solver must always find solutions with the same (optimal) move count
+ * as the single-threaded solver.
+ *
+ * Tags: solver, parallel, iddfs, driftingdroids
+ */
+public class ParallelSolverTest {
+
+    @Test
+    public void testCreateInstance_SelectsSolverByParallelism() {
+        Board board = TestBoards.small(1);
+        assertTrue("parallelism 1 should use the serial solver",
+                Solver.createInstance(board, 1) instanceof SolverIDDFS);
+        assertTrue("parallelism 4 should use the parallel solver",
+                Solver.createInstance(board, 4) instanceof SolverIDDFSParallel);
+    }
+
+    @Test
+    public void testParallelSolver_SameMoveCountAsSerial() throws Exception {
+        for (long seed = 1; seed <= 8; seed++) {
+            List<Solution> serial = Solver.createInstance(TestBoards.small(seed)).execute();
+            List<Solution> parallel = Solver.createInstance(TestBoards.small(seed), 4).execute();
+
+            assertEquals("seed " + seed + ": both solvers should agree whether a solution exists",
+                    serial.isEmpty(), parallel.isEmpty());
+            if (!serial.isEmpty()) {
+                assertEquals("seed " + seed + ": parallel solver should find the optimal move count",
+                        serial.get(0).size(), parallel.get(0).size());
+            }
+        }
+    }
+
+    /**
+     * With the concurrent KeyDepthMap all workers share one table of known states.
+     */
+    @Test
+    public void testParallelSolver_SharedKnownStates() throws Exception {
+        KeyDepthMapFactory.INSTANCE.setDefaultClass(KeyDepthMapTrieConcurrent.class);
+        try {
+            for (long seed = 1; seed <= 8; seed++) {
+                List<Solution> serial = new SolverIDDFS(TestBoards.small(seed)).execute();
+                List<Solution> parallel = Solver.createInstance(TestBoards.small(seed), 4).execute();
+
+                assertEquals("seed " + seed + ": both solvers should agree whether a solution exists",
+                        serial.isEmpty(), parallel.isEmpty());
+                if (!serial.isEmpty()) {
+                    assertEquals("seed " + seed + ": parallel solver should find the optimal move count",
+                            serial.get(0).size(), parallel.get(0).size());
+                }
+            }
+        } finally {
+            KeyDepthMapFactory.INSTANCE.setDefaultClass(KeyDepthMapTrieSpecial.class);
+        }
+    }
+
+    /**
+     * A limit reached in the shared known states stops all workers, and the states of all
+     * workers are counted together.
+     */
+    @Test
+    public void testParallelSolver_SharedKnownStatesLimit() throws Exception {
+        KeyDepthMapFactory.INSTANCE.setDefaultClass(KeyDepthMapTrieConcurrent.class);
+        try {
+            Board board = TestBoards.small(5);
+            assertTrue("test board should need a few moves", new SolverIDDFS(board).execute().get(0).size() >= 6);
+
+            Solver parallel = Solver.createInstance(TestBoards.small(5), 4);
+            parallel.setSearchBudget(new SearchBudget(100));
+            List<Solution> solutions = parallel.execute();
+            assertEquals(Solver.SEARCH_STATUS.STATES_LIMIT, parallel.getSearchStatus());
+            assertTrue("no solution within the budget", solutions.isEmpty() || solutions.get(0).size() == 0);
+            assertTrue("added states: " + parallel.getSolutionAddedStates(), parallel.getSolutionAddedStates() <= 100 + 4);
+        } finally {
+            KeyDepthMapFactory.INSTANCE.setDefaultClass(KeyDepthMapTrieSpecial.class);
+        }
+    }
+
+    @Test
+    public void testParallelSolver_DeterministicFirstSolution() throws Exception {
+        Board board = TestBoards.small(3);
+        List<Solution> first = Solver.createInstance(board, 3).execute();
+        List<Solution> second = Solver.createInstance(board, 3).execute();
+
+        assertEquals("repeated runs should find the same number of solutions", first.size(), second.size());
+        if (!first.isEmpty()) {
+            assertEquals("repeated runs should find the same first solution",
+                    first.get(0).toMovelistString(), second.get(0).toMovelistString());
+        }
+    }
+}
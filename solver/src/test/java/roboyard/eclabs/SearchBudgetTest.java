@@ -0,0 +1,90 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.SearchBudget;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the explicit SearchBudget limits of the DriftingDroids solver.
+ * Each limit must stop the search and be reported by Solver.getSearchStatus().
+ *
+ * Tags: solver, budget, driftingdroids
+ */
+public class SearchBudgetTest {
+
+    private Solver solve(Board board, SearchBudget budget) throws Exception {
+        Solver solver = Solver.createInstance(board);
+        solver.setSearchBudget(budget);
+        solver.execute();
+        return solver;
+    }
+
+    @Test
+    public void testUnlimitedBudget_SameSolutionsAsDefault() throws Exception {
+        for (long seed = 1; seed <= 5; seed++) {
+            Solver expected = solve(TestBoards.withCornerRobots(seed), null);
+            Solver actual = solve(TestBoards.withCornerRobots(seed), new SearchBudget());
+
+            assertEquals("seed " + seed + ": status", Solver.SEARCH_STATUS.SOLVED, actual.getSearchStatus());
+            assertEquals("seed " + seed + ": status", expected.getSearchStatus(), actual.getSearchStatus());
+            assertEquals("seed " + seed + ": first solution",
+                    expected.get().get(0).toMovelistString(), actual.get().get(0).toMovelistString());
+        }
+    }
+
+    @Test
+    public void testMaxStates_StopsSearch() throws Exception {
+        Board board = TestBoards.withCornerRobots(1);
+        assertTrue("test board should need a few moves", solve(board, null).get().get(0).size() >= 4);
+
+        Solver solver = solve(board, new SearchBudget(100));
+        assertEquals(Solver.SEARCH_STATUS.STATES_LIMIT, solver.getSearchStatus());
+        assertEquals("no solution within the budget", 0, solver.get().get(0).size());
+    }
+
+    @Test
+    public void testMaxBytes_StopsSearch() throws Exception {
+        Board board = TestBoards.withCornerRobots(1);
+        Solver solver = solve(board, new SearchBudget(SearchBudget.UNLIMITED_STATES, 1L));
+        assertEquals(Solver.SEARCH_STATUS.BYTES_LIMIT, solver.getSearchStatus());
+    }
+
+    @Test
+    public void testMaxDepth_StopsSearch() throws Exception {
+        Board board = TestBoards.withCornerRobots(1);
+        int moves = solve(board, null).get().get(0).size();
+
+        Solver tooShallow = solve(board, new SearchBudget(SearchBudget.UNLIMITED_STATES,
+                SearchBudget.UNLIMITED_BYTES, SearchBudget.UNLIMITED_MILLIS, moves - 1));
+        assertEquals(Solver.SEARCH_STATUS.DEPTH_LIMIT, tooShallow.getSearchStatus());
+
+        Solver deepEnough = solve(board, new SearchBudget(SearchBudget.UNLIMITED_STATES,
+                SearchBudget.UNLIMITED_BYTES, SearchBudget.UNLIMITED_MILLIS, moves));
+        assertEquals(Solver.SEARCH_STATUS.SOLVED, deepEnough.getSearchStatus());
+        assertEquals(moves, deepEnough.get().get(0).size());
+    }
+
+    @Test
+    public void testMaxStates_Deterministic() throws Exception {
+        List<Solution> first = solve(TestBoards.withCornerRobots(2), new SearchBudget(5000)).get();
+        List<Solution> second = solve(TestBoards.withCornerRobots(2), new SearchBudget(5000)).get();
+        assertEquals(first.size(), second.size());
+        assertEquals(first.get(0).toMovelistString(), second.get(0).toMovelistString());
+    }
+
+    @Test
+    public void testParallelSolver_ReportsStatus() throws Exception {
+        Board board = TestBoards.withCornerRobots(1);
+        Solver solver = Solver.createInstance(board, 3);
+        solver.setSearchBudget(new SearchBudget(300));
+        solver.execute();
+        assertEquals(Solver.SEARCH_STATUS.STATES_LIMIT, solver.getSearchStatus());
+    }
+}
@@ -0,0 +1,84 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.SearchProgress;
+import driftingdroids.model.SearchProgressListener;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the solution count option of the DriftingDroids solver: the last depth
+ * iteration ends as soon as enough optimal solutions have been found.
+ *
+ * Tags: solver, solution-count, driftingdroids
+ */
+public class SolutionCountTest {
+
+    private List<Solution> solve(Board board, int solutionCount, int parallelism) throws Exception {
+        Solver solver = Solver.createInstance(board, parallelism);
+        solver.setOptionSolutionCount(solutionCount);
+        return solver.execute();
+    }
+
+    @Test
+    public void testSolutionCount_SameMoveCount() throws Exception {
+        for (long seed = 1; seed <= 5; seed++) {
+            List<Solution> all = solve(TestBoards.withCornerRobots(seed), Solver.SOLUTION_COUNT_ALL, 1);
+            for (int count : new int[]{1, 2}) {
+                for (int parallelism : new int[]{1, 3}) {
+                    List<Solution> some = solve(TestBoards.withCornerRobots(seed), count, parallelism);
+                    String msg = "seed " + seed + " count " + count + " parallelism " + parallelism;
+                    assertEquals(msg + ": optimal move count", all.get(0).size(), some.get(0).size());
+                    assertTrue(msg + ": number of solutions", some.size() <= count);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSolutionCount_Invalid() {
+        Solver.createInstance(TestBoards.withCornerRobots(1)).setOptionSolutionCount(0);
+    }
+
+    /**
+     * Nodes of the last (most expensive) depth iteration, all solutions vs. the first one.
+     * Stopping at the solution count is not a limit: the search status stays SOLVED.
+     */
+    @Test
+    public void testLastIteration_FirstSolutionVisitsFewerNodes() throws Exception {
+        for (long seed = 1; seed <= 5; seed++) {
+            long all = lastIterationNodes(TestBoards.withCornerRobots(seed), Solver.SOLUTION_COUNT_ALL);
+            long first = lastIterationNodes(TestBoards.withCornerRobots(seed), 1);
+            assertTrue("seed " + seed + ": first solution should not visit more nodes", first <= all);
+        }
+    }
+
+    // returns the nodes of the last depth iteration
+    private long lastIterationNodes(Board board, int solutionCount) throws Exception {
+        final List<SearchProgress> progress = new ArrayList<>();
+        Solver solver = Solver.createInstance(board);
+        solver.setOptionSolutionCount(solutionCount);
+        solver.setProgressListener(new SearchProgressListener() {
+            @Override
+            public void onDepthCompleted(SearchProgress p) {
+                progress.add(p);
+            }
+
+            @Override
+            public void onSolutionFound(Solution solution) {
+            }
+        });
+        solver.execute();
+        assertEquals(Solver.SEARCH_STATUS.SOLVED, solver.getSearchStatus());
+        SearchProgress last = progress.get(progress.size() - 1);
+        SearchProgress previous = (progress.size() > 1) ? progress.get(progress.size() - 2) : null;
+        return last.nodesExpanded - ((previous == null) ? 0 : previous.nodesExpanded);
+    }
+}
@@ -0,0 +1,94 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.Logger;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+import roboyard.logic.solver.DDWorldBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the Android-free solver module: boards built by DDWorldBuilder
+ * (the conversion behind RRGetMap.createDDWorld), the game dump and the pluggable solver Logger.
+ *
+ * Tags: solver, board-conversion, game-dump, logger, driftingdroids
+ */
+public class SolverCoreTest {
+
+    /**
+     * 8x8 board, robot 0 in the top left corner, its target two moves away (east, then south to a wall).
+     */
+    private DDWorldBuilder createBuilder() {
+        return new DDWorldBuilder(8, 8, 4)
+                .setRobot(0, 0, 0)
+                .setRobot(1, 0, 7)
+                .setRobot(2, 7, 7)
+                .setRobot(3, 3, 3)
+                .addWall(7, 5, true) // north wall of (7,5): a robot moving south from (7,0) stops at (7,4)
+                .addTarget(7, 4, 0);
+    }
+
+    @Test
+    public void testBuild_WallsRobotsAndTarget() {
+        Board board = createBuilder().build();
+        assertNotNull(board);
+        assertEquals(8, board.width);
+        assertEquals(8, board.getHeight());
+        assertEquals(0, board.getRobotPositions()[0]);
+        assertEquals(3 * 8 + 3, board.getRobotPositions()[3]);
+        assertTrue(board.isWall(5 * 8 + 7, Board.NORTH));
+        assertTrue("wall is set on both fields", board.isWall(4 * 8 + 7, Board.SOUTH));
+        assertTrue("outer wall", board.isWall(7, Board.EAST));
+        assertEquals(4 * 8 + 7, board.getGoal().position);
+        assertEquals(0, board.getGoal().robotNumber);
+    }
+
+    @Test
+    public void testBuild_Solvable() throws Exception {
+        List<Solution> solutions = Solver.createInstance(createBuilder().build()).execute();
+        assertEquals(2, solutions.get(0).size());
+    }
+
+    @Test
+    public void testBuild_MultipleTargets() {
+        Board board = createBuilder().addTarget(2, 6, 1).build();
+        assertEquals(2, board.getActiveGoals().size());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testBuild_NoTarget() {
+        new DDWorldBuilder(8, 8, 4).setRobot(0, 0, 0).build();
+    }
+
+    @Test
+    public void testGameDump_RoundTripWithLineBreaks() {
+        Board board = createBuilder().build();
+        String dump = board.getGameDump();
+        // wrapped into lines of 76 characters, like a dump pasted into an e-mail
+        String wrapped = dump.replaceAll("(.{76})", "$1\n");
+        Board copy = Board.Companion.createBoardGameDump(wrapped);
+        assertNotNull(copy);
+        assertArrayEquals(board.getRobotPositions(), copy.getRobotPositions());
+        assertEquals(board.getGoal().position, copy.getGoal().position);
+        assertEquals(dump, copy.getGameDump());
+    }
+
+    @Test
+    public void testLoggerSink_ReceivesSolverMessages() throws Exception {
+        final List<String> messages = new ArrayList<>();
+        Logger.Sink previous = Logger.getSink();
+        Logger.setSink((level, tag, message) -> messages.add(message));
+        try {
+            Solver.createInstance(createBuilder().build()).execute();
+        } finally {
+            Logger.setSink(previous);
+        }
+        assertFalse("the solver logs through the sink", messages.isEmpty());
+    }
+}
@@ -0,0 +1,94 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.SearchProgress;
+import driftingdroids.model.SearchProgressListener;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the progress events of the DriftingDroids solver
+ * (one event per completed depth iteration, one per found solution, early stop).
+ *
+ * Tags: solver, progress, listener, driftingdroids
+ */
+public class SolverProgressListenerTest {
+
+    private static class RecordingListener implements SearchProgressListener {
+        final List<SearchProgress> progress = new ArrayList<>();
+        final List<Solution> solutions = new ArrayList<>();
+        Solver stopAtFirstSolution = null;
+
+        @Override
+        public void onDepthCompleted(SearchProgress p) {
+            progress.add(p);
+        }
+
+        @Override
+        public void onSolutionFound(Solution solution) {
+            solutions.add(solution);
+            if (stopAtFirstSolution != null) {
+                stopAtFirstSolution.requestStop();
+            }
+        }
+    }
+
+    private void assertProgressEvents(Solver solver, RecordingListener listener) {
+        List<Solution> result = solver.get();
+        int moves = result.get(0).size();
+        assertFalse("there should be one event per depth", listener.progress.isEmpty());
+        SearchProgress last = listener.progress.get(listener.progress.size() - 1);
+        assertEquals("last event is for the depth of the solution", moves, last.depth);
+        assertEquals(moves, last.getMinimumMoves());
+        for (int i = 0; i < listener.progress.size() - 1; i++) {
+            SearchProgress p = listener.progress.get(i);
+            assertEquals("no solution before the last depth", 0, p.solutionsFound);
+            assertEquals(p.depth + 1, p.getMinimumMoves());
+            assertTrue("depths are increasing", p.depth < listener.progress.get(i + 1).depth);
+            assertTrue("nodes are counted", p.nodesExpanded <= listener.progress.get(i + 1).nodesExpanded);
+        }
+        assertEquals("every solution is reported", result.size(), listener.solutions.size());
+    }
+
+    @Test
+    public void testProgressEvents() throws Exception {
+        Solver solver = Solver.createInstance(TestBoards.withCornerRobots(1));
+        RecordingListener listener = new RecordingListener();
+        solver.setProgressListener(listener);
+        solver.execute();
+        assertProgressEvents(solver, listener);
+    }
+
+    @Test
+    public void testProgressEvents_ParallelSolver() throws Exception {
+        Solver solver = Solver.createInstance(TestBoards.withCornerRobots(1), 3);
+        RecordingListener listener = new RecordingListener();
+        solver.setProgressListener(listener);
+        solver.execute();
+        assertProgressEvents(solver, listener);
+    }
+
+    @Test
+    public void testRequestStop_AtFirstSolution() throws Exception {
+        for (long seed = 1; seed <= 5; seed++) {
+            List<Solution> all = Solver.createInstance(TestBoards.withCornerRobots(seed)).execute();
+
+            Solver solver = Solver.createInstance(TestBoards.withCornerRobots(seed));
+            RecordingListener listener = new RecordingListener();
+            listener.stopAtFirstSolution = solver;
+            solver.setProgressListener(listener);
+            List<Solution> first = solver.execute();
+
+            assertEquals("seed " + seed, Solver.SEARCH_STATUS.SOLVED, solver.getSearchStatus());
+            assertEquals("seed " + seed + ": optimal move count", all.get(0).size(), first.get(0).size());
+            assertTrue("seed " + seed + ": stopped early", first.size() <= all.size());
+        }
+    }
+}
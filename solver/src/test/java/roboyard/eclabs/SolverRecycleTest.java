@@ -0,0 +1,78 @@
+package roboyard.eclabs;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.SearchBudget;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for Solver.recycle(): a solver created for the next board reuses the search buffers
+ * of the previous one and must find the same solutions as a new solver.
+ *
+ * Tags: solver, recycle, memory, driftingdroids
+ */
+public class SolverRecycleTest {
+
+    @Test
+    public void testRecycle_SameSolutionsAsNewSolver() throws Exception {
+        Solver recycled = null;
+        for (long seed = 1; seed <= 5; seed++) {
+            List<Solution> expected = Solver.createInstance(TestBoards.withCornerRobots(seed, 4)).execute();
+
+            Board board = TestBoards.withCornerRobots(seed, 4);
+            Solver solver = (recycled == null) ? Solver.createInstance(board) : recycled.recycle(board);
+            List<Solution> actual = solver.execute();
+            recycled = solver;
+
+            assertEquals("seed " + seed + ": released memory", 0, solver.getReleasedMemoryMegabytes());
+            assertEquals("seed " + seed + ": solutions", expected.size(), actual.size());
+            assertEquals("seed " + seed + ": first solution",
+                    expected.get(0).toMovelistString(), actual.get(0).toMovelistString());
+        }
+    }
+
+    @Test
+    public void testReleaseRecycledBuffers() throws Exception {
+        Solver solver = Solver.createInstance(TestBoards.withCornerRobots(1, 4));
+        solver.execute();
+        assertTrue("a small map is kept", solver.getRecycledBytes() > 0);
+        solver.releaseRecycledBuffers();
+        assertEquals(0, solver.getRecycledBytes());
+
+        List<Solution> expected = Solver.createInstance(TestBoards.withCornerRobots(2, 4)).execute();
+        assertEquals(expected.get(0).size(), solver.recycle(TestBoards.withCornerRobots(2, 4)).execute().get(0).size());
+    }
+
+    @Test
+    public void testRecycle_ParallelSolver() throws Exception {
+        Solver first = Solver.createInstance(TestBoards.withCornerRobots(1, 4), 2);
+        first.execute();
+        Solver solver = first.recycle(TestBoards.withCornerRobots(2, 4));
+        List<Solution> expected = Solver.createInstance(TestBoards.withCornerRobots(2, 4)).execute();
+        assertEquals(expected.get(0).size(), solver.execute().get(0).size());
+    }
+
+    @Test
+    public void testRecycle_OtherRobotCountAndOptions() throws Exception {
+        Solver first = Solver.createInstance(TestBoards.withCornerRobots(1, 4));
+        first.setOptionSolutionCount(1);
+        first.setSearchBudget(new SearchBudget(1000000));
+        first.execute();
+
+        // the buffers don't fit a board with 3 robots: the new solver allocates its own
+        Board board = TestBoards.withCornerRobots(2, 3);
+        Solver solver = first.recycle(board);
+        assertEquals("options are kept", 1, solver.getOptionSolutionCount());
+        assertSame("options are kept", first.getSearchBudget(), solver.getSearchBudget());
+
+        List<Solution> expected = Solver.createInstance(TestBoards.withCornerRobots(2, 3)).execute();
+        List<Solution> actual = solver.execute();
+        assertEquals(expected.get(0).size(), actual.get(0).size());
+    }
+}
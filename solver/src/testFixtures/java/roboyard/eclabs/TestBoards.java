@@ -0,0 +1,114 @@
+package roboyard.eclabs;
+
+import driftingdroids.model.Board;
+
+import java.util.Random;
+
+/**
+ * Reproducible freestyle boards with random walls for the solver tests: the same seed
+ * always gives the same board. Test fixture of the solver module, also used by the app tests.
+ */
+public final class TestBoards {
+
+    private static final String[] WALL_DIRECTIONS = {"N", "E", "S", "W"};
+
+    // the corners of a 16x16 board
+    private static final int[] CORNERS = {0, 15, 240, 255};
+
+    // the goal of the 16x16 boards
+    private static final int GOAL_16 = 7 + 16 * 9;
+
+    private TestBoards() {
+    }
+
+    /**
+     * 16x16 board with 64 random walls, 4 robots in the corners and one goal for robot 0.
+     */
+    public static Board withCornerRobots(long seed) {
+        return withCornerRobots(seed, 4);
+    }
+
+    /**
+     * 16x16 board with 64 random walls, numRobots (at most 4) robots in the corners and one goal for robot 0.
+     */
+    public static Board withCornerRobots(long seed, int numRobots) {
+        int[] robots = new int[numRobots];
+        System.arraycopy(CORNERS, 0, robots, 0, numRobots);
+        return withRobots(seed, robots);
+    }
+
+    /**
+     * 16x16 board with 64 random walls, a robot at each of the given positions and one goal for robot 0.
+     */
+    public static Board withRobots(long seed, int[] robotPositions) {
+        Random random = new Random(seed);
+        Board board = Board.createBoardFreestyle(null, 16, 16, robotPositions.length);
+        board.removeGoals();
+        addWalls(board, random, 256, 64);
+        for (int robot = 0; robot < robotPositions.length; robot++) {
+            board.setRobot(robot, robotPositions[robot], false);
+        }
+        board.addGoal(GOAL_16, 0, Board.GOAL_CIRCLE);
+        board.setGoal(GOAL_16);
+        return board;
+    }
+
+    /**
+     * 8x8 board with 14 random walls, 4 robots in the central square and a random goal
+     * for a random robot.
+     */
+    public static Board small(long seed) {
+        Random random = new Random(seed);
+        Board board = Board.createBoardFreestyle(null, 8, 8, 4);
+        board.removeGoals();
+        addWalls(board, random, 64, 14);
+        // robots in the four corners of the central square
+        board.setRobot(0, 27, false);
+        board.setRobot(1, 28, false);
+        board.setRobot(2, 35, false);
+        board.setRobot(3, 36, false);
+        int goalPosition;
+        do {
+            goalPosition = random.nextInt(64);
+        } while (goalPosition == 27 || goalPosition == 28 || goalPosition == 35 || goalPosition == 36);
+        int goalRobot = random.nextInt(4);
+        board.addGoal(goalPosition, goalRobot, Board.GOAL_CIRCLE);
+        board.setGoal(goalPosition);
+        return board;
+    }
+
+    /**
+     * Board of any size with width*height/4 random walls, 4 robots on random free positions
+     * and a random goal for a random robot.
+     */
+    public static Board withRandomRobots(long seed, int width, int height) {
+        Random random = new Random(seed);
+        int size = width * height;
+        Board board = Board.createBoardFreestyle(null, width, height, 4);
+        board.removeGoals();
+        addWalls(board, random, size, size / 4);
+        int[] robots = new int[4];
+        for (int robot = 0; robot < 4; robot++) {
+            int position;
+            boolean isFree;
+            do {
+                position = random.nextInt(size);
+                isFree = true;
+                for (int other = 0; other < robot; other++) {
+                    isFree &= (robots[other] != position);
+                }
+            } while (!isFree || !board.setRobot(robot, position, false)); // setRobot fails on obstacles
+            robots[robot] = position;
+        }
+        int goalPosition = random.nextInt(size);
+        board.addGoal(goalPosition, random.nextInt(4), Board.GOAL_CIRCLE);
+        board.setGoal(goalPosition);
+        return board;
+    }
+
+    private static void addWalls(Board board, Random random, int size, int count) {
+        for (int i = 0; i < count; i++) {
+            board.setWall(random.nextInt(size), WALL_DIRECTIONS[random.nextInt(4)], true);
+        }
+    }
+}